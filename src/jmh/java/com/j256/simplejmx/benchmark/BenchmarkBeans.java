@@ -0,0 +1,247 @@
+package com.j256.simplejmx.benchmark;
+
+import com.j256.simplejmx.common.JmxAttributeField;
+import com.j256.simplejmx.common.JmxAttributeMethod;
+import com.j256.simplejmx.common.JmxOperation;
+import com.j256.simplejmx.common.JmxResource;
+
+/**
+ * Bean shapes used by the benchmarks. They are public so the generated accessors can call them directly.
+ * 
+ * @author graywatson
+ */
+public class BenchmarkBeans {
+
+	public static final String DOMAIN_NAME = "j256.benchmark";
+
+	/**
+	 * Names of all of the attributes of the {@link WideBean}.
+	 */
+	public static final String[] WIDE_ATTRIBUTE_NAMES = new String[] { "int0", "int1", "int2", "int3", "int4", "int5",
+			"int6", "int7", "int8", "int9", "long0", "long1", "long2", "long3", "long4", "boxedLong0", "boxedLong1",
+			"boxedLong2", "boxedLong3", "boxedLong4", "string0", "string1", "string2", "string3", "string4", "enabled",
+			"boxedEnabled", "double0", "double1", "double2", };
+
+	/**
+	 * Names of the attributes of the {@link DeepBean} from the top of the class hierarchy on down.
+	 */
+	public static final String[] DEEP_ATTRIBUTE_NAMES =
+			new String[] { "level1", "level2", "level3", "level4", "level5", "deep" };
+
+	private BenchmarkBeans() {
+		// only for static classes
+	}
+
+	/**
+	 * Bean with a lot of primitive and boxed attributes with a mix of fields and methods.
+	 */
+	@JmxResource(domainName = DOMAIN_NAME, beanName = "WideBean")
+	public static class WideBean {
+		@JmxAttributeField(isWritable = true)
+		public int int0 = 0;
+		@JmxAttributeField
+		public int int1 = 1;
+		@JmxAttributeField
+		public int int2 = 2;
+		@JmxAttributeField
+		public int int3 = 3;
+		@JmxAttributeField
+		public int int4 = 4;
+		@JmxAttributeField
+		public int int5 = 5;
+		@JmxAttributeField
+		public int int6 = 6;
+		@JmxAttributeField
+		public int int7 = 7;
+		@JmxAttributeField
+		public int int8 = 8;
+		@JmxAttributeField
+		private int int9 = 9;
+		private long long0 = 100;
+		private Long boxedLong0 = 200L;
+		private String string0 = "string zero";
+		private boolean enabled = true;
+		private double double0 = 1.5;
+
+		@JmxAttributeMethod
+		public long getLong0() {
+			return long0;
+		}
+
+		@JmxAttributeMethod
+		public void setLong0(long long0) {
+			this.long0 = long0;
+		}
+
+		@JmxAttributeMethod
+		public long getLong1() {
+			return long0 + 1;
+		}
+
+		@JmxAttributeMethod
+		public long getLong2() {
+			return long0 + 2;
+		}
+
+		@JmxAttributeMethod
+		public long getLong3() {
+			return long0 + 3;
+		}
+
+		@JmxAttributeMethod
+		public long getLong4() {
+			return long0 + 4;
+		}
+
+		@JmxAttributeMethod
+		public Long getBoxedLong0() {
+			return boxedLong0;
+		}
+
+		@JmxAttributeMethod
+		public void setBoxedLong0(Long boxedLong0) {
+			this.boxedLong0 = boxedLong0;
+		}
+
+		@JmxAttributeMethod
+		public Long getBoxedLong1() {
+			return boxedLong0;
+		}
+
+		@JmxAttributeMethod
+		public Long getBoxedLong2() {
+			return boxedLong0;
+		}
+
+		@JmxAttributeMethod
+		public Long getBoxedLong3() {
+			return boxedLong0;
+		}
+
+		@JmxAttributeMethod
+		public Long getBoxedLong4() {
+			return boxedLong0;
+		}
+
+		@JmxAttributeMethod
+		public String getString0() {
+			return string0;
+		}
+
+		@JmxAttributeMethod
+		public void setString0(String string0) {
+			this.string0 = string0;
+		}
+
+		@JmxAttributeMethod
+		public String getString1() {
+			return string0;
+		}
+
+		@JmxAttributeMethod
+		public String getString2() {
+			return string0;
+		}
+
+		@JmxAttributeMethod
+		public String getString3() {
+			return string0;
+		}
+
+		@JmxAttributeMethod
+		public String getString4() {
+			return string0;
+		}
+
+		@JmxAttributeMethod
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		@JmxAttributeMethod
+		public Boolean getBoxedEnabled() {
+			return enabled;
+		}
+
+		@JmxAttributeMethod
+		public double getDouble0() {
+			return double0;
+		}
+
+		@JmxAttributeMethod
+		public double getDouble1() {
+			return double0 * 2;
+		}
+
+		@JmxAttributeMethod
+		public double getDouble2() {
+			return double0 * 3;
+		}
+
+		@JmxOperation
+		public void reset() {
+			long0 = 100;
+		}
+
+		@JmxOperation
+		public long add(int x, long y) {
+			return x + y;
+		}
+
+		@JmxOperation
+		public String concat(String first, String second, int times) {
+			return first + second + times;
+		}
+	}
+
+	public static class Level1 {
+		@JmxAttributeField
+		public int level1 = 1;
+	}
+
+	public static class Level2 extends Level1 {
+		@JmxAttributeField
+		public long level2 = 2;
+	}
+
+	public static class Level3 extends Level2 {
+		private int level3 = 3;
+
+		@JmxAttributeMethod
+		public int getLevel3() {
+			return level3;
+		}
+	}
+
+	public static class Level4 extends Level3 {
+		@JmxAttributeField
+		public String level4 = "four";
+	}
+
+	public static class Level5 extends Level4 {
+		private Long level5 = 5L;
+
+		@JmxAttributeMethod
+		public Long getLevel5() {
+			return level5;
+		}
+
+		@JmxOperation
+		public int levelOperation(int value) {
+			return value + level3Plus();
+		}
+
+		private int level3Plus() {
+			return getLevel3() + 1;
+		}
+	}
+
+	/**
+	 * Bean at the bottom of a deep class hierarchy with attributes at each level.
+	 */
+	@JmxResource(domainName = DOMAIN_NAME, beanName = "DeepBean")
+	public static class DeepBean extends Level5 {
+		@JmxAttributeField(isWritable = true)
+		public int deep = 6;
+	}
+}
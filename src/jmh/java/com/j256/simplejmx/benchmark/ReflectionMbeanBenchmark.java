@@ -0,0 +1,115 @@
+package com.j256.simplejmx.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.j256.simplejmx.benchmark.BenchmarkBeans.DeepBean;
+import com.j256.simplejmx.benchmark.BenchmarkBeans.WideBean;
+import com.j256.simplejmx.server.MbeanAccessorType;
+import com.j256.simplejmx.server.ReflectionMbean;
+
+/**
+ * Benchmarks of the attribute and operation calls that the MBeanServer makes into our {@link ReflectionMbean}.
+ * 
+ * @author graywatson
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReflectionMbeanBenchmark {
+
+	private static final String[] ADD_SIGNATURE = new String[] { "int", "long" };
+	private static final String[] CONCAT_SIGNATURE =
+			new String[] { String.class.getName(), String.class.getName(), "int" };
+	private static final String[] NO_SIGNATURE = new String[0];
+
+	@Param({ "REFLECTION", "METHOD_HANDLE", "GENERATED" })
+	public MbeanAccessorType accessorType;
+
+	private ReflectionMbean wideMbean;
+	private ReflectionMbean deepMbean;
+	private Attribute longAttribute;
+	private Object[] addParams;
+	private Object[] concatParams;
+
+	@Setup
+	public void setup() {
+		wideMbean = new ReflectionMbean(new WideBean(), null, null, null, null, false, accessorType);
+		deepMbean = new ReflectionMbean(new DeepBean(), null, null, null, null, false, accessorType);
+		longAttribute = new Attribute("long0", 1234L);
+		addParams = new Object[] { 1, 2L };
+		concatParams = new Object[] { "foo", "bar", 3 };
+	}
+
+	@Benchmark
+	public Object getPrimitiveMethodAttribute() throws Exception {
+		return wideMbean.getAttribute("long0");
+	}
+
+	@Benchmark
+	public Object getBoxedMethodAttribute() throws Exception {
+		return wideMbean.getAttribute("boxedLong0");
+	}
+
+	@Benchmark
+	public Object getPublicFieldAttribute() throws Exception {
+		return wideMbean.getAttribute("int0");
+	}
+
+	@Benchmark
+	public Object getPrivateFieldAttribute() throws Exception {
+		return wideMbean.getAttribute("int9");
+	}
+
+	@Benchmark
+	public Object getInheritedAttribute() throws Exception {
+		return deepMbean.getAttribute("level1");
+	}
+
+	@Benchmark
+	public AttributeList getAllWideAttributes() {
+		return wideMbean.getAttributes(BenchmarkBeans.WIDE_ATTRIBUTE_NAMES);
+	}
+
+	@Benchmark
+	public AttributeList getAllDeepAttributes() {
+		return deepMbean.getAttributes(BenchmarkBeans.DEEP_ATTRIBUTE_NAMES);
+	}
+
+	@Benchmark
+	public void setAttribute() throws Exception {
+		wideMbean.setAttribute(longAttribute);
+	}
+
+	@Benchmark
+	public Object invokeNoArgs() throws Exception {
+		return wideMbean.invoke("reset", null, NO_SIGNATURE);
+	}
+
+	@Benchmark
+	public Object invokePrimitiveArgs() throws Exception {
+		return wideMbean.invoke("add", addParams, ADD_SIGNATURE);
+	}
+
+	@Benchmark
+	public Object invokeObjectArgs() throws Exception {
+		return wideMbean.invoke("concat", concatParams, CONCAT_SIGNATURE);
+	}
+}
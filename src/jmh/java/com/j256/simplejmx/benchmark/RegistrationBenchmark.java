@@ -0,0 +1,321 @@
+package com.j256.simplejmx.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.support.StaticApplicationContext;
+
+import com.j256.simplejmx.common.JmxAttributeField;
+import com.j256.simplejmx.common.JmxAttributeMethod;
+import com.j256.simplejmx.common.JmxFolderName;
+import com.j256.simplejmx.common.JmxOperation;
+import com.j256.simplejmx.common.JmxResource;
+import com.j256.simplejmx.common.JmxResourceInfo;
+import com.j256.simplejmx.common.JmxSelfNaming;
+import com.j256.simplejmx.server.JmxServer;
+import com.j256.simplejmx.server.PublishAllBeanWrapper;
+import com.j256.simplejmx.server.RegistrationResult;
+import com.j256.simplejmx.spring.BeanPublisher;
+
+/**
+ * Benchmarks of registering and unregistering a large number of beans of a number of different classes. Each
+ * iteration registers all of the beans into a new MBeanServer. Run with {@code -prof gc} to see the allocations. The
+ * parsed class information is cached so the first iteration of each fork includes the class scanning and the rest
+ * don't. Use {@code -wi 0 -i 1} with a number of forks to measure just the cold startup.
+ * 
+ * @author graywatson
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class RegistrationBenchmark {
+
+	@Param({ "10000", "100000" })
+	public int beanCount;
+
+	@Param({ "1", "10" })
+	public int classCount;
+
+	private MBeanServer mbeanServer;
+	private JmxServer jmxServer;
+	private List<Object> beans;
+	private List<PublishAllBeanWrapper> wrappers;
+	private StaticApplicationContext applicationContext;
+
+	@Setup(Level.Iteration)
+	public void setup() {
+		mbeanServer = MBeanServerFactory.newMBeanServer();
+		jmxServer = new JmxServer(mbeanServer);
+		beans = new ArrayList<Object>(beanCount);
+		wrappers = new ArrayList<PublishAllBeanWrapper>(beanCount);
+		applicationContext = new StaticApplicationContext();
+		for (int i = 0; i < beanCount; i++) {
+			RegistrationBean bean = createBean(i % classCount, "bean" + i);
+			beans.add(bean);
+			wrappers.add(new PublishAllBeanWrapper(bean,
+					new JmxResourceInfo(BenchmarkBeans.DOMAIN_NAME, "wrapped" + i, (String) null)));
+			applicationContext.getBeanFactory().registerSingleton("bean" + i, bean);
+		}
+		applicationContext.refresh();
+	}
+
+	@TearDown(Level.Iteration)
+	public void tearDown() {
+		applicationContext.close();
+		// the mbean-server is not tracked by the factory so the beans go away with it
+		mbeanServer = null;
+	}
+
+	@Benchmark
+	public int register() throws Exception {
+		for (Object bean : beans) {
+			jmxServer.register(bean);
+		}
+		return jmxServer.getRegisteredCount();
+	}
+
+	@Benchmark
+	public int registerUnregister() throws Exception {
+		List<ObjectName> objectNames = new ArrayList<ObjectName>(beans.size());
+		for (Object bean : beans) {
+			objectNames.add(jmxServer.register(bean));
+		}
+		for (ObjectName objectName : objectNames) {
+			jmxServer.unregisterThrow(objectName);
+		}
+		return jmxServer.getRegisteredCount();
+	}
+
+	@Benchmark
+	public List<RegistrationResult> registerAll() throws Exception {
+		return jmxServer.registerAll(beans);
+	}
+
+	@Benchmark
+	public int registerPublishAllWrappers() throws Exception {
+		for (PublishAllBeanWrapper wrapper : wrappers) {
+			jmxServer.register(wrapper);
+		}
+		return jmxServer.getRegisteredCount();
+	}
+
+	@Benchmark
+	public int springBeanPublisher() throws Exception {
+		BeanPublisher publisher = new BeanPublisher(applicationContext, jmxServer);
+		publisher.afterPropertiesSet();
+		return jmxServer.getRegisteredCount();
+	}
+
+	private static RegistrationBean createBean(int classIndex, String name) {
+		switch (classIndex) {
+			case 0:
+				return new RegistrationBean0(name);
+			case 1:
+				return new RegistrationBean1(name);
+			case 2:
+				return new RegistrationBean2(name);
+			case 3:
+				return new RegistrationBean3(name);
+			case 4:
+				return new RegistrationBean4(name);
+			case 5:
+				return new RegistrationBean5(name);
+			case 6:
+				return new RegistrationBean6(name);
+			case 7:
+				return new RegistrationBean7(name);
+			case 8:
+				return new RegistrationBean8(name);
+			case 9:
+				return new RegistrationBean9(name);
+			default:
+				throw new IllegalArgumentException("classCount can be at most 10, not " + (classIndex + 1));
+		}
+	}
+
+	/**
+	 * Base of our registered beans which each have their own name in a folder.
+	 */
+	public static abstract class RegistrationBean implements JmxSelfNaming {
+
+		private static final JmxFolderName[] FOLDER_NAMES = new JmxFolderName[] { new JmxFolderName("type", "reg") };
+
+		private final String name;
+		@JmxAttributeField(isWritable = true)
+		public int count;
+		private long total;
+		private String label = "label";
+
+		public RegistrationBean(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public String getJmxDomainName() {
+			return BenchmarkBeans.DOMAIN_NAME;
+		}
+
+		@Override
+		public String getJmxBeanName() {
+			return name;
+		}
+
+		@Override
+		public JmxFolderName[] getJmxFolderNames() {
+			return FOLDER_NAMES;
+		}
+
+		@JmxAttributeMethod
+		public long getTotal() {
+			return total;
+		}
+
+		@JmxAttributeMethod
+		public void setTotal(long total) {
+			this.total = total;
+		}
+
+		@JmxAttributeMethod
+		public String getLabel() {
+			return label;
+		}
+
+		@JmxAttributeMethod
+		public boolean isActive() {
+			return count > 0;
+		}
+
+		@JmxOperation
+		public void reset() {
+			count = 0;
+			total = 0;
+		}
+
+		@JmxOperation
+		public long addToTotal(long value) {
+			total += value;
+			return total;
+		}
+	}
+
+	@JmxResource
+	public static class RegistrationBean0 extends RegistrationBean {
+		@JmxAttributeField
+		public int value0;
+
+		public RegistrationBean0(String name) {
+			super(name);
+		}
+	}
+
+	@JmxResource
+	public static class RegistrationBean1 extends RegistrationBean {
+		@JmxAttributeField
+		public int value1;
+
+		public RegistrationBean1(String name) {
+			super(name);
+		}
+	}
+
+	@JmxResource
+	public static class RegistrationBean2 extends RegistrationBean {
+		@JmxAttributeField
+		public int value2;
+
+		public RegistrationBean2(String name) {
+			super(name);
+		}
+	}
+
+	@JmxResource
+	public static class RegistrationBean3 extends RegistrationBean {
+		@JmxAttributeField
+		public int value3;
+
+		public RegistrationBean3(String name) {
+			super(name);
+		}
+	}
+
+	@JmxResource
+	public static class RegistrationBean4 extends RegistrationBean {
+		@JmxAttributeField
+		public int value4;
+
+		public RegistrationBean4(String name) {
+			super(name);
+		}
+	}
+
+	@JmxResource
+	public static class RegistrationBean5 extends RegistrationBean {
+		@JmxAttributeField
+		public int value5;
+
+		public RegistrationBean5(String name) {
+			super(name);
+		}
+	}
+
+	@JmxResource
+	public static class RegistrationBean6 extends RegistrationBean {
+		@JmxAttributeField
+		public int value6;
+
+		public RegistrationBean6(String name) {
+			super(name);
+		}
+	}
+
+	@JmxResource
+	public static class RegistrationBean7 extends RegistrationBean {
+		@JmxAttributeField
+		public int value7;
+
+		public RegistrationBean7(String name) {
+			super(name);
+		}
+	}
+
+	@JmxResource
+	public static class RegistrationBean8 extends RegistrationBean {
+		@JmxAttributeField
+		public int value8;
+
+		public RegistrationBean8(String name) {
+			super(name);
+		}
+	}
+
+	@JmxResource
+	public static class RegistrationBean9 extends RegistrationBean {
+		@JmxAttributeField
+		public int value9;
+
+		public RegistrationBean9(String name) {
+			super(name);
+		}
+	}
+}
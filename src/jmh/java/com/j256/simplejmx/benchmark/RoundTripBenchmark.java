@@ -0,0 +1,87 @@
+package com.j256.simplejmx.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.Attribute;
+import javax.management.ObjectName;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.j256.simplejmx.benchmark.BenchmarkBeans.WideBean;
+import com.j256.simplejmx.client.JmxClient;
+import com.j256.simplejmx.server.JmxServer;
+
+/**
+ * Benchmarks of a {@link JmxClient} talking to a {@link JmxServer} in the same JVM over the local RMI connector.
+ * 
+ * @author graywatson
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoundTripBenchmark {
+
+	@Param({ "8123" })
+	public int port;
+
+	private JmxServer jmxServer;
+	private JmxClient jmxClient;
+	private WideBean wideBean;
+	private ObjectName objectName;
+
+	@Setup
+	public void setup() throws Exception {
+		jmxServer = new JmxServer(port);
+		jmxServer.start();
+		wideBean = new WideBean();
+		objectName = jmxServer.register(wideBean);
+		jmxClient = new JmxClient(port);
+	}
+
+	@TearDown
+	public void tearDown() {
+		jmxClient.close();
+		jmxServer.unregister(wideBean);
+		jmxServer.stop();
+	}
+
+	@Benchmark
+	public Object getAttribute() throws Exception {
+		return jmxClient.getAttribute(objectName, "long0");
+	}
+
+	@Benchmark
+	public List<Attribute> getAllAttributes() throws Exception {
+		return jmxClient.getAttributes(objectName, BenchmarkBeans.WIDE_ATTRIBUTE_NAMES);
+	}
+
+	@Benchmark
+	public void setAttribute() throws Exception {
+		jmxClient.setAttribute(objectName, "long0", (Object) 1234L);
+	}
+
+	@Benchmark
+	public Object invokeOperation() throws Exception {
+		return jmxClient.invokeOperation(objectName, "add", (Object) 1, (Object) 2L);
+	}
+
+	@Benchmark
+	public Object invokeOperationStrings() throws Exception {
+		return jmxClient.invokeOperation(objectName, "concat", "foo", "bar", "3");
+	}
+}
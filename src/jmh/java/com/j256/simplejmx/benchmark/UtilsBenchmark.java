@@ -0,0 +1,111 @@
+package com.j256.simplejmx.benchmark;
+
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.ObjectName;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.j256.simplejmx.benchmark.BenchmarkBeans.WideBean;
+import com.j256.simplejmx.client.ClientUtils;
+import com.j256.simplejmx.common.BaseJmxSelfNaming;
+import com.j256.simplejmx.common.JmxFolderName;
+import com.j256.simplejmx.common.ObjectNameUtil;
+
+/**
+ * Benchmarks of the object-name building and the client string conversions.
+ * 
+ * @author graywatson
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UtilsBenchmark {
+
+	private static final String[] FOLDER_NAMES = new String[] { "type=cache", "name=sessions", "region=east" };
+
+	private final WideBean annotatedBean = new WideBean();
+	private final SelfNamingBean selfNamingBean = new SelfNamingBean();
+	private final Object[] values = new Object[] { 1, "string", new int[] { 1, 2, 3 }, null };
+
+	@Benchmark
+	public ObjectName makeObjectNameAnnotated() {
+		return ObjectNameUtil.makeObjectName(annotatedBean);
+	}
+
+	@Benchmark
+	public ObjectName makeObjectNameSelfNaming() {
+		return ObjectNameUtil.makeObjectName(selfNamingBean);
+	}
+
+	@Benchmark
+	public ObjectName makeObjectNameFolders() {
+		return ObjectNameUtil.makeObjectName(BenchmarkBeans.DOMAIN_NAME, "Bean", FOLDER_NAMES);
+	}
+
+	@Benchmark
+	public Object valueToParamInt() {
+		return ClientUtils.valueToParam("12345", "int");
+	}
+
+	@Benchmark
+	public Object valueToParamBoxedLong() {
+		return ClientUtils.valueToParam("1234567890123", Long.class.getName());
+	}
+
+	@Benchmark
+	public Object valueToParamBoolean() {
+		return ClientUtils.valueToParam("true", "boolean");
+	}
+
+	@Benchmark
+	public Object valueToParamString() {
+		return ClientUtils.valueToParam("some string", String.class.getName());
+	}
+
+	@Benchmark
+	public Object valueToParamStringConstructor() {
+		return ClientUtils.valueToParam("123456789012345678901234567890", BigInteger.class.getName());
+	}
+
+	@Benchmark
+	public int valueToString() {
+		int length = 0;
+		for (Object value : values) {
+			length += ClientUtils.valueToString(value).length();
+		}
+		return length;
+	}
+
+	public static class SelfNamingBean extends BaseJmxSelfNaming {
+		private final JmxFolderName[] folderNames =
+				new JmxFolderName[] { new JmxFolderName("type", "cache"), new JmxFolderName("sessions") };
+
+		@Override
+		public String getJmxDomainName() {
+			return BenchmarkBeans.DOMAIN_NAME;
+		}
+
+		@Override
+		public String getJmxBeanName() {
+			return "SelfNamingBean";
+		}
+
+		@Override
+		public JmxFolderName[] getJmxFolderNames() {
+			return folderNames;
+		}
+	}
+}
@@ -0,0 +1,128 @@
+package com.j256.simplejmx.benchmark;
+
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.j256.simplejmx.benchmark.BenchmarkBeans.DeepBean;
+import com.j256.simplejmx.benchmark.BenchmarkBeans.WideBean;
+import com.j256.simplejmx.common.ObjectNameUtil;
+import com.j256.simplejmx.server.JmxServer;
+import com.j256.simplejmx.web.JmxWebHandler;
+import com.j256.simplejmx.web.JmxWebPublisher;
+
+/**
+ * Benchmarks of the web handler page rendering without the web server in front of it.
+ * 
+ * @author graywatson
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WebHandlerBenchmark {
+
+	private final JmxWebHandler webHandler = new JmxWebHandler();
+	private JmxServer jmxServer;
+	private WideBean wideBean;
+	private DeepBean deepBean;
+	private String wideBeanPath;
+
+	@Setup
+	public void setup() throws Exception {
+		jmxServer = new JmxServer(true);
+		wideBean = new WideBean();
+		deepBean = new DeepBean();
+		jmxServer.register(wideBean);
+		jmxServer.register(deepBean);
+		wideBeanPath = "/b/" + ObjectNameUtil.makeObjectName(wideBean);
+	}
+
+	@TearDown
+	public void tearDown() {
+		jmxServer.unregister(wideBean);
+		jmxServer.unregister(deepBean);
+	}
+
+	@Benchmark
+	public int renderDomains() throws Exception {
+		return render("/", null);
+	}
+
+	@Benchmark
+	public int renderDomainBeans() throws Exception {
+		return render("/d/java.lang", null);
+	}
+
+	@Benchmark
+	public int renderBeanHtml() throws Exception {
+		return render(wideBeanPath, null);
+	}
+
+	@Benchmark
+	public int renderBeanText() throws Exception {
+		return render(wideBeanPath, "t");
+	}
+
+	private int render(String path, String param) throws Exception {
+		StringWriter writer = new StringWriter();
+		webHandler.handle(new BenchmarkPublisher(path, param), writer, null);
+		return writer.getBuffer().length();
+	}
+
+	/**
+	 * Publisher which answers with the request path and an optional parameter.
+	 */
+	private static class BenchmarkPublisher implements JmxWebPublisher {
+
+		private final String pathInfo;
+		private final String param;
+
+		public BenchmarkPublisher(String pathInfo, String param) {
+			this.pathInfo = pathInfo;
+			this.param = param;
+		}
+
+		@Override
+		public String getRequestPathInfo() {
+			return pathInfo;
+		}
+
+		@Override
+		public String getRequestQueryParameter(String paramName) {
+			if (paramName.equals(param)) {
+				return "";
+			} else {
+				return null;
+			}
+		}
+
+		@Override
+		public void setResponseContentType(String contentType) {
+			// ignored
+		}
+
+		@Override
+		public void setResponseStatusCode(int httpStatusCode) {
+			// ignored
+		}
+
+		@Override
+		public void sendResponseRedirect(String location) {
+			// ignored
+		}
+	}
+}
@@ -0,0 +1,253 @@
+package com.j256.simplejmx.client;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+import javax.management.Attribute;
+import javax.management.ObjectName;
+
+/**
+ * Asynchronous facade around a {@link JmxClient} whose methods return {@link CompletableFuture}s so a single process
+ * can poll a large number of JMX servers without a thread for each of them. The calls are run by an executor which is
+ * passed in so it can be shared by all of the clients. See {@link #newExecutor(int)}.
+ *
+ * <p>
+ * If a timeout is set then the future is completed with a {@link TimeoutException} if the call takes longer than that.
+ * Cancelling the future or timing out interrupts the call if it has started, although the blocking network I/O of a JMX
+ * call may not notice. Use {@link #withTimeout(long)} for per-call timeouts.
+ * </p>
+ *
+ * <p>
+ * This does not own the client or the executor so they need to be closed and shutdown by the caller.
+ * </p>
+ *
+ * @author graywatson
+ */
+public class JmxAsyncClient {
+
+	private static final AtomicInteger threadCount = new AtomicInteger();
+	private static final Method NEW_VIRTUAL_EXECUTOR_METHOD = findNewVirtualExecutorMethod();
+
+	private final JmxClient client;
+	private final ExecutorService executor;
+	private final long timeoutMillis;
+
+	/**
+	 * Run the calls with the executor without a timeout.
+	 */
+	public JmxAsyncClient(JmxClient client, ExecutorService executor) {
+		this(client, executor, 0);
+	}
+
+	/**
+	 * Run the calls with the executor and time them out after a number of milliseconds, 0 for no timeout.
+	 */
+	public JmxAsyncClient(JmxClient client, ExecutorService executor, long timeoutMillis) {
+		if (client == null) {
+			throw new IllegalArgumentException("Client cannot be null");
+		}
+		if (executor == null) {
+			throw new IllegalArgumentException("Executor cannot be null");
+		}
+		this.client = client;
+		this.executor = executor;
+		this.timeoutMillis = timeoutMillis;
+	}
+
+	/**
+	 * Return an executor to run the calls. It runs each call on a virtual thread if the JVM supports them (Java 21+) so
+	 * there is no limit to the number of calls waiting on the network. Otherwise it runs them on a bounded pool of
+	 * daemon threads and the rest of the calls wait in a queue.
+	 *
+	 * @param maxThreads
+	 *            Maximum number of threads if virtual threads are not supported.
+	 */
+	public static ExecutorService newExecutor(int maxThreads) {
+		if (NEW_VIRTUAL_EXECUTOR_METHOD != null) {
+			try {
+				return (ExecutorService) NEW_VIRTUAL_EXECUTOR_METHOD.invoke(null);
+			} catch (Exception e) {
+				// fall through to the thread pool
+			}
+		}
+		ThreadPoolExecutor threadPool = new ThreadPoolExecutor(maxThreads, maxThreads, 60, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), new AsyncThreadFactory());
+		// idle threads go away
+		threadPool.allowCoreThreadTimeOut(true);
+		return threadPool;
+	}
+
+	/**
+	 * Return a client that shares our client and executor but that times out its calls after a number of
+	 * milliseconds, 0 for no timeout.
+	 */
+	public JmxAsyncClient withTimeout(long timeoutMillis) {
+		return new JmxAsyncClient(client, executor, timeoutMillis);
+	}
+
+	/**
+	 * Return the value of a JMX attribute.
+	 */
+	public CompletableFuture<Object> getAttribute(final ObjectName name, final String attributeName) {
+		return execute(new JmxClientCallback<Object>() {
+			@Override
+			public Object call(JmxClient client) throws Exception {
+				return client.getAttribute(name, attributeName);
+			}
+		});
+	}
+
+	/**
+	 * Get multiple attributes at once from the server.
+	 */
+	public CompletableFuture<List<Attribute>> getAttributes(final ObjectName name, final String[] attributes) {
+		return execute(new JmxClientCallback<List<Attribute>>() {
+			@Override
+			public List<Attribute> call(JmxClient client) throws Exception {
+				return client.getAttributes(name, attributes);
+			}
+		});
+	}
+
+	/**
+	 * Set the JMX attribute to a particular value.
+	 */
+	public CompletableFuture<Void> setAttribute(final ObjectName name, final String attrName, final Object value) {
+		return execute(new JmxClientCallback<Void>() {
+			@Override
+			public Void call(JmxClient client) throws Exception {
+				client.setAttribute(name, attrName, value);
+				return null;
+			}
+		});
+	}
+
+	/**
+	 * Invoke a JMX method as an array of objects. The future's value is the value returned by the method or null if
+	 * none.
+	 */
+	public CompletableFuture<Object> invokeOperation(final ObjectName name, final String operName,
+			final Object... params) {
+		return execute(new JmxClientCallback<Object>() {
+			@Override
+			public Object call(JmxClient client) throws Exception {
+				return client.invokeOperation(name, operName, params);
+			}
+		});
+	}
+
+	/**
+	 * Return a set of the various bean ObjectName objects associated with the Jmx server.
+	 */
+	public CompletableFuture<Set<ObjectName>> getBeanNames() {
+		return execute(new JmxClientCallback<Set<ObjectName>>() {
+			@Override
+			public Set<ObjectName> call(JmxClient client) throws Exception {
+				return client.getBeanNames();
+			}
+		});
+	}
+
+	/**
+	 * Run the callback with our client using the executor.
+	 */
+	public <T> CompletableFuture<T> execute(final JmxClientCallback<T> callback) {
+		final CompletableFuture<T> result = new CompletableFuture<T>();
+		final Future<?> task;
+		try {
+			task = executor.submit(new Runnable() {
+				@Override
+				public void run() {
+					if (result.isDone()) {
+						// cancelled or timed out while waiting to run
+						return;
+					}
+					try {
+						result.complete(callback.call(client));
+					} catch (Throwable th) {
+						result.completeExceptionally(th);
+					}
+				}
+			});
+		} catch (RejectedExecutionException ree) {
+			result.completeExceptionally(ree);
+			return result;
+		}
+
+		final ScheduledFuture<?> timeoutFuture;
+		if (timeoutMillis > 0) {
+			timeoutFuture = TimeoutSchedulerHolder.SCHEDULER.schedule(new Runnable() {
+				@Override
+				public void run() {
+					if (result.completeExceptionally(
+							new TimeoutException("JMX call timed out after " + timeoutMillis + " millis"))) {
+						task.cancel(true);
+					}
+				}
+			}, timeoutMillis, TimeUnit.MILLISECONDS);
+		} else {
+			timeoutFuture = null;
+		}
+		result.whenComplete(new BiConsumer<T, Throwable>() {
+			@Override
+			public void accept(T value, Throwable throwable) {
+				if (timeoutFuture != null) {
+					timeoutFuture.cancel(false);
+				}
+				if (result.isCancelled()) {
+					task.cancel(true);
+				}
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * Executors.newVirtualThreadPerTaskExecutor() is looked up with reflection because we compile with older versions
+	 * of Java.
+	 */
+	private static Method findNewVirtualExecutorMethod() {
+		try {
+			return java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+		} catch (Exception e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Holds the timeout scheduler which is shared by all of the clients and only created if timeouts are used.
+	 */
+	private static class TimeoutSchedulerHolder {
+		static final ScheduledThreadPoolExecutor SCHEDULER = createScheduler();
+
+		private static ScheduledThreadPoolExecutor createScheduler() {
+			ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, new AsyncThreadFactory());
+			// most calls finish before their timeout so don't keep the cancelled timeouts around
+			scheduler.setRemoveOnCancelPolicy(true);
+			return scheduler;
+		}
+	}
+
+	private static class AsyncThreadFactory implements ThreadFactory {
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "simplejmx-async-client-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
@@ -4,20 +4,31 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.MalformedURLException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.management.Attribute;
 import javax.management.AttributeList;
+import javax.management.InstanceNotFoundException;
 import javax.management.JMException;
 import javax.management.MBeanAttributeInfo;
 import javax.management.MBeanInfo;
 import javax.management.MBeanOperationInfo;
 import javax.management.MBeanParameterInfo;
 import javax.management.MBeanServerConnection;
+import javax.management.MBeanServerDelegate;
+import javax.management.MBeanServerNotification;
+import javax.management.Notification;
+import javax.management.NotificationListener;
 import javax.management.ObjectName;
+import javax.management.relation.MBeanServerNotificationFilter;
 import javax.management.remote.JMXConnector;
 import javax.management.remote.JMXConnectorFactory;
 import javax.management.remote.JMXServiceURL;
@@ -36,6 +47,11 @@ public class JmxClient implements Closeable {
 	private JMXConnector jmxConnector;
 	private JMXServiceURL serviceUrl;
 	private MBeanServerConnection mbeanConn;
+	private volatile long mbeanInfoCacheMillis;
+	private final ConcurrentHashMap<ObjectName, CachedMbeanInfo> mbeanInfoCache =
+			new ConcurrentHashMap<ObjectName, CachedMbeanInfo>();
+	private final AtomicLong mbeanInfoGeneration = new AtomicLong();
+	private NotificationListener registrationListener;
 
 	private final static Map<String, String> primitiveObjectMap = new HashMap<String, String>();
 
@@ -186,6 +202,8 @@ public class JmxClient implements Closeable {
 	 * {@link #close()}.
 	 */
 	public void closeThrow() throws JMException {
+		mbeanInfoCache.clear();
+		registrationListener = null;
 		try {
 			if (jmxConnector != null) {
 				jmxConnector.close();
@@ -234,6 +252,18 @@ public class JmxClient implements Closeable {
 		}
 	}
 
+	/**
+	 * Return a set of the bean ObjectName objects that match the pattern such as "java.lang:type=GarbageCollector,*".
+	 */
+	public Set<ObjectName> getBeanNames(ObjectName pattern) throws JMException {
+		checkClientConnected();
+		try {
+			return mbeanConn.queryNames(pattern, null);
+		} catch (IOException e) {
+			throw createJmException("Problems querying for jmx bean names: " + e, e);
+		}
+	}
+
 	/**
 	 * Return an array of the attributes associated with the bean name.
 	 */
@@ -247,7 +277,7 @@ public class JmxClient implements Closeable {
 	public MBeanAttributeInfo[] getAttributesInfo(ObjectName name) throws JMException {
 		checkClientConnected();
 		try {
-			return mbeanConn.getMBeanInfo(name).getAttributes();
+			return getMbeanInfo(name).getAttributes();
 		} catch (Exception e) {
 			throw createJmException("Problems getting bean information from " + name, e);
 		}
@@ -274,7 +304,7 @@ public class JmxClient implements Closeable {
 	public MBeanOperationInfo[] getOperationsInfo(ObjectName name) throws JMException {
 		checkClientConnected();
 		try {
-			return mbeanConn.getMBeanInfo(name).getOperations();
+			return getMbeanInfo(name).getOperations();
 		} catch (Exception e) {
 			throw createJmException("Problems getting bean information from " + name, e);
 		}
@@ -287,7 +317,7 @@ public class JmxClient implements Closeable {
 		checkClientConnected();
 		MBeanInfo mbeanInfo;
 		try {
-			mbeanInfo = mbeanConn.getMBeanInfo(name);
+			mbeanInfo = getMbeanInfo(name);
 		} catch (Exception e) {
 			throw createJmException("Problems getting bean information from " + name, e);
 		}
@@ -349,6 +379,84 @@ public class JmxClient implements Closeable {
 		return getAttributes(ObjectNameUtil.makeObjectName(domain, beanName), attributes);
 	}
 
+	/**
+	 * Get the attributes from all of the beans that match the pattern. See {@link #getBeansAttributes(Map)}.
+	 */
+	public Map<ObjectName, List<Attribute>> getBeansAttributes(ObjectName pattern, String[] attributes)
+			throws Exception {
+		return getBeansAttributes(getBeanNames(pattern), attributes);
+	}
+
+	/**
+	 * Get the same attributes from each of the beans. See {@link #getBeansAttributes(Map)}.
+	 */
+	public Map<ObjectName, List<Attribute>> getBeansAttributes(Collection<ObjectName> names, String[] attributes)
+			throws Exception {
+		Map<ObjectName, String[]> beanAttributes = new LinkedHashMap<ObjectName, String[]>();
+		for (ObjectName name : names) {
+			beanAttributes.put(name, attributes);
+		}
+		return getBeansAttributes(beanAttributes);
+	}
+
+	/**
+	 * Get the attributes from a number of beans. If the attributes for a bean are null then all of its readable
+	 * attributes are returned which needs another call to the server unless the bean information is cached. See
+	 * {@link #setMbeanInfoCacheMillis(long)}. Beans that are not found are left out of the results. To spread the calls
+	 * across a number of connections see {@link JmxClientPool}.
+	 *
+	 * @return Map of the bean names to their attributes in the same order as the argument.
+	 */
+	public Map<ObjectName, List<Attribute>> getBeansAttributes(Map<ObjectName, String[]> beanAttributes)
+			throws Exception {
+		checkClientConnected();
+		Map<ObjectName, List<Attribute>> results = new LinkedHashMap<ObjectName, List<Attribute>>();
+		for (Map.Entry<ObjectName, String[]> entry : beanAttributes.entrySet()) {
+			ObjectName name = entry.getKey();
+			String[] attributes = entry.getValue();
+			try {
+				if (attributes == null) {
+					attributes = getReadableAttributeNames(name);
+				}
+				results.put(name, mbeanConn.getAttributes(name, attributes).asList());
+			} catch (InstanceNotFoundException infe) {
+				// unregistered since it was listed
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * Get the attributes from all of the beans that match the pattern in a single call to the query bean of a
+	 * {@link com.j256.simplejmx.server.JmxServer} that has {@link com.j256.simplejmx.server.JmxServer#setQueryEnabled}
+	 * set to true. Use {@link #getBeansAttributes(ObjectName, String[])} with other servers.
+	 *
+	 * @param attributes
+	 *            Names of the attributes to get or null for all of the readable attributes. Attributes that could not
+	 *            be read are left out of the results.
+	 * @param filter
+	 *            Regex that must be found in the bean names or null for none.
+	 * @return Map of the bean names to their attributes sorted by name.
+	 */
+	public Map<ObjectName, List<Attribute>> queryBeansAttributes(ObjectName pattern, String[] attributes,
+			String filter) throws Exception {
+		checkClientConnected();
+		Object[] results = (Object[]) mbeanConn.invoke(ObjectNameUtil.makeObjectName(ObjectNameUtil.QUERY_OBJECT_NAME),
+				"queryAttributeValues", new Object[] { pattern.toString(), attributes, filter },
+				new String[] { String.class.getName(), String[].class.getName(), String.class.getName() });
+		Map<ObjectName, List<Attribute>> beanAttributes = new LinkedHashMap<ObjectName, List<Attribute>>();
+		for (int i = 0; i + 1 < results.length; i += 2) {
+			Object[] values = (Object[]) results[i + 1];
+			List<Attribute> attributeList = new ArrayList<Attribute>(values.length / 2);
+			// names and values alternate
+			for (int j = 0; j + 1 < values.length; j += 2) {
+				attributeList.add(new Attribute((String) values[j], values[j + 1]));
+			}
+			beanAttributes.put(ObjectNameUtil.makeObjectName((String) results[i]), attributeList);
+		}
+		return beanAttributes;
+	}
+
 	/**
 	 * Set the JMX attribute to a particular value string.
 	 */
@@ -460,6 +568,31 @@ public class JmxClient implements Closeable {
 		return invokeOperation(objectName, operName, paramTypes, params);
 	}
 
+	/**
+	 * Cache the bean information that is needed to set attributes with strings, invoke operations, and get the attribute
+	 * and operation information so those calls don't need another round trip to the server to look it up. The resolved
+	 * operation signatures are also remembered. A notification listener is added to the server so beans that are
+	 * unregistered are removed from the cache. The default is 0 which disables the cache.
+	 *
+	 * @param cacheMillis
+	 *            Number of milliseconds that the information is cached for or -1 to cache it until the bean is
+	 *            unregistered.
+	 */
+	public void setMbeanInfoCacheMillis(long cacheMillis) throws JMException {
+		checkClientConnected();
+		updateRegistrationListener(cacheMillis != 0);
+		this.mbeanInfoCacheMillis = cacheMillis;
+		clearMbeanInfoCache();
+	}
+
+	/**
+	 * Clear the bean information cache. See {@link #setMbeanInfoCacheMillis(long)}.
+	 */
+	public void clearMbeanInfoCache() {
+		mbeanInfoGeneration.incrementAndGet();
+		mbeanInfoCache.clear();
+	}
+
 	private static Map<String, Object> addCredentialsToMap(String userName, String password,
 			Map<String, Object> environmentMap) {
 		if (environmentMap == null) {
@@ -482,15 +615,38 @@ public class JmxClient implements Closeable {
 
 	private String[] lookupParamTypes(ObjectName objectName, String operName, Object[] params) throws JMException {
 		checkClientConnected();
-		MBeanOperationInfo[] operations;
+		String[] paramTypes = new String[params.length];
+		for (int i = 0; i < params.length; i++) {
+			paramTypes[i] = params[i].getClass().getName();
+		}
+		CachedMbeanInfo cached;
 		try {
-			operations = mbeanConn.getMBeanInfo(objectName).getOperations();
+			cached = getCachedMbeanInfo(objectName);
 		} catch (Exception e) {
 			throw createJmException("Cannot get attribute info from " + objectName, e);
 		}
-		String[] paramTypes = new String[params.length];
-		for (int i = 0; i < params.length; i++) {
-			paramTypes[i] = params[i].getClass().getName();
+		String signatureKey = null;
+		if (cached != null) {
+			signatureKey = buildSignatureKey(operName, paramTypes);
+			String[] signatureTypes = cached.signatureMap.get(signatureKey);
+			if (signatureTypes != null) {
+				return signatureTypes;
+			}
+		}
+		String[] signatureTypes = findSignatureTypes(objectName, operName, paramTypes);
+		if (cached != null) {
+			cached.signatureMap.put(signatureKey, signatureTypes);
+		}
+		return signatureTypes;
+	}
+
+	private String[] findSignatureTypes(ObjectName objectName, String operName, String[] paramTypes)
+			throws JMException {
+		MBeanOperationInfo[] operations;
+		try {
+			operations = getMbeanInfo(objectName).getOperations();
+		} catch (Exception e) {
+			throw createJmException("Cannot get attribute info from " + objectName, e);
 		}
 		int nameC = 0;
 		String[] first = null;
@@ -499,11 +655,11 @@ public class JmxClient implements Closeable {
 				continue;
 			}
 			MBeanParameterInfo[] mbeanParams = info.getSignature();
-			if (params.length != mbeanParams.length) {
+			if (paramTypes.length != mbeanParams.length) {
 				continue;
 			}
 			String[] signatureTypes = new String[mbeanParams.length];
-			for (int i = 0; i < params.length; i++) {
+			for (int i = 0; i < paramTypes.length; i++) {
 				signatureTypes[i] = mbeanParams[i].getType();
 			}
 			if (paramTypes.length == signatureTypes.length) {
@@ -555,7 +711,7 @@ public class JmxClient implements Closeable {
 	private MBeanAttributeInfo getAttrInfo(ObjectName objectName, String attrName) throws JMException {
 		MBeanAttributeInfo[] attributes;
 		try {
-			attributes = mbeanConn.getMBeanInfo(objectName).getAttributes();
+			attributes = getMbeanInfo(objectName).getAttributes();
 		} catch (Exception e) {
 			throw createJmException("Cannot get attribute info from " + objectName, e);
 		}
@@ -567,9 +723,118 @@ public class JmxClient implements Closeable {
 		return null;
 	}
 
+	private String[] getReadableAttributeNames(ObjectName objectName) throws Exception {
+		MBeanAttributeInfo[] attributeInfos = getMbeanInfo(objectName).getAttributes();
+		List<String> names = new ArrayList<String>(attributeInfos.length);
+		for (MBeanAttributeInfo info : attributeInfos) {
+			if (info.isReadable()) {
+				names.add(info.getName());
+			}
+		}
+		return names.toArray(new String[names.size()]);
+	}
+
+	private MBeanInfo getMbeanInfo(ObjectName objectName) throws Exception {
+		CachedMbeanInfo cached = getCachedMbeanInfo(objectName);
+		if (cached == null) {
+			return mbeanConn.getMBeanInfo(objectName);
+		} else {
+			return cached.mbeanInfo;
+		}
+	}
+
+	/**
+	 * Return the cached information for the bean, looking it up if needed, or null if the cache is disabled.
+	 */
+	private CachedMbeanInfo getCachedMbeanInfo(ObjectName objectName) throws Exception {
+		long cacheMillis = mbeanInfoCacheMillis;
+		if (cacheMillis == 0) {
+			return null;
+		}
+		long now = System.currentTimeMillis();
+		CachedMbeanInfo cached = mbeanInfoCache.get(objectName);
+		if (cached != null && (cacheMillis < 0 || now < cached.expireMillis)) {
+			return cached;
+		}
+		long generation = mbeanInfoGeneration.get();
+		cached = new CachedMbeanInfo(mbeanConn.getMBeanInfo(objectName), now + cacheMillis);
+		mbeanInfoCache.put(objectName, cached);
+		if (mbeanInfoGeneration.get() != generation) {
+			// a bean was unregistered while we were looking it up so it may have been this one
+			mbeanInfoCache.remove(objectName, cached);
+		}
+		return cached;
+	}
+
+	private String buildSignatureKey(String operName, String[] paramTypes) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(operName).append('(');
+		for (int i = 0; i < paramTypes.length; i++) {
+			if (i > 0) {
+				sb.append(',');
+			}
+			sb.append(paramTypes[i]);
+		}
+		sb.append(')');
+		return sb.toString();
+	}
+
+	private synchronized void updateRegistrationListener(boolean listen) throws JMException {
+		if (listen == (registrationListener != null)) {
+			return;
+		}
+		if (!listen) {
+			try {
+				mbeanConn.removeNotificationListener(MBeanServerDelegate.DELEGATE_NAME, registrationListener);
+				jmxConnector.removeConnectionNotificationListener(registrationListener);
+			} catch (Exception e) {
+				// ignored because we are going away
+			}
+			registrationListener = null;
+			return;
+		}
+		NotificationListener listener = new NotificationListener() {
+			@Override
+			public void handleNotification(Notification notification, Object handback) {
+				if (notification instanceof MBeanServerNotification) {
+					mbeanInfoGeneration.incrementAndGet();
+					mbeanInfoCache.remove(((MBeanServerNotification) notification).getMBeanName());
+				} else {
+					// notifications may have been lost or the connection has changed
+					clearMbeanInfoCache();
+				}
+			}
+		};
+		MBeanServerNotificationFilter filter = new MBeanServerNotificationFilter();
+		filter.disableType(MBeanServerNotification.REGISTRATION_NOTIFICATION);
+		filter.enableAllObjectNames();
+		try {
+			mbeanConn.addNotificationListener(MBeanServerDelegate.DELEGATE_NAME, listener, filter, null);
+		} catch (Exception e) {
+			throw createJmException("Problems listening for bean unregistrations", e);
+		}
+		jmxConnector.addConnectionNotificationListener(listener, null, null);
+		registrationListener = listener;
+	}
+
 	private JMException createJmException(String message, Exception e) {
 		JMException jmException = new JMException(message);
 		jmException.initCause(e);
 		return jmException;
 	}
+
+	/**
+	 * Bean information in the cache along with the operation signatures that have been resolved from it.
+	 */
+	private static class CachedMbeanInfo {
+
+		final MBeanInfo mbeanInfo;
+		final long expireMillis;
+		final ConcurrentHashMap<String, String[]> signatureMap = new ConcurrentHashMap<String, String[]>();
+
+		public CachedMbeanInfo(MBeanInfo mbeanInfo, long expireMillis) {
+			this.mbeanInfo = mbeanInfo;
+			this.expireMillis = expireMillis;
+		}
+	}
 }
@@ -0,0 +1,14 @@
+package com.j256.simplejmx.client;
+
+/**
+ * Work that is done with one of the connections of a {@link JmxClientPool}.
+ *
+ * @author graywatson
+ */
+public interface JmxClientCallback<T> {
+
+	/**
+	 * Do the work with the client and return the result.
+	 */
+	public T call(JmxClient client) throws Exception;
+}
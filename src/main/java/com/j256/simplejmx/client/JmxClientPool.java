@@ -0,0 +1,524 @@
+package com.j256.simplejmx.client;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.Attribute;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import com.j256.simplejmx.common.IoUtils;
+
+/**
+ * Pool of {@link JmxClient} connections to a single JMX server that spreads the calls across the connections and
+ * reconnects them when they fail. The connections are made the first time that they are needed.
+ *
+ * <p>
+ * When a call fails because of a connection problem, the connection is closed and the call is retried on the next
+ * connection. A failed connection is not reconnected until its backoff time has passed. The backoff doubles with each
+ * failure up to a maximum and has some randomness added so a large number of pools don't all reconnect at the same
+ * time after a network problem. The backoff is only reset once a call works. Calls skip connections that are waiting
+ * to reconnect and fail right away if all of them are. Calls that find a connection being made wait for it.
+ * </p>
+ *
+ * <p>
+ * The connections can be checked in the background with {@link #startHealthChecks(ScheduledExecutorService, long)}.
+ * The executor is passed in so that it can be shared by the pools of a large number of servers.
+ * </p>
+ *
+ * @author graywatson
+ */
+public class JmxClientPool implements Closeable {
+
+	public static final int DEFAULT_NUM_CONNECTIONS = 2;
+	public static final long DEFAULT_MIN_BACKOFF_MILLIS = 100;
+	public static final long DEFAULT_MAX_BACKOFF_MILLIS = 30000;
+
+	private final String jmxUrl;
+	private final Map<String, Object> environmentMap;
+	private final Connection[] connections;
+	private final AtomicInteger nextIndex = new AtomicInteger();
+	private volatile long minBackoffMillis = DEFAULT_MIN_BACKOFF_MILLIS;
+	private volatile long maxBackoffMillis = DEFAULT_MAX_BACKOFF_MILLIS;
+	private volatile boolean closed;
+	private ScheduledFuture<?> healthCheckFuture;
+
+	/**
+	 * Pool connections to a host and port combination.
+	 */
+	public JmxClientPool(String hostName, int port, int numConnections) {
+		this(JmxClient.generalJmxUrlForHostNamePort(hostName, port), null, numConnections);
+	}
+
+	/**
+	 * Pool connections to a JMX server using the full JMX URL format. See {@link JmxClient#JmxClient(String)}.
+	 */
+	public JmxClientPool(String jmxUrl, int numConnections) {
+		this(jmxUrl, null, numConnections);
+	}
+
+	/**
+	 * Pool connections to a JMX server using the full JMX URL format and an environment-map. See
+	 * {@link JmxClient#JmxClient(String, Map)}.
+	 */
+	public JmxClientPool(String jmxUrl, Map<String, Object> environmentMap, int numConnections) {
+		if (jmxUrl == null) {
+			throw new IllegalArgumentException("Jmx URL cannot be null");
+		}
+		if (numConnections <= 0) {
+			throw new IllegalArgumentException("Number of connections must be positive: " + numConnections);
+		}
+		this.jmxUrl = jmxUrl;
+		this.environmentMap = environmentMap;
+		this.connections = new Connection[numConnections];
+		for (int i = 0; i < numConnections; i++) {
+			connections[i] = new Connection();
+		}
+	}
+
+	/**
+	 * Run the callback with one of the connections. If the callback fails because of a connection problem then it is
+	 * run again with another connection so it should be safe to call more than once.
+	 */
+	public <T> T execute(JmxClientCallback<T> callback) throws Exception {
+		return execute(callback, true);
+	}
+
+	/**
+	 * Return the value of a JMX attribute.
+	 */
+	public Object getAttribute(final ObjectName name, final String attributeName) throws Exception {
+		return execute(new JmxClientCallback<Object>() {
+			@Override
+			public Object call(JmxClient client) throws Exception {
+				return client.getAttribute(name, attributeName);
+			}
+		});
+	}
+
+	/**
+	 * Get multiple attributes at once from the server.
+	 */
+	public List<Attribute> getAttributes(final ObjectName name, final String[] attributes) throws Exception {
+		return execute(new JmxClientCallback<List<Attribute>>() {
+			@Override
+			public List<Attribute> call(JmxClient client) throws Exception {
+				return client.getAttributes(name, attributes);
+			}
+		});
+	}
+
+	/**
+	 * Get the attributes from all of the beans that match the pattern. See
+	 * {@link #getBeansAttributes(Map, ExecutorService)}.
+	 */
+	public Map<ObjectName, List<Attribute>> getBeansAttributes(final ObjectName pattern, String[] attributes,
+			ExecutorService executor) throws Exception {
+		Set<ObjectName> names = execute(new JmxClientCallback<Set<ObjectName>>() {
+			@Override
+			public Set<ObjectName> call(JmxClient client) throws Exception {
+				return client.getBeanNames(pattern);
+			}
+		});
+		return getBeansAttributes(names, attributes, executor);
+	}
+
+	/**
+	 * Get the same attributes from each of the beans. See {@link #getBeansAttributes(Map, ExecutorService)}.
+	 */
+	public Map<ObjectName, List<Attribute>> getBeansAttributes(Collection<ObjectName> names, String[] attributes,
+			ExecutorService executor) throws Exception {
+		Map<ObjectName, String[]> beanAttributes = new LinkedHashMap<ObjectName, String[]>();
+		for (ObjectName name : names) {
+			beanAttributes.put(name, attributes);
+		}
+		return getBeansAttributes(beanAttributes, executor);
+	}
+
+	/**
+	 * Get the attributes from a number of beans with the calls spread across the connections in parallel. The beans are
+	 * split into a batch for each connection and the batches are run using the executor. Like the other calls, a batch
+	 * is retried on another connection if there is a connection problem. See {@link JmxClient#getBeansAttributes(Map)}.
+	 *
+	 * @return Map of the bean names to their attributes in the same order as the argument.
+	 */
+	public Map<ObjectName, List<Attribute>> getBeansAttributes(Map<ObjectName, String[]> beanAttributes,
+			ExecutorService executor) throws Exception {
+		int numBatches = Math.min(connections.length, beanAttributes.size());
+		if (numBatches <= 1) {
+			return execute(new BeansAttributesCallback(beanAttributes));
+		}
+
+		int batchSize = (beanAttributes.size() + numBatches - 1) / numBatches;
+		List<Future<Map<ObjectName, List<Attribute>>>> futures =
+				new ArrayList<Future<Map<ObjectName, List<Attribute>>>>(numBatches);
+		try {
+			Map<ObjectName, String[]> batch = new LinkedHashMap<ObjectName, String[]>();
+			for (Map.Entry<ObjectName, String[]> entry : beanAttributes.entrySet()) {
+				batch.put(entry.getKey(), entry.getValue());
+				if (batch.size() >= batchSize) {
+					futures.add(submitBatch(batch, executor));
+					batch = new LinkedHashMap<ObjectName, String[]>();
+				}
+			}
+			if (!batch.isEmpty()) {
+				futures.add(submitBatch(batch, executor));
+			}
+
+			Map<ObjectName, List<Attribute>> results = new LinkedHashMap<ObjectName, List<Attribute>>();
+			for (Future<Map<ObjectName, List<Attribute>>> future : futures) {
+				results.putAll(future.get());
+			}
+			return results;
+		} catch (ExecutionException ee) {
+			Throwable cause = ee.getCause();
+			if (cause instanceof Exception) {
+				throw (Exception) cause;
+			} else {
+				throw ee;
+			}
+		} finally {
+			// does nothing if they are done
+			for (Future<?> future : futures) {
+				future.cancel(true);
+			}
+		}
+	}
+
+	/**
+	 * Set the JMX attribute to a particular value.
+	 */
+	public void setAttribute(final ObjectName name, final String attrName, final Object value) throws Exception {
+		execute(new JmxClientCallback<Void>() {
+			@Override
+			public Void call(JmxClient client) throws Exception {
+				client.setAttribute(name, attrName, value);
+				return null;
+			}
+		});
+	}
+
+	/**
+	 * Invoke a JMX method as an array of objects. The operation is not retried on another connection if there is a
+	 * connection problem because we don't know if the server has already run it.
+	 *
+	 * @return The value returned by the method or null if none.
+	 */
+	public Object invokeOperation(final ObjectName name, final String operName, final Object... params)
+			throws Exception {
+		return execute(new JmxClientCallback<Object>() {
+			@Override
+			public Object call(JmxClient client) throws Exception {
+				return client.invokeOperation(name, operName, params);
+			}
+		}, false);
+	}
+
+	/**
+	 * Return a set of the various bean ObjectName objects associated with the Jmx server.
+	 */
+	public Set<ObjectName> getBeanNames() throws Exception {
+		return execute(new JmxClientCallback<Set<ObjectName>>() {
+			@Override
+			public Set<ObjectName> call(JmxClient client) throws Exception {
+				return client.getBeanNames();
+			}
+		});
+	}
+
+	/**
+	 * Check the connections by making a small call on each of them and reconnect the ones that have failed and whose
+	 * backoff time has passed.
+	 */
+	public void checkConnections() {
+		for (Connection connection : connections) {
+			if (closed) {
+				return;
+			}
+			JmxClient client;
+			try {
+				client = connection.acquire();
+			} catch (JMException e) {
+				// reconnect failed and the backoff was increased
+				continue;
+			}
+			if (client == null) {
+				continue;
+			}
+			try {
+				client.getBeanDomains();
+				connection.succeeded();
+			} catch (Exception e) {
+				if (isConnectionProblem(e)) {
+					connection.failed(client);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Check the connections periodically using the executor. The checks are stopped when the pool is closed.
+	 */
+	public synchronized void startHealthChecks(ScheduledExecutorService executor, long periodMillis) {
+		if (healthCheckFuture != null) {
+			healthCheckFuture.cancel(false);
+		}
+		healthCheckFuture = executor.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				checkConnections();
+			}
+		}, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Return the number of connections that are currently connected.
+	 */
+	public int getNumConnected() {
+		int count = 0;
+		for (Connection connection : connections) {
+			if (connection.isConnected()) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Close all of the connections and stop the health checks.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		synchronized (this) {
+			if (healthCheckFuture != null) {
+				healthCheckFuture.cancel(false);
+				healthCheckFuture = null;
+			}
+		}
+		for (Connection connection : connections) {
+			connection.close();
+		}
+	}
+
+	/**
+	 * Minimum time to wait before reconnecting a failed connection. Default is {@link #DEFAULT_MIN_BACKOFF_MILLIS}.
+	 */
+	public void setMinBackoffMillis(long minBackoffMillis) {
+		this.minBackoffMillis = minBackoffMillis;
+	}
+
+	/**
+	 * Maximum time to wait before reconnecting a failed connection. Default is {@link #DEFAULT_MAX_BACKOFF_MILLIS}.
+	 */
+	public void setMaxBackoffMillis(long maxBackoffMillis) {
+		this.maxBackoffMillis = maxBackoffMillis;
+	}
+
+	private <T> T execute(JmxClientCallback<T> callback, boolean retry) throws Exception {
+		if (closed) {
+			throw new IllegalStateException("JmxClientPool is closed");
+		}
+		Exception lastException = null;
+		int start = nextIndex.getAndIncrement();
+		for (int i = 0; i < connections.length; i++) {
+			Connection connection = connections[Math.abs((start + i) % connections.length)];
+			JmxClient client;
+			try {
+				client = connection.acquire();
+			} catch (JMException e) {
+				lastException = e;
+				continue;
+			}
+			if (client == null) {
+				// waiting to reconnect
+				continue;
+			}
+			try {
+				T result = callback.call(client);
+				connection.succeeded();
+				return result;
+			} catch (Exception e) {
+				if (!isConnectionProblem(e)) {
+					throw e;
+				}
+				connection.failed(client);
+				if (!retry) {
+					throw e;
+				}
+				lastException = e;
+			}
+		}
+		if (lastException == null) {
+			throw new JMException("No connections to " + jmxUrl + " are available, waiting to reconnect");
+		}
+		JMException jmException = new JMException("Problems with all connections to " + jmxUrl);
+		jmException.initCause(lastException);
+		throw jmException;
+	}
+
+	private Future<Map<ObjectName, List<Attribute>>> submitBatch(Map<ObjectName, String[]> batch,
+			ExecutorService executor) {
+		final BeansAttributesCallback callback = new BeansAttributesCallback(batch);
+		return executor.submit(new Callable<Map<ObjectName, List<Attribute>>>() {
+			@Override
+			public Map<ObjectName, List<Attribute>> call() throws Exception {
+				return execute(callback);
+			}
+		});
+	}
+
+	/**
+	 * Network problems show up as IOExceptions which may be wrapped by JMExceptions.
+	 */
+	private boolean isConnectionProblem(Throwable throwable) {
+		for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+			if (cause instanceof IOException) {
+				return true;
+			}
+			if (cause.getCause() == cause) {
+				break;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Gets a batch of bean attributes with one of the connections.
+	 */
+	private static class BeansAttributesCallback implements JmxClientCallback<Map<ObjectName, List<Attribute>>> {
+
+		private final Map<ObjectName, String[]> beanAttributes;
+
+		public BeansAttributesCallback(Map<ObjectName, String[]> beanAttributes) {
+			this.beanAttributes = beanAttributes;
+		}
+
+		@Override
+		public Map<ObjectName, List<Attribute>> call(JmxClient client) throws Exception {
+			return client.getBeansAttributes(beanAttributes);
+		}
+	}
+
+	/**
+	 * One of the connections in the pool.
+	 */
+	private class Connection {
+
+		private JmxClient client;
+		private boolean connecting;
+		private volatile long backoffMillis;
+		private long retryMillis;
+
+		/**
+		 * Return the client, connecting it if needed, or null if it is waiting to reconnect. If another thread is
+		 * connecting it then this waits for that to finish.
+		 */
+		public JmxClient acquire() throws JMException {
+			synchronized (this) {
+				while (connecting) {
+					try {
+						wait();
+					} catch (InterruptedException ie) {
+						Thread.currentThread().interrupt();
+						throw new JMException("Interrupted waiting for connection to " + jmxUrl);
+					}
+				}
+				if (client != null) {
+					return client;
+				}
+				if (closed || System.currentTimeMillis() < retryMillis) {
+					return null;
+				}
+				connecting = true;
+			}
+			JmxClient newClient = null;
+			try {
+				newClient = new JmxClient(jmxUrl, environmentMap);
+				return newClient;
+			} finally {
+				boolean closeNew = false;
+				synchronized (this) {
+					connecting = false;
+					if (newClient == null) {
+						backoff();
+					} else if (closed) {
+						closeNew = true;
+					} else {
+						// the backoff is reset once a call works in case the server accepts connections but not calls
+						client = newClient;
+					}
+					notifyAll();
+				}
+				if (closeNew) {
+					IoUtils.closeQuietly(newClient);
+				}
+			}
+		}
+
+		/**
+		 * A call worked so the next failure starts again from the minimum backoff.
+		 */
+		public void succeeded() {
+			if (backoffMillis != 0) {
+				synchronized (this) {
+					backoffMillis = 0;
+				}
+			}
+		}
+
+		/**
+		 * Close the client after a connection problem and wait before reconnecting.
+		 */
+		public void failed(JmxClient failedClient) {
+			synchronized (this) {
+				if (client != failedClient) {
+					// already handled by another thread
+					return;
+				}
+				client = null;
+				backoff();
+			}
+			IoUtils.closeQuietly(failedClient);
+		}
+
+		public synchronized boolean isConnected() {
+			return (client != null);
+		}
+
+		public void close() {
+			JmxClient oldClient;
+			synchronized (this) {
+				oldClient = client;
+				client = null;
+			}
+			IoUtils.closeQuietly(oldClient);
+		}
+
+		private void backoff() {
+			if (backoffMillis == 0) {
+				backoffMillis = minBackoffMillis;
+			} else {
+				backoffMillis = Math.min(backoffMillis * 2, maxBackoffMillis);
+			}
+			// between half and all of the backoff so the pools don't all reconnect at the same time
+			long halfMillis = backoffMillis / 2;
+			retryMillis = System.currentTimeMillis() + halfMillis + ThreadLocalRandom.current().nextLong(halfMillis + 1);
+		}
+	}
+}
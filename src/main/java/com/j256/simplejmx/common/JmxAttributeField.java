@@ -38,4 +38,17 @@ public @interface JmxAttributeField {
 	 * Set to true if the field can be written by JMX. Default is false.
 	 */
 	public boolean isWritable() default false;
+
+	/**
+	 * Number of milliseconds that the value of the field is cached and returned to other JMX reads. Setting the
+	 * attribute through JMX clears the cached value. Default is 0 which is no caching.
+	 */
+	public long cacheMillis() default 0;
+
+	/**
+	 * Set to true to have the server sample the value of the field and send an AttributeChangeNotification to the
+	 * listeners of the bean when it changes. See
+	 * {@link com.j256.simplejmx.server.JmxServer#setAttributeChangeSampleMillis(long)}. Default is false.
+	 */
+	public boolean notifyOnChange() default false;
 }
@@ -12,6 +12,8 @@ public class JmxAttributeFieldInfo {
 	private boolean isReadible = true;
 	private boolean isWritable;
 	private String description;
+	private long cacheMillis;
+	private boolean notifyOnChange;
 
 	public JmxAttributeFieldInfo() {
 		// for spring
@@ -33,6 +35,8 @@ public class JmxAttributeFieldInfo {
 		this.isReadible = jmxAttribute.isReadible();
 		this.isWritable = jmxAttribute.isWritable();
 		this.description = jmxAttribute.description();
+		this.cacheMillis = jmxAttribute.cacheMillis();
+		this.notifyOnChange = jmxAttribute.notifyOnChange();
 	}
 
 	public String getFieldName() {
@@ -87,6 +91,29 @@ public class JmxAttributeFieldInfo {
 		this.description = description;
 	}
 
+	public long getCacheMillis() {
+		return cacheMillis;
+	}
+
+	/**
+	 * Not required. Number of milliseconds that the value of the field is cached. Default is 0 which is no caching.
+	 */
+	public void setCacheMillis(long cacheMillis) {
+		this.cacheMillis = cacheMillis;
+	}
+
+	public boolean isNotifyOnChange() {
+		return notifyOnChange;
+	}
+
+	/**
+	 * Not required. Set to true to send an AttributeChangeNotification when the value of the field changes. Default is
+	 * false.
+	 */
+	public void setNotifyOnChange(boolean notifyOnChange) {
+		this.notifyOnChange = notifyOnChange;
+	}
+
 	@Override
 	public String toString() {
 		return fieldName + '(' + (isReadible ? "r" : "") + (isWritable ? "w" : "") + ')';
@@ -36,4 +36,18 @@ public @interface JmxAttributeMethod {
 	 * Description of the attribute for jconsole. Default is something like: "someField attribute".
 	 */
 	public String description() default "";
+
+	/**
+	 * Number of milliseconds that the value returned by the getter is cached and returned to other JMX reads. This is
+	 * useful for getters that are expensive to call. Set it on the getter method. Setting the attribute through JMX
+	 * clears the cached value. Default is 0 which is no caching.
+	 */
+	public long cacheMillis() default 0;
+
+	/**
+	 * Set to true to have the server sample the value of the getter and send an AttributeChangeNotification to the
+	 * listeners of the bean when it changes. Set it on the getter method. See
+	 * {@link com.j256.simplejmx.server.JmxServer#setAttributeChangeSampleMillis(long)}. Default is false.
+	 */
+	public boolean notifyOnChange() default false;
 }
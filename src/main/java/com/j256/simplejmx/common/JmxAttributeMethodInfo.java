@@ -11,6 +11,8 @@ public class JmxAttributeMethodInfo {
 
 	private String methodName;
 	private String description;
+	private long cacheMillis;
+	private boolean notifyOnChange;
 
 	public JmxAttributeMethodInfo() {
 		// for spring
@@ -28,6 +30,8 @@ public class JmxAttributeMethodInfo {
 	public JmxAttributeMethodInfo(String methodName, JmxAttributeMethod jmxAttribute) {
 		this.methodName = methodName;
 		this.description = jmxAttribute.description();
+		this.cacheMillis = jmxAttribute.cacheMillis();
+		this.notifyOnChange = jmxAttribute.notifyOnChange();
 	}
 
 	public String getMethodName() {
@@ -52,6 +56,30 @@ public class JmxAttributeMethodInfo {
 		this.description = description;
 	}
 
+	public long getCacheMillis() {
+		return cacheMillis;
+	}
+
+	/**
+	 * Not required. Number of milliseconds that the value returned by the getter is cached. Default is 0 which is no
+	 * caching.
+	 */
+	public void setCacheMillis(long cacheMillis) {
+		this.cacheMillis = cacheMillis;
+	}
+
+	public boolean isNotifyOnChange() {
+		return notifyOnChange;
+	}
+
+	/**
+	 * Not required. Set to true to send an AttributeChangeNotification when the value of the getter changes. Default is
+	 * false.
+	 */
+	public void setNotifyOnChange(boolean notifyOnChange) {
+		this.notifyOnChange = notifyOnChange;
+	}
+
 	@Override
 	public String toString() {
 		return methodName;
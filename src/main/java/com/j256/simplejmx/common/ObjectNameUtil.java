@@ -9,6 +9,12 @@ import javax.management.ObjectName;
  */
 public class ObjectNameUtil {
 
+	/**
+	 * Name of the query bean which a {@link com.j256.simplejmx.server.JmxServer} publishes if it has query enabled. It
+	 * is here so the client can find the bean without depending on the server classes.
+	 */
+	public static final String QUERY_OBJECT_NAME = "simplejmx:type=Query";
+
 	private ObjectNameUtil() {
 		// only for static methods
 	}
@@ -0,0 +1,871 @@
+package com.j256.simplejmx.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates a {@link MbeanAccessor} class for a target class which switches on the attribute or operation index and
+ * calls the getters, setters, fields, and methods directly instead of going through reflection. This avoids the access
+ * checks, argument array copies, and the boxing that reflection does on every call.
+ *
+ * <p>
+ * Only public, non-static members of public classes can be called directly. Any other members are handed off to a
+ * {@link ReflectionAccessor} which is also what is returned if we are not allowed to define classes at all. Like
+ * reflection, anything thrown by the direct calls, including errors, is wrapped in an
+ * {@link java.lang.reflect.InvocationTargetException}.
+ * </p>
+ *
+ * <p>
+ * <b>NOTE:</b> We write version 49 (Java 5) class files so we don't have to compute stack-map frames.
+ * </p>
+ *
+ * @author graywatson
+ */
+class AccessorGenerator {
+
+	private static final String GENERATED_CLASS_PACKAGE = "com.j256.simplejmx.server.generated.";
+	private static final String ACCESSOR_INTERNAL_NAME = internalName(MbeanAccessor.class);
+	private static final String FALLBACK_FIELD_NAME = "fallback";
+	private static final String FALLBACK_FIELD_DESCRIPTOR = "L" + ACCESSOR_INTERNAL_NAME + ";";
+	private static final String GET_ATTRIBUTE_DESCRIPTOR = "(Ljava/lang/Object;I)Ljava/lang/Object;";
+	private static final String SET_ATTRIBUTE_DESCRIPTOR = "(Ljava/lang/Object;ILjava/lang/Object;)V";
+	private static final String INVOKE_OPERATION_DESCRIPTOR =
+			"(Ljava/lang/Object;I[Ljava/lang/Object;)Ljava/lang/Object;";
+	private static final int MAX_CODE_LENGTH = 65535;
+	private static final String INVOCATION_TARGET_INTERNAL_NAME = "java/lang/reflect/InvocationTargetException";
+
+	private static final int ACC_PUBLIC = 0x0001;
+	private static final int ACC_PRIVATE = 0x0002;
+	private static final int ACC_FINAL = 0x0010;
+	private static final int ACC_SUPER = 0x0020;
+
+	private static final int ACONST_NULL = 0x01;
+	private static final int ICONST_0 = 0x03;
+	private static final int BIPUSH = 0x10;
+	private static final int SIPUSH = 0x11;
+	private static final int ILOAD_2 = 0x1c;
+	private static final int ALOAD_0 = 0x2a;
+	private static final int ALOAD_1 = 0x2b;
+	private static final int ALOAD_3 = 0x2d;
+	private static final int AALOAD = 0x32;
+	private static final int DUP_X1 = 0x5a;
+	private static final int SWAP = 0x5f;
+	private static final int TABLESWITCH = 0xaa;
+	private static final int ARETURN = 0xb0;
+	private static final int RETURN = 0xb1;
+	private static final int GETFIELD = 0xb4;
+	private static final int PUTFIELD = 0xb5;
+	private static final int INVOKEVIRTUAL = 0xb6;
+	private static final int INVOKESPECIAL = 0xb7;
+	private static final int INVOKESTATIC = 0xb8;
+	private static final int INVOKEINTERFACE = 0xb9;
+	private static final int NEW = 0xbb;
+	private static final int ATHROW = 0xbf;
+	private static final int CHECKCAST = 0xc0;
+
+	private static final Map<Class<?>, Class<?>> primitiveWrapperMap = new HashMap<Class<?>, Class<?>>();
+
+	static {
+		primitiveWrapperMap.put(boolean.class, Boolean.class);
+		primitiveWrapperMap.put(byte.class, Byte.class);
+		primitiveWrapperMap.put(char.class, Character.class);
+		primitiveWrapperMap.put(short.class, Short.class);
+		primitiveWrapperMap.put(int.class, Integer.class);
+		primitiveWrapperMap.put(long.class, Long.class);
+		primitiveWrapperMap.put(float.class, Float.class);
+		primitiveWrapperMap.put(double.class, Double.class);
+	}
+
+	private static final AtomicInteger classCounter = new AtomicInteger();
+	/** class-value so the cached accessors go away with the class when its class-loader is unloaded */
+	private static final ClassValue<ConcurrentMap<AccessorKey, MbeanAccessor>> accessorCache =
+			new ClassValue<ConcurrentMap<AccessorKey, MbeanAccessor>>() {
+				@Override
+				protected ConcurrentMap<AccessorKey, MbeanAccessor> computeValue(Class<?> type) {
+					return new ConcurrentHashMap<AccessorKey, MbeanAccessor>();
+				}
+			};
+
+	/**
+	 * Return an accessor for the getters, setters, and operations of the target class. One accessor class is generated
+	 * per target class and set of members and then is shared.
+	 */
+	public static MbeanAccessor createAccessor(Class<?> targetClass, Member[] getters, Member[] setters,
+			Method[] operations) {
+		ConcurrentMap<AccessorKey, MbeanAccessor> classAccessors = accessorCache.get(targetClass);
+		AccessorKey key = new AccessorKey(getters, setters, operations);
+		MbeanAccessor accessor = classAccessors.get(key);
+		if (accessor != null) {
+			return accessor;
+		}
+		accessor = generateAccessor(targetClass, new ReflectionAccessor(getters, setters, operations));
+		MbeanAccessor existing = classAccessors.putIfAbsent(key, accessor);
+		if (existing == null) {
+			return accessor;
+		} else {
+			return existing;
+		}
+	}
+
+	/**
+	 * Generate an accessor class for the target-class or return the fallback if it can't be done.
+	 */
+	static MbeanAccessor generateAccessor(Class<?> targetClass, ReflectionAccessor fallback) {
+		if (!isClassAccessible(targetClass)) {
+			return fallback;
+		}
+		String className = GENERATED_CLASS_PACKAGE + targetClass.getSimpleName() + "Accessor"
+				+ classCounter.incrementAndGet();
+		try {
+			byte[] classBytes = generateClassBytes(className, targetClass, fallback);
+			if (classBytes == null) {
+				// nothing can be called directly
+				return fallback;
+			}
+			AccessorClassLoader classLoader = new AccessorClassLoader(targetClass.getClassLoader());
+			Class<?> accessorClass = classLoader.defineAccessorClass(className, classBytes);
+			return (MbeanAccessor) accessorClass.getConstructor(MbeanAccessor.class).newInstance(fallback);
+		} catch (LinkageError le) {
+			// the generated class could not be defined or verified so we stay with reflection
+			return fallback;
+		} catch (Exception e) {
+			// class definition is not allowed here or the class is too large so we stay with reflection
+			return fallback;
+		}
+	}
+
+	private static byte[] generateClassBytes(String className, Class<?> targetClass, ReflectionAccessor fallback) {
+		Member[] getters = fallback.getGetters();
+		Member[] setters = fallback.getSetters();
+		Method[] operations = fallback.getOperations();
+		boolean[] directGetters = new boolean[getters.length];
+		boolean[] directSetters = new boolean[setters.length];
+		boolean[] directOperations = new boolean[operations.length];
+		boolean anyDirect = false;
+		for (int i = 0; i < getters.length; i++) {
+			directGetters[i] = isGetterDirect(getters[i]);
+			anyDirect |= directGetters[i];
+		}
+		for (int i = 0; i < setters.length; i++) {
+			directSetters[i] = isSetterDirect(setters[i]);
+			anyDirect |= directSetters[i];
+		}
+		for (int i = 0; i < operations.length; i++) {
+			directOperations[i] = isOperationDirect(operations[i]);
+			anyDirect |= directOperations[i];
+		}
+		if (!anyDirect) {
+			return null;
+		}
+
+		String classInternalName = className.replace('.', '/');
+		String targetInternalName = internalName(targetClass);
+		ConstantPool pool = new ConstantPool();
+		int thisClassIndex = pool.classRef(classInternalName);
+		int superClassIndex = pool.classRef("java/lang/Object");
+		int accessorIndex = pool.classRef(ACCESSOR_INTERNAL_NAME);
+		int fallbackFieldRef = pool.memberRef(ConstantPool.TAG_FIELDREF, classInternalName, FALLBACK_FIELD_NAME,
+				FALLBACK_FIELD_DESCRIPTOR);
+
+		ByteBuilder methods = new ByteBuilder();
+		writeConstructor(methods, pool, fallbackFieldRef);
+		writeGetAttribute(methods, pool, targetInternalName, fallbackFieldRef, getters, directGetters);
+		writeSetAttribute(methods, pool, targetInternalName, fallbackFieldRef, setters, directSetters);
+		writeInvokeOperation(methods, pool, targetInternalName, fallbackFieldRef, operations, directOperations);
+		int fallbackNameIndex = pool.utf8(FALLBACK_FIELD_NAME);
+		int fallbackDescriptorIndex = pool.utf8(FALLBACK_FIELD_DESCRIPTOR);
+
+		ByteBuilder classBytes = new ByteBuilder();
+		classBytes.put4(0xCAFEBABE);
+		classBytes.put2(0);
+		classBytes.put2(49);
+		pool.writeTo(classBytes);
+		classBytes.put2(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+		classBytes.put2(thisClassIndex);
+		classBytes.put2(superClassIndex);
+		// interfaces
+		classBytes.put2(1);
+		classBytes.put2(accessorIndex);
+		// fields
+		classBytes.put2(1);
+		classBytes.put2(ACC_PRIVATE | ACC_FINAL);
+		classBytes.put2(fallbackNameIndex);
+		classBytes.put2(fallbackDescriptorIndex);
+		classBytes.put2(0);
+		// methods
+		classBytes.put2(4);
+		classBytes.putBytes(methods);
+		// class attributes
+		classBytes.put2(0);
+		return classBytes.toByteArray();
+	}
+
+	private static void writeConstructor(ByteBuilder methods, ConstantPool pool, int fallbackFieldRef) {
+		ByteBuilder code = new ByteBuilder();
+		code.put1(ALOAD_0);
+		code.put1(INVOKESPECIAL);
+		code.put2(pool.memberRef(ConstantPool.TAG_METHODREF, "java/lang/Object", "<init>", "()V"));
+		code.put1(ALOAD_0);
+		code.put1(ALOAD_1);
+		code.put1(PUTFIELD);
+		code.put2(fallbackFieldRef);
+		code.put1(RETURN);
+		writeMethod(methods, pool, "<init>", "(" + FALLBACK_FIELD_DESCRIPTOR + ")V", 2, 2, code, null);
+	}
+
+	private static void writeGetAttribute(ByteBuilder methods, ConstantPool pool, String targetInternalName,
+			int fallbackFieldRef, Member[] getters, boolean[] direct) {
+		ByteBuilder code = new ByteBuilder();
+		SwitchTable table = SwitchTable.start(code, getters.length);
+		int casesPos = code.length();
+		for (int i = 0; i < getters.length; i++) {
+			if (!direct[i]) {
+				continue;
+			}
+			table.startCase(i);
+			code.put1(ALOAD_1);
+			code.put1(CHECKCAST);
+			code.put2(pool.classRef(targetInternalName));
+			Class<?> type;
+			if (getters[i] instanceof Field) {
+				Field field = (Field) getters[i];
+				type = field.getType();
+				code.put1(GETFIELD);
+				code.put2(pool.memberRef(ConstantPool.TAG_FIELDREF, targetInternalName, field.getName(),
+						descriptor(type)));
+			} else {
+				Method method = (Method) getters[i];
+				type = method.getReturnType();
+				code.put1(INVOKEVIRTUAL);
+				code.put2(pool.memberRef(ConstantPool.TAG_METHODREF, targetInternalName, method.getName(),
+						methodDescriptor(method)));
+			}
+			box(code, pool, type);
+			code.put1(ARETURN);
+		}
+		table.startDefault();
+		code.put1(ALOAD_0);
+		code.put1(GETFIELD);
+		code.put2(fallbackFieldRef);
+		code.put1(ALOAD_1);
+		code.put1(ILOAD_2);
+		code.put1(INVOKEINTERFACE);
+		code.put2(pool.memberRef(ConstantPool.TAG_INTERFACE_METHODREF, ACCESSOR_INTERNAL_NAME, "getAttribute",
+				GET_ATTRIBUTE_DESCRIPTOR));
+		code.put1(3);
+		code.put1(0);
+		code.put1(ARETURN);
+		table.finish();
+		int[] tryCatch = writeWrapHandler(code, pool, casesPos, table.getDefaultPos());
+		writeMethod(methods, pool, "getAttribute", GET_ATTRIBUTE_DESCRIPTOR, 4, 3, code, tryCatch);
+	}
+
+	private static void writeSetAttribute(ByteBuilder methods, ConstantPool pool, String targetInternalName,
+			int fallbackFieldRef, Member[] setters, boolean[] direct) {
+		ByteBuilder code = new ByteBuilder();
+		SwitchTable table = SwitchTable.start(code, setters.length);
+		int casesPos = code.length();
+		for (int i = 0; i < setters.length; i++) {
+			if (!direct[i]) {
+				continue;
+			}
+			table.startCase(i);
+			code.put1(ALOAD_1);
+			code.put1(CHECKCAST);
+			code.put2(pool.classRef(targetInternalName));
+			code.put1(ALOAD_3);
+			if (setters[i] instanceof Field) {
+				Field field = (Field) setters[i];
+				castOrUnbox(code, pool, field.getType());
+				code.put1(PUTFIELD);
+				code.put2(pool.memberRef(ConstantPool.TAG_FIELDREF, targetInternalName, field.getName(),
+						descriptor(field.getType())));
+			} else {
+				Method method = (Method) setters[i];
+				castOrUnbox(code, pool, method.getParameterTypes()[0]);
+				code.put1(INVOKEVIRTUAL);
+				code.put2(pool.memberRef(ConstantPool.TAG_METHODREF, targetInternalName, method.getName(),
+						methodDescriptor(method)));
+			}
+			code.put1(RETURN);
+		}
+		table.startDefault();
+		code.put1(ALOAD_0);
+		code.put1(GETFIELD);
+		code.put2(fallbackFieldRef);
+		code.put1(ALOAD_1);
+		code.put1(ILOAD_2);
+		code.put1(ALOAD_3);
+		code.put1(INVOKEINTERFACE);
+		code.put2(pool.memberRef(ConstantPool.TAG_INTERFACE_METHODREF, ACCESSOR_INTERNAL_NAME, "setAttribute",
+				SET_ATTRIBUTE_DESCRIPTOR));
+		code.put1(4);
+		code.put1(0);
+		code.put1(RETURN);
+		table.finish();
+		int[] tryCatch = writeWrapHandler(code, pool, casesPos, table.getDefaultPos());
+		writeMethod(methods, pool, "setAttribute", SET_ATTRIBUTE_DESCRIPTOR, 4, 4, code, tryCatch);
+	}
+
+	private static void writeInvokeOperation(ByteBuilder methods, ConstantPool pool, String targetInternalName,
+			int fallbackFieldRef, Method[] operations, boolean[] direct) {
+		ByteBuilder code = new ByteBuilder();
+		int maxStack = 4;
+		SwitchTable table = SwitchTable.start(code, operations.length);
+		int casesPos = code.length();
+		for (int i = 0; i < operations.length; i++) {
+			if (!direct[i]) {
+				continue;
+			}
+			table.startCase(i);
+			Method method = operations[i];
+			code.put1(ALOAD_1);
+			code.put1(CHECKCAST);
+			code.put2(pool.classRef(targetInternalName));
+			Class<?>[] paramTypes = method.getParameterTypes();
+			int paramSlots = 0;
+			for (int paramC = 0; paramC < paramTypes.length; paramC++) {
+				code.put1(ALOAD_3);
+				pushInt(code, paramC);
+				code.put1(AALOAD);
+				castOrUnbox(code, pool, paramTypes[paramC]);
+				paramSlots += slotSize(paramTypes[paramC]);
+			}
+			// target + parameters + array and index while loading the last parameter
+			maxStack = Math.max(maxStack, 3 + paramSlots);
+			code.put1(INVOKEVIRTUAL);
+			code.put2(pool.memberRef(ConstantPool.TAG_METHODREF, targetInternalName, method.getName(),
+					methodDescriptor(method)));
+			if (method.getReturnType() == void.class) {
+				code.put1(ACONST_NULL);
+			} else {
+				box(code, pool, method.getReturnType());
+			}
+			code.put1(ARETURN);
+		}
+		table.startDefault();
+		code.put1(ALOAD_0);
+		code.put1(GETFIELD);
+		code.put2(fallbackFieldRef);
+		code.put1(ALOAD_1);
+		code.put1(ILOAD_2);
+		code.put1(ALOAD_3);
+		code.put1(INVOKEINTERFACE);
+		code.put2(pool.memberRef(ConstantPool.TAG_INTERFACE_METHODREF, ACCESSOR_INTERNAL_NAME, "invokeOperation",
+				INVOKE_OPERATION_DESCRIPTOR));
+		code.put1(4);
+		code.put1(0);
+		code.put1(ARETURN);
+		table.finish();
+		int[] tryCatch = writeWrapHandler(code, pool, casesPos, table.getDefaultPos());
+		writeMethod(methods, pool, "invokeOperation", INVOKE_OPERATION_DESCRIPTOR, maxStack, 4, code, tryCatch);
+	}
+
+	/**
+	 * Add a handler which wraps anything thrown by the direct calls of the cases in an InvocationTargetException like
+	 * {@link Method#invoke(Object, Object...)} does. The calls to the fallback in the default case are not covered
+	 * because it already does the wrapping.
+	 *
+	 * @return The exception table entry or null if there are no direct cases.
+	 */
+	private static int[] writeWrapHandler(ByteBuilder code, ConstantPool pool, int casesPos, int defaultPos) {
+		if (defaultPos <= casesPos) {
+			return null;
+		}
+		int handlerPos = code.length();
+		// stack has the throwable, we need: new exception, new exception, throwable
+		code.put1(NEW);
+		code.put2(pool.classRef(INVOCATION_TARGET_INTERNAL_NAME));
+		code.put1(DUP_X1);
+		code.put1(SWAP);
+		code.put1(INVOKESPECIAL);
+		code.put2(pool.memberRef(ConstantPool.TAG_METHODREF, INVOCATION_TARGET_INTERNAL_NAME, "<init>",
+				"(Ljava/lang/Throwable;)V"));
+		code.put1(ATHROW);
+		return new int[] { casesPos, defaultPos, handlerPos, pool.classRef("java/lang/Throwable") };
+	}
+
+	private static void writeMethod(ByteBuilder methods, ConstantPool pool, String name, String descriptor,
+			int maxStack, int maxLocals, ByteBuilder code, int[] tryCatch) {
+		if (code.length() > MAX_CODE_LENGTH) {
+			throw new IllegalStateException("Generated method " + name + " is too large: " + code.length());
+		}
+		methods.put2(ACC_PUBLIC);
+		methods.put2(pool.utf8(name));
+		methods.put2(pool.utf8(descriptor));
+		// just the code attribute
+		methods.put2(1);
+		methods.put2(pool.utf8("Code"));
+		methods.put4(12 + code.length() + (tryCatch == null ? 0 : 8));
+		methods.put2(maxStack);
+		methods.put2(maxLocals);
+		methods.put4(code.length());
+		methods.putBytes(code);
+		// exception table
+		if (tryCatch == null) {
+			methods.put2(0);
+		} else {
+			methods.put2(1);
+			for (int value : tryCatch) {
+				methods.put2(value);
+			}
+		}
+		// code attributes
+		methods.put2(0);
+	}
+
+	private static void box(ByteBuilder code, ConstantPool pool, Class<?> type) {
+		if (!type.isPrimitive()) {
+			return;
+		}
+		String wrapperName = internalName(primitiveWrapperMap.get(type));
+		code.put1(INVOKESTATIC);
+		code.put2(pool.memberRef(ConstantPool.TAG_METHODREF, wrapperName, "valueOf",
+				"(" + descriptor(type) + ")L" + wrapperName + ";"));
+	}
+
+	private static void castOrUnbox(ByteBuilder code, ConstantPool pool, Class<?> type) {
+		if (type == Object.class) {
+			return;
+		}
+		if (type.isPrimitive()) {
+			String wrapperName = internalName(primitiveWrapperMap.get(type));
+			code.put1(CHECKCAST);
+			code.put2(pool.classRef(wrapperName));
+			code.put1(INVOKEVIRTUAL);
+			code.put2(pool.memberRef(ConstantPool.TAG_METHODREF, wrapperName, type.getName() + "Value",
+					"()" + descriptor(type)));
+		} else {
+			code.put1(CHECKCAST);
+			code.put2(pool.classRef(internalName(type)));
+		}
+	}
+
+	private static void pushInt(ByteBuilder code, int value) {
+		if (value <= 5) {
+			code.put1(ICONST_0 + value);
+		} else if (value <= Byte.MAX_VALUE) {
+			code.put1(BIPUSH);
+			code.put1(value);
+		} else {
+			code.put1(SIPUSH);
+			code.put2(value);
+		}
+	}
+
+	private static boolean isGetterDirect(Member member) {
+		// the return types are only used in descriptors so they don't have to be accessible
+		return isMemberDirect(member);
+	}
+
+	private static boolean isSetterDirect(Member member) {
+		if (!isMemberDirect(member)) {
+			return false;
+		}
+		if (member instanceof Field) {
+			Field field = (Field) member;
+			return !Modifier.isFinal(field.getModifiers()) && isTypeAccessible(field.getType());
+		} else {
+			return isTypeAccessible(((Method) member).getParameterTypes()[0]);
+		}
+	}
+
+	private static boolean isOperationDirect(Method method) {
+		if (!isMemberDirect(method)) {
+			return false;
+		}
+		for (Class<?> paramType : method.getParameterTypes()) {
+			if (!isTypeAccessible(paramType)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isMemberDirect(Member member) {
+		int modifiers = member.getModifiers();
+		return Modifier.isPublic(modifiers) && !Modifier.isStatic(modifiers);
+	}
+
+	/**
+	 * Types that we cast to must be accessible from the generated class.
+	 */
+	private static boolean isTypeAccessible(Class<?> type) {
+		while (type.isArray()) {
+			type = type.getComponentType();
+		}
+		return type.isPrimitive() || isClassAccessible(type);
+	}
+
+	private static boolean isClassAccessible(Class<?> clazz) {
+		if (clazz.isSynthetic() || clazz.isAnonymousClass() || clazz.isLocalClass()) {
+			return false;
+		}
+		for (Class<?> outer = clazz; outer != null; outer = outer.getEnclosingClass()) {
+			if (!Modifier.isPublic(outer.getModifiers())) {
+				return false;
+			}
+		}
+		return isPackageExported(clazz);
+	}
+
+	/**
+	 * On Java 9+ the class also has to be in an exported package of its module. We use reflection here because we are
+	 * compiled for Java 8.
+	 */
+	private static boolean isPackageExported(Class<?> clazz) {
+		Package pkg = clazz.getPackage();
+		if (pkg == null) {
+			return true;
+		}
+		Method getModuleMethod;
+		try {
+			getModuleMethod = Class.class.getMethod("getModule");
+		} catch (NoSuchMethodException nsme) {
+			// java 8 has no modules
+			return true;
+		}
+		try {
+			Object module = getModuleMethod.invoke(clazz);
+			Method isExportedMethod = module.getClass().getMethod("isExported", String.class);
+			return (Boolean) isExportedMethod.invoke(module, pkg.getName());
+		} catch (Exception e) {
+			return false;
+		}
+	}
+
+	private static int slotSize(Class<?> type) {
+		if (type == long.class || type == double.class) {
+			return 2;
+		} else {
+			return 1;
+		}
+	}
+
+	private static String internalName(Class<?> clazz) {
+		// NOTE: array class names are already in descriptor format which is what is needed for checkcast
+		return clazz.getName().replace('.', '/');
+	}
+
+	private static String methodDescriptor(Method method) {
+		StringBuilder sb = new StringBuilder();
+		sb.append('(');
+		for (Class<?> paramType : method.getParameterTypes()) {
+			sb.append(descriptor(paramType));
+		}
+		sb.append(')');
+		sb.append(descriptor(method.getReturnType()));
+		return sb.toString();
+	}
+
+	private static String descriptor(Class<?> type) {
+		if (type == boolean.class) {
+			return "Z";
+		} else if (type == byte.class) {
+			return "B";
+		} else if (type == char.class) {
+			return "C";
+		} else if (type == short.class) {
+			return "S";
+		} else if (type == int.class) {
+			return "I";
+		} else if (type == long.class) {
+			return "J";
+		} else if (type == float.class) {
+			return "F";
+		} else if (type == double.class) {
+			return "D";
+		} else if (type == void.class) {
+			return "V";
+		} else if (type.isArray()) {
+			return internalName(type);
+		} else {
+			return "L" + internalName(type) + ";";
+		}
+	}
+
+	/**
+	 * Class-loader that defines our generated classes as a child of the target's class-loader. It always resolves the
+	 * accessor interface to our own version in case the target's class-loader can't see it.
+	 */
+	private static class AccessorClassLoader extends ClassLoader {
+
+		public AccessorClassLoader(ClassLoader parent) {
+			super(parent);
+		}
+
+		@Override
+		protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+			if (name.equals(MbeanAccessor.class.getName())) {
+				return MbeanAccessor.class;
+			} else {
+				return super.loadClass(name, resolve);
+			}
+		}
+
+		public Class<?> defineAccessorClass(String name, byte[] bytes) {
+			return defineClass(name, bytes, 0, bytes.length);
+		}
+	}
+
+	/**
+	 * Tableswitch on the index local variable. Cases that are not started jump to the default.
+	 */
+	private static class SwitchTable {
+
+		private final ByteBuilder code;
+		private final int switchPos;
+		private final int defaultOffsetPos;
+		private final int[] caseOffsets;
+		private final int firstCasePos;
+		private int defaultPos;
+
+		private SwitchTable(ByteBuilder code, int numCases) {
+			this.code = code;
+			this.caseOffsets = new int[numCases];
+			if (numCases == 0) {
+				// no switch at all, everything goes to the default
+				this.switchPos = -1;
+				this.defaultOffsetPos = -1;
+				this.firstCasePos = -1;
+				return;
+			}
+			code.put1(ILOAD_2);
+			this.switchPos = code.length();
+			code.put1(TABLESWITCH);
+			while (code.length() % 4 != 0) {
+				code.put1(0);
+			}
+			this.defaultOffsetPos = code.length();
+			code.put4(0);
+			code.put4(0);
+			code.put4(numCases - 1);
+			this.firstCasePos = code.length();
+			for (int i = 0; i < numCases; i++) {
+				code.put4(0);
+			}
+		}
+
+		public static SwitchTable start(ByteBuilder code, int numCases) {
+			return new SwitchTable(code, numCases);
+		}
+
+		public void startCase(int index) {
+			caseOffsets[index] = code.length() - switchPos;
+		}
+
+		public void startDefault() {
+			defaultPos = code.length();
+		}
+
+		public int getDefaultPos() {
+			return defaultPos;
+		}
+
+		public void finish() {
+			if (switchPos < 0) {
+				return;
+			}
+			int defaultOffset = defaultPos - switchPos;
+			code.set4(defaultOffsetPos, defaultOffset);
+			for (int i = 0; i < caseOffsets.length; i++) {
+				int offset = caseOffsets[i];
+				if (offset == 0) {
+					offset = defaultOffset;
+				}
+				code.set4(firstCasePos + i * 4, offset);
+			}
+		}
+	}
+
+	/**
+	 * Class file constant pool which reuses existing entries.
+	 */
+	private static class ConstantPool {
+
+		static final int TAG_UTF8 = 1;
+		static final int TAG_CLASS = 7;
+		static final int TAG_FIELDREF = 9;
+		static final int TAG_METHODREF = 10;
+		static final int TAG_INTERFACE_METHODREF = 11;
+		static final int TAG_NAME_AND_TYPE = 12;
+
+		private final Map<String, Integer> entryMap = new HashMap<String, Integer>();
+		private final ByteBuilder entries = new ByteBuilder();
+		private int entryCount = 1;
+
+		public int utf8(String value) {
+			String key = TAG_UTF8 + ":" + value;
+			Integer index = entryMap.get(key);
+			if (index != null) {
+				return index;
+			}
+			ByteArrayOutputStream baos = new ByteArrayOutputStream();
+			try {
+				// class files use the same modified UTF-8 as writeUTF which also writes the length
+				new DataOutputStream(baos).writeUTF(value);
+			} catch (IOException e) {
+				throw new IllegalStateException("Could not encode constant " + value, e);
+			}
+			entries.put1(TAG_UTF8);
+			entries.putBytes(baos.toByteArray());
+			return addEntry(key);
+		}
+
+		public int classRef(String internalName) {
+			String key = TAG_CLASS + ":" + internalName;
+			Integer index = entryMap.get(key);
+			if (index != null) {
+				return index;
+			}
+			int nameIndex = utf8(internalName);
+			entries.put1(TAG_CLASS);
+			entries.put2(nameIndex);
+			return addEntry(key);
+		}
+
+		public int memberRef(int tag, String ownerInternalName, String name, String descriptor) {
+			String key = tag + ":" + ownerInternalName + "." + name + ":" + descriptor;
+			Integer index = entryMap.get(key);
+			if (index != null) {
+				return index;
+			}
+			int classIndex = classRef(ownerInternalName);
+			int nameAndTypeIndex = nameAndType(name, descriptor);
+			entries.put1(tag);
+			entries.put2(classIndex);
+			entries.put2(nameAndTypeIndex);
+			return addEntry(key);
+		}
+
+		public void writeTo(ByteBuilder classBytes) {
+			classBytes.put2(entryCount);
+			classBytes.putBytes(entries);
+		}
+
+		private int nameAndType(String name, String descriptor) {
+			String key = TAG_NAME_AND_TYPE + ":" + name + ":" + descriptor;
+			Integer index = entryMap.get(key);
+			if (index != null) {
+				return index;
+			}
+			int nameIndex = utf8(name);
+			int descriptorIndex = utf8(descriptor);
+			entries.put1(TAG_NAME_AND_TYPE);
+			entries.put2(nameIndex);
+			entries.put2(descriptorIndex);
+			return addEntry(key);
+		}
+
+		private int addEntry(String key) {
+			int index = entryCount++;
+			entryMap.put(key, index);
+			return index;
+		}
+	}
+
+	/**
+	 * Growable big-endian byte buffer.
+	 */
+	private static class ByteBuilder {
+
+		private byte[] bytes = new byte[256];
+		private int length;
+
+		public void put1(int value) {
+			ensureCapacity(1);
+			bytes[length++] = (byte) value;
+		}
+
+		public void put2(int value) {
+			ensureCapacity(2);
+			bytes[length++] = (byte) (value >>> 8);
+			bytes[length++] = (byte) value;
+		}
+
+		public void put4(int value) {
+			ensureCapacity(4);
+			set4(length, value);
+			length += 4;
+		}
+
+		public void set4(int pos, int value) {
+			bytes[pos] = (byte) (value >>> 24);
+			bytes[pos + 1] = (byte) (value >>> 16);
+			bytes[pos + 2] = (byte) (value >>> 8);
+			bytes[pos + 3] = (byte) value;
+		}
+
+		public void putBytes(byte[] other) {
+			ensureCapacity(other.length);
+			System.arraycopy(other, 0, bytes, length, other.length);
+			length += other.length;
+		}
+
+		public void putBytes(ByteBuilder other) {
+			ensureCapacity(other.length);
+			System.arraycopy(other.bytes, 0, bytes, length, other.length);
+			length += other.length;
+		}
+
+		public int length() {
+			return length;
+		}
+
+		public byte[] toByteArray() {
+			return Arrays.copyOf(bytes, length);
+		}
+
+		private void ensureCapacity(int extra) {
+			if (length + extra > bytes.length) {
+				bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+			}
+		}
+	}
+
+	/**
+	 * Key for our cached accessors.
+	 */
+	private static class AccessorKey {
+
+		private final Member[] getters;
+		private final Member[] setters;
+		private final Method[] operations;
+
+		public AccessorKey(Member[] getters, Member[] setters, Method[] operations) {
+			this.getters = getters;
+			this.setters = setters;
+			this.operations = operations;
+		}
+
+		@Override
+		public int hashCode() {
+			final int prime = 31;
+			int result = prime + Arrays.hashCode(getters);
+			result = prime * result + Arrays.hashCode(setters);
+			result = prime * result + Arrays.hashCode(operations);
+			return result;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj == null || getClass() != obj.getClass()) {
+				return false;
+			}
+			AccessorKey other = (AccessorKey) obj;
+			return Arrays.equals(getters, other.getters) && Arrays.equals(setters, other.setters)
+					&& Arrays.equals(operations, other.operations);
+		}
+	}
+}
@@ -0,0 +1,132 @@
+package com.j256.simplejmx.server;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationFilter;
+import javax.management.NotificationListener;
+
+/**
+ * Keeps the listeners of a {@link ReflectionMbean} and delivers its notifications to them. Each listener has a bounded
+ * buffer of notifications which are delivered by an executor so a slow listener does not hold up the sampler or the
+ * other listeners. If a listener falls behind and its buffer fills up then its oldest notifications are dropped.
+ *
+ * @author graywatson
+ */
+class AttributeChangeNotifier {
+
+	private final List<ListenerEntry> listeners = new CopyOnWriteArrayList<ListenerEntry>();
+	private final AtomicLong sequenceCounter = new AtomicLong();
+
+	public void addNotificationListener(NotificationListener listener, NotificationFilter filter, Object handback,
+			int bufferSize) {
+		if (listener == null) {
+			throw new IllegalArgumentException("Listener can't be null");
+		}
+		listeners.add(new ListenerEntry(listener, filter, handback, bufferSize));
+	}
+
+	public void removeNotificationListener(NotificationListener listener) throws ListenerNotFoundException {
+		boolean found = false;
+		for (ListenerEntry entry : listeners) {
+			if (entry.listener.equals(listener)) {
+				listeners.remove(entry);
+				found = true;
+			}
+		}
+		if (!found) {
+			throw new ListenerNotFoundException("Listener not registered");
+		}
+	}
+
+	public void removeNotificationListener(NotificationListener listener, NotificationFilter filter, Object handback)
+			throws ListenerNotFoundException {
+		for (ListenerEntry entry : listeners) {
+			if (entry.listener.equals(listener) && entry.filter == filter && entry.handback == handback) {
+				listeners.remove(entry);
+				return;
+			}
+		}
+		throw new ListenerNotFoundException("Listener not registered with that filter and handback");
+	}
+
+	public boolean hasListeners() {
+		return !listeners.isEmpty();
+	}
+
+	public long nextSequenceNumber() {
+		return sequenceCounter.incrementAndGet();
+	}
+
+	/**
+	 * Queue the notification to each of the interested listeners and make sure that the executor is delivering them.
+	 */
+	public void sendNotification(Notification notification, Executor executor) {
+		for (ListenerEntry entry : listeners) {
+			if (entry.filter != null && !entry.filter.isNotificationEnabled(notification)) {
+				continue;
+			}
+			// if the listener has fallen behind, drop its oldest notification
+			while (!entry.queue.offer(notification)) {
+				entry.queue.poll();
+			}
+			entry.schedule(executor);
+		}
+	}
+
+	/**
+	 * A listener with its buffer of notifications to deliver. At most one delivery task is running per listener so it
+	 * sees the notifications in order.
+	 */
+	private static class ListenerEntry implements Runnable {
+
+		final NotificationListener listener;
+		final NotificationFilter filter;
+		final Object handback;
+		final BlockingQueue<Notification> queue;
+		final AtomicBoolean scheduled = new AtomicBoolean();
+
+		public ListenerEntry(NotificationListener listener, NotificationFilter filter, Object handback,
+				int bufferSize) {
+			this.listener = listener;
+			this.filter = filter;
+			this.handback = handback;
+			this.queue = new ArrayBlockingQueue<Notification>(bufferSize);
+		}
+
+		public void schedule(Executor executor) {
+			if (scheduled.compareAndSet(false, true)) {
+				try {
+					executor.execute(this);
+				} catch (RejectedExecutionException ree) {
+					// the executor has been shutdown, the notifications stay queued for the next delivery
+					scheduled.set(false);
+				}
+			}
+		}
+
+		@Override
+		public void run() {
+			do {
+				Notification notification;
+				while ((notification = queue.poll()) != null) {
+					try {
+						listener.handleNotification(notification, handback);
+					} catch (RuntimeException re) {
+						// ignore misbehaving listeners so the others still get their notifications
+					}
+				}
+				scheduled.set(false);
+				// something may have been added after we emptied the queue but before we cleared the flag
+			} while (!queue.isEmpty() && scheduled.compareAndSet(false, true));
+		}
+	}
+}
@@ -0,0 +1,171 @@
+package com.j256.simplejmx.server;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.MBeanServerNotification;
+import javax.management.Notification;
+import javax.management.NotificationListener;
+import javax.management.ObjectName;
+
+/**
+ * Periodically samples the notify-on-change attributes of the registered beans that have listeners and sends
+ * AttributeChangeNotifications for the values that have changed. Changes between samples are coalesced into one
+ * notification so the sample period is also the coalescing window. See
+ * {@link JmxServer#setAttributeChangeSampleMillis(long)}.
+ *
+ * @author graywatson
+ */
+class AttributeChangeSampler {
+
+	private static final AtomicInteger threadCount = new AtomicInteger();
+	private static final int DELIVERY_THREADS = 2;
+
+	private final ConcurrentMap<ObjectName, ReflectionMbean> mbeanMap =
+			new ConcurrentHashMap<ObjectName, ReflectionMbean>();
+	private long sampleMillis;
+	private ScheduledExecutorService sampleExecutor;
+	private volatile ThreadPoolExecutor deliveryExecutor;
+	private ScheduledFuture<?> sampleFuture;
+	// the sample pass of a shutdown thread may still be running when we are restarted
+	private final Object sampleLock = new Object();
+	private final NotificationListener unregistrationListener = new UnregistrationListener();
+
+	public AttributeChangeSampler(long sampleMillis) {
+		this.sampleMillis = sampleMillis;
+		start();
+	}
+
+	/**
+	 * Start the sampler threads if they aren't running. The beans that were added before a {@link #shutdown()} are
+	 * sampled again.
+	 * 
+	 * @return True if the threads were started or false if they were already running.
+	 */
+	public synchronized boolean start() {
+		if (sampleExecutor != null) {
+			return false;
+		}
+		sampleExecutor = Executors.newSingleThreadScheduledExecutor(new SamplerThreadFactory("sampler"));
+		// the listener buffers are bounded so this queue holds at most one task per listener
+		ThreadPoolExecutor deliveryExecutor = new ThreadPoolExecutor(DELIVERY_THREADS, DELIVERY_THREADS, 60,
+				TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new SamplerThreadFactory("notifier"));
+		deliveryExecutor.allowCoreThreadTimeOut(true);
+		this.deliveryExecutor = deliveryExecutor;
+		scheduleSample();
+		return true;
+	}
+
+	/**
+	 * Change how often the attributes are sampled.
+	 */
+	public synchronized void setSampleMillis(long sampleMillis) {
+		this.sampleMillis = sampleMillis;
+		if (sampleExecutor != null) {
+			scheduleSample();
+		}
+	}
+
+	public void add(ObjectName objectName, ReflectionMbean mbean) {
+		mbeanMap.put(objectName, mbean);
+	}
+
+	public void remove(ObjectName objectName) {
+		mbeanMap.remove(objectName);
+	}
+
+	/**
+	 * Sample the attributes now. This is normally called by our thread.
+	 */
+	public void sample() {
+		synchronized (sampleLock) {
+			ThreadPoolExecutor deliveryExecutor = this.deliveryExecutor;
+			if (deliveryExecutor == null) {
+				// shutdown
+				return;
+			}
+			for (ReflectionMbean mbean : mbeanMap.values()) {
+				try {
+					mbean.sampleAttributeChanges(deliveryExecutor);
+				} catch (RuntimeException re) {
+					// keep sampling the other beans
+				}
+			}
+		}
+	}
+
+	/**
+	 * Listener that should be added to the MBeanServerDelegate so we stop sampling beans that are un-registered
+	 * directly with the MBeanServer.
+	 */
+	NotificationListener getUnregistrationListener() {
+		return unregistrationListener;
+	}
+
+	/**
+	 * Stop the sampler threads. The beans are kept so they are sampled again if we are restarted with
+	 * {@link #start()}.
+	 */
+	public synchronized void shutdown() {
+		if (sampleExecutor == null) {
+			return;
+		}
+		sampleExecutor.shutdownNow();
+		sampleExecutor = null;
+		sampleFuture = null;
+		deliveryExecutor.shutdown();
+		deliveryExecutor = null;
+	}
+
+	private void scheduleSample() {
+		if (sampleFuture != null) {
+			sampleFuture.cancel(false);
+		}
+		sampleFuture = sampleExecutor.scheduleWithFixedDelay(new SampleTask(), sampleMillis, sampleMillis,
+				TimeUnit.MILLISECONDS);
+	}
+
+	private class SampleTask implements Runnable {
+		@Override
+		public void run() {
+			sample();
+		}
+	}
+
+	/**
+	 * Removes the beans that are un-registered from the MBeanServer.
+	 */
+	private class UnregistrationListener implements NotificationListener {
+		@Override
+		public void handleNotification(Notification notification, Object handback) {
+			if (notification instanceof MBeanServerNotification
+					&& MBeanServerNotification.UNREGISTRATION_NOTIFICATION.equals(notification.getType())) {
+				remove(((MBeanServerNotification) notification).getMBeanName());
+			}
+		}
+	}
+
+	private static class SamplerThreadFactory implements ThreadFactory {
+
+		private final String type;
+
+		public SamplerThreadFactory(String type) {
+			this.type = type;
+		}
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "simplejmx-attribute-" + type + "-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
@@ -0,0 +1,64 @@
+package com.j256.simplejmx.server;
+
+/**
+ * Cached value of an attribute getter for attributes that have a cache-millis setting. If the value has expired, the
+ * first reader calls the getter while any other readers wait for it to finish and then use the value it got so the
+ * getter is only called once per refresh.
+ *
+ * @author graywatson
+ */
+class CachedAttributeValue {
+
+	private final long cacheNanos;
+	private volatile Entry entry;
+
+	public CachedAttributeValue(long cacheMillis) {
+		this.cacheNanos = cacheMillis * 1000000L;
+	}
+
+	/**
+	 * Return the cached value or get it from the accessor if it has not been gotten or has expired.
+	 */
+	public Object getValue(MbeanAccessor accessor, Object target, int getterIndex) throws Exception {
+		Entry entry = this.entry;
+		if (entry != null && !entry.isExpired()) {
+			return entry.value;
+		}
+		synchronized (this) {
+			// someone else may have refreshed it while we were waiting
+			entry = this.entry;
+			if (entry != null && !entry.isExpired()) {
+				return entry.value;
+			}
+			// NOTE: exceptions are not cached so the next reader will try again
+			Object value = accessor.getAttribute(target, getterIndex);
+			this.entry = new Entry(value, System.nanoTime() + cacheNanos);
+			return value;
+		}
+	}
+
+	/**
+	 * Clear the cached value so the next read calls the getter. This waits for any refresh in progress so it doesn't
+	 * leave behind a value that was gotten before the attribute was set.
+	 */
+	public synchronized void invalidate() {
+		entry = null;
+	}
+
+	/**
+	 * Value and its expiration which are swapped together.
+	 */
+	private static class Entry {
+		final Object value;
+		final long expireNanos;
+
+		public Entry(Object value, long expireNanos) {
+			this.value = value;
+			this.expireNanos = expireNanos;
+		}
+
+		public boolean isExpired() {
+			return System.nanoTime() - expireNanos >= 0;
+		}
+	}
+}
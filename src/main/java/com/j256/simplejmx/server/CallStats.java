@@ -0,0 +1,167 @@
+package com.j256.simplejmx.server;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Count and latency information about the calls to one attribute getter, setter, or operation. Recording a call does
+ * not lock. The latencies are kept in a histogram with power-of-2 microsecond buckets which is used to estimate the
+ * percentiles.
+ *
+ * @author graywatson
+ */
+class CallStats {
+
+	/** bucket 0 is < 1us, bucket 1 is < 2us, bucket 2 is < 4us, ..., the last bucket is everything else */
+	private static final int NUM_BUCKETS = 32;
+
+	private final String description;
+	private final LongAdder count = new LongAdder();
+	private final LongAdder errorCount = new LongAdder();
+	private final LongAdder totalNanos = new LongAdder();
+	private final AtomicLong maxNanos = new AtomicLong();
+	private final AtomicLongArray buckets = new AtomicLongArray(NUM_BUCKETS);
+
+	public CallStats(String description) {
+		this.description = description;
+	}
+
+	/**
+	 * Record a call that took a number of nanoseconds.
+	 */
+	public void record(long nanos, boolean error) {
+		count.increment();
+		if (error) {
+			errorCount.increment();
+		}
+		totalNanos.add(nanos);
+		long max = maxNanos.get();
+		while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+			max = maxNanos.get();
+		}
+		buckets.incrementAndGet(bucketFor(nanos));
+	}
+
+	public String getDescription() {
+		return description;
+	}
+
+	public long getCount() {
+		return count.sum();
+	}
+
+	public long getErrorCount() {
+		return errorCount.sum();
+	}
+
+	public long getTotalNanos() {
+		return totalNanos.sum();
+	}
+
+	public long getMaxNanos() {
+		return maxNanos.get();
+	}
+
+	/**
+	 * Return the upper bound in microseconds of the bucket that contains the percentile (0.0 to 1.0) of the calls.
+	 */
+	public long getPercentileMicros(double percentile) {
+		long[] counts = new long[NUM_BUCKETS];
+		long total = 0;
+		for (int i = 0; i < NUM_BUCKETS; i++) {
+			counts[i] = buckets.get(i);
+			total += counts[i];
+		}
+		if (total == 0) {
+			return 0;
+		}
+		long target = (long) Math.ceil(total * percentile);
+		long sum = 0;
+		for (int i = 0; i < NUM_BUCKETS; i++) {
+			sum += counts[i];
+			if (sum >= target) {
+				return bucketLimitMicros(i);
+			}
+		}
+		return bucketLimitMicros(NUM_BUCKETS - 1);
+	}
+
+	/**
+	 * Clear the counts.
+	 */
+	public void reset() {
+		count.reset();
+		errorCount.reset();
+		totalNanos.reset();
+		maxNanos.set(0);
+		for (int i = 0; i < NUM_BUCKETS; i++) {
+			buckets.set(i, 0);
+		}
+	}
+
+	/**
+	 * Return a copy of the current values which doesn't change as more calls are recorded.
+	 */
+	public Snapshot snapshot() {
+		return new Snapshot(description, getCount(), getErrorCount(), getTotalNanos(), getMaxNanos(),
+				getPercentileMicros(0.5), getPercentileMicros(0.99));
+	}
+
+	@Override
+	public String toString() {
+		return snapshot().toString();
+	}
+
+	private static int bucketFor(long nanos) {
+		long micros = nanos / 1000;
+		int bucket = 64 - Long.numberOfLeadingZeros(micros);
+		return Math.min(bucket, NUM_BUCKETS - 1);
+	}
+
+	private static long bucketLimitMicros(int bucket) {
+		return 1L << bucket;
+	}
+
+	/**
+	 * Values of the stats at one point in time.
+	 */
+	public static class Snapshot {
+
+		private final String description;
+		private final long count;
+		private final long errorCount;
+		private final long totalNanos;
+		private final long maxNanos;
+		private final long p50Micros;
+		private final long p99Micros;
+
+		private Snapshot(String description, long count, long errorCount, long totalNanos, long maxNanos,
+				long p50Micros, long p99Micros) {
+			this.description = description;
+			this.count = count;
+			this.errorCount = errorCount;
+			this.totalNanos = totalNanos;
+			this.maxNanos = maxNanos;
+			this.p50Micros = p50Micros;
+			this.p99Micros = p99Micros;
+		}
+
+		public String getDescription() {
+			return description;
+		}
+
+		public long getTotalNanos() {
+			return totalNanos;
+		}
+
+		@Override
+		public String toString() {
+			long avgMicros = (count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalNanos / count));
+			return description + ": count=" + count + " errors=" + errorCount + " totalMicros="
+					+ TimeUnit.NANOSECONDS.toMicros(totalNanos) + " avgMicros=" + avgMicros + " p50Micros<="
+					+ p50Micros + " p99Micros<=" + p99Micros + " maxMicros=" + TimeUnit.NANOSECONDS.toMicros(maxNanos);
+		}
+	}
+}
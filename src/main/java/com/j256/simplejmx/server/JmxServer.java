@@ -11,11 +11,20 @@ import java.rmi.registry.LocateRegistry;
 import java.rmi.registry.Registry;
 import java.rmi.server.RMIServerSocketFactory;
 import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import javax.management.JMException;
 import javax.management.MBeanServer;
+import javax.management.MBeanServerDelegate;
 import javax.management.ObjectName;
 import javax.management.remote.JMXConnectorServer;
 import javax.management.remote.JMXConnectorServerFactory;
@@ -38,17 +47,33 @@ import com.j256.simplejmx.common.ObjectNameUtil;
 public class JmxServer implements Closeable {
 
 	private final String RMI_SERVER_HOST_NAME_PROPERTY = "java.rmi.server.hostname";
+	private static final int DEFAULT_ATTRIBUTE_READ_THREADS = 10;
+	private static final long DEFAULT_ATTRIBUTE_CHANGE_SAMPLE_MILLIS = 1000;
 
 	private Registry rmiRegistry;
 	private InetAddress inetAddress;
 	private int serverPort;
 	private int registryPort;
 	private JMXConnectorServer connector;
-	private MBeanServer mbeanServer;
-	private int registeredCount;
+	/** set once the server is started, guarded by the lifecycle-lock */
+	private volatile MBeanServer mbeanServer;
+	/** registering and un-registering take the read lock so they can run together, start and stop take the write */
+	private final ReadWriteLock lifecycleLock = new ReentrantReadWriteLock();
+	private final AtomicInteger registeredCount = new AtomicInteger();
 	private RMIServerSocketFactory serverSocketFactory;
 	private boolean serverHostNamePropertySet = false;
 	private String serviceUrl;
+	private volatile MbeanAccessorType accessorType = ReflectionMbean.DEFAULT_ACCESSOR_TYPE;
+	private long attributeReadTimeoutMillis;
+	private int attributeReadThreads = DEFAULT_ATTRIBUTE_READ_THREADS;
+	private volatile TimedAttributeReader attributeReader;
+	private volatile JmxServerStats stats;
+	private boolean statsRegistered;
+	private boolean queryEnabled;
+	private boolean queryRegistered;
+	private long attributeChangeSampleMillis = DEFAULT_ATTRIBUTE_CHANGE_SAMPLE_MILLIS;
+	private volatile int notificationBufferSize = ReflectionMbean.DEFAULT_NOTIFICATION_BUFFER_SIZE;
+	private volatile AttributeChangeSampler attributeChangeSampler;
 
 	/**
 	 * Create a JMX server that will be set with the port using setters. Used with spring. You must at least specify the
@@ -147,22 +172,33 @@ public class JmxServer implements Closeable {
 	 * @throws IllegalStateException
 	 *             If the registry port has not already been set.
 	 */
-	public synchronized void start() throws JMException {
-		if (mbeanServer != null) {
-			// if we've already assigned a mbean-server then there's nothing to start
-			return;
-		}
-		if (registryPort == 0) {
-			throw new IllegalStateException("registry-port must be already set when JmxServer is initialized");
+	public void start() throws JMException {
+		lifecycleLock.writeLock().lock();
+		try {
+			if (mbeanServer == null) {
+				if (registryPort == 0) {
+					throw new IllegalStateException("registry-port must be already set when JmxServer is initialized");
+				}
+				startRmiRegistry();
+				startJmxService();
+			}
+			// if we've already assigned a mbean-server then there's nothing to start except our stats and query beans
+			registerStats();
+			registerQuery();
+			if (attributeChangeSampler != null && attributeChangeSampler.start()) {
+				// the beans registered before a stop are still sampled
+				mbeanServer.addNotificationListener(MBeanServerDelegate.DELEGATE_NAME,
+						attributeChangeSampler.getUnregistrationListener(), null, null);
+			}
+		} finally {
+			lifecycleLock.writeLock().unlock();
 		}
-		startRmiRegistry();
-		startJmxService();
 	}
 
 	/**
 	 * Same as {@link #stopThrow()} but this ignores any exceptions.
 	 */
-	public synchronized void stop() {
+	public void stop() {
 		try {
 			stopThrow();
 		} catch (JMException e) {
@@ -183,28 +219,64 @@ public class JmxServer implements Closeable {
 	 * Stop the JMX server by closing the connector and unpublishing it from the RMI registry. This throws a JMException
 	 * on any issues.
 	 */
-	public synchronized void stopThrow() throws JMException {
-		if (connector != null) {
+	public void stopThrow() throws JMException {
+		lifecycleLock.writeLock().lock();
+		try {
+			// the beans may have been removed behind our back so we always go on to close the connector and registry
+			JMException firstException = null;
 			try {
-				connector.stop();
-			} catch (IOException e) {
-				throw createJmException("Could not stop our Jmx connector server", e);
-			} finally {
-				connector = null;
+				unregisterStats();
+			} catch (JMException jme) {
+				firstException = jme;
 			}
-		}
-		if (rmiRegistry != null) {
 			try {
-				UnicastRemoteObject.unexportObject(rmiRegistry, true);
-			} catch (NoSuchObjectException e) {
-				throw createJmException("Could not unexport our RMI registry", e);
-			} finally {
-				rmiRegistry = null;
+				unregisterQuery();
+			} catch (JMException jme) {
+				if (firstException == null) {
+					firstException = jme;
+				}
 			}
-		}
-		if (serverHostNamePropertySet) {
-			System.clearProperty(RMI_SERVER_HOST_NAME_PROPERTY);
-			serverHostNamePropertySet = false;
+			if (attributeChangeSampler != null) {
+				// the sampler keeps its beans so their notifications start again if we are restarted
+				attributeChangeSampler.shutdown();
+				try {
+					mbeanServer.removeNotificationListener(MBeanServerDelegate.DELEGATE_NAME,
+							attributeChangeSampler.getUnregistrationListener());
+				} catch (JMException jme) {
+					// we were never started or it has already been removed
+				}
+			}
+			if (connector != null) {
+				try {
+					connector.stop();
+				} catch (IOException e) {
+					if (firstException == null) {
+						firstException = createJmException("Could not stop our Jmx connector server", e);
+					}
+				} finally {
+					connector = null;
+				}
+			}
+			if (rmiRegistry != null) {
+				try {
+					UnicastRemoteObject.unexportObject(rmiRegistry, true);
+				} catch (NoSuchObjectException e) {
+					if (firstException == null) {
+						firstException = createJmException("Could not unexport our RMI registry", e);
+					}
+				} finally {
+					rmiRegistry = null;
+				}
+			}
+			if (serverHostNamePropertySet) {
+				System.clearProperty(RMI_SERVER_HOST_NAME_PROPERTY);
+				serverHostNamePropertySet = false;
+			}
+			if (firstException != null) {
+				throw firstException;
+			}
+		} finally {
+			lifecycleLock.writeLock().unlock();
 		}
 	}
 
@@ -212,14 +284,13 @@ public class JmxServer implements Closeable {
 	 * Register the object parameter for exposure with JMX. The object passed in must have a {@link JmxResource}
 	 * annotation or must implement {@link JmxSelfNaming}.
 	 */
-	public synchronized ObjectName register(Object obj) throws JMException {
-		if (mbeanServer == null) {
-			throw new JMException("JmxServer has not be started");
-		}
+	public ObjectName register(Object obj) throws JMException {
+		// fail before we build the mbean, doRegister checks again under the lock
+		getStartedMbeanServer();
 		ObjectName objectName = ObjectNameUtil.makeObjectName(obj);
 		ReflectionMbean mbean;
 		try {
-			mbean = new ReflectionMbean(obj, getObjectDescription(obj));
+			mbean = new ReflectionMbean(obj, getObjectDescription(obj), null, null, null, false, accessorType);
 		} catch (Exception e) {
 			throw createJmException("Could not build MBean object for: " + obj, e);
 		}
@@ -242,7 +313,7 @@ public class JmxServer implements Closeable {
 	 * @param operationInfos
 	 *            Array of operation information for methods.
 	 */
-	public synchronized void register(Object obj, ObjectName objectName, JmxAttributeFieldInfo[] attributeFieldInfos,
+	public void register(Object obj, ObjectName objectName, JmxAttributeFieldInfo[] attributeFieldInfos,
 			JmxAttributeMethodInfo[] attributeMethodInfos, JmxOperationInfo[] operationInfos) throws JMException {
 		String description = getObjectDescription(obj);
 		register(obj, objectName, description, attributeFieldInfos, attributeMethodInfos, operationInfos);
@@ -251,10 +322,11 @@ public class JmxServer implements Closeable {
 	/**
 	 * Register the object parameter for exposure with JMX that is wrapped using the PublishAllBeanWrapper.
 	 */
-	public synchronized ObjectName register(PublishAllBeanWrapper wrapper) throws JMException {
+	public ObjectName register(PublishAllBeanWrapper wrapper) throws JMException {
+		getStartedMbeanServer();
 		ReflectionMbean mbean;
 		try {
-			mbean = new ReflectionMbean(wrapper);
+			mbean = new ReflectionMbean(wrapper, accessorType);
 		} catch (Exception e) {
 			throw createJmException("Could not build mbean object for publish-all bean: " + wrapper.getTarget(), e);
 		}
@@ -279,7 +351,7 @@ public class JmxServer implements Closeable {
 	 *            Array of operation information for methods.
 	 * @return Resulting object name.
 	 */
-	public synchronized ObjectName register(Object obj, JmxResourceInfo resourceInfo,
+	public ObjectName register(Object obj, JmxResourceInfo resourceInfo,
 			JmxAttributeFieldInfo[] attributeFieldInfos, JmxAttributeMethodInfo[] attributeMethodInfos,
 			JmxOperationInfo[] operationInfos) throws JMException {
 		ObjectName objectName = ObjectNameUtil.makeObjectName(resourceInfo);
@@ -305,22 +377,53 @@ public class JmxServer implements Closeable {
 	 * @param operationInfos
 	 *            Array of operation information for methods.
 	 */
-	public synchronized void register(Object obj, ObjectName objectName, String description,
+	public void register(Object obj, ObjectName objectName, String description,
 			JmxAttributeFieldInfo[] attributeFieldInfos, JmxAttributeMethodInfo[] attributeMethodInfos,
 			JmxOperationInfo[] operationInfos) throws JMException {
-		if (mbeanServer == null) {
-			throw new JMException("JmxServer has not be started");
-		}
+		getStartedMbeanServer();
 		ReflectionMbean mbean;
 		try {
 			mbean = new ReflectionMbean(obj, description, attributeFieldInfos, attributeMethodInfos, operationInfos,
-					false);
+					false, accessorType);
 		} catch (Exception e) {
 			throw createJmException("Could not build MBean object for: " + obj, e);
 		}
 		doRegister(objectName, mbean);
 	}
 
+	/**
+	 * Register a collection of objects for exposure with JMX. Each object must have a {@link JmxResource} annotation,
+	 * implement {@link JmxSelfNaming}, or be a {@link PublishAllBeanWrapper}. The MBeans are built in parallel and then
+	 * registered together. A failure with one of the objects does not stop the others from being registered.
+	 * 
+	 * @return A result for each of the objects in the iteration order of the collection.
+	 */
+	public List<RegistrationResult> registerAll(Collection<?> objs) throws JMException {
+		List<RegistrationResult> results = new ArrayList<RegistrationResult>(objs.size());
+		for (Object obj : objs) {
+			results.add(new RegistrationResult(obj, null));
+		}
+		buildAndRegisterAll(results);
+		return results;
+	}
+
+	/**
+	 * Register a map of object-names to objects for exposure with JMX. Each object must have a {@link JmxResource}
+	 * annotation or be a {@link PublishAllBeanWrapper} but the object-names from the map are used. The MBeans are built
+	 * in parallel and then registered together. A failure with one of the objects does not stop the others from being
+	 * registered.
+	 * 
+	 * @return A result for each of the objects in the iteration order of the map.
+	 */
+	public List<RegistrationResult> registerAll(Map<ObjectName, ?> objMap) throws JMException {
+		List<RegistrationResult> results = new ArrayList<RegistrationResult>(objMap.size());
+		for (Map.Entry<ObjectName, ?> entry : objMap.entrySet()) {
+			results.add(new RegistrationResult(entry.getValue(), entry.getKey()));
+		}
+		buildAndRegisterAll(results);
+		return results;
+	}
+
 	/**
 	 * Same as {@link #unregisterThrow(Object)} except this ignores exceptions.
 	 */
@@ -347,7 +450,7 @@ public class JmxServer implements Closeable {
 	 * Un-register the object parameter from JMX but this throws exceptions. Use the {@link #unregister(Object)} if you
 	 * want it to be silent.
 	 */
-	public synchronized void unregisterThrow(Object obj) throws JMException {
+	public void unregisterThrow(Object obj) throws JMException {
 		if (obj instanceof PublishAllBeanWrapper) {
 			unregisterThrow(ObjectNameUtil.makeObjectName(((PublishAllBeanWrapper) obj).getJmxResourceInfo()));
 		} else {
@@ -359,12 +462,22 @@ public class JmxServer implements Closeable {
 	 * Un-register the object name from JMX but this throws exceptions. Use the {@link #unregister(Object)} if you want
 	 * it to be silent.
 	 */
-	public synchronized void unregisterThrow(ObjectName objName) throws JMException {
-		if (mbeanServer == null) {
-			throw new JMException("JmxServer has not be started");
+	public void unregisterThrow(ObjectName objName) throws JMException {
+		lifecycleLock.readLock().lock();
+		try {
+			getStartedMbeanServer().unregisterMBean(objName);
+			registeredCount.decrementAndGet();
+			AttributeChangeSampler sampler = attributeChangeSampler;
+			if (sampler != null) {
+				sampler.remove(objName);
+			}
+			JmxServerStats stats = this.stats;
+			if (stats != null) {
+				stats.beanUnregistered(objName);
+			}
+		} finally {
+			lifecycleLock.readLock().unlock();
 		}
-		mbeanServer.unregisterMBean(objName);
-		registeredCount--;
 	}
 
 	/**
@@ -455,11 +568,119 @@ public class JmxServer implements Closeable {
 		}
 	}
 
+	/**
+	 * Set how the registered beans call the attribute methods, fields, and operations of the objects. Default is
+	 * {@link MbeanAccessorType#GENERATED}. This only affects objects registered after it is called.
+	 */
+	public void setAccessorType(MbeanAccessorType accessorType) {
+		this.accessorType = accessorType;
+	}
+
+	/**
+	 * Set the number of milliseconds that JMX reads of the attributes of our registered objects will wait for the
+	 * getter or field to return a value. If the read takes longer, {@link ReflectionMbean#getAttribute(String)} throws
+	 * a ReflectionException with a timeout message and {@link ReflectionMbean#getAttributes(String[])} returns an error
+	 * string for the value. The reads are done in a bounded pool of threads so hung getters don't tie up the JMX
+	 * connector threads. All of the attributes of a getAttributes call are read by one thread, one after another, so
+	 * the ones after a hung getter in the same call also time out. Default is 0 which reads the attributes in the
+	 * connector thread with no timeout. This only affects objects registered after it is called.
+	 */
+	public synchronized void setAttributeReadTimeoutMillis(long attributeReadTimeoutMillis) {
+		this.attributeReadTimeoutMillis = attributeReadTimeoutMillis;
+		buildAttributeReader();
+	}
+
+	/**
+	 * Set the maximum number of threads used to read attributes if {@link #setAttributeReadTimeoutMillis(long)} is set.
+	 * Each read request uses one thread. If all of the threads are busy and as many requests are already waiting then
+	 * reads fail right away. Default is 10.
+	 */
+	public synchronized void setAttributeReadThreads(int attributeReadThreads) {
+		this.attributeReadThreads = attributeReadThreads;
+		buildAttributeReader();
+	}
+
+	/**
+	 * Set how often the attributes that are marked as notify-on-change are sampled to see if they have changed. Changes
+	 * between samples are sent as one AttributeChangeNotification with the value from the previous sample as the old
+	 * value. Only the beans that have listeners are sampled. Default is 1000.
+	 */
+	public synchronized void setAttributeChangeSampleMillis(long attributeChangeSampleMillis) {
+		this.attributeChangeSampleMillis = attributeChangeSampleMillis;
+		AttributeChangeSampler sampler = attributeChangeSampler;
+		if (sampler != null) {
+			sampler.setSampleMillis(attributeChangeSampleMillis);
+		}
+	}
+
+	/**
+	 * Set the maximum number of notifications that are buffered for each listener of our registered objects. If a
+	 * listener falls behind then its oldest notifications are dropped. Default is 100. This only affects objects
+	 * registered after it is called.
+	 */
+	public void setNotificationBufferSize(int notificationBufferSize) {
+		this.notificationBufferSize = notificationBufferSize;
+	}
+
+	/**
+	 * Set to true (default is false) to record the number of calls and the latency of the attributes and operations of
+	 * our registered objects. The statistics are published by the {@link JmxServerStats} bean named
+	 * {@link JmxServerStats#OBJECT_NAME} when the server is started. The bean also tracks our registrations,
+	 * un-registrations, and connections to our JMX connector. This only affects objects registered after it is called.
+	 */
+	public void setStatsEnabled(boolean statsEnabled) throws JMException {
+		lifecycleLock.writeLock().lock();
+		try {
+			if (statsEnabled) {
+				if (stats == null) {
+					stats = new JmxServerStats();
+				}
+				if (mbeanServer != null) {
+					registerStats();
+				}
+			} else {
+				unregisterStats();
+				stats = null;
+			}
+		} finally {
+			lifecycleLock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Set to true (default is false) to publish the {@link JmxServerQuery} bean named
+	 * {@link ObjectNameUtil#QUERY_OBJECT_NAME} when the server is started. It allows remote clients to get attributes
+	 * from all of the beans that match a pattern in a single call.
+	 */
+	public void setQueryEnabled(boolean queryEnabled) throws JMException {
+		lifecycleLock.writeLock().lock();
+		try {
+			this.queryEnabled = queryEnabled;
+			if (queryEnabled) {
+				if (mbeanServer != null) {
+					registerQuery();
+				}
+			} else {
+				unregisterQuery();
+			}
+		} finally {
+			lifecycleLock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Return the statistics about our registered objects or null if {@link #setStatsEnabled(boolean)} has not been
+	 * called with true.
+	 */
+	public JmxServerStats getStats() {
+		return stats;
+	}
+
 	/**
 	 * Number of registered objects.
 	 */
 	public int getRegisteredCount() {
-		return registeredCount;
+		return registeredCount.get();
 	}
 
 	private String getObjectDescription(Object obj) {
@@ -472,13 +693,169 @@ public class JmxServer implements Closeable {
 		}
 	}
 
+	private void buildAndRegisterAll(List<RegistrationResult> results) throws JMException {
+		getStartedMbeanServer();
+		// building the mbeans is the expensive part so we do that in parallel
+		List<BuildMbeanTask> tasks = new ArrayList<BuildMbeanTask>(results.size());
+		for (RegistrationResult result : results) {
+			tasks.add(new BuildMbeanTask(result));
+		}
+		if (tasks.size() == 1) {
+			tasks.get(0).call();
+		} else {
+			// NOTE: the tasks catch their own exceptions and this waits for them all to finish
+			ForkJoinPool.commonPool().invokeAll(tasks);
+		}
+		// one lock for the whole batch instead of one per bean
+		lifecycleLock.readLock().lock();
+		try {
+			MBeanServer mbeanServer = getStartedMbeanServer();
+			for (RegistrationResult result : results) {
+				if (result.mbean == null) {
+					continue;
+				}
+				try {
+					doRegister(mbeanServer, result.getObjectName(), result.mbean);
+				} catch (JMException jme) {
+					result.setException(jme);
+				}
+				result.mbean = null;
+			}
+		} finally {
+			lifecycleLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Return the mbean-server or throw if we have not been started. The MBeanServer is thread-safe so registering and
+	 * un-registering only take the read lock of the lifecycle-lock which keeps them from running during start or stop.
+	 */
+	private MBeanServer getStartedMbeanServer() throws JMException {
+		MBeanServer mbeanServer = this.mbeanServer;
+		if (mbeanServer == null) {
+			throw new JMException("JmxServer has not be started");
+		}
+		return mbeanServer;
+	}
+
+	private void buildAttributeReader() {
+		if (attributeReadTimeoutMillis <= 0) {
+			attributeReader = null;
+		} else {
+			attributeReader = new TimedAttributeReader(attributeReadTimeoutMillis, attributeReadThreads);
+		}
+	}
+
 	private void doRegister(ObjectName objectName, ReflectionMbean mbean) throws JMException {
+		lifecycleLock.readLock().lock();
+		try {
+			doRegister(getStartedMbeanServer(), objectName, mbean);
+		} finally {
+			lifecycleLock.readLock().unlock();
+		}
+	}
+
+	private void doRegister(MBeanServer mbeanServer, ObjectName objectName, ReflectionMbean mbean)
+			throws JMException {
+		mbean.setAttributeReader(attributeReader);
+		mbean.setNotificationBufferSize(notificationBufferSize);
+		JmxServerStats stats = this.stats;
+		if (stats != null) {
+			stats.beanRegistering(objectName, mbean);
+		}
+		long start = System.nanoTime();
 		try {
 			mbeanServer.registerMBean(mbean, objectName);
-			registeredCount++;
+			registeredCount.incrementAndGet();
+		} catch (Exception e) {
+			if (stats != null) {
+				stats.beanRegisterFailed(System.nanoTime() - start);
+			}
+			throw createJmException("Registering JMX object " + objectName + " failed", e);
+		}
+		if (stats != null) {
+			stats.beanRegistered(objectName, mbean, System.nanoTime() - start);
+		}
+		if (mbean.hasNotifyAttributes()) {
+			getAttributeChangeSampler(mbeanServer).add(objectName, mbean);
+		}
+	}
+
+	/**
+	 * Return the sampler of the notify-on-change attributes, starting it if this is the first one.
+	 */
+	private AttributeChangeSampler getAttributeChangeSampler(MBeanServer mbeanServer) throws JMException {
+		AttributeChangeSampler sampler = attributeChangeSampler;
+		if (sampler != null) {
+			return sampler;
+		}
+		synchronized (this) {
+			if (attributeChangeSampler == null) {
+				sampler = new AttributeChangeSampler(attributeChangeSampleMillis);
+				// beans may also be un-registered directly with the mbean-server
+				try {
+					mbeanServer.addNotificationListener(MBeanServerDelegate.DELEGATE_NAME,
+							sampler.getUnregistrationListener(), null, null);
+				} catch (JMException jme) {
+					sampler.shutdown();
+					throw jme;
+				}
+				attributeChangeSampler = sampler;
+			}
+			return attributeChangeSampler;
+		}
+	}
+
+	/**
+	 * Publish our stats bean. It is not counted as one of our registered objects and its calls are not recorded.
+	 */
+	private void registerStats() throws JMException {
+		if (stats == null || statsRegistered) {
+			return;
+		}
+		ObjectName objectName = ObjectNameUtil.makeObjectName(JmxServerStats.OBJECT_NAME);
+		try {
+			mbeanServer.registerMBean(new ReflectionMbean(stats, getObjectDescription(stats)), objectName);
+		} catch (Exception e) {
+			throw createJmException("Registering JMX object " + objectName + " failed", e);
+		}
+		statsRegistered = true;
+		if (connector != null) {
+			connector.addNotificationListener(stats.getConnectionListener(), null, null);
+		}
+	}
+
+	private void unregisterStats() throws JMException {
+		if (!statsRegistered) {
+			return;
+		}
+		statsRegistered = false;
+		if (connector != null) {
+			connector.removeNotificationListener(stats.getConnectionListener());
+		}
+		mbeanServer.unregisterMBean(ObjectNameUtil.makeObjectName(JmxServerStats.OBJECT_NAME));
+	}
+
+	private void registerQuery() throws JMException {
+		if (!queryEnabled || queryRegistered) {
+			return;
+		}
+		ObjectName objectName = ObjectNameUtil.makeObjectName(ObjectNameUtil.QUERY_OBJECT_NAME);
+		JmxServerQuery query = new JmxServerQuery(mbeanServer);
+		try {
+			mbeanServer.registerMBean(new ReflectionMbean(query, getObjectDescription(query)), objectName);
 		} catch (Exception e) {
 			throw createJmException("Registering JMX object " + objectName + " failed", e);
 		}
+		queryRegistered = true;
+	}
+
+	private void unregisterQuery() throws JMException {
+		if (!queryRegistered) {
+			return;
+		}
+		queryRegistered = false;
+		mbeanServer.unregisterMBean(ObjectNameUtil.makeObjectName(ObjectNameUtil.QUERY_OBJECT_NAME));
 	}
 
 	private void startRmiRegistry() throws JMException {
@@ -556,9 +933,9 @@ public class JmxServer implements Closeable {
 		 * classpath.
 		 */
 
+		MBeanServer platformServer = ManagementFactory.getPlatformMBeanServer();
 		try {
-			mbeanServer = ManagementFactory.getPlatformMBeanServer();
-			connector = JMXConnectorServerFactory.newJMXConnectorServer(url, envMap, mbeanServer);
+			connector = JMXConnectorServerFactory.newJMXConnectorServer(url, envMap, platformServer);
 		} catch (IOException e) {
 			throw createJmException("Could not make our Jmx connector server on URL: " + url, e);
 		}
@@ -568,6 +945,8 @@ public class JmxServer implements Closeable {
 			connector = null;
 			throw createJmException("Could not start our Jmx connector server on URL: " + url, e);
 		}
+		// publish the server last so registering threads only see it once we are fully started
+		mbeanServer = platformServer;
 	}
 
 	private JMException createJmException(String message, Exception e) {
@@ -576,6 +955,41 @@ public class JmxServer implements Closeable {
 		return jmException;
 	}
 
+	/**
+	 * Builds the object-name and the MBean for one of the objects being registered with registerAll.
+	 */
+	private class BuildMbeanTask implements Callable<Void> {
+
+		private final RegistrationResult result;
+
+		public BuildMbeanTask(RegistrationResult result) {
+			this.result = result;
+		}
+
+		@Override
+		public Void call() {
+			Object obj = result.getObject();
+			try {
+				if (obj instanceof PublishAllBeanWrapper) {
+					PublishAllBeanWrapper wrapper = (PublishAllBeanWrapper) obj;
+					if (result.getObjectName() == null) {
+						result.setObjectName(ObjectNameUtil.makeObjectName(wrapper.getJmxResourceInfo()));
+					}
+					result.mbean = new ReflectionMbean(wrapper, accessorType);
+				} else {
+					if (result.getObjectName() == null) {
+						result.setObjectName(ObjectNameUtil.makeObjectName(obj));
+					}
+					result.mbean = new ReflectionMbean(obj, getObjectDescription(obj), null, null, null, false,
+							accessorType);
+				}
+			} catch (Exception e) {
+				result.setException(createJmException("Could not build MBean object for: " + obj, e));
+			}
+			return null;
+		}
+	}
+
 	/**
 	 * Socket factory which allows us to set a particular local address.
 	 * 
@@ -0,0 +1,215 @@
+package com.j256.simplejmx.server;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+import javax.management.Attribute;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.CompositeDataSupport;
+import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.OpenDataException;
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.SimpleType;
+import javax.management.openmbean.TabularData;
+import javax.management.openmbean.TabularDataSupport;
+import javax.management.openmbean.TabularType;
+
+import com.j256.simplejmx.client.ClientUtils;
+import com.j256.simplejmx.common.JmxOperation;
+import com.j256.simplejmx.common.JmxResource;
+import com.j256.simplejmx.common.ObjectNameUtil;
+
+/**
+ * Query bean which is published as the {@link ObjectNameUtil#QUERY_OBJECT_NAME} bean if
+ * {@link JmxServer#setQueryEnabled(boolean)} is set to true. It returns attributes from all of the beans that match a
+ * pattern in a single call so remote clients don't have to make a call for each bean. It queries all of the beans in
+ * the server's MBeanServer, not just the ones registered by the {@link JmxServer}.
+ *
+ * <p>
+ * The results can be returned as {@link TabularData} with the values as strings, which any JMX client can display, or
+ * as a compact array of the values themselves. See {@link com.j256.simplejmx.client.JmxClient#queryBeansAttributes}.
+ * </p>
+ *
+ * @author graywatson
+ */
+@JmxResource(domainName = "simplejmx", description = "Gets attributes from a number of beans in one call")
+public class JmxServerQuery {
+
+	private static final String[] ROW_ITEM_NAMES = new String[] { "objectName", "attribute", "value" };
+	private static final TabularType RESULT_TYPE = createResultType();
+
+	private final MBeanServer mbeanServer;
+
+	JmxServerQuery(MBeanServer mbeanServer) {
+		// only the JmxServer creates these
+		this.mbeanServer = mbeanServer;
+	}
+
+	/**
+	 * Return a row with the string value of each of the attributes of the beans that match the pattern.
+	 */
+	@JmxOperation(description = "Get attributes from the matching beans as a table",
+			parameterNames = { "pattern", "attributeNames", "filter" },
+			parameterDescriptions = { "ObjectName pattern such as java.lang:type=MemoryPool,*",
+					"names of the attributes or empty for all", "regex found in the bean names or empty for none" })
+	public TabularData queryAttributes(String pattern, String[] attributeNames, String filter) throws JMException {
+		TabularDataSupport table = new TabularDataSupport(RESULT_TYPE);
+		// a name requested twice would be a duplicate row
+		attributeNames = uniqueNames(attributeNames);
+		for (ObjectName name : queryNames(pattern, filter)) {
+			List<Attribute> attributes = getAttributes(name, attributeNames);
+			if (attributes == null) {
+				continue;
+			}
+			for (Attribute attribute : attributes) {
+				Object value = attribute.getValue();
+				Object[] items = new Object[] { name.toString(), attribute.getName(),
+						(value == null ? null : ClientUtils.valueToString(value)) };
+				try {
+					table.put(new CompositeDataSupport(RESULT_TYPE.getRowType(), ROW_ITEM_NAMES, items));
+				} catch (OpenDataException ode) {
+					// shouldn't happen since the values are strings
+					throw new IllegalStateException("Could not build query row for " + name, ode);
+				}
+			}
+		}
+		return table;
+	}
+
+	/**
+	 * Return the values of the attributes of the beans that match the pattern as a compact array. The array alternates
+	 * between the bean name string and an Object[] which alternates between the attribute names and their values.
+	 * Attributes that could not be read are left out. Values that are not open types or serializable JDK classes are
+	 * returned as strings so the results can be read by clients that don't have the beans' classes.
+	 */
+	@JmxOperation(description = "Get attribute values from the matching beans as an array",
+			parameterNames = { "pattern", "attributeNames", "filter" },
+			parameterDescriptions = { "ObjectName pattern such as java.lang:type=MemoryPool,*",
+					"names of the attributes or empty for all", "regex found in the bean names or empty for none" })
+	public Object[] queryAttributeValues(String pattern, String[] attributeNames, String filter) throws JMException {
+		List<Object> results = new ArrayList<Object>();
+		attributeNames = uniqueNames(attributeNames);
+		for (ObjectName name : queryNames(pattern, filter)) {
+			List<Attribute> attributes = getAttributes(name, attributeNames);
+			if (attributes == null) {
+				continue;
+			}
+			Object[] values = new Object[attributes.size() * 2];
+			int valueC = 0;
+			for (Attribute attribute : attributes) {
+				values[valueC++] = attribute.getName();
+				values[valueC++] = toPortableValue(attribute.getValue());
+			}
+			results.add(name.toString());
+			results.add(values);
+		}
+		return results.toArray();
+	}
+
+	/**
+	 * Return the value if it is an open type or a serializable JDK class, otherwise its string version.
+	 */
+	private static Object toPortableValue(Object value) {
+		if (value == null || value instanceof CompositeData || value instanceof TabularData) {
+			return value;
+		}
+		Class<?> clazz = value.getClass();
+		while (clazz.isArray()) {
+			clazz = clazz.getComponentType();
+		}
+		if (clazz.isPrimitive() || OpenType.ALLOWED_CLASSNAMES_LIST.contains(clazz.getName())
+				|| CompositeData.class.isAssignableFrom(clazz) || TabularData.class.isAssignableFrom(clazz)) {
+			return value;
+		} else if (clazz.getName().startsWith("java.") && Serializable.class.isAssignableFrom(clazz)) {
+			return value;
+		} else {
+			return ClientUtils.valueToString(value);
+		}
+	}
+
+	private Set<ObjectName> queryNames(String pattern, String filter) throws JMException {
+		ObjectName patternName;
+		try {
+			patternName = new ObjectName(pattern);
+		} catch (MalformedObjectNameException mone) {
+			throw new IllegalArgumentException("Invalid ObjectName pattern: " + pattern);
+		}
+		// sorted so the results are consistent
+		Set<ObjectName> names = new TreeSet<ObjectName>(mbeanServer.queryNames(patternName, null));
+		if (filter != null && !filter.isEmpty()) {
+			Pattern regex = Pattern.compile(filter);
+			Set<ObjectName> filtered = new TreeSet<ObjectName>();
+			for (ObjectName name : names) {
+				if (regex.matcher(name.toString()).find()) {
+					filtered.add(name);
+				}
+			}
+			names = filtered;
+		}
+		return names;
+	}
+
+	/**
+	 * Return the attribute names without any duplicates in the order they were first given.
+	 */
+	private static String[] uniqueNames(String[] attributeNames) {
+		if (attributeNames == null || attributeNames.length < 2) {
+			return attributeNames;
+		}
+		Set<String> names = new LinkedHashSet<String>(Arrays.asList(attributeNames));
+		if (names.size() == attributeNames.length) {
+			return attributeNames;
+		}
+		return names.toArray(new String[names.size()]);
+	}
+
+	/**
+	 * Return the attributes from the bean or null if it has been unregistered.
+	 */
+	private List<Attribute> getAttributes(ObjectName name, String[] attributeNames) throws JMException {
+		try {
+			if (attributeNames == null || attributeNames.length == 0) {
+				attributeNames = getReadableAttributeNames(name);
+			}
+			return mbeanServer.getAttributes(name, attributeNames).asList();
+		} catch (InstanceNotFoundException infe) {
+			// unregistered since it was listed
+			return null;
+		}
+	}
+
+	private String[] getReadableAttributeNames(ObjectName name) throws JMException {
+		MBeanAttributeInfo[] attributeInfos = mbeanServer.getMBeanInfo(name).getAttributes();
+		List<String> names = new ArrayList<String>(attributeInfos.length);
+		for (MBeanAttributeInfo info : attributeInfos) {
+			if (info.isReadable()) {
+				names.add(info.getName());
+			}
+		}
+		return names.toArray(new String[names.size()]);
+	}
+
+	private static TabularType createResultType() {
+		try {
+			CompositeType rowType = new CompositeType("QueryRow", "Attribute value of a bean", ROW_ITEM_NAMES,
+					new String[] { "name of the bean", "name of the attribute", "string value of the attribute" },
+					new OpenType<?>[] { SimpleType.STRING, SimpleType.STRING, SimpleType.STRING });
+			return new TabularType("QueryResult", "Attribute values of the matching beans", rowType,
+					new String[] { "objectName", "attribute" });
+		} catch (OpenDataException ode) {
+			throw new IllegalStateException("Could not build the query result type", ode);
+		}
+	}
+}
@@ -0,0 +1,310 @@
+package com.j256.simplejmx.server;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.Notification;
+import javax.management.NotificationListener;
+import javax.management.ObjectName;
+import javax.management.remote.JMXConnectionNotification;
+
+import com.j256.simplejmx.common.JmxAttributeMethod;
+import com.j256.simplejmx.common.JmxOperation;
+import com.j256.simplejmx.common.JmxResource;
+import com.j256.simplejmx.common.ObjectNameUtil;
+
+/**
+ * Statistics about the beans registered by a {@link JmxServer} which are published as the {@link #OBJECT_NAME} bean
+ * if {@link JmxServer#setStatsEnabled(boolean)} is set to true. It records the number of calls and the latency of each
+ * of the attributes and operations so you can see which getters are expensive to poll. It also records the
+ * registration activity of the server and the connections to its JMX connector so you can alert on churn.
+ *
+ * @author graywatson
+ */
+@JmxResource(domainName = "simplejmx", description = "Statistics about the JmxServer and its registered beans")
+public class JmxServerStats {
+
+	/**
+	 * Object name that the statistics are published under.
+	 */
+	public static final String OBJECT_NAME = "simplejmx:type=Stats";
+
+	private final ConcurrentMap<ObjectName, MbeanCallStats> beanStatsMap =
+			new ConcurrentHashMap<ObjectName, MbeanCallStats>();
+	private final ConcurrentMap<String, AtomicInteger> domainCountMap = new ConcurrentHashMap<String, AtomicInteger>();
+	private final RateCounter registrations = new RateCounter();
+	private final RateCounter unregistrations = new RateCounter();
+	private final LongAdder failedRegistrationCount = new LongAdder();
+	private final CallStats registrationStats = new CallStats("registration");
+	private final LongAdder openedConnectionCount = new LongAdder();
+	private final LongAdder closedConnectionCount = new LongAdder();
+	private final LongAdder failedConnectionCount = new LongAdder();
+	private final NotificationListener connectionListener = new ConnectionListener();
+
+	JmxServerStats() {
+		// only the JmxServer creates these
+	}
+
+	/**
+	 * Return the call statistics of all of the attributes and operations that have been called sorted by the total
+	 * time spent in them, most expensive first.
+	 */
+	@JmxAttributeMethod(description = "Call counts and latencies of the bean attributes and operations")
+	public String[] getCallStats() {
+		List<CallStats> statsList = new ArrayList<CallStats>();
+		for (MbeanCallStats beanStats : beanStatsMap.values()) {
+			beanStats.addUsedStats(statsList);
+		}
+		return toSortedStrings(statsList);
+	}
+
+	/**
+	 * Number of registered beans which are recording call statistics.
+	 */
+	@JmxAttributeMethod(description = "Number of beans recording call statistics")
+	public int getInstrumentedBeanCount() {
+		return beanStatsMap.size();
+	}
+
+	/**
+	 * Number of objects that have been registered.
+	 */
+	@JmxAttributeMethod(description = "Number of objects registered")
+	public long getRegistrationCount() {
+		return registrations.getTotal();
+	}
+
+	/**
+	 * Average number of registrations per second over the last minute.
+	 */
+	@JmxAttributeMethod(description = "Registrations per second over the last minute")
+	public double getRegistrationsPerSecond() {
+		return registrations.getPerSecond();
+	}
+
+	/**
+	 * Number of objects that have been un-registered.
+	 */
+	@JmxAttributeMethod(description = "Number of objects un-registered")
+	public long getUnregistrationCount() {
+		return unregistrations.getTotal();
+	}
+
+	/**
+	 * Average number of un-registrations per second over the last minute.
+	 */
+	@JmxAttributeMethod(description = "Un-registrations per second over the last minute")
+	public double getUnregistrationsPerSecond() {
+		return unregistrations.getPerSecond();
+	}
+
+	/**
+	 * Number of registrations that threw.
+	 */
+	@JmxAttributeMethod(description = "Number of registrations that failed")
+	public long getFailedRegistrationCount() {
+		return failedRegistrationCount.sum();
+	}
+
+	/**
+	 * Count and latency distribution of the registrations with the MBeanServer.
+	 */
+	@JmxAttributeMethod(description = "Latency of the registrations")
+	public String getRegistrationLatency() {
+		return registrationStats.toString();
+	}
+
+	/**
+	 * Upper bound in microseconds of 99% of the registrations.
+	 */
+	@JmxAttributeMethod(description = "Upper bound in microseconds of 99% of the registrations")
+	public long getRegistrationP99Micros() {
+		return registrationStats.getPercentileMicros(0.99);
+	}
+
+	/**
+	 * Number of our registered objects in each domain as "domain=count" sorted by domain.
+	 */
+	@JmxAttributeMethod(description = "Number of registered objects per domain")
+	public String[] getDomainBeanCounts() {
+		// sort them by domain
+		Map<String, Integer> countMap = new TreeMap<String, Integer>();
+		for (Map.Entry<String, AtomicInteger> entry : domainCountMap.entrySet()) {
+			int count = entry.getValue().get();
+			if (count > 0) {
+				countMap.put(entry.getKey(), count);
+			}
+		}
+		String[] results = new String[countMap.size()];
+		int i = 0;
+		for (Map.Entry<String, Integer> entry : countMap.entrySet()) {
+			results[i++] = entry.getKey() + "=" + entry.getValue();
+		}
+		return results;
+	}
+
+	/**
+	 * Number of connections to the JMX connector that are currently open.
+	 */
+	@JmxAttributeMethod(description = "Number of currently open connector connections")
+	public long getConnectionCount() {
+		return openedConnectionCount.sum() - closedConnectionCount.sum() - failedConnectionCount.sum();
+	}
+
+	/**
+	 * Number of connections to the JMX connector that have been opened.
+	 */
+	@JmxAttributeMethod(description = "Number of connector connections opened")
+	public long getOpenedConnectionCount() {
+		return openedConnectionCount.sum();
+	}
+
+	/**
+	 * Number of connections to the JMX connector that have been closed normally.
+	 */
+	@JmxAttributeMethod(description = "Number of connector connections closed")
+	public long getClosedConnectionCount() {
+		return closedConnectionCount.sum();
+	}
+
+	/**
+	 * Number of connections to the JMX connector that terminated abnormally.
+	 */
+	@JmxAttributeMethod(description = "Number of connector connections that failed")
+	public long getFailedConnectionCount() {
+		return failedConnectionCount.sum();
+	}
+
+	/**
+	 * Return the call statistics of the attributes and operations of one bean.
+	 */
+	@JmxOperation(description = "Call counts and latencies of the attributes and operations of a bean",
+			parameterNames = { "objectName" }, parameterDescriptions = { "Object name of the bean" })
+	public String[] beanCallStats(String objectName) {
+		MbeanCallStats beanStats = beanStatsMap.get(ObjectNameUtil.makeObjectName(objectName));
+		if (beanStats == null) {
+			return new String[0];
+		}
+		List<CallStats> statsList = new ArrayList<CallStats>();
+		beanStats.addUsedStats(statsList);
+		return toSortedStrings(statsList);
+	}
+
+	/**
+	 * Clear the call statistics.
+	 */
+	@JmxOperation(description = "Clear the call statistics")
+	public void resetCallStats() {
+		for (MbeanCallStats beanStats : beanStatsMap.values()) {
+			beanStats.reset();
+		}
+	}
+
+	/**
+	 * Start recording the calls to a bean that is about to be registered.
+	 */
+	void beanRegistering(ObjectName objectName, ReflectionMbean mbean) {
+		mbean.setCallStats(new MbeanCallStats(objectName, mbean.getMetadata()));
+	}
+
+	/**
+	 * Record that a bean was registered and how long it took.
+	 */
+	void beanRegistered(ObjectName objectName, ReflectionMbean mbean, long nanos) {
+		beanStatsMap.put(objectName, mbean.getCallStats());
+		registrations.increment();
+		registrationStats.record(nanos, false);
+		AtomicInteger domainCount = domainCountMap.get(objectName.getDomain());
+		if (domainCount == null) {
+			domainCount = new AtomicInteger();
+			AtomicInteger existing = domainCountMap.putIfAbsent(objectName.getDomain(), domainCount);
+			if (existing != null) {
+				domainCount = existing;
+			}
+		}
+		domainCount.incrementAndGet();
+	}
+
+	/**
+	 * Record that the registration of a bean threw.
+	 */
+	void beanRegisterFailed(long nanos) {
+		failedRegistrationCount.increment();
+		registrationStats.record(nanos, true);
+	}
+
+	void beanUnregistered(ObjectName objectName) {
+		unregistrations.increment();
+		// beans registered before we were enabled aren't in our domain counts
+		if (beanStatsMap.remove(objectName) != null) {
+			AtomicInteger domainCount = domainCountMap.get(objectName.getDomain());
+			if (domainCount != null) {
+				domainCount.decrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * Listener that should be added to the JMX connector so we can count its connections.
+	 */
+	NotificationListener getConnectionListener() {
+		return connectionListener;
+	}
+
+	private static String[] toSortedStrings(List<CallStats> statsList) {
+		// the calls keep recording while we sort so we sort copies that don't change
+		List<CallStats.Snapshot> snapshots = new ArrayList<CallStats.Snapshot>(statsList.size());
+		for (CallStats stats : statsList) {
+			snapshots.add(stats.snapshot());
+		}
+		Collections.sort(snapshots, new TotalTimeComparator());
+		String[] results = new String[snapshots.size()];
+		for (int i = 0; i < results.length; i++) {
+			results[i] = snapshots.get(i).toString();
+		}
+		return results;
+	}
+
+	/**
+	 * Counts the connections from the notifications of the JMX connector.
+	 */
+	private class ConnectionListener implements NotificationListener {
+		@Override
+		public void handleNotification(Notification notification, Object handback) {
+			String type = notification.getType();
+			if (JMXConnectionNotification.OPENED.equals(type)) {
+				openedConnectionCount.increment();
+			} else if (JMXConnectionNotification.CLOSED.equals(type)) {
+				closedConnectionCount.increment();
+			} else if (JMXConnectionNotification.FAILED.equals(type)) {
+				failedConnectionCount.increment();
+			}
+		}
+	}
+
+	/**
+	 * Sorts the most total time first.
+	 */
+	private static class TotalTimeComparator implements Comparator<CallStats.Snapshot> {
+		@Override
+		public int compare(CallStats.Snapshot stats1, CallStats.Snapshot stats2) {
+			long total1 = stats1.getTotalNanos();
+			long total2 = stats2.getTotalNanos();
+			if (total1 > total2) {
+				return -1;
+			} else if (total1 < total2) {
+				return 1;
+			} else {
+				return stats1.getDescription().compareTo(stats2.getDescription());
+			}
+		}
+	}
+}
@@ -0,0 +1,31 @@
+package com.j256.simplejmx.server;
+
+/**
+ * Dispatches the attribute and operation calls of a {@link ReflectionMbean} to its target object. Each attribute getter,
+ * attribute setter, and operation is assigned an index when the mbean is built and the accessor is called with that
+ * index.
+ *
+ * <p>
+ * <b>NOTE:</b> This is public only so that the accessor classes generated at runtime by the server can implement it. It
+ * is not expected to be used directly.
+ * </p>
+ *
+ * @author graywatson
+ */
+public interface MbeanAccessor {
+
+	/**
+	 * Return the value of the attribute getter at the index from the target object.
+	 */
+	public Object getAttribute(Object target, int index) throws Exception;
+
+	/**
+	 * Set the value of the attribute setter at the index on the target object.
+	 */
+	public void setAttribute(Object target, int index, Object value) throws Exception;
+
+	/**
+	 * Invoke the operation at the index on the target object and return its result or null if void.
+	 */
+	public Object invokeOperation(Object target, int index, Object[] params) throws Exception;
+}
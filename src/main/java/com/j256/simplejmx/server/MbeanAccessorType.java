@@ -0,0 +1,28 @@
+package com.j256.simplejmx.server;
+
+/**
+ * How the {@link ReflectionMbean} calls the attribute getters and setters and the operations on the target object. See
+ * {@link JmxServer#setAccessorType(MbeanAccessorType)}.
+ *
+ * @author graywatson
+ */
+public enum MbeanAccessorType {
+
+	/**
+	 * Call the methods and fields using {@link java.lang.reflect.Method#invoke(Object, Object...)} and
+	 * {@link java.lang.reflect.Field#get(Object)}.
+	 */
+	REFLECTION,
+	/**
+	 * Resolve the methods and fields once to {@link java.lang.invoke.MethodHandle}s and call those. Falls back to
+	 * reflection if the handles cannot be looked up.
+	 */
+	METHOD_HANDLE,
+	/**
+	 * Generate an accessor class per target class which calls the methods and fields directly. Falls back to reflection
+	 * for members that can't be called directly or if classes can't be defined. This is the default.
+	 */
+	GENERATED,
+	// end
+	;
+}
@@ -0,0 +1,95 @@
+package com.j256.simplejmx.server;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.management.ObjectName;
+
+/**
+ * Call statistics for the attributes and operations of one registered {@link ReflectionMbean}. The per-call
+ * information is only allocated once the attribute or operation is used.
+ *
+ * @author graywatson
+ */
+class MbeanCallStats {
+
+	private final ObjectName objectName;
+	private final String[] getterNames;
+	private final String[] setterNames;
+	private final String[] operationNames;
+	private final AtomicReferenceArray<CallStats> getterStats;
+	private final AtomicReferenceArray<CallStats> setterStats;
+	private final AtomicReferenceArray<CallStats> operationStats;
+
+	public MbeanCallStats(ObjectName objectName, ReflectionMbeanMetadata metadata) {
+		this.objectName = objectName;
+		this.getterNames = metadata.getGetterNames();
+		this.setterNames = metadata.getSetterNames();
+		this.operationNames = metadata.getOperationNames();
+		this.getterStats = new AtomicReferenceArray<CallStats>(getterNames.length);
+		this.setterStats = new AtomicReferenceArray<CallStats>(setterNames.length);
+		this.operationStats = new AtomicReferenceArray<CallStats>(operationNames.length);
+	}
+
+	public void recordGet(int getterIndex, long nanos, boolean error) {
+		findStats(getterStats, getterIndex, "get ", getterNames).record(nanos, error);
+	}
+
+	public void recordSet(int setterIndex, long nanos, boolean error) {
+		findStats(setterStats, setterIndex, "set ", setterNames).record(nanos, error);
+	}
+
+	public void recordInvoke(int operationIndex, long nanos, boolean error) {
+		findStats(operationStats, operationIndex, "invoke ", operationNames).record(nanos, error);
+	}
+
+	public ObjectName getObjectName() {
+		return objectName;
+	}
+
+	/**
+	 * Add the stats of the calls that have been made to the list.
+	 */
+	public void addUsedStats(List<CallStats> statsList) {
+		addUsedStats(getterStats, statsList);
+		addUsedStats(setterStats, statsList);
+		addUsedStats(operationStats, statsList);
+	}
+
+	public void reset() {
+		reset(getterStats);
+		reset(setterStats);
+		reset(operationStats);
+	}
+
+	private CallStats findStats(AtomicReferenceArray<CallStats> statsArray, int index, String prefix,
+			String[] names) {
+		CallStats stats = statsArray.get(index);
+		if (stats == null) {
+			stats = new CallStats(objectName + " " + prefix + names[index]);
+			if (!statsArray.compareAndSet(index, null, stats)) {
+				// someone beat us to it
+				stats = statsArray.get(index);
+			}
+		}
+		return stats;
+	}
+
+	private static void addUsedStats(AtomicReferenceArray<CallStats> statsArray, List<CallStats> statsList) {
+		for (int i = 0; i < statsArray.length(); i++) {
+			CallStats stats = statsArray.get(i);
+			if (stats != null && stats.getCount() > 0) {
+				statsList.add(stats);
+			}
+		}
+	}
+
+	private static void reset(AtomicReferenceArray<CallStats> statsArray) {
+		for (int i = 0; i < statsArray.length(); i++) {
+			CallStats stats = statsArray.get(i);
+			if (stats != null) {
+				stats.reset();
+			}
+		}
+	}
+}
@@ -0,0 +1,131 @@
+package com.j256.simplejmx.server;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * Accessor which resolves each of the getters, setters, fields, and operation methods to a {@link MethodHandle} once
+ * and then calls them with {@link MethodHandle#invokeExact(Object...)}. The handles are adapted so they all take and
+ * return objects which removes the per-call varargs array of {@link Method#invoke(Object, Object...)}. Like
+ * reflection, anything thrown by the calls, including errors, is wrapped in an {@link InvocationTargetException}.
+ *
+ * @author graywatson
+ */
+class MethodHandleAccessor implements MbeanAccessor {
+
+	private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+	private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+	private static final MethodType OPERATION_TYPE =
+			MethodType.methodType(Object.class, Object.class, Object[].class);
+
+	private final MethodHandle[] getters;
+	private final MethodHandle[] setters;
+	private final MethodHandle[] operations;
+
+	private MethodHandleAccessor(MethodHandle[] getters, MethodHandle[] setters, MethodHandle[] operations) {
+		this.getters = getters;
+		this.setters = setters;
+		this.operations = operations;
+	}
+
+	/**
+	 * Return an accessor that uses method-handles for the members or a {@link ReflectionAccessor} if the handles could
+	 * not be looked up.
+	 */
+	public static MbeanAccessor createAccessor(Member[] getterMembers, Member[] setterMembers,
+			Method[] operationMethods) {
+		MethodHandles.Lookup lookup = MethodHandles.lookup();
+		try {
+			MethodHandle[] getters = new MethodHandle[getterMembers.length];
+			for (int i = 0; i < getterMembers.length; i++) {
+				getters[i] = getterHandle(lookup, getterMembers[i]);
+			}
+			MethodHandle[] setters = new MethodHandle[setterMembers.length];
+			for (int i = 0; i < setterMembers.length; i++) {
+				setters[i] = setterHandle(lookup, setterMembers[i]);
+			}
+			MethodHandle[] operations = new MethodHandle[operationMethods.length];
+			for (int i = 0; i < operationMethods.length; i++) {
+				operations[i] = operationHandle(lookup, operationMethods[i]);
+			}
+			return new MethodHandleAccessor(getters, setters, operations);
+		} catch (IllegalAccessException iae) {
+			// we can't get to some member so we stay with reflection
+			return new ReflectionAccessor(getterMembers, setterMembers, operationMethods);
+		}
+	}
+
+	@Override
+	public Object getAttribute(Object target, int index) throws Exception {
+		try {
+			return (Object) getters[index].invokeExact(target);
+		} catch (Throwable th) {
+			throw new InvocationTargetException(th);
+		}
+	}
+
+	@Override
+	public void setAttribute(Object target, int index, Object value) throws Exception {
+		try {
+			setters[index].invokeExact(target, value);
+		} catch (Throwable th) {
+			throw new InvocationTargetException(th);
+		}
+	}
+
+	@Override
+	public Object invokeOperation(Object target, int index, Object[] params) throws Exception {
+		try {
+			return (Object) operations[index].invokeExact(target, params);
+		} catch (Throwable th) {
+			throw new InvocationTargetException(th);
+		}
+	}
+
+	private static MethodHandle getterHandle(MethodHandles.Lookup lookup, Member member)
+			throws IllegalAccessException {
+		MethodHandle handle;
+		if (member instanceof Field) {
+			handle = lookup.unreflectGetter((Field) member);
+		} else {
+			handle = lookup.unreflect((Method) member);
+		}
+		return adaptStatic(member, handle).asType(GETTER_TYPE);
+	}
+
+	private static MethodHandle setterHandle(MethodHandles.Lookup lookup, Member member)
+			throws IllegalAccessException {
+		MethodHandle handle;
+		if (member instanceof Field) {
+			handle = lookup.unreflectSetter((Field) member);
+		} else {
+			handle = lookup.unreflect((Method) member);
+		}
+		return adaptStatic(member, handle).asType(SETTER_TYPE);
+	}
+
+	private static MethodHandle operationHandle(MethodHandles.Lookup lookup, Method method)
+			throws IllegalAccessException {
+		MethodHandle handle = adaptStatic(method, lookup.unreflect(method));
+		// spread the parameter array across the method arguments after the target
+		handle = handle.asSpreader(Object[].class, method.getParameterTypes().length);
+		return handle.asType(OPERATION_TYPE);
+	}
+
+	/**
+	 * Static members don't take the target object so we add an argument which is ignored.
+	 */
+	private static MethodHandle adaptStatic(Member member, MethodHandle handle) {
+		if (Modifier.isStatic(member.getModifiers())) {
+			return MethodHandles.dropArguments(handle, 0, Object.class);
+		} else {
+			return handle;
+		}
+	}
+}
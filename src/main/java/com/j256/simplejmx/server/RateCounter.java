@@ -0,0 +1,75 @@
+package com.j256.simplejmx.server;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts events in one second slots so we can report the average rate over the last minute. Counting does not lock.
+ *
+ * @author graywatson
+ */
+class RateCounter {
+
+	private static final int WINDOW_SECONDS = 60;
+
+	private final LongAdder total = new LongAdder();
+	private final AtomicReferenceArray<Slot> slots = new AtomicReferenceArray<Slot>(WINDOW_SECONDS);
+
+	/**
+	 * Count an event.
+	 */
+	public void increment() {
+		total.increment();
+		long second = currentSecond();
+		// nano-time can be negative
+		int index = (int) Math.floorMod(second, (long) WINDOW_SECONDS);
+		while (true) {
+			Slot slot = slots.get(index);
+			if (slot != null && slot.second == second) {
+				slot.count.increment();
+				return;
+			}
+			// the slot is from a previous minute so replace it, if we lose the race we use the winner's slot
+			slots.compareAndSet(index, slot, new Slot(second));
+		}
+	}
+
+	/**
+	 * Total number of events that have been counted.
+	 */
+	public long getTotal() {
+		return total.sum();
+	}
+
+	/**
+	 * Average number of events per second over the last minute.
+	 */
+	public double getPerSecond() {
+		long second = currentSecond();
+		long sum = 0;
+		for (int i = 0; i < WINDOW_SECONDS; i++) {
+			Slot slot = slots.get(i);
+			if (slot != null && second - slot.second < WINDOW_SECONDS) {
+				sum += slot.count.sum();
+			}
+		}
+		return (double) sum / WINDOW_SECONDS;
+	}
+
+	private static long currentSecond() {
+		return TimeUnit.NANOSECONDS.toSeconds(System.nanoTime());
+	}
+
+	/**
+	 * Count for one second.
+	 */
+	private static class Slot {
+		final long second;
+		final LongAdder count = new LongAdder();
+
+		public Slot(long second) {
+			this.second = second;
+		}
+	}
+}
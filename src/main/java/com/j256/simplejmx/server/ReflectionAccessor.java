@@ -0,0 +1,61 @@
+package com.j256.simplejmx.server;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+
+/**
+ * Accessor which calls the attribute and operation methods and fields using reflection. This is the fallback if we are
+ * not able to generate an accessor class.
+ *
+ * @author graywatson
+ */
+class ReflectionAccessor implements MbeanAccessor {
+
+	private final Member[] getters;
+	private final Member[] setters;
+	private final Method[] operations;
+
+	public ReflectionAccessor(Member[] getters, Member[] setters, Method[] operations) {
+		this.getters = getters;
+		this.setters = setters;
+		this.operations = operations;
+	}
+
+	@Override
+	public Object getAttribute(Object target, int index) throws Exception {
+		Member getter = getters[index];
+		if (getter instanceof Field) {
+			return ((Field) getter).get(target);
+		} else {
+			return ((Method) getter).invoke(target);
+		}
+	}
+
+	@Override
+	public void setAttribute(Object target, int index, Object value) throws Exception {
+		Member setter = setters[index];
+		if (setter instanceof Field) {
+			((Field) setter).set(target, value);
+		} else {
+			((Method) setter).invoke(target, value);
+		}
+	}
+
+	@Override
+	public Object invokeOperation(Object target, int index, Object[] params) throws Exception {
+		return operations[index].invoke(target, params);
+	}
+
+	public Member[] getGetters() {
+		return getters;
+	}
+
+	public Member[] getSetters() {
+		return setters;
+	}
+
+	public Method[] getOperations() {
+		return operations;
+	}
+}
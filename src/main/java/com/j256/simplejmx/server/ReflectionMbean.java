@@ -1,49 +1,78 @@
 package com.j256.simplejmx.server;
 
-import java.lang.reflect.Field;
-import java.lang.reflect.Method;
-import java.util.ArrayList;
+import java.lang.reflect.InvocationTargetException;
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import javax.management.Attribute;
+import javax.management.AttributeChangeNotification;
 import javax.management.AttributeList;
 import javax.management.AttributeNotFoundException;
 import javax.management.DynamicMBean;
-import javax.management.MBeanAttributeInfo;
+import javax.management.ListenerNotFoundException;
 import javax.management.MBeanException;
 import javax.management.MBeanInfo;
-import javax.management.MBeanOperationInfo;
-import javax.management.MBeanParameterInfo;
+import javax.management.MBeanNotificationInfo;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationFilter;
+import javax.management.NotificationListener;
 import javax.management.ReflectionException;
 
-import com.j256.simplejmx.common.JmxAttributeField;
 import com.j256.simplejmx.common.JmxAttributeFieldInfo;
-import com.j256.simplejmx.common.JmxAttributeMethod;
 import com.j256.simplejmx.common.JmxAttributeMethodInfo;
-import com.j256.simplejmx.common.JmxOperation;
 import com.j256.simplejmx.common.JmxOperationInfo;
 import com.j256.simplejmx.common.JmxResource;
+import com.j256.simplejmx.server.ReflectionMbeanMetadata.AttributeFieldInfo;
+import com.j256.simplejmx.server.ReflectionMbeanMetadata.AttributeMethodInfo;
+import com.j256.simplejmx.server.ReflectionMbeanMetadata.OperationMethodInfo;
 
 /**
  * This wraps an object that has been registered in the server using {@link JmxServer#register(Object)}. We wrap the
  * object so we can expose its attributes and operations using annotations and reflection. This handles the JMX server
  * calls to attributes and operations by calling through the delegation object.
  * 
+ * <p>
+ * The attribute and operation calls are dispatched through a {@link MbeanAccessor}. By default this is generated for
+ * the target's class if possible so the getters, setters, fields, and methods are called directly and not through
+ * reflection. See {@link MbeanAccessorType}. The parsed class information is shared between all of the mbeans that
+ * wrap objects of the same class so creating a mbean for another instance just binds the target object.
+ * </p>
+ * 
+ * <p>
+ * Attributes that are marked as notify-on-change are sampled by the {@link JmxServer} and listeners of the mbean are
+ * sent AttributeChangeNotifications when their values change.
+ * </p>
+ * 
  * @author graywatson
  */
-public class ReflectionMbean implements DynamicMBean {
+public class ReflectionMbean implements DynamicMBean, NotificationEmitter {
+
+	static final MbeanAccessorType DEFAULT_ACCESSOR_TYPE = MbeanAccessorType.GENERATED;
+	static final int DEFAULT_NOTIFICATION_BUFFER_SIZE = 100;
+	private static final Object NOT_SAMPLED = new Object();
+	private static final Object NOT_READ = new Object();
 
 	private final Object target;
-	private final String description;
-	private final Map<String, AttributeMethodInfo> attributeMethodMap = new HashMap<String, AttributeMethodInfo>();
-	private final Map<NameParams, Method> operationMethodMap = new HashMap<NameParams, Method>();
-	private final Map<String, AttributeFieldInfo> attributeFieldMap = new HashMap<String, AttributeFieldInfo>();
+	private final ReflectionMbeanMetadata metadata;
+	/** shared with the metadata unless we have our own description */
 	private final MBeanInfo mbeanInfo;
+	private final MbeanAccessor accessor;
+	/** cached values by getter index or null if none of the attributes are cached */
+	private final CachedAttributeValue[] cachedValues;
+	/** reads the attributes with a timeout or null to read them in the caller's thread */
+	private volatile TimedAttributeReader attributeReader;
+	/** records the calls to the attributes and operations or null if not enabled */
+	private volatile MbeanCallStats callStats;
+	/** created when the first listener is added */
+	private volatile AttributeChangeNotifier notifier;
+	private volatile int notificationBufferSize = DEFAULT_NOTIFICATION_BUFFER_SIZE;
+	/** last values of the notify-on-change attributes, only used by the sampler thread */
+	private Object[] sampledValues;
 
 	/**
 	 * Create a mbean associated with a target object that must have a {@link JmxResource} annotation.
@@ -56,8 +85,16 @@ public class ReflectionMbean implements DynamicMBean {
 	 * Create a mbean associated with a wrapped object that exposes all public fields and methods.
 	 */
 	public ReflectionMbean(PublishAllBeanWrapper wrapper) {
+		this(wrapper, DEFAULT_ACCESSOR_TYPE);
+	}
+
+	/**
+	 * Create a mbean associated with a wrapped object that exposes all public fields and methods and which calls them
+	 * using a particular accessor type.
+	 */
+	public ReflectionMbean(PublishAllBeanWrapper wrapper, MbeanAccessorType accessorType) {
 		this(wrapper.getTarget(), null, wrapper.getAttributeFieldInfos(), wrapper.getAttributeMethodInfos(),
-				wrapper.getOperationInfos(), true);
+				wrapper.getOperationInfos(), true, accessorType);
 	}
 
 	/**
@@ -65,9 +102,23 @@ public class ReflectionMbean implements DynamicMBean {
 	 */
 	public ReflectionMbean(Object target, String description, JmxAttributeFieldInfo[] attributeFieldInfos,
 			JmxAttributeMethodInfo[] attributeMethodInfos, JmxOperationInfo[] operationInfos, boolean ignoreErrors) {
+		this(target, description, attributeFieldInfos, attributeMethodInfos, operationInfos, ignoreErrors,
+				DEFAULT_ACCESSOR_TYPE);
+	}
+
+	/**
+	 * Create a mbean associated with a target object with user provided attribute and operation information and which
+	 * calls them using a particular accessor type.
+	 */
+	public ReflectionMbean(Object target, String description, JmxAttributeFieldInfo[] attributeFieldInfos,
+			JmxAttributeMethodInfo[] attributeMethodInfos, JmxOperationInfo[] operationInfos, boolean ignoreErrors,
+			MbeanAccessorType accessorType) {
 		this.target = target;
-		this.description = preprocessDescription(target, description);
-		this.mbeanInfo = buildMbeanInfo(attributeFieldInfos, attributeMethodInfos, operationInfos, ignoreErrors);
+		this.metadata = ReflectionMbeanMetadata.getMetadata(target.getClass(), attributeFieldInfos,
+				attributeMethodInfos, operationInfos, ignoreErrors, accessorType);
+		this.mbeanInfo = metadata.getMbeanInfo(description);
+		this.accessor = metadata.getAccessor();
+		this.cachedValues = buildCachedValues(metadata);
 	}
 
 	@Override
@@ -77,15 +128,16 @@ public class ReflectionMbean implements DynamicMBean {
 
 	@Override
 	public Object getAttribute(String attributeName) throws AttributeNotFoundException, ReflectionException {
-		AttributeMethodInfo methodInfo = attributeMethodMap.get(attributeName);
+		AttributeMethodInfo methodInfo = metadata.getAttributeMethodInfo(attributeName);
 		if (methodInfo == null) {
-			AttributeFieldInfo fieldInfo = attributeFieldMap.get(attributeName);
+			AttributeFieldInfo fieldInfo = metadata.getAttributeFieldInfo(attributeName);
 			if (fieldInfo == null || !fieldInfo.isGetter) {
 				throwUnknownAttributeException(attributeName);
 			}
 			try {
-				// get the value by using reflection on the Field
-				return fieldInfo.field.get(target);
+				return readAttribute(fieldInfo.getterIndex, attributeName);
+			} catch (TimeoutException te) {
+				throw new ReflectionException(te, te.getMessage());
 			} catch (Exception e) {
 				throw new ReflectionException(e, "Invoking getter attribute on field " + fieldInfo.field.getName()
 						+ " on " + target.getClass() + " threw exception");
@@ -95,8 +147,9 @@ public class ReflectionMbean implements DynamicMBean {
 				throwUnknownAttributeException(attributeName);
 			}
 			try {
-				// get the value by calling the method
-				return methodInfo.getterMethod.invoke(target);
+				return readAttribute(methodInfo.getterIndex, attributeName);
+			} catch (TimeoutException te) {
+				throw new ReflectionException(te, te.getMessage());
 			} catch (Exception e) {
 				throw new ReflectionException(e, "Invoking getter attribute method "
 						+ methodInfo.getterMethod.getName() + " on " + target.getClass() + " threw exception");
@@ -106,40 +159,64 @@ public class ReflectionMbean implements DynamicMBean {
 
 	@Override
 	public AttributeList getAttributes(String[] attributeNames) {
-		AttributeList returnList = new AttributeList();
-		for (String name : attributeNames) {
-			try {
-				returnList.add(new Attribute(name, getAttribute(name)));
-			} catch (Exception e) {
-				returnList.add(new Attribute(name, "Getting attribute threw: " + e.getMessage()));
+		// resolve straight to the getter indexes so unknown attributes don't cost us an exception
+		int[] getterIndexes = new int[attributeNames.length];
+		for (int i = 0; i < attributeNames.length; i++) {
+			getterIndexes[i] = metadata.getGetterIndex(attributeNames[i]);
+		}
+		TimedAttributeReader reader = attributeReader;
+		Object[] values;
+		if (reader == null) {
+			values = new Object[attributeNames.length];
+			for (int i = 0; i < attributeNames.length; i++) {
+				if (getterIndexes[i] >= 0) {
+					try {
+						values[i] = readCachedAttribute(getterIndexes[i]);
+					} catch (Exception e) {
+						values[i] = readErrorValue(e);
+					}
+				}
 			}
+		} else {
+			values = readAttributesTimed(reader, attributeNames, getterIndexes);
+		}
+		AttributeList returnList = new AttributeList(attributeNames.length);
+		for (int i = 0; i < attributeNames.length; i++) {
+			if (getterIndexes[i] < 0) {
+				values[i] = "Getting attribute threw: Unknown attribute " + attributeNames[i];
+			}
+			returnList.add(new Attribute(attributeNames[i], values[i]));
 		}
 		return returnList;
 	}
 
 	@Override
 	public void setAttribute(Attribute attribute) throws AttributeNotFoundException, ReflectionException {
-		AttributeMethodInfo methodInfo = attributeMethodMap.get(attribute.getName());
+		AttributeMethodInfo methodInfo = metadata.getAttributeMethodInfo(attribute.getName());
 		if (methodInfo == null) {
-			AttributeFieldInfo fieldInfo = attributeFieldMap.get(attribute.getName());
+			AttributeFieldInfo fieldInfo = metadata.getAttributeFieldInfo(attribute.getName());
 			if (fieldInfo == null || !fieldInfo.isSetter) {
 				throwUnknownAttributeException(attribute.getName());
 			}
 			try {
-				fieldInfo.field.set(target, attribute.getValue());
+				writeAttribute(fieldInfo.setterIndex, attribute.getValue());
 			} catch (Exception e) {
 				throw new ReflectionException(e, "Invoking setter attribute on field " + fieldInfo.field.getName()
 						+ " on " + target.getClass() + " threw exception");
+			} finally {
+				invalidateCachedValue(fieldInfo.getterIndex);
 			}
 		} else {
 			if (methodInfo.setterMethod == null) {
 				throwUnknownAttributeException(attribute.getName());
 			}
 			try {
-				methodInfo.setterMethod.invoke(target, attribute.getValue());
+				writeAttribute(methodInfo.setterIndex, attribute.getValue());
 			} catch (Exception e) {
 				throw new ReflectionException(e, "Invoking setter attribute method "
 						+ methodInfo.setterMethod.getName() + " on " + target.getClass() + " threw exception");
+			} finally {
+				invalidateCachedValue(methodInfo.getterIndex);
 			}
 		}
 	}
@@ -162,323 +239,268 @@ public class ReflectionMbean implements DynamicMBean {
 	@Override
 	public Object invoke(String actionName, Object[] params, String[] signatureTypes) throws MBeanException,
 			ReflectionException {
-		Method method = operationMethodMap.get(new NameParams(actionName, signatureTypes));
-		if (method == null) {
+		OperationMethodInfo operationInfo = metadata.getOperationMethodInfo(actionName, signatureTypes);
+		if (operationInfo == null) {
 			throw new MBeanException(new IllegalArgumentException("Unknown action '" + actionName
 					+ "' with parameter types " + Arrays.toString(signatureTypes)));
 		}
 		try {
-			return method.invoke(target, params);
+			return invokeOperation(operationInfo.index, params);
 		} catch (Exception e) {
-			throw new ReflectionException(e, "Invoking operation method " + method.getName() + " on "
+			throw new ReflectionException(e, "Invoking operation method " + operationInfo.method.getName() + " on "
 					+ target.getClass() + " threw exception");
 		}
 	}
 
-	private static String preprocessDescription(Object target, String description) {
-		if (description == null) {
-			return "Information about " + target.getClass();
-		} else {
-			return description;
-		}
+	@Override
+	public void addNotificationListener(NotificationListener listener, NotificationFilter filter, Object handback) {
+		getNotifier().addNotificationListener(listener, filter, handback, notificationBufferSize);
 	}
 
-	/**
-	 * Build our JMX information object by using reflection.
-	 */
-	private MBeanInfo buildMbeanInfo(JmxAttributeFieldInfo[] attributeFieldInfos,
-			JmxAttributeMethodInfo[] attributeMethodInfos, JmxOperationInfo[] operationInfos, boolean ignoreErrors) {
+	@Override
+	public void removeNotificationListener(NotificationListener listener) throws ListenerNotFoundException {
+		getNotifier().removeNotificationListener(listener);
+	}
 
-		// NOTE: setup the maps that track previous class configuration
-		Map<String, JmxAttributeFieldInfo> attributeFieldInfoMap = null;
-		if (attributeFieldInfos != null) {
-			attributeFieldInfoMap = new HashMap<String, JmxAttributeFieldInfo>();
-			for (JmxAttributeFieldInfo info : attributeFieldInfos) {
-				attributeFieldInfoMap.put(info.getFieldName(), info);
-			}
-		}
-		Map<String, JmxAttributeMethodInfo> attributeMethodInfoMap = null;
-		if (attributeMethodInfos != null) {
-			attributeMethodInfoMap = new HashMap<String, JmxAttributeMethodInfo>();
-			for (JmxAttributeMethodInfo info : attributeMethodInfos) {
-				attributeMethodInfoMap.put(info.getMethodName(), info);
-			}
-		}
-		Map<String, JmxOperationInfo> attributeOperationInfoMap = null;
-		if (operationInfos != null) {
-			attributeOperationInfoMap = new HashMap<String, JmxOperationInfo>();
-			for (JmxOperationInfo info : operationInfos) {
-				attributeOperationInfoMap.put(info.getMethodName(), info);
-			}
-		}
+	@Override
+	public void removeNotificationListener(NotificationListener listener, NotificationFilter filter, Object handback)
+			throws ListenerNotFoundException {
+		getNotifier().removeNotificationListener(listener, filter, handback);
+	}
 
-		Set<String> attributeNameSet = new HashSet<String>();
-		List<MBeanAttributeInfo> attributes = new ArrayList<MBeanAttributeInfo>();
-		// NOTE: methods override fields so subclasses can stop exposing of fields
-		discoverAttributeMethods(attributeMethodInfoMap, attributeNameSet, attributes, ignoreErrors);
-		discoverAttributeFields(attributeFieldInfoMap, attributeNameSet, attributes);
-		List<MBeanOperationInfo> operations = discoverOperations(attributeOperationInfoMap);
+	@Override
+	public MBeanNotificationInfo[] getNotificationInfo() {
+		return metadata.getMbeanInfo().getNotifications();
+	}
 
-		return new MBeanInfo(target.getClass().getName(), description,
-				attributes.toArray(new MBeanAttributeInfo[attributes.size()]), null,
-				operations.toArray(new MBeanOperationInfo[operations.size()]), null);
+	/**
+	 * Set the reader which is used to read the attributes with a timeout. Set to null to read the attributes in the
+	 * calling thread which is the default.
+	 */
+	void setAttributeReader(TimedAttributeReader attributeReader) {
+		this.attributeReader = attributeReader;
 	}
 
 	/**
-	 * Find attribute methods from our object that will be exposed via JMX.
+	 * Set the statistics that record the calls to the attributes and operations or null to not record them which is the
+	 * default.
 	 */
-	private void discoverAttributeMethods(Map<String, JmxAttributeMethodInfo> attributeMethodInfoMap,
-			Set<String> attributeNameSet, List<MBeanAttributeInfo> attributes, boolean ignoreErrors) {
-		for (Class<?> clazz = target.getClass(); clazz != Object.class; clazz = clazz.getSuperclass()) {
-			discoverAttributeMethods(attributeMethodInfoMap, attributeNameSet, attributes, ignoreErrors, clazz);
-		}
-		/*
-		 * we have to go back and post process the attribute-method-map because the getter and setter methods change the
-		 * method-info multiple times.
-		 */
-		for (AttributeMethodInfo methodInfo : attributeMethodMap.values()) {
-			attributes.add(new MBeanAttributeInfo(methodInfo.varName, methodInfo.type.getName(),
-					methodInfo.description, (methodInfo.getterMethod != null), (methodInfo.setterMethod != null),
-					methodInfo.isIs()));
-			attributeNameSet.add(methodInfo.varName);
-		}
+	void setCallStats(MbeanCallStats callStats) {
+		this.callStats = callStats;
 	}
 
-	private void discoverAttributeMethods(Map<String, JmxAttributeMethodInfo> attributeMethodInfoMap,
-			Set<String> attributeNameSet, List<MBeanAttributeInfo> attributes, boolean ignoreErrors, Class<?> clazz) {
-		for (Method method : clazz.getMethods()) {
-			JmxAttributeMethod jmxAttribute = method.getAnnotation(JmxAttributeMethod.class);
-			JmxAttributeMethodInfo attributeMethodInfo = null;
-			if (jmxAttribute == null) {
-				// skip it if no annotation
-				if (attributeMethodInfoMap != null) {
-					// was this attribute method already configured?
-					attributeMethodInfo = attributeMethodInfoMap.get(method.getName());
-				}
-				if (attributeMethodInfo == null) {
-					continue;
-				}
-			} else {
-				attributeMethodInfo = new JmxAttributeMethodInfo(method.getName(), jmxAttribute);
-				jmxAttribute = null;
-			}
+	/**
+	 * Set the maximum number of notifications that are buffered for each listener added after this is called. If a
+	 * listener falls behind then its oldest notifications are dropped.
+	 */
+	void setNotificationBufferSize(int notificationBufferSize) {
+		this.notificationBufferSize = notificationBufferSize;
+	}
 
-			try {
-				discoverAttributeMethod(attributeNameSet, method, attributeMethodInfo);
-			} catch (IllegalArgumentException iae) {
-				if (!ignoreErrors) {
-					throw iae;
-				}
-			}
-		}
+	/**
+	 * Return true if any of our attributes are marked as notify-on-change.
+	 */
+	boolean hasNotifyAttributes() {
+		return metadata.getNotifyGetterIndexes().length > 0;
 	}
 
-	private void discoverAttributeMethod(Set<String> attributeNameSet, Method method,
-			JmxAttributeMethodInfo attributeMethodInfo) {
-		String methodName = method.getName();
-		boolean isIs;
-		if (methodName.startsWith("is")) {
-			if (method.getReturnType() != boolean.class && method.getReturnType() != Boolean.class) {
-				throw new IllegalArgumentException("Method '" + method
-						+ "' starts with 'is' but does not return a boolean or Boolean class");
-			}
-			isIs = true;
-		} else {
-			isIs = false;
-		}
-		String varName = buildMethodSuffix(method, methodName, isIs);
-		if (attributeNameSet.contains(varName)) {
+	/**
+	 * Read our notify-on-change attributes and send notifications to our listeners for those that have changed since
+	 * the last sample. The first sample after a listener is added just records the values. This should only be called
+	 * by one thread at a time.
+	 */
+	void sampleAttributeChanges(Executor executor) {
+		AttributeChangeNotifier notifier = this.notifier;
+		int[] notifyIndexes = metadata.getNotifyGetterIndexes();
+		if (notifier == null || !notifier.hasListeners() || notifyIndexes.length == 0) {
+			// no one is listening so don't read the attributes and start over when someone is
+			sampledValues = null;
 			return;
 		}
-		AttributeMethodInfo methodInfo = attributeMethodMap.get(varName);
-		if (isIs || methodName.startsWith("get")) {
-			if (method.getParameterTypes().length != 0) {
-				throw new IllegalArgumentException("Method '" + method + "' starts with 'get' but has arguments");
-			}
-			if (method.getReturnType() == void.class) {
-				throw new IllegalArgumentException("Method '" + method
-						+ "' starts with 'get' but does not return anything");
-			}
-			if (methodInfo == null) {
-				attributeMethodMap.put(varName, new AttributeMethodInfo(varName, attributeMethodInfo.getDescription(),
-						method, null));
-			} else {
-				// setter must have already started our method-info, add the getter to it
-				methodInfo.getterMethod = method;
-			}
-		} else if (methodName.startsWith("set")) {
-			if (method.getParameterTypes().length != 1) {
-				throw new IllegalArgumentException("Method '" + method
-						+ "' starts with 'set' but does not have 1 argument");
-			}
-			if (method.getReturnType() != void.class) {
-				throw new IllegalArgumentException("Method '" + method + "' starts with 'set' but does not return void");
+		if (sampledValues == null) {
+			sampledValues = new Object[notifyIndexes.length];
+			Arrays.fill(sampledValues, NOT_SAMPLED);
+		}
+		String[] names = metadata.getGetterNames();
+		for (int i = 0; i < notifyIndexes.length; i++) {
+			int getterIndex = notifyIndexes[i];
+			Object value;
+			try {
+				value = readAttribute(getterIndex, names[getterIndex]);
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+				return;
+			} catch (Exception e) {
+				// try again next time
+				continue;
 			}
-			if (methodInfo == null) {
-				attributeMethodMap.put(varName, new AttributeMethodInfo(varName, attributeMethodInfo.getDescription(),
-						null, method));
-			} else {
-				// getter must have already started our method-info, add the setter to it
-				methodInfo.setterMethod = method;
+			Object oldValue = sampledValues[i];
+			sampledValues[i] = value;
+			if (oldValue == NOT_SAMPLED || Objects.deepEquals(oldValue, value)) {
+				continue;
 			}
-		} else {
-			throw new IllegalArgumentException("Method '" + method
-					+ "' is marked as an attribute but does not start with 'get' or 'set'");
+			notifier.sendNotification(new AttributeChangeNotification(this, notifier.nextSequenceNumber(),
+					System.currentTimeMillis(), names[getterIndex] + " changed", names[getterIndex],
+					metadata.getGetterTypeNames()[getterIndex], oldValue, value), executor);
 		}
 	}
 
+	MbeanCallStats getCallStats() {
+		return callStats;
+	}
+
+	ReflectionMbeanMetadata getMetadata() {
+		return metadata;
+	}
+
 	/**
-	 * Find attribute methods from our object that will be exposed via JMX.
+	 * Read the attribute, waiting a limited amount of time for it if we have an attribute reader.
 	 */
-	private void discoverAttributeFields(Map<String, JmxAttributeFieldInfo> attributeFieldInfoMap,
-			Set<String> attributeNameSet, List<MBeanAttributeInfo> attributes) {
-		for (Class<?> clazz = target.getClass(); clazz != Object.class; clazz = clazz.getSuperclass()) {
-			discoverAttributeFields(attributeFieldInfoMap, attributeNameSet, attributes, clazz);
+	private Object readAttribute(int getterIndex, String attributeName) throws Exception {
+		TimedAttributeReader reader = attributeReader;
+		if (reader == null) {
+			return readCachedAttribute(getterIndex);
 		}
+		long deadlineNanos = reader.getDeadlineNanos();
+		String description = "attribute " + attributeName;
+		Future<Object> future = reader.submit(new ReadAttributeTask(getterIndex), description);
+		return reader.waitFor(future, deadlineNanos, description);
 	}
 
-	private void discoverAttributeFields(Map<String, JmxAttributeFieldInfo> attributeFieldInfoMap,
-			Set<String> attributeNameSet, List<MBeanAttributeInfo> attributes, Class<?> clazz) {
-		Field[] fields = clazz.getDeclaredFields();
-		for (Field field : fields) {
-			String fieldName = field.getName();
-			if (attributeNameSet.contains(fieldName)) {
+	/**
+	 * Read the attributes with one task in the attribute-reader's thread so a large batch only uses one thread. If the
+	 * batch times out then the attributes that were read keep their values and the others get the timeout error.
+	 */
+	private Object[] readAttributesTimed(TimedAttributeReader reader, String[] attributeNames, int[] getterIndexes) {
+		ReadAttributesTask task = new ReadAttributesTask(getterIndexes);
+		String description = (attributeNames.length == 1 ? "attribute " + attributeNames[0]
+				: attributeNames.length + " attributes");
+		long deadlineNanos = reader.getDeadlineNanos();
+		Future<Object> future = null;
+		Exception batchException = null;
+		try {
+			future = reader.submit(task, description);
+			reader.waitFor(future, deadlineNanos, description);
+		} catch (Exception e) {
+			batchException = e;
+		}
+		Object[] values = new Object[attributeNames.length];
+		for (int i = 0; i < attributeNames.length; i++) {
+			Object value = task.values.get(i);
+			if (getterIndexes[i] < 0) {
+				// unknown attribute handled by our caller
 				continue;
-			}
-			JmxAttributeField attributeField = field.getAnnotation(JmxAttributeField.class);
-			JmxAttributeFieldInfo attributeFieldInfo = null;
-			if (attributeField == null) {
-				if (attributeFieldInfoMap != null) {
-					// was this attribute field already configured?
-					attributeFieldInfo = attributeFieldInfoMap.get(fieldName);
-				}
-				if (attributeFieldInfo == null) {
-					continue;
-				}
+			} else if (value != NOT_READ) {
+				values[i] = value;
+			} else if (future != null && batchException instanceof TimeoutException) {
+				// submitted but we didn't get to this one in time
+				values[i] = readErrorValue(new TimeoutException("Getting attribute " + attributeNames[i]
+						+ " timed out after " + reader.getTimeoutMillis() + " millis"));
 			} else {
-				attributeFieldInfo = new JmxAttributeFieldInfo(fieldName, attributeField);
-				attributeField = null;
+				values[i] = readErrorValue(batchException);
 			}
+		}
+		return values;
+	}
 
-			if (!field.isAccessible()) {
-				field.setAccessible(true);
-			}
-			attributeFieldMap.put(fieldName, new AttributeFieldInfo(field, attributeFieldInfo.isReadible(),
-					attributeFieldInfo.isWritable()));
+	/**
+	 * Read the attribute from the target or from its cached value if it has a cache-millis setting.
+	 */
+	private Object readCachedAttribute(int getterIndex) throws Exception {
+		MbeanCallStats stats = callStats;
+		if (stats == null) {
+			return readCachedAttributeNoStats(getterIndex);
+		}
+		long startNanos = System.nanoTime();
+		boolean error = true;
+		try {
+			Object value = readCachedAttributeNoStats(getterIndex);
+			error = false;
+			return value;
+		} finally {
+			stats.recordGet(getterIndex, System.nanoTime() - startNanos, error);
+		}
+	}
 
-			String description = attributeFieldInfo.getDescription();
-			if (isEmpty(description)) {
-				description = fieldName + " attribute";
-			}
+	private Object readCachedAttributeNoStats(int getterIndex) throws Exception {
+		if (cachedValues == null || cachedValues[getterIndex] == null) {
+			return accessor.getAttribute(target, getterIndex);
+		} else {
+			return cachedValues[getterIndex].getValue(accessor, target, getterIndex);
+		}
+	}
 
-			boolean isIs;
-			if (fieldName.startsWith("is") && (field.getType() == boolean.class || field.getType() == Boolean.class)) {
-				isIs = true;
-			} else {
-				isIs = false;
-			}
-			attributes.add(new MBeanAttributeInfo(fieldName, field.getType().getName(), description,
-					attributeFieldInfo.isReadible(), attributeFieldInfo.isWritable(), isIs));
-			attributeNameSet.add(fieldName);
+	private void writeAttribute(int setterIndex, Object value) throws Exception {
+		MbeanCallStats stats = callStats;
+		if (stats == null) {
+			accessor.setAttribute(target, setterIndex, value);
+			return;
+		}
+		long startNanos = System.nanoTime();
+		boolean error = true;
+		try {
+			accessor.setAttribute(target, setterIndex, value);
+			error = false;
+		} finally {
+			stats.recordSet(setterIndex, System.nanoTime() - startNanos, error);
 		}
 	}
 
-	/**
-	 * Find operation methods from our object that will be exposed via JMX.
-	 */
-	private List<MBeanOperationInfo> discoverOperations(Map<String, JmxOperationInfo> attributeOperationInfoMap) {
-		Set<MethodSignature> methodSignatureSet = new HashSet<MethodSignature>();
-		List<MBeanOperationInfo> operations = new ArrayList<MBeanOperationInfo>(operationMethodMap.size());
-		for (Class<?> clazz = target.getClass(); clazz != Object.class; clazz = clazz.getSuperclass()) {
-			discoverOperations(attributeOperationInfoMap, methodSignatureSet, operations, clazz);
+	private Object invokeOperation(int operationIndex, Object[] params) throws Exception {
+		MbeanCallStats stats = callStats;
+		if (stats == null) {
+			return accessor.invokeOperation(target, operationIndex, params);
+		}
+		long startNanos = System.nanoTime();
+		boolean error = true;
+		try {
+			Object result = accessor.invokeOperation(target, operationIndex, params);
+			error = false;
+			return result;
+		} finally {
+			stats.recordInvoke(operationIndex, System.nanoTime() - startNanos, error);
 		}
-		return operations;
 	}
 
-	private void discoverOperations(Map<String, JmxOperationInfo> attributeOperationInfoMap,
-			Set<MethodSignature> methodSignatureSet, List<MBeanOperationInfo> operations, Class<?> clazz) {
-		for (Method method : clazz.getMethods()) {
-			MethodSignature methodSignature = new MethodSignature(method);
-			if (methodSignatureSet.contains(methodSignature)) {
-				continue;
-			}
-			String methodName = method.getName();
-			JmxOperation jmxOperation = method.getAnnotation(JmxOperation.class);
-			JmxOperationInfo operationInfo = null;
-			if (jmxOperation == null) {
-				if (attributeOperationInfoMap != null) {
-					// was this operation already configured?
-					operationInfo = attributeOperationInfoMap.get(methodName);
-				}
-				if (operationInfo == null) {
-					continue;
+	private AttributeChangeNotifier getNotifier() {
+		AttributeChangeNotifier notifier = this.notifier;
+		if (notifier == null) {
+			synchronized (this) {
+				notifier = this.notifier;
+				if (notifier == null) {
+					notifier = new AttributeChangeNotifier();
+					this.notifier = notifier;
 				}
-			} else {
-				operationInfo = new JmxOperationInfo(methodName, jmxOperation);
-				jmxOperation = null;
-			}
-			if (methodName.startsWith("get") || methodName.startsWith("is") || methodName.startsWith("set")) {
-				throw new IllegalArgumentException("Operation method " + method
-						+ " cannot start with 'get', 'is', or 'set'.  Did you use the wrong annotation?");
-			}
-			Class<?>[] types = method.getParameterTypes();
-			String[] stringTypes = new String[types.length];
-			for (int i = 0; i < types.length; i++) {
-				stringTypes[i] = types[i].getName();
-			}
-			NameParams nameParams = new NameParams(methodName, stringTypes);
-			MBeanParameterInfo[] parameterInfos = buildOperationParameterInfo(method, operationInfo);
-			operationMethodMap.put(nameParams, method);
-
-			String description = operationInfo.getDescription();
-			if (isEmpty(description)) {
-				description = methodName + " operation";
 			}
+		}
+		return notifier;
+	}
 
-			operations.add(new MBeanOperationInfo(methodName, description, parameterInfos, method.getReturnType()
-					.getName(), operationInfo.getAction().getActionValue()));
-			methodSignatureSet.add(methodSignature);
+	private void invalidateCachedValue(int getterIndex) {
+		if (cachedValues != null && getterIndex >= 0 && cachedValues[getterIndex] != null) {
+			cachedValues[getterIndex].invalidate();
 		}
 	}
 
-	/**
-	 * Build our parameter information for an operation.
-	 */
-	private MBeanParameterInfo[] buildOperationParameterInfo(Method method, JmxOperationInfo operationInfo) {
-		Class<?>[] types = method.getParameterTypes();
-		MBeanParameterInfo[] parameterInfos = new MBeanParameterInfo[types.length];
-		String[] parameterNames = operationInfo.getParameterNames();
-		String[] parameterDescriptions = operationInfo.getParameterDescriptions();
-		for (int i = 0; i < types.length; i++) {
-			String parameterName;
-			if (parameterNames == null || i >= parameterNames.length) {
-				parameterName = "p" + (i + 1);
-			} else {
-				parameterName = parameterNames[i];
-			}
-			String typeName = types[i].getName();
-			String description;
-			if (parameterDescriptions == null || i >= parameterDescriptions.length) {
-				description = "parameter #" + (i + 1) + " of type: " + typeName;
-			} else {
-				description = parameterDescriptions[i];
+	private static CachedAttributeValue[] buildCachedValues(ReflectionMbeanMetadata metadata) {
+		CachedAttributeValue[] cachedValues = null;
+		for (int i = 0; i < metadata.getGetterCount(); i++) {
+			long cacheMillis = metadata.getCacheMillis(i);
+			if (cacheMillis > 0) {
+				if (cachedValues == null) {
+					cachedValues = new CachedAttributeValue[metadata.getGetterCount()];
+				}
+				cachedValues[i] = new CachedAttributeValue(cacheMillis);
 			}
-			parameterInfos[i] = new MBeanParameterInfo(parameterName, typeName, description);
 		}
-		return parameterInfos;
+		return cachedValues;
 	}
 
-	private String buildMethodSuffix(Method method, String methodName, boolean isIs) {
-		if (isIs) {
-			if (methodName.length() < 3) {
-				throw new IllegalArgumentException("Method '" + methodName + "' has a name that is too short");
-			}
-			return Character.toLowerCase(methodName.charAt(2)) + methodName.substring(3);
+	private static String readErrorValue(Exception e) {
+		if (e instanceof InvocationTargetException && e.getCause() != null) {
+			return "Getting attribute threw: " + e.getCause().getMessage();
 		} else {
-			if (methodName.length() < 4) {
-				throw new IllegalArgumentException("Method '" + methodName + "' has a name that is too short");
-			}
-			return Character.toLowerCase(methodName.charAt(3)) + methodName.substring(4);
+			return "Getting attribute threw: " + e.getMessage();
 		}
 	}
 
@@ -489,124 +511,56 @@ public class ReflectionMbean implements DynamicMBean {
 		throw new AttributeNotFoundException("Unknown attribute " + attributeName);
 	}
 
-	private static boolean isEmpty(String string) {
-		return string == null || string.trim().length() == 0;
-	}
-
 	/**
-	 * Key class for our hashmap to find matching methods based on name and parameter list.
+	 * Reads a number of attributes in the attribute-reader's thread, recording each value as soon as it is read.
 	 */
-	private static class NameParams {
-		String name;
-		String[] paramTypes;
-		public NameParams(String name, String[] paramTypes) {
-			this.name = name;
-			this.paramTypes = paramTypes;
-		}
-
-		@Override
-		public int hashCode() {
-			int hashCode = 31 * (31 + name.hashCode());
-			if (paramTypes != null) {
-				hashCode += Arrays.hashCode(paramTypes);
-			}
-			return hashCode;
-		}
+	private class ReadAttributesTask implements Callable<Object> {
 
-		@Override
-		public boolean equals(Object obj) {
-			if (obj == null || getClass() != obj.getClass()) {
-				return false;
-			}
-			NameParams other = (NameParams) obj;
-			if (!this.name.equals(other.name)) {
-				return false;
-			}
-			return Arrays.equals(this.paramTypes, other.paramTypes);
-		}
-	}
+		private final int[] getterIndexes;
+		final AtomicReferenceArray<Object> values;
 
-	/**
-	 * Information about attribute methods.
-	 */
-	private static class AttributeMethodInfo {
-		final String varName;
-		final String description;
-		Method getterMethod;
-		Method setterMethod;
-		final Class<?> type;
-
-		public AttributeMethodInfo(String varName, String description, Method getterMethod, Method setterMethod) {
-			this.varName = varName;
-			if (isEmpty(description)) {
-				this.description = varName + " attribute";
-			} else {
-				this.description = description;
-			}
-			this.getterMethod = getterMethod;
-			this.setterMethod = setterMethod;
-			if (getterMethod == null) {
-				type = setterMethod.getParameterTypes()[0];
-			} else {
-				type = getterMethod.getReturnType();
+		public ReadAttributesTask(int[] getterIndexes) {
+			this.getterIndexes = getterIndexes;
+			this.values = new AtomicReferenceArray<Object>(getterIndexes.length);
+			for (int i = 0; i < getterIndexes.length; i++) {
+				values.set(i, NOT_READ);
 			}
 		}
 
-		public boolean isIs() {
-			if (getterMethod != null && getterMethod.getName().startsWith("is")
-					&& (type == boolean.class || type == Boolean.class)) {
-				return true;
-			} else {
-				return false;
+		@Override
+		public Object call() {
+			for (int i = 0; i < getterIndexes.length; i++) {
+				if (getterIndexes[i] < 0) {
+					continue;
+				}
+				if (Thread.currentThread().isInterrupted()) {
+					// timed out so there is no one waiting for the rest
+					break;
+				}
+				try {
+					values.set(i, readCachedAttribute(getterIndexes[i]));
+				} catch (Exception e) {
+					values.set(i, readErrorValue(e));
+				}
 			}
+			return null;
 		}
 	}
 
 	/**
-	 * Information about attribute fields
-	 */
-	private static class AttributeFieldInfo {
-
-		final Field field;
-		final boolean isGetter;
-		final boolean isSetter;
-
-		public AttributeFieldInfo(Field field, boolean isGetter, boolean isSetter) {
-			this.field = field;
-			this.isGetter = isGetter;
-			this.isSetter = isSetter;
-		}
-	}
-
-	/**
-	 * Method signature that matches the name and parameter-types. We don't care about return type because Java doesn't
-	 * match methods using it.
+	 * Reads one of the attributes in the attribute-reader's thread.
 	 */
-	private static class MethodSignature {
+	private class ReadAttributeTask implements Callable<Object> {
 
-		final String name;
-		final Class<?>[] parameterTypes;
+		private final int getterIndex;
 
-		private MethodSignature(Method method) {
-			this.name = method.getName();
-			this.parameterTypes = method.getParameterTypes();
+		public ReadAttributeTask(int getterIndex) {
+			this.getterIndex = getterIndex;
 		}
 
 		@Override
-		public int hashCode() {
-			final int prime = 31;
-			int result = prime + name.hashCode();
-			result = prime * result + Arrays.hashCode(parameterTypes);
-			return result;
-		}
-
-		@Override
-		public boolean equals(Object obj) {
-			if (obj == null || getClass() != obj.getClass()) {
-				return false;
-			}
-			MethodSignature other = (MethodSignature) obj;
-			return name.equals(other.name) && Arrays.equals(parameterTypes, other.parameterTypes);
+		public Object call() throws Exception {
+			return readCachedAttribute(getterIndex);
 		}
 	}
 }
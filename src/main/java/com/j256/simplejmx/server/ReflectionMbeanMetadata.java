@@ -0,0 +1,827 @@
+package com.j256.simplejmx.server;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.management.AttributeChangeNotification;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanNotificationInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanParameterInfo;
+
+import com.j256.simplejmx.common.JmxAttributeField;
+import com.j256.simplejmx.common.JmxAttributeFieldInfo;
+import com.j256.simplejmx.common.JmxAttributeMethod;
+import com.j256.simplejmx.common.JmxAttributeMethodInfo;
+import com.j256.simplejmx.common.JmxOperation;
+import com.j256.simplejmx.common.JmxOperationInfo;
+
+/**
+ * Information about the attributes and operations of a class that is published by {@link ReflectionMbean}. Walking the
+ * class hierarchy and building the {@link MBeanInfo} is expensive so this is done once per class and user provided
+ * configuration and then shared by all of the mbeans that wrap objects of that class.
+ * 
+ * <p>
+ * <b>NOTE:</b> The metadata is cached using a {@link ClassValue} so it goes away with the class when its class-loader is
+ * unloaded. The bean description is not part of the metadata and at most {@link #MAX_CACHED_PER_CLASS} different user
+ * provided configurations are cached for each class. Metadata for any more configurations is built for each bean.
+ * </p>
+ * 
+ * @author graywatson
+ */
+class ReflectionMbeanMetadata {
+
+	static final int MAX_CACHED_PER_CLASS = 100;
+	private static final ClassValue<ConcurrentMap<MetadataKey, ReflectionMbeanMetadata>> metadataCache =
+			new ClassValue<ConcurrentMap<MetadataKey, ReflectionMbeanMetadata>>() {
+				@Override
+				protected ConcurrentMap<MetadataKey, ReflectionMbeanMetadata> computeValue(Class<?> type) {
+					return new ConcurrentHashMap<MetadataKey, ReflectionMbeanMetadata>();
+				}
+			};
+
+	private final Class<?> targetClass;
+	private final Map<String, AttributeMethodInfo> attributeMethodMap = new HashMap<String, AttributeMethodInfo>();
+	private final Map<NameParams, OperationMethodInfo> operationMethodMap =
+			new HashMap<NameParams, OperationMethodInfo>();
+	private final Map<String, AttributeFieldInfo> attributeFieldMap = new HashMap<String, AttributeFieldInfo>();
+	/** readable attribute name to the getter index in the accessor, methods taking precedence over fields */
+	private final Map<String, Integer> getterIndexMap = new HashMap<String, Integer>();
+	/** cache milliseconds for each of the getter indexes */
+	private long[] getterCacheMillis;
+	/** names of the attributes and operations by accessor index used to report statistics */
+	private String[] getterNames;
+	private String[] setterNames;
+	private String[] operationNames;
+	/** type names of the getters and the indexes of the getters that send change notifications */
+	private String[] getterTypeNames;
+	private int[] notifyGetterIndexes;
+	private final MBeanInfo mbeanInfo;
+	private final MbeanAccessor accessor;
+
+	private ReflectionMbeanMetadata(Class<?> targetClass, JmxAttributeFieldInfo[] attributeFieldInfos,
+			JmxAttributeMethodInfo[] attributeMethodInfos, JmxOperationInfo[] operationInfos, boolean ignoreErrors,
+			MbeanAccessorType accessorType) {
+		this.targetClass = targetClass;
+		this.mbeanInfo = buildMbeanInfo(attributeFieldInfos, attributeMethodInfos, operationInfos, ignoreErrors);
+		this.accessor = buildAccessor(accessorType);
+	}
+
+	/**
+	 * Return the metadata for the class and user provided configuration, building it if it has not been cached.
+	 */
+	public static ReflectionMbeanMetadata getMetadata(Class<?> targetClass,
+			JmxAttributeFieldInfo[] attributeFieldInfos, JmxAttributeMethodInfo[] attributeMethodInfos,
+			JmxOperationInfo[] operationInfos, boolean ignoreErrors, MbeanAccessorType accessorType) {
+		ConcurrentMap<MetadataKey, ReflectionMbeanMetadata> classMetadatas = metadataCache.get(targetClass);
+		MetadataKey key =
+				new MetadataKey(attributeFieldInfos, attributeMethodInfos, operationInfos, ignoreErrors, accessorType);
+		ReflectionMbeanMetadata metadata = classMetadatas.get(key);
+		if (metadata != null) {
+			return metadata;
+		}
+		// NOTE: this throws if the class is not valid in which case nothing is cached
+		metadata = new ReflectionMbeanMetadata(targetClass, attributeFieldInfos, attributeMethodInfos, operationInfos,
+				ignoreErrors, accessorType);
+		if (classMetadatas.size() >= MAX_CACHED_PER_CLASS) {
+			// too many different configurations so we don't cache any more of them
+			return metadata;
+		}
+		ReflectionMbeanMetadata existing = classMetadatas.putIfAbsent(key, metadata);
+		if (existing == null) {
+			return metadata;
+		} else {
+			return existing;
+		}
+	}
+
+	public MBeanInfo getMbeanInfo() {
+		return mbeanInfo;
+	}
+
+	/**
+	 * Return our MBeanInfo with the description of a particular bean or the shared info if the description is null.
+	 */
+	public MBeanInfo getMbeanInfo(String description) {
+		if (description == null) {
+			return mbeanInfo;
+		}
+		return new MBeanInfo(mbeanInfo.getClassName(), description, mbeanInfo.getAttributes(),
+				mbeanInfo.getConstructors(), mbeanInfo.getOperations(), mbeanInfo.getNotifications());
+	}
+
+	public MbeanAccessor getAccessor() {
+		return accessor;
+	}
+
+	public AttributeMethodInfo getAttributeMethodInfo(String attributeName) {
+		return attributeMethodMap.get(attributeName);
+	}
+
+	public AttributeFieldInfo getAttributeFieldInfo(String attributeName) {
+		return attributeFieldMap.get(attributeName);
+	}
+
+	/**
+	 * Return the accessor getter index for the readable attribute or -1 if there is no such attribute or it can't be
+	 * read.
+	 */
+	public int getGetterIndex(String attributeName) {
+		Integer index = getterIndexMap.get(attributeName);
+		if (index == null) {
+			return -1;
+		} else {
+			return index;
+		}
+	}
+
+	/**
+	 * Return the number of milliseconds that the value from the getter index should be cached or 0 if none.
+	 */
+	public long getCacheMillis(int getterIndex) {
+		return getterCacheMillis[getterIndex];
+	}
+
+	public String[] getGetterNames() {
+		return getterNames;
+	}
+
+	public String[] getSetterNames() {
+		return setterNames;
+	}
+
+	public String[] getOperationNames() {
+		return operationNames;
+	}
+
+	public String[] getGetterTypeNames() {
+		return getterTypeNames;
+	}
+
+	/**
+	 * Return the getter indexes of the attributes that send change notifications.
+	 */
+	public int[] getNotifyGetterIndexes() {
+		return notifyGetterIndexes;
+	}
+
+	/**
+	 * Return the number of getters that the accessor has.
+	 */
+	public int getGetterCount() {
+		return getterCacheMillis.length;
+	}
+
+	public OperationMethodInfo getOperationMethodInfo(String actionName, String[] signatureTypes) {
+		return operationMethodMap.get(new NameParams(actionName, signatureTypes));
+	}
+
+	/**
+	 * Build our JMX information object by using reflection.
+	 */
+	private MBeanInfo buildMbeanInfo(JmxAttributeFieldInfo[] attributeFieldInfos,
+			JmxAttributeMethodInfo[] attributeMethodInfos, JmxOperationInfo[] operationInfos, boolean ignoreErrors) {
+
+		// NOTE: setup the maps that track previous class configuration
+		Map<String, JmxAttributeFieldInfo> attributeFieldInfoMap = null;
+		if (attributeFieldInfos != null) {
+			attributeFieldInfoMap = new HashMap<String, JmxAttributeFieldInfo>();
+			for (JmxAttributeFieldInfo info : attributeFieldInfos) {
+				attributeFieldInfoMap.put(info.getFieldName(), info);
+			}
+		}
+		Map<String, JmxAttributeMethodInfo> attributeMethodInfoMap = null;
+		if (attributeMethodInfos != null) {
+			attributeMethodInfoMap = new HashMap<String, JmxAttributeMethodInfo>();
+			for (JmxAttributeMethodInfo info : attributeMethodInfos) {
+				attributeMethodInfoMap.put(info.getMethodName(), info);
+			}
+		}
+		Map<String, JmxOperationInfo> attributeOperationInfoMap = null;
+		if (operationInfos != null) {
+			attributeOperationInfoMap = new HashMap<String, JmxOperationInfo>();
+			for (JmxOperationInfo info : operationInfos) {
+				attributeOperationInfoMap.put(info.getMethodName(), info);
+			}
+		}
+
+		Set<String> attributeNameSet = new HashSet<String>();
+		List<MBeanAttributeInfo> attributes = new ArrayList<MBeanAttributeInfo>();
+		// NOTE: methods override fields so subclasses can stop exposing of fields
+		discoverAttributeMethods(attributeMethodInfoMap, attributeNameSet, attributes, ignoreErrors);
+		discoverAttributeFields(attributeFieldInfoMap, attributeNameSet, attributes);
+		List<MBeanOperationInfo> operations = discoverOperations(attributeOperationInfoMap);
+
+		MBeanNotificationInfo[] notifications = null;
+		if (hasNotifyOnChange()) {
+			notifications = new MBeanNotificationInfo[] { new MBeanNotificationInfo(
+					new String[] { AttributeChangeNotification.ATTRIBUTE_CHANGE },
+					AttributeChangeNotification.class.getName(), "Sent when the value of an attribute changes") };
+		}
+
+		return new MBeanInfo(targetClass.getName(), "Information about " + targetClass,
+				attributes.toArray(new MBeanAttributeInfo[attributes.size()]), null,
+				operations.toArray(new MBeanOperationInfo[operations.size()]), notifications);
+	}
+
+	/**
+	 * Assign the indexes of our getters, setters, and operations and build the accessor that dispatches to them.
+	 */
+	private MbeanAccessor buildAccessor(MbeanAccessorType accessorType) {
+		List<Member> getters = new ArrayList<Member>();
+		List<Long> cacheMillis = new ArrayList<Long>();
+		List<String> getterNameList = new ArrayList<String>();
+		List<String> getterTypeList = new ArrayList<String>();
+		List<Integer> notifyIndexList = new ArrayList<Integer>();
+		List<Member> setters = new ArrayList<Member>();
+		List<String> setterNameList = new ArrayList<String>();
+		for (AttributeMethodInfo methodInfo : attributeMethodMap.values()) {
+			if (methodInfo.getterMethod != null) {
+				methodInfo.getterIndex = getters.size();
+				getterIndexMap.put(methodInfo.varName, methodInfo.getterIndex);
+				getters.add(methodInfo.getterMethod);
+				getterNameList.add(methodInfo.varName);
+				getterTypeList.add(methodInfo.type.getName());
+				cacheMillis.add(methodInfo.cacheMillis);
+				if (methodInfo.notifyOnChange) {
+					notifyIndexList.add(methodInfo.getterIndex);
+				}
+			}
+			if (methodInfo.setterMethod != null) {
+				methodInfo.setterIndex = setters.size();
+				setters.add(methodInfo.setterMethod);
+				setterNameList.add(methodInfo.varName);
+			}
+		}
+		for (AttributeFieldInfo fieldInfo : attributeFieldMap.values()) {
+			if (fieldInfo.isGetter) {
+				fieldInfo.getterIndex = getters.size();
+				// a method attribute with the same name hides the field even if the method can't be read
+				if (!attributeMethodMap.containsKey(fieldInfo.field.getName())) {
+					getterIndexMap.put(fieldInfo.field.getName(), fieldInfo.getterIndex);
+				}
+				getters.add(fieldInfo.field);
+				getterNameList.add(fieldInfo.field.getName());
+				getterTypeList.add(fieldInfo.field.getType().getName());
+				cacheMillis.add(fieldInfo.cacheMillis);
+				if (fieldInfo.notifyOnChange) {
+					notifyIndexList.add(fieldInfo.getterIndex);
+				}
+			}
+			if (fieldInfo.isSetter) {
+				fieldInfo.setterIndex = setters.size();
+				setters.add(fieldInfo.field);
+				setterNameList.add(fieldInfo.field.getName());
+			}
+		}
+		Method[] operations = new Method[operationMethodMap.size()];
+		operationNames = new String[operations.length];
+		int operationC = 0;
+		for (OperationMethodInfo operationInfo : operationMethodMap.values()) {
+			operationInfo.index = operationC;
+			operationNames[operationC] = buildOperationName(operationInfo.method);
+			operations[operationC++] = operationInfo.method;
+		}
+		getterNames = getterNameList.toArray(new String[getterNameList.size()]);
+		setterNames = setterNameList.toArray(new String[setterNameList.size()]);
+		getterTypeNames = getterTypeList.toArray(new String[getterTypeList.size()]);
+		notifyGetterIndexes = new int[notifyIndexList.size()];
+		for (int i = 0; i < notifyGetterIndexes.length; i++) {
+			notifyGetterIndexes[i] = notifyIndexList.get(i);
+		}
+		getterCacheMillis = new long[cacheMillis.size()];
+		for (int i = 0; i < getterCacheMillis.length; i++) {
+			getterCacheMillis[i] = cacheMillis.get(i);
+		}
+		Member[] getterArray = getters.toArray(new Member[getters.size()]);
+		Member[] setterArray = setters.toArray(new Member[setters.size()]);
+		switch (accessorType) {
+			case REFLECTION:
+				return new ReflectionAccessor(getterArray, setterArray, operations);
+			case METHOD_HANDLE:
+				return MethodHandleAccessor.createAccessor(getterArray, setterArray, operations);
+			case GENERATED:
+			default:
+				return AccessorGenerator.createAccessor(targetClass, getterArray, setterArray, operations);
+		}
+	}
+
+	/**
+	 * Find attribute methods from our object that will be exposed via JMX.
+	 */
+	private void discoverAttributeMethods(Map<String, JmxAttributeMethodInfo> attributeMethodInfoMap,
+			Set<String> attributeNameSet, List<MBeanAttributeInfo> attributes, boolean ignoreErrors) {
+		for (Class<?> clazz = targetClass; clazz != Object.class; clazz = clazz.getSuperclass()) {
+			discoverAttributeMethods(attributeMethodInfoMap, attributeNameSet, attributes, ignoreErrors, clazz);
+		}
+		/*
+		 * we have to go back and post process the attribute-method-map because the getter and setter methods change the
+		 * method-info multiple times.
+		 */
+		for (AttributeMethodInfo methodInfo : attributeMethodMap.values()) {
+			attributes.add(new MBeanAttributeInfo(methodInfo.varName, methodInfo.type.getName(),
+					methodInfo.description, (methodInfo.getterMethod != null), (methodInfo.setterMethod != null),
+					methodInfo.isIs()));
+			attributeNameSet.add(methodInfo.varName);
+		}
+	}
+
+	private void discoverAttributeMethods(Map<String, JmxAttributeMethodInfo> attributeMethodInfoMap,
+			Set<String> attributeNameSet, List<MBeanAttributeInfo> attributes, boolean ignoreErrors, Class<?> clazz) {
+		for (Method method : clazz.getMethods()) {
+			JmxAttributeMethod jmxAttribute = method.getAnnotation(JmxAttributeMethod.class);
+			JmxAttributeMethodInfo attributeMethodInfo = null;
+			if (jmxAttribute == null) {
+				// skip it if no annotation
+				if (attributeMethodInfoMap != null) {
+					// was this attribute method already configured?
+					attributeMethodInfo = attributeMethodInfoMap.get(method.getName());
+				}
+				if (attributeMethodInfo == null) {
+					continue;
+				}
+			} else {
+				attributeMethodInfo = new JmxAttributeMethodInfo(method.getName(), jmxAttribute);
+				jmxAttribute = null;
+			}
+
+			try {
+				discoverAttributeMethod(attributeNameSet, method, attributeMethodInfo);
+			} catch (IllegalArgumentException iae) {
+				if (!ignoreErrors) {
+					throw iae;
+				}
+			}
+		}
+	}
+
+	private void discoverAttributeMethod(Set<String> attributeNameSet, Method method,
+			JmxAttributeMethodInfo attributeMethodInfo) {
+		String methodName = method.getName();
+		boolean isIs;
+		if (methodName.startsWith("is")) {
+			if (method.getReturnType() != boolean.class && method.getReturnType() != Boolean.class) {
+				throw new IllegalArgumentException("Method '" + method
+						+ "' starts with 'is' but does not return a boolean or Boolean class");
+			}
+			isIs = true;
+		} else {
+			isIs = false;
+		}
+		String varName = buildMethodSuffix(method, methodName, isIs);
+		if (attributeNameSet.contains(varName)) {
+			return;
+		}
+		AttributeMethodInfo methodInfo = attributeMethodMap.get(varName);
+		if (isIs || methodName.startsWith("get")) {
+			if (method.getParameterTypes().length != 0) {
+				throw new IllegalArgumentException("Method '" + method + "' starts with 'get' but has arguments");
+			}
+			if (method.getReturnType() == void.class) {
+				throw new IllegalArgumentException("Method '" + method
+						+ "' starts with 'get' but does not return anything");
+			}
+			if (methodInfo == null) {
+				methodInfo = new AttributeMethodInfo(varName, attributeMethodInfo.getDescription(), method, null);
+				attributeMethodMap.put(varName, methodInfo);
+			} else {
+				// setter must have already started our method-info, add the getter to it
+				methodInfo.getterMethod = method;
+			}
+			methodInfo.cacheMillis = attributeMethodInfo.getCacheMillis();
+			methodInfo.notifyOnChange = attributeMethodInfo.isNotifyOnChange();
+		} else if (methodName.startsWith("set")) {
+			if (method.getParameterTypes().length != 1) {
+				throw new IllegalArgumentException("Method '" + method
+						+ "' starts with 'set' but does not have 1 argument");
+			}
+			if (method.getReturnType() != void.class) {
+				throw new IllegalArgumentException("Method '" + method + "' starts with 'set' but does not return void");
+			}
+			if (methodInfo == null) {
+				attributeMethodMap.put(varName, new AttributeMethodInfo(varName, attributeMethodInfo.getDescription(),
+						null, method));
+			} else {
+				// getter must have already started our method-info, add the setter to it
+				methodInfo.setterMethod = method;
+			}
+		} else {
+			throw new IllegalArgumentException("Method '" + method
+					+ "' is marked as an attribute but does not start with 'get' or 'set'");
+		}
+	}
+
+	/**
+	 * Find attribute methods from our object that will be exposed via JMX.
+	 */
+	private void discoverAttributeFields(Map<String, JmxAttributeFieldInfo> attributeFieldInfoMap,
+			Set<String> attributeNameSet, List<MBeanAttributeInfo> attributes) {
+		for (Class<?> clazz = targetClass; clazz != Object.class; clazz = clazz.getSuperclass()) {
+			discoverAttributeFields(attributeFieldInfoMap, attributeNameSet, attributes, clazz);
+		}
+	}
+
+	private void discoverAttributeFields(Map<String, JmxAttributeFieldInfo> attributeFieldInfoMap,
+			Set<String> attributeNameSet, List<MBeanAttributeInfo> attributes, Class<?> clazz) {
+		Field[] fields = clazz.getDeclaredFields();
+		for (Field field : fields) {
+			String fieldName = field.getName();
+			if (attributeNameSet.contains(fieldName)) {
+				continue;
+			}
+			JmxAttributeField attributeField = field.getAnnotation(JmxAttributeField.class);
+			JmxAttributeFieldInfo attributeFieldInfo = null;
+			if (attributeField == null) {
+				if (attributeFieldInfoMap != null) {
+					// was this attribute field already configured?
+					attributeFieldInfo = attributeFieldInfoMap.get(fieldName);
+				}
+				if (attributeFieldInfo == null) {
+					continue;
+				}
+			} else {
+				attributeFieldInfo = new JmxAttributeFieldInfo(fieldName, attributeField);
+				attributeField = null;
+			}
+
+			if (!field.isAccessible()) {
+				field.setAccessible(true);
+			}
+			attributeFieldMap.put(fieldName, new AttributeFieldInfo(field, attributeFieldInfo.isReadible(),
+					attributeFieldInfo.isWritable(), attributeFieldInfo.getCacheMillis(),
+					attributeFieldInfo.isNotifyOnChange()));
+
+			String description = attributeFieldInfo.getDescription();
+			if (isEmpty(description)) {
+				description = fieldName + " attribute";
+			}
+
+			boolean isIs;
+			if (fieldName.startsWith("is") && (field.getType() == boolean.class || field.getType() == Boolean.class)) {
+				isIs = true;
+			} else {
+				isIs = false;
+			}
+			attributes.add(new MBeanAttributeInfo(fieldName, field.getType().getName(), description,
+					attributeFieldInfo.isReadible(), attributeFieldInfo.isWritable(), isIs));
+			attributeNameSet.add(fieldName);
+		}
+	}
+
+	/**
+	 * Find operation methods from our object that will be exposed via JMX.
+	 */
+	private List<MBeanOperationInfo> discoverOperations(Map<String, JmxOperationInfo> attributeOperationInfoMap) {
+		Set<MethodSignature> methodSignatureSet = new HashSet<MethodSignature>();
+		List<MBeanOperationInfo> operations = new ArrayList<MBeanOperationInfo>(operationMethodMap.size());
+		for (Class<?> clazz = targetClass; clazz != Object.class; clazz = clazz.getSuperclass()) {
+			discoverOperations(attributeOperationInfoMap, methodSignatureSet, operations, clazz);
+		}
+		return operations;
+	}
+
+	private void discoverOperations(Map<String, JmxOperationInfo> attributeOperationInfoMap,
+			Set<MethodSignature> methodSignatureSet, List<MBeanOperationInfo> operations, Class<?> clazz) {
+		for (Method method : clazz.getMethods()) {
+			MethodSignature methodSignature = new MethodSignature(method);
+			if (methodSignatureSet.contains(methodSignature)) {
+				continue;
+			}
+			String methodName = method.getName();
+			JmxOperation jmxOperation = method.getAnnotation(JmxOperation.class);
+			JmxOperationInfo operationInfo = null;
+			if (jmxOperation == null) {
+				if (attributeOperationInfoMap != null) {
+					// was this operation already configured?
+					operationInfo = attributeOperationInfoMap.get(methodName);
+				}
+				if (operationInfo == null) {
+					continue;
+				}
+			} else {
+				operationInfo = new JmxOperationInfo(methodName, jmxOperation);
+				jmxOperation = null;
+			}
+			if (methodName.startsWith("get") || methodName.startsWith("is") || methodName.startsWith("set")) {
+				throw new IllegalArgumentException("Operation method " + method
+						+ " cannot start with 'get', 'is', or 'set'.  Did you use the wrong annotation?");
+			}
+			Class<?>[] types = method.getParameterTypes();
+			String[] stringTypes = new String[types.length];
+			for (int i = 0; i < types.length; i++) {
+				stringTypes[i] = types[i].getName();
+			}
+			NameParams nameParams = new NameParams(methodName, stringTypes);
+			MBeanParameterInfo[] parameterInfos = buildOperationParameterInfo(method, operationInfo);
+			operationMethodMap.put(nameParams, new OperationMethodInfo(method));
+
+			String description = operationInfo.getDescription();
+			if (isEmpty(description)) {
+				description = methodName + " operation";
+			}
+
+			operations.add(new MBeanOperationInfo(methodName, description, parameterInfos, method.getReturnType()
+					.getName(), operationInfo.getAction().getActionValue()));
+			methodSignatureSet.add(methodSignature);
+		}
+	}
+
+	/**
+	 * Build our parameter information for an operation.
+	 */
+	private MBeanParameterInfo[] buildOperationParameterInfo(Method method, JmxOperationInfo operationInfo) {
+		Class<?>[] types = method.getParameterTypes();
+		MBeanParameterInfo[] parameterInfos = new MBeanParameterInfo[types.length];
+		String[] parameterNames = operationInfo.getParameterNames();
+		String[] parameterDescriptions = operationInfo.getParameterDescriptions();
+		for (int i = 0; i < types.length; i++) {
+			String parameterName;
+			if (parameterNames == null || i >= parameterNames.length) {
+				parameterName = "p" + (i + 1);
+			} else {
+				parameterName = parameterNames[i];
+			}
+			String typeName = types[i].getName();
+			String description;
+			if (parameterDescriptions == null || i >= parameterDescriptions.length) {
+				description = "parameter #" + (i + 1) + " of type: " + typeName;
+			} else {
+				description = parameterDescriptions[i];
+			}
+			parameterInfos[i] = new MBeanParameterInfo(parameterName, typeName, description);
+		}
+		return parameterInfos;
+	}
+
+	private boolean hasNotifyOnChange() {
+		for (AttributeMethodInfo methodInfo : attributeMethodMap.values()) {
+			if (methodInfo.notifyOnChange && methodInfo.getterMethod != null) {
+				return true;
+			}
+		}
+		for (AttributeFieldInfo fieldInfo : attributeFieldMap.values()) {
+			if (fieldInfo.notifyOnChange && fieldInfo.isGetter) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static String buildOperationName(Method method) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(method.getName()).append('(');
+		Class<?>[] types = method.getParameterTypes();
+		for (int i = 0; i < types.length; i++) {
+			if (i > 0) {
+				sb.append(',');
+			}
+			sb.append(types[i].getSimpleName());
+		}
+		sb.append(')');
+		return sb.toString();
+	}
+
+	private String buildMethodSuffix(Method method, String methodName, boolean isIs) {
+		if (isIs) {
+			if (methodName.length() < 3) {
+				throw new IllegalArgumentException("Method '" + methodName + "' has a name that is too short");
+			}
+			return Character.toLowerCase(methodName.charAt(2)) + methodName.substring(3);
+		} else {
+			if (methodName.length() < 4) {
+				throw new IllegalArgumentException("Method '" + methodName + "' has a name that is too short");
+			}
+			return Character.toLowerCase(methodName.charAt(3)) + methodName.substring(4);
+		}
+	}
+
+	private static boolean isEmpty(String string) {
+		return string == null || string.trim().length() == 0;
+	}
+
+	/**
+	 * Key class for our hashmap to find matching methods based on name and parameter list.
+	 */
+	static class NameParams {
+		String name;
+		String[] paramTypes;
+		public NameParams(String name, String[] paramTypes) {
+			this.name = name;
+			this.paramTypes = paramTypes;
+		}
+
+		@Override
+		public int hashCode() {
+			int hashCode = 31 * (31 + name.hashCode());
+			if (paramTypes != null) {
+				hashCode += Arrays.hashCode(paramTypes);
+			}
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj == null || getClass() != obj.getClass()) {
+				return false;
+			}
+			NameParams other = (NameParams) obj;
+			if (!this.name.equals(other.name)) {
+				return false;
+			}
+			return Arrays.equals(this.paramTypes, other.paramTypes);
+		}
+	}
+
+	/**
+	 * Information about attribute methods.
+	 */
+	static class AttributeMethodInfo {
+		final String varName;
+		final String description;
+		Method getterMethod;
+		Method setterMethod;
+		final Class<?> type;
+		int getterIndex = -1;
+		int setterIndex = -1;
+		long cacheMillis;
+		boolean notifyOnChange;
+
+		public AttributeMethodInfo(String varName, String description, Method getterMethod, Method setterMethod) {
+			this.varName = varName;
+			if (isEmpty(description)) {
+				this.description = varName + " attribute";
+			} else {
+				this.description = description;
+			}
+			this.getterMethod = getterMethod;
+			this.setterMethod = setterMethod;
+			if (getterMethod == null) {
+				type = setterMethod.getParameterTypes()[0];
+			} else {
+				type = getterMethod.getReturnType();
+			}
+		}
+
+		public boolean isIs() {
+			if (getterMethod != null && getterMethod.getName().startsWith("is")
+					&& (type == boolean.class || type == Boolean.class)) {
+				return true;
+			} else {
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * Information about attribute fields
+	 */
+	static class AttributeFieldInfo {
+
+		final Field field;
+		final boolean isGetter;
+		final boolean isSetter;
+		final long cacheMillis;
+		final boolean notifyOnChange;
+		int getterIndex = -1;
+		int setterIndex = -1;
+
+		public AttributeFieldInfo(Field field, boolean isGetter, boolean isSetter, long cacheMillis,
+				boolean notifyOnChange) {
+			this.field = field;
+			this.isGetter = isGetter;
+			this.isSetter = isSetter;
+			this.cacheMillis = cacheMillis;
+			this.notifyOnChange = notifyOnChange;
+		}
+	}
+
+	/**
+	 * Information about operation methods.
+	 */
+	static class OperationMethodInfo {
+
+		final Method method;
+		int index = -1;
+
+		public OperationMethodInfo(Method method) {
+			this.method = method;
+		}
+	}
+
+	/**
+	 * Method signature that matches the name and parameter-types. We don't care about return type because Java doesn't
+	 * match methods using it.
+	 */
+	private static class MethodSignature {
+
+		final String name;
+		final Class<?>[] parameterTypes;
+
+		private MethodSignature(Method method) {
+			this.name = method.getName();
+			this.parameterTypes = method.getParameterTypes();
+		}
+
+		@Override
+		public int hashCode() {
+			final int prime = 31;
+			int result = prime + name.hashCode();
+			result = prime * result + Arrays.hashCode(parameterTypes);
+			return result;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj == null || getClass() != obj.getClass()) {
+				return false;
+			}
+			MethodSignature other = (MethodSignature) obj;
+			return name.equals(other.name) && Arrays.equals(parameterTypes, other.parameterTypes);
+		}
+	}
+
+	/**
+	 * Key for our cached metadata. The user provided configuration objects are mutable so we take a snapshot of their
+	 * values.
+	 */
+	private static class MetadataKey {
+
+		private final List<Object> values = new ArrayList<Object>();
+		private final int hashCode;
+
+		public MetadataKey(JmxAttributeFieldInfo[] attributeFieldInfos, JmxAttributeMethodInfo[] attributeMethodInfos,
+				JmxOperationInfo[] operationInfos, boolean ignoreErrors, MbeanAccessorType accessorType) {
+			values.add(ignoreErrors);
+			values.add(accessorType);
+			if (attributeFieldInfos == null) {
+				values.add(null);
+			} else {
+				values.add(attributeFieldInfos.length);
+				for (JmxAttributeFieldInfo info : attributeFieldInfos) {
+					values.add(info.getFieldName());
+					values.add(info.isReadible());
+					values.add(info.isWritable());
+					values.add(info.getDescription());
+					values.add(info.getCacheMillis());
+					values.add(info.isNotifyOnChange());
+				}
+			}
+			if (attributeMethodInfos == null) {
+				values.add(null);
+			} else {
+				values.add(attributeMethodInfos.length);
+				for (JmxAttributeMethodInfo info : attributeMethodInfos) {
+					values.add(info.getMethodName());
+					values.add(info.getDescription());
+					values.add(info.getCacheMillis());
+					values.add(info.isNotifyOnChange());
+				}
+			}
+			if (operationInfos == null) {
+				values.add(null);
+			} else {
+				values.add(operationInfos.length);
+				for (JmxOperationInfo info : operationInfos) {
+					values.add(info.getMethodName());
+					values.add(toList(info.getParameterNames()));
+					values.add(toList(info.getParameterDescriptions()));
+					values.add(info.getAction());
+					values.add(info.getDescription());
+				}
+			}
+			this.hashCode = values.hashCode();
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj == null || getClass() != obj.getClass()) {
+				return false;
+			}
+			return values.equals(((MetadataKey) obj).values);
+		}
+
+		private static List<String> toList(String[] array) {
+			if (array == null) {
+				return null;
+			} else {
+				return Arrays.asList(array);
+			}
+		}
+	}
+}
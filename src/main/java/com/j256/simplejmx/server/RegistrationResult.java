@@ -0,0 +1,70 @@
+package com.j256.simplejmx.server;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Result of registering one of the objects passed to {@link JmxServer#registerAll(java.util.Collection)} or
+ * {@link JmxServer#registerAll(java.util.Map)}. Each object is registered independently so a failure does not stop
+ * the other objects from being registered.
+ *
+ * @author graywatson
+ */
+public class RegistrationResult {
+
+	private final Object object;
+	private ObjectName objectName;
+	private JMException exception;
+	/** built mbean waiting to be registered */
+	ReflectionMbean mbean;
+
+	RegistrationResult(Object object, ObjectName objectName) {
+		this.object = object;
+		this.objectName = objectName;
+	}
+
+	/**
+	 * Object that was passed in to be registered.
+	 */
+	public Object getObject() {
+		return object;
+	}
+
+	/**
+	 * Object name of the object or null if it could not be determined.
+	 */
+	public ObjectName getObjectName() {
+		return objectName;
+	}
+
+	/**
+	 * Return true if the object was registered.
+	 */
+	public boolean isRegistered() {
+		return (exception == null);
+	}
+
+	/**
+	 * Exception thrown when building or registering the object or null if it was registered.
+	 */
+	public JMException getException() {
+		return exception;
+	}
+
+	void setObjectName(ObjectName objectName) {
+		this.objectName = objectName;
+	}
+
+	void setException(JMException exception) {
+		this.exception = exception;
+	}
+
+	@Override
+	public String toString() {
+		if (exception == null) {
+			return "registered " + objectName;
+		} else {
+			return "failed " + (objectName == null ? object : objectName) + ": " + exception.getMessage();
+		}
+	}
+}
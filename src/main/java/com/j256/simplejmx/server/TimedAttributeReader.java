@@ -0,0 +1,109 @@
+package com.j256.simplejmx.server;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs attribute reads on a bounded pool of daemon threads and waits a limited amount of time for them so a slow or
+ * hung getter does not block the JMX connector threads. Each read request, even one for a number of attributes, uses a
+ * single thread. If all of the threads and the small queue are tied up, typically by hung getters, then reads are
+ * rejected right away instead of piling up behind them. See {@link JmxServer#setAttributeReadTimeoutMillis(long)}.
+ *
+ * @author graywatson
+ */
+class TimedAttributeReader {
+
+	private static final AtomicInteger threadCount = new AtomicInteger();
+
+	private final long timeoutMillis;
+	private final int maxThreads;
+	private final ThreadPoolExecutor executor;
+
+	public TimedAttributeReader(long timeoutMillis, int maxThreads) {
+		this.timeoutMillis = timeoutMillis;
+		this.maxThreads = maxThreads;
+		// small queue so we are rejected quickly when all of the threads are tied up
+		this.executor = new ThreadPoolExecutor(maxThreads, maxThreads, 60, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<Runnable>(maxThreads), new ReaderThreadFactory());
+		// idle threads go away so we don't need to be shutdown
+		this.executor.allowCoreThreadTimeOut(true);
+	}
+
+	public long getTimeoutMillis() {
+		return timeoutMillis;
+	}
+
+	/**
+	 * Start the read in the background.
+	 *
+	 * @param description
+	 *            What is being read such as "attribute foo" for the error messages.
+	 * @throws TimeoutException
+	 *             If there are no threads available to run the read.
+	 */
+	public Future<Object> submit(Callable<Object> read, String description) throws TimeoutException {
+		try {
+			return executor.submit(read);
+		} catch (RejectedExecutionException ree) {
+			TimeoutException te = new TimeoutException("No threads available to get " + description + ", all "
+					+ maxThreads + " reader threads are busy and " + maxThreads + " reads are waiting");
+			te.initCause(ree);
+			throw te;
+		}
+	}
+
+	/**
+	 * Wait for a read that was started with {@link #submit(Callable, String)} until the deadline (in nanos).
+	 *
+	 * @throws TimeoutException
+	 *             If the read did not finish before the deadline.
+	 */
+	public Object waitFor(Future<Object> future, long deadlineNanos, String description) throws Exception {
+		try {
+			return future.get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+		} catch (TimeoutException te) {
+			// try to interrupt the getter although it may not notice
+			future.cancel(true);
+			// remove it from the queue if it never started
+			executor.purge();
+			throw new TimeoutException("Getting " + description + " timed out after " + timeoutMillis + " millis");
+		} catch (InterruptedException ie) {
+			future.cancel(true);
+			Thread.currentThread().interrupt();
+			throw ie;
+		} catch (ExecutionException ee) {
+			Throwable cause = ee.getCause();
+			if (cause instanceof Exception) {
+				throw (Exception) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			} else {
+				throw ee;
+			}
+		}
+	}
+
+	/**
+	 * Return the deadline in nanos for reads started now.
+	 */
+	public long getDeadlineNanos() {
+		return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+	}
+
+	private static class ReaderThreadFactory implements ThreadFactory {
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "simplejmx-attribute-reader-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
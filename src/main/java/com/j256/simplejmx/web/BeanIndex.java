@@ -0,0 +1,198 @@
+package com.j256.simplejmx.web;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerDelegate;
+import javax.management.MBeanServerNotification;
+import javax.management.Notification;
+import javax.management.NotificationListener;
+import javax.management.ObjectName;
+
+/**
+ * Sorted index of the beans in a {@link MBeanServer} which is kept up to date using the registration notifications from
+ * the {@link MBeanServerDelegate}. This means that the web pages that list beans don't have to query and sort all of
+ * the beans in the server on each request. The beans are sorted by their object name strings and the beans in a domain
+ * are a sub-map of the index because their names all start with the domain name and a colon.
+ *
+ * @author graywatson
+ */
+class BeanIndex implements NotificationListener {
+
+	private final MBeanServer mbeanServer;
+	private final ConcurrentSkipListMap<String, IndexEntry> entryMap = new ConcurrentSkipListMap<String, IndexEntry>();
+	/** canonical name to the name string that we sort by since a bean may be unregistered using another form */
+	private final ConcurrentHashMap<String, String> keyMap = new ConcurrentHashMap<String, String>();
+	/** incremented each time a bean is registered or unregistered */
+	private final AtomicLong generation = new AtomicLong();
+	private final long startMillis = System.currentTimeMillis();
+	private volatile long lastModifiedMillis = startMillis;
+	/** canonical names of the beans unregistered while we are loading or null if we aren't, guarded by this */
+	private Set<String> unregisteredWhileLoading;
+
+	public BeanIndex(MBeanServer mbeanServer) {
+		this.mbeanServer = mbeanServer;
+	}
+
+	/**
+	 * Start listening for registrations and load the beans that are already registered.
+	 */
+	public void start() throws Exception {
+		synchronized (this) {
+			unregisteredWhileLoading = new HashSet<String>();
+		}
+		// listen first so we don't miss any beans that are registered while we are loading
+		mbeanServer.addNotificationListener(MBeanServerDelegate.DELEGATE_NAME, this, null, null);
+		try {
+			for (ObjectName objectName : mbeanServer.queryNames(null, null)) {
+				loadBean(objectName);
+			}
+		} finally {
+			synchronized (this) {
+				unregisteredWhileLoading = null;
+			}
+		}
+	}
+
+	/**
+	 * Stop listening for registrations.
+	 */
+	public void stop() {
+		try {
+			mbeanServer.removeNotificationListener(MBeanServerDelegate.DELEGATE_NAME, this);
+		} catch (Exception e) {
+			// ignored
+		}
+		entryMap.clear();
+		keyMap.clear();
+	}
+
+	/**
+	 * Return the beans in the domain sorted by name or all of the beans if the domain is null.
+	 */
+	public Collection<IndexEntry> getEntries(String domainName) {
+		return getEntryMap(domainName).values();
+	}
+
+	/**
+	 * Return the map of the beans in the domain by name or all of the beans if the domain is null.
+	 */
+	public ConcurrentNavigableMap<String, IndexEntry> getEntryMap(String domainName) {
+		if (domainName == null) {
+			return entryMap;
+		} else {
+			// ';' is the character after ':' so this covers all of the names that start with "domain:"
+			return entryMap.subMap(domainName + ':', domainName + ';');
+		}
+	}
+
+	public int size() {
+		return entryMap.size();
+	}
+
+	/**
+	 * Return the number of times that beans have been registered or unregistered since we started.
+	 */
+	public long getGeneration() {
+		return generation.get();
+	}
+
+	/**
+	 * Return the time when the index was created which distinguishes its generations from those of other indexes.
+	 */
+	public long getStartMillis() {
+		return startMillis;
+	}
+
+	/**
+	 * Return the time of the last registration or unregistration or when we started if none.
+	 */
+	public long getLastModifiedMillis() {
+		return lastModifiedMillis;
+	}
+
+	@Override
+	public synchronized void handleNotification(Notification notification, Object handback) {
+		if (!(notification instanceof MBeanServerNotification)) {
+			return;
+		}
+		ObjectName objectName = ((MBeanServerNotification) notification).getMBeanName();
+		String canonicalName = objectName.getCanonicalName();
+		if (MBeanServerNotification.REGISTRATION_NOTIFICATION.equals(notification.getType())) {
+			if (unregisteredWhileLoading != null) {
+				unregisteredWhileLoading.remove(canonicalName);
+			}
+			String key = objectName.toString();
+			keyMap.put(canonicalName, key);
+			entryMap.put(key, new IndexEntry(objectName));
+			changed();
+		} else if (MBeanServerNotification.UNREGISTRATION_NOTIFICATION.equals(notification.getType())) {
+			if (unregisteredWhileLoading != null) {
+				unregisteredWhileLoading.add(canonicalName);
+			}
+			String key = keyMap.remove(canonicalName);
+			if (key != null) {
+				entryMap.remove(key);
+			}
+			changed();
+		}
+	}
+
+	/**
+	 * Add a bean from the list of the registered beans unless it has been unregistered since the list was made.
+	 */
+	private synchronized void loadBean(ObjectName objectName) {
+		String canonicalName = objectName.getCanonicalName();
+		if (unregisteredWhileLoading.contains(canonicalName)) {
+			return;
+		}
+		String key = objectName.toString();
+		if (keyMap.putIfAbsent(canonicalName, key) == null) {
+			entryMap.put(key, new IndexEntry(objectName));
+		}
+	}
+
+	private void changed() {
+		lastModifiedMillis = System.currentTimeMillis();
+		generation.incrementAndGet();
+	}
+
+	/**
+	 * Bean in the index. The description is looked up the first time it is needed.
+	 */
+	class IndexEntry {
+
+		private final ObjectName objectName;
+		private volatile String description;
+		private volatile boolean described;
+
+		public IndexEntry(ObjectName objectName) {
+			this.objectName = objectName;
+		}
+
+		public ObjectName getObjectName() {
+			return objectName;
+		}
+
+		/**
+		 * Return the description of the bean or null if none.
+		 */
+		public String getDescription() {
+			if (!described) {
+				try {
+					description = mbeanServer.getMBeanInfo(objectName).getDescription();
+				} catch (Exception e) {
+					// ignored, bean may have gone away
+				}
+				described = true;
+			}
+			return description;
+		}
+	}
+}
@@ -0,0 +1,215 @@
+package com.j256.simplejmx.web;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+import com.j256.simplejmx.web.BeanIndex.IndexEntry;
+
+/**
+ * A page of a bean listing from the {@link BeanIndex} with optional filtering. The parameters are:
+ *
+ * <ul>
+ * <li>n: number of beans per page with the default being {@link #DEFAULT_LIMIT}, 0 for all of the beans</li>
+ * <li>c: cursor which is the name of the last bean of the previous page</li>
+ * <li>k: key properties that the beans must have such as "type=Cache,name=*"</li>
+ * <li>r: regex that must be found in the name of the beans</li>
+ * </ul>
+ *
+ * <p>
+ * Because the cursor is the name of the last bean shown and the index is sorted by name, the next page starts at the
+ * right place even if beans are registered or unregistered between requests.
+ * </p>
+ *
+ * @author graywatson
+ */
+class BeanListing {
+
+	public static final int DEFAULT_LIMIT = 1000;
+	private static final String PARAM_LIMIT = "n";
+	private static final String PARAM_CURSOR = "c";
+	static final String PARAM_KEY_PROPERTIES = "k";
+	static final String PARAM_REGEX = "r";
+
+	private final String domainName;
+	private final int limit;
+	private final String cursor;
+	private final String keyProperties;
+	private final ObjectName keyPattern;
+	private final String regexString;
+	private final Pattern regex;
+
+	private BeanListing(String domainName, int limit, String cursor, String keyProperties, ObjectName keyPattern,
+			String regexString, Pattern regex) {
+		this.domainName = domainName;
+		this.limit = limit;
+		this.cursor = cursor;
+		this.keyProperties = keyProperties;
+		this.keyPattern = keyPattern;
+		this.regexString = regexString;
+		this.regex = regex;
+	}
+
+	/**
+	 * Read the listing parameters from the request.
+	 *
+	 * @throws IllegalArgumentException
+	 *             If one of the parameters is invalid.
+	 */
+	public static BeanListing fromRequest(JmxWebPublisher webPublisher, String domainName) {
+		int limit = DEFAULT_LIMIT;
+		String param = emptyToNull(webPublisher.getRequestQueryParameter(PARAM_LIMIT));
+		if (param != null) {
+			try {
+				limit = Integer.parseInt(param);
+			} catch (NumberFormatException nfe) {
+				throw new IllegalArgumentException("Invalid number of beans: " + param);
+			}
+			if (limit < 0) {
+				throw new IllegalArgumentException("Invalid number of beans: " + param);
+			}
+		}
+		String cursor = emptyToNull(webPublisher.getRequestQueryParameter(PARAM_CURSOR));
+
+		String keyProperties = emptyToNull(webPublisher.getRequestQueryParameter(PARAM_KEY_PROPERTIES));
+		ObjectName keyPattern = null;
+		if (keyProperties != null) {
+			String patternString = (domainName == null ? "*" : domainName) + ':' + keyProperties;
+			if (!keyProperties.equals("*") && !keyProperties.endsWith(",*")) {
+				// the beans can have other properties
+				patternString += ",*";
+			}
+			try {
+				keyPattern = new ObjectName(patternString);
+			} catch (MalformedObjectNameException mone) {
+				throw new IllegalArgumentException("Invalid key properties: " + keyProperties);
+			}
+		}
+
+		String regexString = emptyToNull(webPublisher.getRequestQueryParameter(PARAM_REGEX));
+		Pattern regex = null;
+		if (regexString != null) {
+			try {
+				regex = Pattern.compile(regexString);
+			} catch (PatternSyntaxException pse) {
+				throw new IllegalArgumentException("Invalid regex: " + regexString);
+			}
+		}
+		return new BeanListing(domainName, limit, cursor, keyProperties, keyPattern, regexString, regex);
+	}
+
+	/**
+	 * Return the beans on the page from the index. The index is only walked until the page is full.
+	 */
+	public Page getPage(BeanIndex beanIndex) {
+		NavigableMap<String, IndexEntry> entryMap = beanIndex.getEntryMap(domainName);
+		if (cursor != null) {
+			entryMap = entryMap.tailMap(cursor, false);
+		}
+		List<IndexEntry> entries = new ArrayList<IndexEntry>();
+		boolean more = false;
+		for (IndexEntry entry : entryMap.values()) {
+			if (!matches(entry)) {
+				continue;
+			}
+			if (limit > 0 && entries.size() >= limit) {
+				// we only stop after we've seen a match after the page
+				more = true;
+				break;
+			}
+			entries.add(entry);
+		}
+		String nextCursor = null;
+		if (more) {
+			nextCursor = entries.get(entries.size() - 1).getObjectName().toString();
+		}
+		return new Page(entries, nextCursor);
+	}
+
+	/**
+	 * Return the query string for the page after the cursor with the same parameters.
+	 *
+	 * @param separator
+	 *            Separator between the parameters which should be "&amp;amp;" in HTML.
+	 */
+	public String buildQuery(String nextCursor, String separator) {
+		StringBuilder sb = new StringBuilder();
+		appendParam(sb, separator, PARAM_CURSOR, nextCursor);
+		if (limit != DEFAULT_LIMIT) {
+			appendParam(sb, separator, PARAM_LIMIT, Integer.toString(limit));
+		}
+		appendParam(sb, separator, PARAM_KEY_PROPERTIES, keyProperties);
+		appendParam(sb, separator, PARAM_REGEX, regexString);
+		return sb.toString();
+	}
+
+	public String getKeyProperties() {
+		return keyProperties;
+	}
+
+	public String getRegex() {
+		return regexString;
+	}
+
+	private boolean matches(IndexEntry entry) {
+		ObjectName objectName = entry.getObjectName();
+		if (keyPattern != null && !keyPattern.apply(objectName)) {
+			return false;
+		}
+		if (regex != null && !regex.matcher(objectName.toString()).find()) {
+			return false;
+		}
+		return true;
+	}
+
+	private void appendParam(StringBuilder sb, String separator, String name, String value) {
+		if (value == null) {
+			return;
+		}
+		sb.append(sb.length() == 0 ? "?" : separator);
+		sb.append(name).append('=');
+		try {
+			sb.append(URLEncoder.encode(value, "UTF-8"));
+		} catch (UnsupportedEncodingException uee) {
+			// won't happen with UTF-8
+			throw new IllegalStateException(uee);
+		}
+	}
+
+	private static String emptyToNull(String value) {
+		if (value == null || value.isEmpty()) {
+			return null;
+		} else {
+			return value;
+		}
+	}
+
+	/**
+	 * Beans on a page and the cursor of the next page or null if this is the last one.
+	 */
+	static class Page {
+
+		private final List<IndexEntry> entries;
+		private final String nextCursor;
+
+		public Page(List<IndexEntry> entries, String nextCursor) {
+			this.entries = entries;
+			this.nextCursor = nextCursor;
+		}
+
+		public List<IndexEntry> getEntries() {
+			return entries;
+		}
+
+		public String getNextCursor() {
+			return nextCursor;
+		}
+	}
+}
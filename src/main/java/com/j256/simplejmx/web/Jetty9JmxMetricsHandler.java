@@ -0,0 +1,389 @@
+package com.j256.simplejmx.web;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerDelegate;
+import javax.management.MBeanServerNotification;
+import javax.management.Notification;
+import javax.management.NotificationListener;
+import javax.management.ObjectName;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+
+import com.j256.simplejmx.server.ReflectionMbean;
+
+/**
+ * Jetty 9 web handler that exposes the numeric attributes of the beans in the local {@link MBeanServer} in the
+ * OpenMetrics text format so they can be scraped directly without a separate JMX exporter. Each attribute is a gauge
+ * named from the domain and the attribute name and the key properties of the bean's {@link ObjectName} are the
+ * labels. For example the "hitCount" attribute of "j256:type=Cache,name=users" is exposed as:
+ *
+ * <pre>
+ * j256_hitCount{type="Cache",name="users"} 10
+ * </pre>
+ *
+ * <p>
+ * By default only the beans published by simplejmx are exposed, see {@link #setSimplejmxBeansOnly(boolean)}. Boolean
+ * attributes are exposed as 0 or 1. The metric names and labels of each bean are cached until the bean is unregistered
+ * so a scrape does not reprocess the names of all of the beans. Requests that aren't for the metrics path are left for
+ * the next handler. See {@link JmxJetty9WebServer}.
+ * </p>
+ *
+ * @author graywatson
+ */
+public class Jetty9JmxMetricsHandler extends AbstractHandler {
+
+	public static final String METRICS_PATH = "/metrics";
+	private static final String CONTENT_TYPE = "application/openmetrics-text; version=1.0.0; charset=utf-8";
+	private static final Set<String> NUMERIC_TYPES = new HashSet<String>(Arrays.asList("byte", "short", "int", "long",
+			"float", "double", "boolean", Byte.class.getName(), Short.class.getName(), Integer.class.getName(),
+			Long.class.getName(), Float.class.getName(), Double.class.getName(), Boolean.class.getName()));
+
+	private MBeanServer mbeanServer;
+	/** prefix to all of the web requests if we are working in a web app with other requests */
+	private String pathPrefix;
+	private boolean simplejmxBeansOnly = true;
+	private final Map<ObjectName, BeanMetrics> beanMetricsMap = new ConcurrentHashMap<ObjectName, BeanMetrics>();
+	private final NotificationListener unregistrationListener = new UnregistrationListener();
+
+	public Jetty9JmxMetricsHandler() {
+		// for spring
+	}
+
+	public Jetty9JmxMetricsHandler(String pathPrefix) {
+		this.pathPrefix = pathPrefix;
+	}
+
+	@Override
+	public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response)
+			throws IOException {
+		String metricsPath = (pathPrefix == null ? METRICS_PATH : pathPrefix + METRICS_PATH);
+		if (!metricsPath.equals(request.getPathInfo())) {
+			// not ours
+			return;
+		}
+		baseRequest.setHandled(true);
+
+		response.setContentType(CONTENT_TYPE);
+		response.setHeader("Cache-Control", "no-cache");
+		try (Writer writer =
+				new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8));) {
+			writeMetrics(writer);
+		}
+	}
+
+	/**
+	 * Write the metrics of all of the beans in OpenMetrics text format to the writer.
+	 */
+	public void writeMetrics(Writer writer) throws IOException {
+		// samples of the same metric have to be together so we group them by name which also sorts the output
+		Map<String, MetricFamily> familyMap = new TreeMap<String, MetricFamily>();
+		for (ObjectName objectName : mbeanServer.queryNames(null, null)) {
+			BeanMetrics beanMetrics = getBeanMetrics(objectName);
+			if (beanMetrics == null || beanMetrics.attributeNames.length == 0) {
+				continue;
+			}
+			AttributeList attributes;
+			try {
+				attributes = mbeanServer.getAttributes(objectName, beanMetrics.attributeNames);
+			} catch (Exception e) {
+				// bean may have gone away
+				continue;
+			}
+			for (Attribute attribute : attributes.asList()) {
+				Object value = attribute.getValue();
+				if (!(value instanceof Number || value instanceof Boolean)) {
+					continue;
+				}
+				int index = beanMetrics.indexOf(attribute.getName());
+				if (index < 0) {
+					continue;
+				}
+				String metricName = beanMetrics.metricNames[index];
+				MetricFamily family = familyMap.get(metricName);
+				if (family == null) {
+					family = new MetricFamily(beanMetrics.descriptions[index]);
+					familyMap.put(metricName, family);
+				}
+				family.labelsList.add(beanMetrics.labels);
+				family.values.add(value);
+			}
+		}
+
+		for (Map.Entry<String, MetricFamily> entry : familyMap.entrySet()) {
+			String metricName = entry.getKey();
+			MetricFamily family = entry.getValue();
+			writer.append("# TYPE ").append(metricName).append(" gauge\n");
+			if (family.help != null) {
+				writer.append("# HELP ").append(metricName).append(' ');
+				appendEscaped(writer, family.help, true);
+				writer.append('\n');
+			}
+			for (int i = 0; i < family.values.size(); i++) {
+				writer.append(metricName).append(family.labelsList.get(i)).append(' ');
+				appendValue(writer, family.values.get(i));
+				writer.append('\n');
+			}
+		}
+		writer.append("# EOF\n");
+	}
+
+	@Override
+	protected void doStart() throws Exception {
+		if (mbeanServer == null) {
+			mbeanServer = ManagementFactory.getPlatformMBeanServer();
+		}
+		mbeanServer.addNotificationListener(MBeanServerDelegate.DELEGATE_NAME, unregistrationListener, null, null);
+		super.doStart();
+	}
+
+	@Override
+	protected void doStop() throws Exception {
+		try {
+			mbeanServer.removeNotificationListener(MBeanServerDelegate.DELEGATE_NAME, unregistrationListener);
+		} catch (Exception e) {
+			// ignored
+		}
+		beanMetricsMap.clear();
+		super.doStop();
+	}
+
+	/**
+	 * Prefix to all of the jmx web requests.
+	 */
+	public void setPathPrefix(String pathPrefix) {
+		this.pathPrefix = pathPrefix;
+	}
+
+	/**
+	 * Set to false to expose the numeric attributes of all of the beans in the server and not just the beans published
+	 * by simplejmx. Default is true.
+	 */
+	public void setSimplejmxBeansOnly(boolean simplejmxBeansOnly) {
+		this.simplejmxBeansOnly = simplejmxBeansOnly;
+	}
+
+	/**
+	 * Optional server that we walk. Default is the platform server.
+	 */
+	public void setMbeanServer(MBeanServer mbeanServer) {
+		this.mbeanServer = mbeanServer;
+	}
+
+	/**
+	 * Return the cached metrics information for the bean or null if it should not be exposed.
+	 */
+	private BeanMetrics getBeanMetrics(ObjectName objectName) {
+		BeanMetrics beanMetrics = beanMetricsMap.get(objectName);
+		if (beanMetrics != null) {
+			return beanMetrics;
+		}
+		try {
+			if (simplejmxBeansOnly && !mbeanServer.isInstanceOf(objectName, ReflectionMbean.class.getName())) {
+				beanMetrics = BeanMetrics.NONE;
+			} else {
+				beanMetrics = buildBeanMetrics(objectName);
+			}
+		} catch (Exception e) {
+			// bean may have gone away, we'll try again next time
+			return null;
+		}
+		beanMetricsMap.put(objectName, beanMetrics);
+		return beanMetrics;
+	}
+
+	private BeanMetrics buildBeanMetrics(ObjectName objectName) throws Exception {
+		List<MBeanAttributeInfo> numericInfos = new ArrayList<MBeanAttributeInfo>();
+		for (MBeanAttributeInfo info : mbeanServer.getMBeanInfo(objectName).getAttributes()) {
+			if (info.isReadable() && NUMERIC_TYPES.contains(info.getType())) {
+				numericInfos.add(info);
+			}
+		}
+		String prefix = sanitizeName(objectName.getDomain()) + '_';
+		String[] attributeNames = new String[numericInfos.size()];
+		String[] metricNames = new String[attributeNames.length];
+		String[] descriptions = new String[attributeNames.length];
+		for (int i = 0; i < attributeNames.length; i++) {
+			MBeanAttributeInfo info = numericInfos.get(i);
+			attributeNames[i] = info.getName();
+			metricNames[i] = prefix + sanitizeName(info.getName());
+			descriptions[i] = info.getDescription();
+		}
+		return new BeanMetrics(attributeNames, metricNames, descriptions, buildLabels(objectName));
+	}
+
+	/**
+	 * Build the labels from the key properties in the order they are in the object name. Reserved label names lose
+	 * their extra leading underscores and names that are the same after sanitizing get a numeric suffix.
+	 */
+	private String buildLabels(ObjectName objectName) {
+		String keyPropertyList = objectName.getKeyPropertyListString();
+		if (keyPropertyList.isEmpty()) {
+			return "";
+		}
+		StringBuilder sb = new StringBuilder();
+		sb.append('{');
+		Set<String> labelNames = new HashSet<String>();
+		for (String keyProperty : keyPropertyList.split(",")) {
+			int equalsIndex = keyProperty.indexOf('=');
+			if (equalsIndex < 0) {
+				continue;
+			}
+			String key = keyProperty.substring(0, equalsIndex);
+			String labelName = sanitizeName(key);
+			while (labelName.startsWith("__")) {
+				// names starting with __ are reserved
+				labelName = labelName.substring(1);
+			}
+			String uniqueName = labelName;
+			for (int suffix = 2; !labelNames.add(uniqueName); suffix++) {
+				uniqueName = labelName + '_' + suffix;
+			}
+			if (labelNames.size() > 1) {
+				sb.append(',');
+			}
+			sb.append(uniqueName).append("=\"");
+			String value = objectName.getKeyProperty(key);
+			if (value.startsWith("\"")) {
+				value = ObjectName.unquote(value);
+			}
+			try {
+				appendEscaped(sb, value, true);
+			} catch (IOException ioe) {
+				// not thrown by string builders
+			}
+			sb.append('"');
+		}
+		sb.append('}');
+		return sb.toString();
+	}
+
+	/**
+	 * Metric and label names can only have letters, digits, and underscores and can't start with a digit.
+	 */
+	private static String sanitizeName(String name) {
+		StringBuilder sb = new StringBuilder(name.length() + 1);
+		for (int i = 0; i < name.length(); i++) {
+			char ch = name.charAt(i);
+			if ((ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z') || ch == '_' || (ch >= '0' && ch <= '9')) {
+				sb.append(ch);
+			} else {
+				sb.append('_');
+			}
+		}
+		if (sb.length() == 0 || (sb.charAt(0) >= '0' && sb.charAt(0) <= '9')) {
+			sb.insert(0, '_');
+		}
+		return sb.toString();
+	}
+
+	private static void appendEscaped(Appendable appendable, String value, boolean quotes) throws IOException {
+		for (int i = 0; i < value.length(); i++) {
+			char ch = value.charAt(i);
+			if (ch == '\\') {
+				appendable.append("\\\\");
+			} else if (ch == '\n') {
+				appendable.append("\\n");
+			} else if (ch == '"' && quotes) {
+				appendable.append("\\\"");
+			} else {
+				appendable.append(ch);
+			}
+		}
+	}
+
+	private static void appendValue(Writer writer, Object value) throws IOException {
+		if (value instanceof Boolean) {
+			writer.append(((Boolean) value) ? "1" : "0");
+		} else if (value instanceof Double || value instanceof Float) {
+			double doubleValue = ((Number) value).doubleValue();
+			if (Double.isNaN(doubleValue)) {
+				writer.append("NaN");
+			} else if (doubleValue == Double.POSITIVE_INFINITY) {
+				writer.append("+Inf");
+			} else if (doubleValue == Double.NEGATIVE_INFINITY) {
+				writer.append("-Inf");
+			} else {
+				writer.append(value.toString());
+			}
+		} else {
+			writer.append(value.toString());
+		}
+	}
+
+	/**
+	 * Cached names of the numeric attributes of a bean and the metric names and labels that they map to.
+	 */
+	private static class BeanMetrics {
+
+		static final BeanMetrics NONE = new BeanMetrics(new String[0], new String[0], new String[0], "");
+
+		final String[] attributeNames;
+		final String[] metricNames;
+		final String[] descriptions;
+		final String labels;
+
+		public BeanMetrics(String[] attributeNames, String[] metricNames, String[] descriptions, String labels) {
+			this.attributeNames = attributeNames;
+			this.metricNames = metricNames;
+			this.descriptions = descriptions;
+			this.labels = labels;
+		}
+
+		public int indexOf(String attributeName) {
+			for (int i = 0; i < attributeNames.length; i++) {
+				if (attributeNames[i].equals(attributeName)) {
+					return i;
+				}
+			}
+			return -1;
+		}
+	}
+
+	/**
+	 * Samples of a metric collected during a scrape.
+	 */
+	private static class MetricFamily {
+
+		final String help;
+		final List<String> labelsList = new ArrayList<String>();
+		final List<Object> values = new ArrayList<Object>();
+
+		public MetricFamily(String help) {
+			this.help = help;
+		}
+	}
+
+	/**
+	 * Drops the cached information about beans when they are unregistered.
+	 */
+	private class UnregistrationListener implements NotificationListener {
+		@Override
+		public void handleNotification(Notification notification, Object handback) {
+			if (notification instanceof MBeanServerNotification
+					&& MBeanServerNotification.UNREGISTRATION_NOTIFICATION.equals(notification.getType())) {
+				beanMetricsMap.remove(((MBeanServerNotification) notification).getMBeanName());
+			}
+		}
+	}
+}
@@ -0,0 +1,465 @@
+package com.j256.simplejmx.web;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.http.HttpStatus;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+
+import com.j256.simplejmx.client.ClientUtils;
+
+/**
+ * Jetty 9 web handler that streams the values of bean attributes to the browser as Server-Sent Events so pages don't
+ * have to be reloaded to watch them. The attributes are read at an interval and an event is only sent when the value
+ * of an attribute has changed. Requests look like:
+ *
+ * <pre>
+ * /stream?b=j256:name=Cache&amp;b=java.lang:type=Memory&amp;a=HitCount&amp;ms=1000
+ * </pre>
+ *
+ * <p>
+ * The "b" parameters are the object names or object name patterns of the beans, the optional "a" parameters are the
+ * names of the attributes with the default being all of the readable attributes, and "ms" is the optional interval in
+ * milliseconds. Each event is named "attribute" and its data is a JSON object with "bean", "attribute", and "value"
+ * fields. Requests that aren't for the stream path are left for the next handler. See {@link JmxJetty9WebServer}.
+ * </p>
+ *
+ * <p>
+ * The streams are asynchronous requests so they don't hold on to a request thread. A single scheduler thread, shared
+ * by all of the streams, hands the sampling of each stream to a pool thread when its interval is up and sends the
+ * keep-alives. The events are written with non-blocking output so a client that stops reading only backs up its own
+ * stream, which is ended if too much output is waiting for it.
+ * </p>
+ *
+ * @author graywatson
+ */
+public class Jetty9JmxStreamHandler extends AbstractHandler {
+
+	public static final String STREAM_PATH = "/stream";
+	private static final String PARAM_BEAN = "b";
+	private static final String PARAM_ATTRIBUTE = "a";
+	private static final String PARAM_INTERVAL_MILLIS = "ms";
+	private static final long DEFAULT_INTERVAL_MILLIS = 1000;
+	private static final long MIN_INTERVAL_MILLIS = 100;
+	private static final long MAX_INTERVAL_MILLIS = 10 * 60 * 1000;
+	private static final long KEEP_ALIVE_MILLIS = 15000;
+	/** how often the scheduler looks at the streams which is also the smallest interval */
+	private static final long TICK_MILLIS = MIN_INTERVAL_MILLIS;
+	private static final long STOP_WAIT_MILLIS = 1000;
+	/** if a client falls this far behind then its stream is ended */
+	private static final int MAX_PENDING_CHARS = 1024 * 1024;
+
+	private MBeanServer mbeanServer;
+	/** prefix to all of the web requests if we are working in a web app with other requests */
+	private String pathPrefix;
+	private final Set<Stream> streams = Collections.newSetFromMap(new ConcurrentHashMap<Stream, Boolean>());
+	private volatile ScheduledExecutorService scheduler;
+	private volatile ExecutorService sampleExecutor;
+
+	public Jetty9JmxStreamHandler() {
+		// for spring
+	}
+
+	public Jetty9JmxStreamHandler(String pathPrefix) {
+		this.pathPrefix = pathPrefix;
+	}
+
+	@Override
+	public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response)
+			throws IOException {
+		String streamPath = (pathPrefix == null ? STREAM_PATH : pathPrefix + STREAM_PATH);
+		if (!streamPath.equals(request.getPathInfo())) {
+			// not ours
+			return;
+		}
+		baseRequest.setHandled(true);
+
+		List<ObjectName> patterns = new ArrayList<ObjectName>();
+		String[] beanParams = request.getParameterValues(PARAM_BEAN);
+		if (beanParams == null) {
+			response.sendError(HttpStatus.BAD_REQUEST_400, "No bean '" + PARAM_BEAN + "' parameters specified");
+			return;
+		}
+		for (String beanParam : beanParams) {
+			try {
+				patterns.add(new ObjectName(beanParam));
+			} catch (MalformedObjectNameException mone) {
+				response.sendError(HttpStatus.BAD_REQUEST_400, "Invalid object name: " + beanParam);
+				return;
+			}
+		}
+		long intervalMillis = DEFAULT_INTERVAL_MILLIS;
+		String intervalParam = request.getParameter(PARAM_INTERVAL_MILLIS);
+		if (intervalParam != null) {
+			try {
+				intervalMillis = Long.parseLong(intervalParam);
+			} catch (NumberFormatException nfe) {
+				response.sendError(HttpStatus.BAD_REQUEST_400, "Invalid interval: " + intervalParam);
+				return;
+			}
+			intervalMillis = Math.min(MAX_INTERVAL_MILLIS, Math.max(MIN_INTERVAL_MILLIS, intervalMillis));
+		}
+		if (scheduler == null) {
+			response.sendError(HttpStatus.SERVICE_UNAVAILABLE_503);
+			return;
+		}
+
+		response.setContentType("text/event-stream");
+		response.setCharacterEncoding("UTF-8");
+		response.setHeader("Cache-Control", "no-cache");
+		AsyncContext asyncContext = request.startAsync();
+		// the stream goes until the client goes away or we are stopped
+		asyncContext.setTimeout(0);
+		ServletOutputStream outputStream = response.getOutputStream();
+		final Stream stream = new Stream(asyncContext, outputStream, patterns,
+				request.getParameterValues(PARAM_ATTRIBUTE), intervalMillis);
+		asyncContext.addListener(new AsyncListener() {
+			@Override
+			public void onComplete(AsyncEvent event) {
+				streams.remove(stream);
+			}
+
+			@Override
+			public void onTimeout(AsyncEvent event) {
+				stream.close();
+			}
+
+			@Override
+			public void onError(AsyncEvent event) {
+				stream.close();
+			}
+
+			@Override
+			public void onStartAsync(AsyncEvent event) {
+				// no-op
+			}
+		});
+		streams.add(stream);
+		// this calls onWritePossible which sends the opening comment so the client knows the stream is open
+		outputStream.setWriteListener(stream);
+		if (scheduler == null) {
+			// stopped while we were starting the stream
+			stream.close();
+		}
+	}
+
+	@Override
+	protected void doStart() throws Exception {
+		if (mbeanServer == null) {
+			mbeanServer = ManagementFactory.getPlatformMBeanServer();
+		}
+		// each stream has at most one sample running so a slow bean only holds up its own streams
+		sampleExecutor = Executors.newCachedThreadPool(new StreamThreadFactory("simplejmx-stream-sample"));
+		ScheduledExecutorService scheduler =
+				Executors.newSingleThreadScheduledExecutor(new StreamThreadFactory("simplejmx-stream"));
+		scheduler.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				tick();
+			}
+		}, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+		this.scheduler = scheduler;
+		super.doStart();
+	}
+
+	@Override
+	protected void doStop() throws Exception {
+		ScheduledExecutorService scheduler = this.scheduler;
+		this.scheduler = null;
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+			// let a tick that is writing finish before we end the streams under it
+			scheduler.awaitTermination(STOP_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+		}
+		ExecutorService sampleExecutor = this.sampleExecutor;
+		this.sampleExecutor = null;
+		if (sampleExecutor != null) {
+			sampleExecutor.shutdownNow();
+			sampleExecutor.awaitTermination(STOP_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+		}
+		for (Stream stream : streams) {
+			stream.close();
+		}
+		super.doStop();
+	}
+
+	/**
+	 * Prefix to all of the jmx web requests.
+	 */
+	public void setPathPrefix(String pathPrefix) {
+		this.pathPrefix = pathPrefix;
+	}
+
+	/**
+	 * Called by the scheduler to start the samples and send the keep-alives of all of the streams.
+	 */
+	private void tick() {
+		ExecutorService sampleExecutor = this.sampleExecutor;
+		if (sampleExecutor == null) {
+			return;
+		}
+		long nowMillis = System.currentTimeMillis();
+		for (Stream stream : streams) {
+			try {
+				stream.tick(nowMillis, sampleExecutor);
+			} catch (Exception e) {
+				// the client went away or we are stopping, an exception here would also cancel the scheduled ticks
+				stream.close();
+			}
+		}
+	}
+
+	private Set<ObjectName> findBeans(List<ObjectName> patterns) {
+		// sorted so the events come in a consistent order
+		Set<ObjectName> objectNames = new TreeSet<ObjectName>();
+		for (ObjectName pattern : patterns) {
+			objectNames.addAll(mbeanServer.queryNames(pattern, null));
+		}
+		return objectNames;
+	}
+
+	private String[] getReadableAttributeNames(Map<ObjectName, String[]> beanAttributeNamesMap, ObjectName objectName) {
+		String[] names = beanAttributeNamesMap.get(objectName);
+		if (names != null) {
+			return names;
+		}
+		List<String> nameList = new ArrayList<String>();
+		try {
+			for (MBeanAttributeInfo attribute : mbeanServer.getMBeanInfo(objectName).getAttributes()) {
+				if (attribute.isReadable()) {
+					nameList.add(attribute.getName());
+				}
+			}
+		} catch (Exception e) {
+			// bean may have gone away, we'll try again next time
+			return new String[0];
+		}
+		names = nameList.toArray(new String[nameList.size()]);
+		beanAttributeNamesMap.put(objectName, names);
+		return names;
+	}
+
+	private void appendEvent(Writer writer, long eventId, ObjectName objectName, String attributeName, String value)
+			throws IOException {
+		writer.append("id: ").append(Long.toString(eventId)).append('\n');
+		writer.append("event: attribute\n");
+		writer.append("data: {\"bean\":");
+		JsonWriter.appendString(writer, objectName.toString());
+		writer.append(",\"attribute\":");
+		JsonWriter.appendString(writer, attributeName);
+		writer.append(",\"value\":");
+		JsonWriter.appendString(writer, value);
+		writer.append("}\n\n");
+	}
+
+	/**
+	 * State of one of the streams. The scheduler thread starts at most one sample at a time on the sample executor so
+	 * the sample state isn't synchronized. The output is written by the sample threads, the scheduler thread, and the
+	 * container when the client is ready for more so it is synchronized.
+	 */
+	private class Stream implements WriteListener {
+
+		private final AsyncContext asyncContext;
+		private final ServletOutputStream outputStream;
+		private final List<ObjectName> patterns;
+		private final String[] attributeNames;
+		private final long intervalMillis;
+		private final Map<ObjectName, Map<String, String>> lastValueMap =
+				new HashMap<ObjectName, Map<String, String>>();
+		private final Map<ObjectName, String[]> beanAttributeNamesMap = new HashMap<ObjectName, String[]>();
+		private final AtomicBoolean sampling = new AtomicBoolean();
+		private final StringBuilder pending = new StringBuilder(": simplejmx stream\n\n");
+		private long eventId;
+		private long nextSampleMillis;
+		private long lastWriteMillis = System.currentTimeMillis();
+		private boolean needsFlush;
+		private volatile boolean closed;
+
+		public Stream(AsyncContext asyncContext, ServletOutputStream outputStream, List<ObjectName> patterns,
+				String[] attributeNames, long intervalMillis) {
+			this.asyncContext = asyncContext;
+			this.outputStream = outputStream;
+			this.patterns = patterns;
+			this.attributeNames = attributeNames;
+			this.intervalMillis = intervalMillis;
+		}
+
+		/**
+		 * Start a sample if our interval is up and the last one is done or send a keep-alive if we haven't written in
+		 * a while.
+		 */
+		public void tick(long nowMillis, ExecutorService sampleExecutor) throws IOException {
+			if (nowMillis >= nextSampleMillis && sampling.compareAndSet(false, true)) {
+				nextSampleMillis = nowMillis + intervalMillis;
+				sampleExecutor.execute(new Runnable() {
+					@Override
+					public void run() {
+						sample();
+					}
+				});
+			}
+			synchronized (this) {
+				if (nowMillis - lastWriteMillis >= KEEP_ALIVE_MILLIS) {
+					// comments are ignored by the client but let us see if it has gone away
+					write(": keep-alive\n\n");
+				}
+			}
+		}
+
+		@Override
+		public synchronized void onWritePossible() throws IOException {
+			writePending();
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			close();
+		}
+
+		/**
+		 * End the stream if it hasn't already ended.
+		 */
+		public void close() {
+			closed = true;
+			streams.remove(this);
+			try {
+				asyncContext.complete();
+			} catch (IllegalStateException ise) {
+				// already completed
+			}
+		}
+
+		private void sample() {
+			try {
+				StringWriter writer = new StringWriter();
+				writeChanges(writer);
+				if (writer.getBuffer().length() > 0) {
+					write(writer.toString());
+				}
+			} catch (Exception e) {
+				// the client went away
+				close();
+			} finally {
+				sampling.set(false);
+			}
+		}
+
+		/**
+		 * Add the text to our pending output and write as much as the client is ready for.
+		 */
+		private synchronized void write(String text) throws IOException {
+			if (closed) {
+				return;
+			}
+			pending.append(text);
+			lastWriteMillis = System.currentTimeMillis();
+			if (pending.length() > MAX_PENDING_CHARS) {
+				// the client has stopped reading
+				close();
+				return;
+			}
+			writePending();
+		}
+
+		/**
+		 * Write our pending output while the output-stream is ready. If it isn't ready, the container calls
+		 * {@link #onWritePossible()} when it is.
+		 */
+		private synchronized void writePending() throws IOException {
+			while (!closed && outputStream.isReady()) {
+				if (pending.length() > 0) {
+					byte[] bytes = pending.toString().getBytes(StandardCharsets.UTF_8);
+					pending.setLength(0);
+					outputStream.write(bytes);
+					needsFlush = true;
+				} else if (needsFlush) {
+					needsFlush = false;
+					outputStream.flush();
+				} else {
+					return;
+				}
+			}
+		}
+
+		private void writeChanges(Writer writer) throws IOException {
+			Set<ObjectName> objectNames = findBeans(patterns);
+			// forget about the beans that have gone away
+			lastValueMap.keySet().retainAll(objectNames);
+			beanAttributeNamesMap.keySet().retainAll(objectNames);
+			for (ObjectName objectName : objectNames) {
+				String[] names = attributeNames;
+				if (names == null) {
+					names = getReadableAttributeNames(beanAttributeNamesMap, objectName);
+				}
+				AttributeList attributes;
+				try {
+					attributes = mbeanServer.getAttributes(objectName, names);
+				} catch (Exception e) {
+					// bean may have gone away
+					continue;
+				}
+				Map<String, String> beanValueMap = lastValueMap.get(objectName);
+				if (beanValueMap == null) {
+					beanValueMap = new HashMap<String, String>();
+					lastValueMap.put(objectName, beanValueMap);
+				}
+				for (Attribute attribute : attributes.asList()) {
+					String value = ClientUtils.valueToString(attribute.getValue());
+					String lastValue = beanValueMap.put(attribute.getName(), value);
+					if (lastValue != null && lastValue.equals(value)) {
+						continue;
+					}
+					appendEvent(writer, ++eventId, objectName, attribute.getName(), value);
+				}
+			}
+		}
+	}
+
+	private static class StreamThreadFactory implements ThreadFactory {
+
+		private final String name;
+
+		public StreamThreadFactory(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, name);
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
@@ -3,10 +3,12 @@ package com.j256.simplejmx.web;
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import org.eclipse.jetty.http.HttpHeader;
 import org.eclipse.jetty.http.HttpStatus;
 import org.eclipse.jetty.server.Request;
 import org.eclipse.jetty.server.handler.AbstractHandler;
@@ -15,13 +17,22 @@ import org.eclipse.jetty.server.handler.AbstractHandler;
  * Jetty 9 web handler that implements the {@link JmxWebPublisher} functions to allow the {@link JmxWebHandler} to
  * display web simple JMX web pages.
  * 
+ * <p>
+ * The domain list and bean listing pages are sent with ETag and Last-Modified headers that change when beans are
+ * registered or unregistered so conditional requests for unchanged pages get a 304 response without the page being
+ * rendered.
+ * </p>
+ * 
  * @author graywatson
  */
 public class Jetty9JmxWebHandler extends AbstractHandler implements JmxWebPublisher {
 
+	private static final int WRITER_BUFFER_SIZE = 32 * 1024;
+
 	private JmxWebHandler webHandler;
-	private HttpServletRequest request;
-	private HttpServletResponse response;
+	/** thread-locals because the handler is called by a number of threads at the same time */
+	private final ThreadLocal<HttpServletRequest> threadRequest = new ThreadLocal<HttpServletRequest>();
+	private final ThreadLocal<HttpServletResponse> threadResponse = new ThreadLocal<HttpServletResponse>();
 
 	/** prefix to all of the web requests if we are working in a web app with other requests */
 	private String pathPrefix;
@@ -44,40 +55,105 @@ public class Jetty9JmxWebHandler extends AbstractHandler implements JmxWebPublis
 			return;
 		}
 
-		try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(response.getOutputStream()));) {
-			this.request = request;
-			this.response = response;
+		threadRequest.set(request);
+		threadResponse.set(response);
+		try {
+			handleRequest(baseRequest, request, response);
+		} finally {
+			threadRequest.remove();
+			threadResponse.remove();
+		}
+	}
+
+	private void handleRequest(Request baseRequest, HttpServletRequest request, HttpServletResponse response)
+			throws IOException {
+		String etag = webHandler.getEtag(this, pathPrefix);
+		if (etag != null) {
+			long lastModifiedMillis = webHandler.getLastModifiedMillis();
+			response.setHeader(HttpHeader.ETAG.asString(), etag);
+			response.setDateHeader(HttpHeader.LAST_MODIFIED.asString(), lastModifiedMillis);
+			if (isNotModified(request, etag, lastModifiedMillis)) {
+				response.setStatus(HttpStatus.NOT_MODIFIED_304);
+				baseRequest.setHandled(true);
+				return;
+			}
+		}
+
+		response.setCharacterEncoding("UTF-8");
+		try (BufferedWriter writer = new BufferedWriter(
+				new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8), WRITER_BUFFER_SIZE);) {
 			webHandler.handle(this, writer, pathPrefix);
 		}
 		baseRequest.setHandled(true);
 	}
 
+	@Override
+	protected void doStop() throws Exception {
+		if (webHandler != null) {
+			webHandler.close();
+		}
+		super.doStop();
+	}
+
 	@Override
 	public String getRequestPathInfo() {
-		return request.getPathInfo();
+		return threadRequest.get().getPathInfo();
 	}
 
 	@Override
 	public String getRequestQueryParameter(String paramName) {
-		return request.getParameter(paramName);
+		return threadRequest.get().getParameter(paramName);
 	}
 
 	@Override
 	public void setResponseContentType(String contentType) {
-		response.setContentType(contentType);
+		threadResponse.get().setContentType(contentType);
 	}
 
 	@Override
 	public void setResponseStatusCode(int httpStatusCode) {
-		response.setStatus(httpStatusCode);
+		threadResponse.get().setStatus(httpStatusCode);
 	}
 
 	@Override
 	public void sendResponseRedirect(String location) throws IOException {
-		response.sendRedirect(location);
+		threadResponse.get().sendRedirect(location);
 	}
 
 	public void setWebHandler(JmxWebHandler webHandler) {
 		this.webHandler = webHandler;
 	}
+
+	/**
+	 * If-None-Match takes precedence over If-Modified-Since as per the HTTP spec.
+	 */
+	private boolean isNotModified(HttpServletRequest request, String etag, long lastModifiedMillis) {
+		String ifNoneMatch = request.getHeader(HttpHeader.IF_NONE_MATCH.asString());
+		if (ifNoneMatch != null) {
+			for (String tag : ifNoneMatch.split(",")) {
+				tag = tag.trim();
+				if (tag.equals("*") || tag.equals(etag) || stripWeak(tag).equals(stripWeak(etag))) {
+					return true;
+				}
+			}
+			return false;
+		}
+		long ifModifiedSince;
+		try {
+			ifModifiedSince = request.getDateHeader(HttpHeader.IF_MODIFIED_SINCE.asString());
+		} catch (IllegalArgumentException iae) {
+			// bad date is ignored
+			return false;
+		}
+		// the header only has second resolution
+		return (ifModifiedSince >= 0 && lastModifiedMillis / 1000 <= ifModifiedSince / 1000);
+	}
+
+	private String stripWeak(String tag) {
+		if (tag.startsWith("W/")) {
+			return tag.substring(2);
+		} else {
+			return tag;
+		}
+	}
 }
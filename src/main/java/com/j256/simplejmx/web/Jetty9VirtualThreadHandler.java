@@ -0,0 +1,143 @@
+package com.j256.simplejmx.web;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.http.HttpStatus;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.HandlerWrapper;
+
+/**
+ * Jetty 9 handler that runs the wrapped handler on a virtual thread for each request so that requests which block on
+ * slow attribute getters or which stream events don't tie up the threads of the server's pool. The Jetty threads only
+ * do the network I/O and hand each request off using an asynchronous servlet context.
+ *
+ * <p>
+ * Virtual threads need Java 21 or newer. Use {@link #isSupported()} to see if they are available. When they aren't,
+ * requests are handled on the calling Jetty thread as usual. See {@link JmxJetty9WebServer#setUseVirtualThreads(boolean)}.
+ * </p>
+ *
+ * @author graywatson
+ */
+public class Jetty9VirtualThreadHandler extends HandlerWrapper {
+
+	private static final Method NEW_VIRTUAL_EXECUTOR_METHOD = findNewVirtualExecutorMethod();
+
+	private ExecutorService executor;
+	private final ExecutorService otherExecutor;
+
+	public Jetty9VirtualThreadHandler() {
+		// for spring
+		this.otherExecutor = null;
+	}
+
+	/**
+	 * For testing with JVMs that don't have virtual threads.
+	 */
+	Jetty9VirtualThreadHandler(ExecutorService otherExecutor) {
+		this.otherExecutor = otherExecutor;
+	}
+
+	/**
+	 * Return true if the JVM supports virtual threads.
+	 */
+	public static boolean isSupported() {
+		return (NEW_VIRTUAL_EXECUTOR_METHOD != null);
+	}
+
+	@Override
+	public void handle(final String target, final Request baseRequest, final HttpServletRequest request,
+			final HttpServletResponse response) throws IOException, ServletException {
+		ExecutorService executor = this.executor;
+		if (executor == null || !request.isAsyncSupported()) {
+			super.handle(target, baseRequest, request, response);
+			return;
+		}
+		final AsyncContext asyncContext = request.startAsync();
+		// streams can go on for as long as they want
+		asyncContext.setTimeout(0);
+		try {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					handleRequest(target, baseRequest, request, response, asyncContext);
+				}
+			});
+		} catch (RejectedExecutionException ree) {
+			// we are stopping
+			response.sendError(HttpStatus.SERVICE_UNAVAILABLE_503);
+			asyncContext.complete();
+		}
+	}
+
+	@Override
+	protected void doStart() throws Exception {
+		if (otherExecutor == null) {
+			executor = newVirtualExecutor();
+		} else {
+			executor = otherExecutor;
+		}
+		super.doStart();
+	}
+
+	@Override
+	protected void doStop() throws Exception {
+		super.doStop();
+		if (executor != null) {
+			// the connections are closed by the server so we don't wait for the requests
+			executor.shutdown();
+			executor = null;
+		}
+	}
+
+	private void handleRequest(String target, Request baseRequest, HttpServletRequest request,
+			HttpServletResponse response, AsyncContext asyncContext) {
+		try {
+			super.handle(target, baseRequest, request, response);
+			if (!baseRequest.isHandled() && !response.isCommitted()) {
+				response.sendError(HttpStatus.NOT_FOUND_404);
+			}
+		} catch (Exception e) {
+			if (!response.isCommitted()) {
+				try {
+					response.sendError(HttpStatus.INTERNAL_SERVER_ERROR_500);
+				} catch (IOException ioe) {
+					// the client went away
+				}
+			}
+		} finally {
+			baseRequest.setHandled(true);
+			asyncContext.complete();
+		}
+	}
+
+	private static ExecutorService newVirtualExecutor() {
+		if (NEW_VIRTUAL_EXECUTOR_METHOD == null) {
+			return null;
+		}
+		try {
+			return (ExecutorService) NEW_VIRTUAL_EXECUTOR_METHOD.invoke(null);
+		} catch (Exception e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Executors.newVirtualThreadPerTaskExecutor() is looked up with reflection because we compile with older versions
+	 * of Java.
+	 */
+	private static Method findNewVirtualExecutorMethod() {
+		try {
+			return java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+		} catch (Exception e) {
+			return null;
+		}
+	}
+}
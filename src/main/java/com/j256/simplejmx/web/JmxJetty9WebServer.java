@@ -4,21 +4,36 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.net.InetAddress;
 
+import org.eclipse.jetty.server.Handler;
 import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.HandlerList;
+import org.eclipse.jetty.server.handler.gzip.GzipHandler;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
 
 /**
  * Simple web-server which exposes JMX beans via HTTP. To use this class you need to provide a Jetty version 9 in your
  * dependency list or classpath.
  * 
+ * <p>
+ * In addition to the pages, the values of attributes can be streamed to the browser as they change using the
+ * {@link Jetty9JmxStreamHandler#STREAM_PATH} endpoint and the numeric attributes can be scraped in OpenMetrics format
+ * using the {@link Jetty9JmxMetricsHandler#METRICS_PATH} endpoint.
+ * </p>
+ * 
  * @author graywatson
  */
 public class JmxJetty9WebServer implements Closeable {
 
+	private static final int VIRTUAL_MODE_MIN_THREADS = 2;
+	private static final int VIRTUAL_MODE_MAX_THREADS = 8;
+
 	private InetAddress serverAddress;
 	private int serverPort;
 	private Server server;
 	private String pathPrefix;
+	private boolean gzipResponses;
+	private boolean useVirtualThreads;
 
 	public JmxJetty9WebServer() {
 		// for spring
@@ -37,14 +52,41 @@ public class JmxJetty9WebServer implements Closeable {
 	 * Start the internal Jetty web server and configure the {@link JmxWebHandler} to handle the requests.
 	 */
 	public void start() throws Exception {
-		server = new Server();
-		ServerConnector connector = new ServerConnector(server);
+		boolean virtualThreads = (useVirtualThreads && Jetty9VirtualThreadHandler.isSupported());
+		ServerConnector connector;
+		if (virtualThreads) {
+			// the platform threads only do the network I/O so we only need a couple of them
+			server = new Server(new QueuedThreadPool(VIRTUAL_MODE_MAX_THREADS, VIRTUAL_MODE_MIN_THREADS));
+			connector = new ServerConnector(server, 1 /* acceptors */, 1 /* selectors */);
+		} else {
+			server = new Server();
+			connector = new ServerConnector(server);
+		}
 		if (serverAddress != null) {
 			connector.setHost(serverAddress.getHostAddress());
 		}
 		connector.setPort(serverPort);
 		server.addConnector(connector);
-		server.setHandler(new Jetty9JmxWebHandler(new JmxWebHandler(), pathPrefix));
+		HandlerList pageHandlers = new HandlerList();
+		pageHandlers.addHandler(new Jetty9JmxMetricsHandler(pathPrefix));
+		pageHandlers.addHandler(new Jetty9JmxWebHandler(new JmxWebHandler(), pathPrefix));
+		Handler pageHandler = pageHandlers;
+		if (gzipResponses) {
+			// the event stream is not compressed so its events aren't held up in the compressor
+			GzipHandler gzipHandler = new GzipHandler();
+			gzipHandler.setHandler(pageHandler);
+			pageHandler = gzipHandler;
+		}
+		if (virtualThreads) {
+			Jetty9VirtualThreadHandler virtualThreadHandler = new Jetty9VirtualThreadHandler();
+			virtualThreadHandler.setHandler(pageHandler);
+			pageHandler = virtualThreadHandler;
+		}
+		HandlerList handlers = new HandlerList();
+		// the streams are asynchronous so they don't need a virtual thread
+		handlers.addHandler(new Jetty9JmxStreamHandler(pathPrefix));
+		handlers.addHandler(pageHandler);
+		server.setHandler(handlers);
 		server.start();
 	}
 
@@ -95,6 +137,23 @@ public class JmxJetty9WebServer implements Closeable {
 		// ignored
 	}
 
+	/**
+	 * Set to true to compress the responses with gzip when the client supports it. Default is false.
+	 */
+	public void setGzipResponses(boolean gzipResponses) {
+		this.gzipResponses = gzipResponses;
+	}
+
+	/**
+	 * Set to true to handle each request on a virtual thread if the JVM supports them so that slow attribute getters and
+	 * event streams don't use up the server's threads. The server then only needs a few platform threads for the network
+	 * I/O. If virtual threads are not supported then the requests are handled by the usual thread pool. Default is
+	 * false.
+	 */
+	public void setUseVirtualThreads(boolean useVirtualThreads) {
+		this.useVirtualThreads = useVirtualThreads;
+	}
+
 	/**
 	 * Prefix to all of the jmx web requests.
 	 */
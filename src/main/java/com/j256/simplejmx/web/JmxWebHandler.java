@@ -1,34 +1,56 @@
 package com.j256.simplejmx.web;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.Writer;
 import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
 
 import javax.management.Attribute;
+import javax.management.AttributeList;
 import javax.management.MBeanAttributeInfo;
 import javax.management.MBeanInfo;
 import javax.management.MBeanOperationInfo;
 import javax.management.MBeanParameterInfo;
 import javax.management.MBeanServer;
 import javax.management.MalformedObjectNameException;
-import javax.management.ObjectInstance;
 import javax.management.ObjectName;
-import javax.management.QueryExp;
 
 import com.j256.simplejmx.client.ClientUtils;
+import com.j256.simplejmx.web.BeanIndex.IndexEntry;
+import com.j256.simplejmx.web.BeanListing.Page;
 
 /**
  * Simple web handler that displays JMX information for a HTTP request. See {@link JmxJetty9WebServer}. This uses the
  * {@link ManagementFactory#getPlatformMBeanServer()} call to front the published JMX domains and beans.
  * 
+ * <p>
+ * Pages are HTML by default. Add the "t" query parameter to get line-oriented text or the "j" query parameter to get
+ * JSON which is meant for programs that collect the information. In JSON, numbers and booleans are JSON numbers and
+ * booleans, arrays are arrays, CompositeData values are objects, and TabularData values are arrays of their row
+ * objects.
+ * </p>
+ * 
+ * <p>
+ * The bean listings are returned in pages of 1000 beans. The "n" query parameter sets the number of beans per page
+ * with 0 being all of them, "k" filters by key properties such as "type=Cache,name=*", and "r" filters by a regex that
+ * is found in the bean name. When there are more beans, the HTML has a next page link, the text version ends with a
+ * "next=" line, and the JSON has a "next" field. Its value is passed as the "c" query parameter to get the next page.
+ * </p>
+ * 
+ * <p>
+ * The bean listings are served from a sorted index that is kept up to date with registration notifications from the
+ * server so they don't have to query and sort all of the beans on each request. Call {@link #close()} to stop
+ * listening when the handler is no longer being used.
+ * </p>
+ * 
  * @author graywatson
  */
-public class JmxWebHandler {
+public class JmxWebHandler implements Closeable {
 
 	private static final String COMMAND_LIST_BEANS_IN_DOMAIN = "d";
 	private static final String COMMAND_SHOW_BEAN = "b";
@@ -38,9 +60,10 @@ public class JmxWebHandler {
 	private static final String PARAM_ATTRIBUTE_VALUE = "val";
 	private static final String PARAM_OPERATION_PREFIX = "p";
 	private static final String PARAM_TEXT_ONLY = "t";
+	private static final String PARAM_JSON = "j";
 
 	private MBeanServer mbeanServer;
-	private final ObjectNameComparator objectNameComparator = new ObjectNameComparator();
+	private volatile BeanIndex beanIndex;
 
 	private static final boolean charIsMapped[] = new boolean[128];
 
@@ -79,15 +102,57 @@ public class JmxWebHandler {
 		processRequest(webPublisher, writer, pathPrefix);
 	}
 
-	private void processRequest(JmxWebPublisher webPublisher, Writer writer, String pathPrefix) throws IOException {
-		String pathInfo = webPublisher.getRequestPathInfo();
-		if (pathInfo == null) {
-			pathInfo = "";
-		} else if (pathInfo.startsWith(pathPrefix)) {
-			pathInfo = pathInfo.substring(pathPrefix.length());
+	/**
+	 * Stop listening for bean registrations. A later request will reload the beans.
+	 */
+	@Override
+	public void close() {
+		synchronized (this) {
+			if (beanIndex != null) {
+				beanIndex.stop();
+				beanIndex = null;
+			}
 		}
-		if (pathInfo.length() > 0 && pathInfo.charAt(0) == '/') {
-			pathInfo = pathInfo.substring(1);
+	}
+
+	/**
+	 * Return the entity tag of the page for the request or null if the page shows values that can change at any time.
+	 * The domain list and the bean listings only change when beans are registered or unregistered so their tag is
+	 * derived from the registration generation of the server. This allows the web server to answer conditional requests
+	 * without rendering the page.
+	 * 
+	 * @param webPublisher
+	 *            The per-webserver publisher of the information.
+	 * @param pathPrefix
+	 *            A prefix to all of the web requests or null if none.
+	 */
+	public String getEtag(JmxWebPublisher webPublisher, String pathPrefix) throws IOException {
+		if (mbeanServer == null) {
+			mbeanServer = ManagementFactory.getPlatformMBeanServer();
+		}
+		String pathInfo = getPathInfo(webPublisher, (pathPrefix == null ? "" : pathPrefix));
+		if (pathInfo.indexOf('/') >= 0 && !pathInfo.startsWith(COMMAND_LIST_BEANS_IN_DOMAIN + '/')) {
+			// bean pages show attribute values and the others are actions
+			return null;
+		}
+		BeanIndex index = getBeanIndex();
+		return "W/\"" + Long.toHexString(index.getStartMillis()) + '-' + index.getGeneration() + '"';
+	}
+
+	/**
+	 * Return the time that the pages with entity tags last changed. See {@link #getEtag(JmxWebPublisher, String)}.
+	 */
+	public long getLastModifiedMillis() throws IOException {
+		return getBeanIndex().getLastModifiedMillis();
+	}
+
+	private void processRequest(JmxWebPublisher webPublisher, Writer writer, String pathPrefix) throws IOException {
+		String pathInfo = getPathInfo(webPublisher, pathPrefix);
+
+		if (webPublisher.getRequestQueryParameter(PARAM_JSON) != null) {
+			webPublisher.setResponseContentType("application/json");
+			processJsonRequest(webPublisher, new JsonWriter(writer), pathInfo);
+			return;
 		}
 
 		boolean textOnly = (webPublisher.getRequestQueryParameter(PARAM_TEXT_ONLY) != null);
@@ -101,7 +166,7 @@ public class JmxWebHandler {
 		if (slashIndex < 0) {
 			appendHeader(writer, textOnly);
 			if (pathInfo.equals(COMMAND_SHOW_ALL_BEANS)) {
-				listBeansInDomain(writer, pathPrefix, textOnly, null);
+				listBeansInDomain(webPublisher, writer, pathPrefix, textOnly, null);
 			} else {
 				listDomains(writer, pathPrefix, textOnly);
 				if (!textOnly) {
@@ -120,7 +185,7 @@ public class JmxWebHandler {
 
 		if (command.equals(COMMAND_LIST_BEANS_IN_DOMAIN)) {
 			appendHeader(writer, textOnly);
-			listBeansInDomain(writer, pathPrefix, textOnly, pathInfo);
+			listBeansInDomain(webPublisher, writer, pathPrefix, textOnly, pathInfo);
 			appendFooter(writer, textOnly);
 		} else if (command.equals(COMMAND_SHOW_BEAN)) {
 			appendHeader(writer, textOnly);
@@ -138,16 +203,24 @@ public class JmxWebHandler {
 		}
 	}
 
+	private String getPathInfo(JmxWebPublisher webPublisher, String pathPrefix) {
+		String pathInfo = webPublisher.getRequestPathInfo();
+		if (pathInfo == null) {
+			pathInfo = "";
+		} else if (pathInfo.startsWith(pathPrefix)) {
+			pathInfo = pathInfo.substring(pathPrefix.length());
+		}
+		if (pathInfo.length() > 0 && pathInfo.charAt(0) == '/') {
+			pathInfo = pathInfo.substring(1);
+		}
+		return pathInfo;
+	}
+
 	private void listDomains(Writer writer, String pathPrefix, boolean textOnly) throws IOException {
 		if (!textOnly) {
 			writer.append("<h1> JMX Domains </h1>\n");
 		}
-		List<String> domainNames = new ArrayList<String>();
-		for (String domainName : mbeanServer.getDomains()) {
-			domainNames.add(domainName);
-		}
-		Collections.sort(domainNames);
-		for (String domainName : domainNames) {
+		for (String domainName : getSortedDomainNames()) {
 			appendLink(writer, textOnly,
 					pathPrefix + '/' + COMMAND_LIST_BEANS_IN_DOMAIN + '/' + makeHtmlSafe(domainName), "beans", null,
 					domainName);
@@ -155,36 +228,36 @@ public class JmxWebHandler {
 		}
 	}
 
-	private void listBeansInDomain(Writer writer, String pathPrefix, boolean textOnly, String domainName)
-			throws IOException {
+	private void listBeansInDomain(JmxWebPublisher webPublisher, Writer writer, String pathPrefix, boolean textOnly,
+			String domainName) throws IOException {
 		// NOTE: should we show directories here or maybe do cute javascript arrows to hide/show sub-beans?
+		String listPath;
+		if (domainName == null) {
+			listPath = pathPrefix + '/' + COMMAND_SHOW_ALL_BEANS;
+		} else if (textOnly) {
+			listPath = pathPrefix + '/' + COMMAND_LIST_BEANS_IN_DOMAIN + '/' + domainName;
+		} else {
+			listPath = pathPrefix + '/' + COMMAND_LIST_BEANS_IN_DOMAIN + '/' + makeHtmlSafe(domainName);
+		}
+		BeanListing listing;
+		try {
+			listing = BeanListing.fromRequest(webPublisher, domainName);
+		} catch (IllegalArgumentException iae) {
+			appendLine(writer, textOnly, makeHtmlSafe(iae.getMessage()));
+			appendBackToRoot(writer, pathPrefix, textOnly);
+			return;
+		}
 		if (!textOnly) {
 			if (domainName == null) {
 				writer.append("<h1> All Beans </h1>\n");
 			} else {
 				writer.append("<h1> Beans in domain " + makeHtmlSafe(domainName) + " </h1>\n");
 			}
+			appendListingFilter(writer, listPath, listing);
 		}
-		Set<ObjectInstance> mbeans;
-		if (domainName == null) {
-			mbeans = mbeanServer.queryMBeans(null, null);
-		} else {
-			mbeans = mbeanServer.queryMBeans(null, new DomainQueryExp(domainName));
-		}
-		List<ObjectName> objectNames = new ArrayList<ObjectName>();
-		for (ObjectInstance mbean : mbeans) {
-			objectNames.add(mbean.getObjectName());
-		}
-		Collections.sort(objectNames, objectNameComparator);
-		for (ObjectName objectName : objectNames) {
-			String description = null;
-			try {
-				MBeanInfo mbeanInfo = mbeanServer.getMBeanInfo(objectName);
-				description = mbeanInfo.getDescription();
-			} catch (Exception e) {
-				// ignored
-			}
-			String nameString = objectName.toString();
+		Page page = listing.getPage(getBeanIndex());
+		for (IndexEntry entry : page.getEntries()) {
+			String nameString = entry.getObjectName().toString();
 			if (textOnly) {
 				writer.append(nameString + '\n');
 			} else {
@@ -194,13 +267,35 @@ public class JmxWebHandler {
 					display = nameString.substring(domainName.length() + 1, nameString.length());
 				}
 				appendLink(writer, textOnly, pathPrefix + '/' + COMMAND_SHOW_BEAN + '/' + makeHtmlSafe(nameString),
-						nameString, description, display);
+						nameString, entry.getDescription(), display);
 				appendLine(writer, textOnly, null);
 			}
 		}
+		if (page.getNextCursor() != null) {
+			if (textOnly) {
+				// the text version needs the parameter so the next page is text as well
+				writer.append("next=" + listPath + listing.buildQuery(page.getNextCursor(), "&") + '&'
+						+ PARAM_TEXT_ONLY + "=1\n");
+			} else {
+				writer.append("<br />\n");
+				appendLink(writer, textOnly, listPath + listing.buildQuery(page.getNextCursor(), "&amp;"), "next",
+						null, "Next page");
+				writer.append("<br />\n");
+			}
+		}
 		appendBackToRoot(writer, pathPrefix, textOnly);
 	}
 
+	private void appendListingFilter(Writer writer, String listPath, BeanListing listing) throws IOException {
+		writer.append("<form action='" + listPath + "' name='filter'>\n");
+		writer.append("Key properties: <input name='" + BeanListing.PARAM_KEY_PROPERTIES + "' value='"
+				+ makeHtmlSafe(nullToEmpty(listing.getKeyProperties())) + "' />\n");
+		writer.append("Regex: <input name='" + BeanListing.PARAM_REGEX + "' value='"
+				+ makeHtmlSafe(nullToEmpty(listing.getRegex())) + "' />\n");
+		writer.append("<input type='submit' value='Filter' />\n");
+		writer.append("</form>\n");
+	}
+
 	private void showBean(Writer writer, String pathPrefix, boolean textOnly, String objectNameString)
 			throws IOException {
 		ObjectName objectName;
@@ -235,13 +330,14 @@ public class JmxWebHandler {
 			writer.append("<tr><th colspan='3'> Attributes: </th></tr>\n");
 			writer.append("<tr><th> Name </th><th> Type </th><th> Value </th></tr>\n");
 		}
+		Map<String, Object> valueMap = getAttributeValues(objectName, mbeanInfo);
 		for (MBeanAttributeInfo attribute : mbeanInfo.getAttributes()) {
 			String name = attribute.getName();
 			Object value = null;
 			if (attribute.isReadable()) {
-				try {
-					value = mbeanServer.getAttribute(objectName, name);
-				} catch (Exception e) {
+				if (valueMap.containsKey(name)) {
+					value = valueMap.get(name);
+				} else {
 					value = "error getting value";
 				}
 			} else {
@@ -274,6 +370,31 @@ public class JmxWebHandler {
 		}
 	}
 
+	/**
+	 * Get all of the readable attributes at once so that slow getters are read together and not one after another.
+	 */
+	private Map<String, Object> getAttributeValues(ObjectName objectName, MBeanInfo mbeanInfo) {
+		List<String> names = new ArrayList<String>();
+		for (MBeanAttributeInfo attribute : mbeanInfo.getAttributes()) {
+			if (attribute.isReadable()) {
+				names.add(attribute.getName());
+			}
+		}
+		Map<String, Object> valueMap = new HashMap<String, Object>();
+		if (names.isEmpty()) {
+			return valueMap;
+		}
+		try {
+			AttributeList attributes = mbeanServer.getAttributes(objectName, names.toArray(new String[names.size()]));
+			for (Attribute attribute : attributes.asList()) {
+				valueMap.put(attribute.getName(), attribute.getValue());
+			}
+		} catch (Exception e) {
+			// values will be missing from the map and reported as errors
+		}
+		return valueMap;
+	}
+
 	private void displayOperations(Writer writer, String pathPrefix, boolean textOnly, ObjectName objectName,
 			MBeanInfo mbeanInfo) throws IOException {
 		int maxParams = 1;
@@ -375,13 +496,7 @@ public class JmxWebHandler {
 					"Could not get mbean info for: " + makeHtmlSafe(objectName.toString()) + ": " + e);
 			return;
 		}
-		MBeanAttributeInfo info = null;
-		for (MBeanAttributeInfo attribute : mbeanInfo.getAttributes()) {
-			if (attribute.getName().equals(attributeName)) {
-				info = attribute;
-				break;
-			}
-		}
+		MBeanAttributeInfo info = findAttribute(mbeanInfo, attributeName);
 		if (info == null) {
 			appendAssignError(writer, pathPrefix, textOnly, "Cannot find attribute: " + makeHtmlSafe(attributeName));
 			return;
@@ -446,13 +561,7 @@ public class JmxWebHandler {
 			return;
 		}
 
-		MBeanOperationInfo operation = null;
-		for (MBeanOperationInfo info : mbeanInfo.getOperations()) {
-			if (info.getName().equals(operationName)) {
-				operation = info;
-				break;
-			}
-		}
+		MBeanOperationInfo operation = findOperation(mbeanInfo, operationName);
 		if (operation == null) {
 			appendLine(writer, textOnly, "Cannot find operation in " + makeHtmlSafe(objectName.toString()));
 			appendBackToBean(writer, pathPrefix, pathPrefix, textOnly, objectName);
@@ -494,6 +603,293 @@ public class JmxWebHandler {
 		appendBackToBean(writer, pathPrefix, pathPrefix, textOnly, objectName);
 	}
 
+	private void processJsonRequest(JmxWebPublisher webPublisher, JsonWriter json, String pathInfo)
+			throws IOException {
+		int slashIndex = pathInfo.indexOf('/');
+		if (slashIndex < 0) {
+			if (pathInfo.equals(COMMAND_SHOW_ALL_BEANS)) {
+				jsonListBeans(webPublisher, json, null);
+			} else {
+				jsonListDomains(json);
+			}
+			return;
+		}
+		String command = pathInfo.substring(0, slashIndex);
+		pathInfo = pathInfo.substring(slashIndex + 1);
+		if (command.equals(COMMAND_LIST_BEANS_IN_DOMAIN)) {
+			jsonListBeans(webPublisher, json, pathInfo);
+		} else if (command.equals(COMMAND_SHOW_BEAN)) {
+			jsonShowBean(webPublisher, json, pathInfo);
+		} else if (command.equals(COMMAND_ASSIGN_ATTRIBUTE)) {
+			jsonAssignAttribute(webPublisher, json, pathInfo);
+		} else if (command.equals(COMMAND_INVOKE_OPERATION)) {
+			jsonInvokeOperation(webPublisher, json, pathInfo);
+		} else {
+			jsonError(webPublisher, json, 404 /* not found */, "Unknown command: " + command);
+		}
+	}
+
+	private void jsonListDomains(JsonWriter json) throws IOException {
+		json.beginObject();
+		json.name("domains").beginArray();
+		for (String domainName : getSortedDomainNames()) {
+			json.value(domainName);
+		}
+		json.endArray();
+		json.endObject();
+	}
+
+	private void jsonListBeans(JmxWebPublisher webPublisher, JsonWriter json, String domainName)
+			throws IOException {
+		BeanListing listing;
+		try {
+			listing = BeanListing.fromRequest(webPublisher, domainName);
+		} catch (IllegalArgumentException iae) {
+			jsonError(webPublisher, json, 400 /* bad request */, iae.getMessage());
+			return;
+		}
+		Page page = listing.getPage(getBeanIndex());
+		json.beginObject();
+		json.field("domain", domainName);
+		json.name("beans").beginArray();
+		for (IndexEntry entry : page.getEntries()) {
+			json.beginObject();
+			json.field("name", entry.getObjectName().toString());
+			json.field("description", entry.getDescription());
+			json.endObject();
+		}
+		json.endArray();
+		json.field("next", page.getNextCursor());
+		json.endObject();
+	}
+
+	private void jsonShowBean(JmxWebPublisher webPublisher, JsonWriter json, String objectNameString)
+			throws IOException {
+		ObjectName objectName;
+		try {
+			objectName = new ObjectName(objectNameString);
+		} catch (MalformedObjectNameException mone) {
+			jsonError(webPublisher, json, 400 /* bad request */, "Invalid object name: " + objectNameString);
+			return;
+		}
+		MBeanInfo mbeanInfo;
+		try {
+			mbeanInfo = mbeanServer.getMBeanInfo(objectName);
+		} catch (Exception e) {
+			jsonError(webPublisher, json, 404 /* not found */, "Investigating object threw exception: " + e);
+			return;
+		}
+		json.beginObject();
+		json.field("name", objectName.toString());
+		json.field("className", mbeanInfo.getClassName());
+		json.field("description", mbeanInfo.getDescription());
+
+		Map<String, Object> valueMap = getAttributeValues(objectName, mbeanInfo);
+		json.name("attributes").beginArray();
+		for (MBeanAttributeInfo attribute : mbeanInfo.getAttributes()) {
+			String name = attribute.getName();
+			json.beginObject();
+			json.field("name", name);
+			json.field("type", attribute.getType());
+			json.field("description", attribute.getDescription());
+			json.name("readable").value(attribute.isReadable());
+			json.name("writable").value(attribute.isWritable());
+			if (attribute.isReadable()) {
+				if (valueMap.containsKey(name)) {
+					json.name("value").value(valueMap.get(name));
+				} else {
+					json.field("error", "error getting value");
+				}
+			}
+			json.endObject();
+		}
+		json.endArray();
+
+		json.name("operations").beginArray();
+		for (MBeanOperationInfo operation : mbeanInfo.getOperations()) {
+			if (isGetSet(operation.getName())) {
+				continue;
+			}
+			json.beginObject();
+			json.field("name", operation.getName());
+			json.field("returnType", operation.getReturnType());
+			json.field("description", operation.getDescription());
+			json.name("parameters").beginArray();
+			for (MBeanParameterInfo param : operation.getSignature()) {
+				json.beginObject();
+				json.field("name", param.getName());
+				json.field("type", param.getType());
+				json.field("description", param.getDescription());
+				json.endObject();
+			}
+			json.endArray();
+			json.endObject();
+		}
+		json.endArray();
+		json.endObject();
+	}
+
+	private void jsonAssignAttribute(JmxWebPublisher webPublisher, JsonWriter json, String pathInfo)
+			throws IOException {
+		String[] parts = pathInfo.split("/");
+		if (parts.length != 2) {
+			jsonError(webPublisher, json, 400 /* bad request */, "Invalid number of parameters to assign command");
+			return;
+		}
+		String param = webPublisher.getRequestQueryParameter(PARAM_ATTRIBUTE_VALUE);
+		if (param == null) {
+			jsonError(webPublisher, json, 400 /* bad request */, "No value parameter specified.");
+			return;
+		}
+		ObjectName objectName;
+		try {
+			objectName = new ObjectName(parts[0]);
+		} catch (Exception e) {
+			jsonError(webPublisher, json, 400 /* bad request */, "Invalid object name: " + parts[0] + ": " + e);
+			return;
+		}
+		String attributeName = parts[1];
+		MBeanAttributeInfo info;
+		try {
+			info = findAttribute(mbeanServer.getMBeanInfo(objectName), attributeName);
+		} catch (Exception e) {
+			jsonError(webPublisher, json, 404 /* not found */,
+					"Could not get mbean info for: " + objectName + ": " + e);
+			return;
+		}
+		if (info == null) {
+			jsonError(webPublisher, json, 404 /* not found */, "Cannot find attribute: " + attributeName);
+			return;
+		}
+		Object value;
+		try {
+			value = ClientUtils.valueToParam(param, info.getType());
+			mbeanServer.setAttribute(objectName, new Attribute(attributeName, value));
+		} catch (Exception e) {
+			jsonError(webPublisher, json, 500 /* server error */,
+					"Could not set attribute: " + attributeName + ": " + e);
+			return;
+		}
+		json.beginObject();
+		json.field("bean", objectName.toString());
+		json.field("attribute", attributeName);
+		json.name("value").value(value);
+		json.endObject();
+	}
+
+	private void jsonInvokeOperation(JmxWebPublisher webPublisher, JsonWriter json, String pathInfo)
+			throws IOException {
+		String[] parts = pathInfo.split("/");
+		if (parts.length != 2) {
+			jsonError(webPublisher, json, 400 /* bad request */, "Invalid number of parameters to invoke command");
+			return;
+		}
+		ObjectName objectName;
+		try {
+			objectName = new ObjectName(parts[0]);
+		} catch (MalformedObjectNameException mone) {
+			jsonError(webPublisher, json, 400 /* bad request */, "Invalid object name: " + parts[0]);
+			return;
+		}
+		String operationName = parts[1];
+		MBeanOperationInfo operation;
+		try {
+			operation = findOperation(mbeanServer.getMBeanInfo(objectName), operationName);
+		} catch (Exception e) {
+			jsonError(webPublisher, json, 404 /* not found */,
+					"Could not get mbean info for: " + objectName + ": " + e);
+			return;
+		}
+		if (operation == null) {
+			jsonError(webPublisher, json, 404 /* not found */, "Cannot find operation in " + objectName);
+			return;
+		}
+		MBeanParameterInfo[] paramInfos = operation.getSignature();
+		Object[] params = new Object[paramInfos.length];
+		String[] paramTypes = new String[paramInfos.length];
+		for (int i = 0; i < paramInfos.length; i++) {
+			paramTypes[i] = paramInfos[i].getType();
+			try {
+				params[i] = ClientUtils.valueToParam(webPublisher.getRequestQueryParameter(PARAM_OPERATION_PREFIX + i),
+						paramTypes[i]);
+			} catch (IllegalArgumentException iae) {
+				jsonError(webPublisher, json, 400 /* bad request */,
+						"Converting parameter " + paramInfos[i].getName() + " threw exception: " + iae);
+				return;
+			}
+		}
+		Object result;
+		try {
+			result = mbeanServer.invoke(objectName, operationName, params, paramTypes);
+		} catch (Exception e) {
+			jsonError(webPublisher, json, 500 /* server error */,
+					"Invoking operation " + operationName + " threw exception: " + e);
+			return;
+		}
+		json.beginObject();
+		json.field("bean", objectName.toString());
+		json.field("operation", operationName);
+		json.name("result").value(result);
+		json.endObject();
+	}
+
+	private void jsonError(JmxWebPublisher webPublisher, JsonWriter json, int httpStatusCode, String message)
+			throws IOException {
+		webPublisher.setResponseStatusCode(httpStatusCode);
+		json.beginObject();
+		json.field("error", message);
+		json.endObject();
+	}
+
+	private List<String> getSortedDomainNames() {
+		List<String> domainNames = new ArrayList<String>();
+		for (String domainName : mbeanServer.getDomains()) {
+			domainNames.add(domainName);
+		}
+		Collections.sort(domainNames);
+		return domainNames;
+	}
+
+	/**
+	 * Return the index of the beans which is created and loaded the first time it is needed.
+	 */
+	private BeanIndex getBeanIndex() throws IOException {
+		BeanIndex index = beanIndex;
+		if (index != null) {
+			return index;
+		}
+		synchronized (this) {
+			if (beanIndex == null) {
+				index = new BeanIndex(mbeanServer);
+				try {
+					index.start();
+				} catch (Exception e) {
+					throw new IOException("Could not load the bean index", e);
+				}
+				beanIndex = index;
+			}
+			return beanIndex;
+		}
+	}
+
+	private MBeanAttributeInfo findAttribute(MBeanInfo mbeanInfo, String attributeName) {
+		for (MBeanAttributeInfo attribute : mbeanInfo.getAttributes()) {
+			if (attribute.getName().equals(attributeName)) {
+				return attribute;
+			}
+		}
+		return null;
+	}
+
+	private MBeanOperationInfo findOperation(MBeanInfo mbeanInfo, String operationName) {
+		for (MBeanOperationInfo operation : mbeanInfo.getOperations()) {
+			if (operation.getName().equals(operationName)) {
+				return operation;
+			}
+		}
+		return null;
+	}
+
 	private void displayClassInfo(Writer writer, MBeanInfo mbeanInfo) throws IOException {
 		writer.append("ClassName: " + mbeanInfo.getClassName() + "<br />\n");
 		if (mbeanInfo.getDescription() != null) {
@@ -574,6 +970,10 @@ public class JmxWebHandler {
 		}
 	}
 
+	private String nullToEmpty(String value) {
+		return (value == null ? "" : value);
+	}
+
 	private boolean isGetSet(String name) {
 		return (name.startsWith("is") || name.startsWith("get") || name.startsWith("set"));
 	}
@@ -608,36 +1008,4 @@ public class JmxWebHandler {
 		}
 		return sb.toString();
 	}
-
-	/**
-	 * Limits the objects to a specific domain name.
-	 */
-	private static class DomainQueryExp implements QueryExp {
-		private static final long serialVersionUID = 6041820913324186392L;
-		private final String domain;
-
-		public DomainQueryExp(String domain) {
-			this.domain = domain;
-		}
-
-		@Override
-		public void setMBeanServer(MBeanServer s) {
-			// no-op
-		}
-
-		@Override
-		public boolean apply(ObjectName name) {
-			return domain.equals(name.getDomain());
-		}
-	}
-
-	/**
-	 * Compares two ObjectNames.
-	 */
-	private static class ObjectNameComparator implements Comparator<ObjectName> {
-		@Override
-		public int compare(ObjectName o1, ObjectName o2) {
-			return o1.toString().compareTo(o2.toString());
-		}
-	}
 }
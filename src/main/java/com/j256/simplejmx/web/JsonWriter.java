@@ -0,0 +1,228 @@
+package com.j256.simplejmx.web;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeSet;
+
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+
+/**
+ * Writes JSON directly to a writer without building intermediate strings. JMX values are written with a stable
+ * structure: numbers and booleans as JSON numbers and booleans, arrays and collections as JSON arrays,
+ * {@link CompositeData} and maps as objects, {@link TabularData} as an array of its row objects, and everything else as
+ * strings.
+ *
+ * @author graywatson
+ */
+class JsonWriter {
+
+	private static final int MAX_DEPTH = 64;
+
+	private final Writer writer;
+	/** whether the object or array at each depth needs a comma before the next element */
+	private final boolean[] needsComma = new boolean[MAX_DEPTH];
+	private int depth;
+	/** set after a name is written so the value doesn't write a comma */
+	private boolean afterName;
+
+	public JsonWriter(Writer writer) {
+		this.writer = writer;
+	}
+
+	public JsonWriter beginObject() throws IOException {
+		return begin('{');
+	}
+
+	public JsonWriter endObject() throws IOException {
+		return end('}');
+	}
+
+	public JsonWriter beginArray() throws IOException {
+		return begin('[');
+	}
+
+	public JsonWriter endArray() throws IOException {
+		return end(']');
+	}
+
+	/**
+	 * Write the name of the next field of the object.
+	 */
+	public JsonWriter name(String name) throws IOException {
+		beforeValue();
+		appendString(writer, name);
+		writer.append(':');
+		afterName = true;
+		return this;
+	}
+
+	public JsonWriter value(String value) throws IOException {
+		beforeValue();
+		appendString(writer, value);
+		return this;
+	}
+
+	public JsonWriter value(boolean value) throws IOException {
+		beforeValue();
+		writer.append(value ? "true" : "false");
+		return this;
+	}
+
+	/**
+	 * Write a JMX value using its type to pick the JSON structure.
+	 */
+	public JsonWriter value(Object value) throws IOException {
+		if (depth >= MAX_DEPTH - 1) {
+			// self-referencing values
+			return value(String.valueOf(value));
+		}
+		if (value == null) {
+			beforeValue();
+			writer.append("null");
+		} else if (value instanceof String) {
+			value((String) value);
+		} else if (value instanceof Boolean) {
+			value(((Boolean) value).booleanValue());
+		} else if (value instanceof Number) {
+			appendNumber((Number) value);
+		} else if (value.getClass().isArray()) {
+			beginArray();
+			int length = Array.getLength(value);
+			for (int i = 0; i < length; i++) {
+				value(Array.get(value, i));
+			}
+			endArray();
+		} else if (value instanceof CompositeData) {
+			CompositeData compositeData = (CompositeData) value;
+			beginObject();
+			// sorted so the fields are in a consistent order
+			for (String key : new TreeSet<String>(compositeData.getCompositeType().keySet())) {
+				name(key).value(compositeData.get(key));
+			}
+			endObject();
+		} else if (value instanceof TabularData) {
+			beginArray();
+			for (Object row : ((TabularData) value).values()) {
+				value(row);
+			}
+			endArray();
+		} else if (value instanceof Collection) {
+			beginArray();
+			for (Object element : (Collection<?>) value) {
+				value(element);
+			}
+			endArray();
+		} else if (value instanceof Map) {
+			beginObject();
+			for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+				name(String.valueOf(entry.getKey())).value(entry.getValue());
+			}
+			endObject();
+		} else {
+			value(value.toString());
+		}
+		return this;
+	}
+
+	/**
+	 * Write a name and string value field.
+	 */
+	public JsonWriter field(String name, String value) throws IOException {
+		return name(name).value(value);
+	}
+
+	/**
+	 * Append the value as a quoted and escaped JSON string or null.
+	 */
+	public static void appendString(Writer writer, String value) throws IOException {
+		if (value == null) {
+			writer.append("null");
+			return;
+		}
+		writer.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char ch = value.charAt(i);
+			switch (ch) {
+				case '"':
+					writer.append("\\\"");
+					break;
+				case '\\':
+					writer.append("\\\\");
+					break;
+				case '\n':
+					writer.append("\\n");
+					break;
+				case '\r':
+					writer.append("\\r");
+					break;
+				case '\t':
+					writer.append("\\t");
+					break;
+				default:
+					// the line and paragraph separators break javascript
+					if (ch < ' ' || ch == '\u2028' || ch == '\u2029') {
+						writer.append("\\u");
+						String hex = Integer.toHexString(ch);
+						for (int j = hex.length(); j < 4; j++) {
+							writer.append('0');
+						}
+						writer.append(hex);
+					} else {
+						writer.append(ch);
+					}
+					break;
+			}
+		}
+		writer.append('"');
+	}
+
+	private void appendNumber(Number number) throws IOException {
+		if (number instanceof Double || number instanceof Float) {
+			double doubleValue = number.doubleValue();
+			if (Double.isNaN(doubleValue) || Double.isInfinite(doubleValue)) {
+				// not allowed in JSON
+				value(number.toString());
+				return;
+			}
+		} else if (!(number instanceof Integer || number instanceof Long || number instanceof Short
+				|| number instanceof Byte || number instanceof BigInteger || number instanceof BigDecimal)) {
+			// atomic and other numbers write themselves as numbers but we don't trust the others
+			try {
+				new BigDecimal(number.toString());
+			} catch (NumberFormatException nfe) {
+				value(number.toString());
+				return;
+			}
+		}
+		beforeValue();
+		writer.append(number.toString());
+	}
+
+	private JsonWriter begin(char ch) throws IOException {
+		beforeValue();
+		writer.append(ch);
+		needsComma[++depth] = false;
+		return this;
+	}
+
+	private JsonWriter end(char ch) throws IOException {
+		writer.append(ch);
+		depth--;
+		return this;
+	}
+
+	private void beforeValue() throws IOException {
+		if (afterName) {
+			afterName = false;
+		} else if (needsComma[depth]) {
+			writer.append(',');
+		}
+		needsComma[depth] = true;
+	}
+}
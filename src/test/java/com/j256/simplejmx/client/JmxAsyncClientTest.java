@@ -0,0 +1,152 @@
+package com.j256.simplejmx.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.management.Attribute;
+import javax.management.AttributeNotFoundException;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+import com.j256.simplejmx.common.JmxAttributeField;
+import com.j256.simplejmx.common.JmxOperation;
+import com.j256.simplejmx.common.JmxResource;
+import com.j256.simplejmx.common.ObjectNameUtil;
+import com.j256.simplejmx.server.JmxServer;
+
+public class JmxAsyncClientTest {
+
+	private static final String JMX_DOMAIN = "async.com";
+
+	@Test(timeout = 20000)
+	public void testCalls() throws Exception {
+		int port = getServerPort();
+		JmxServer server = new JmxServer(InetAddress.getByName("localhost"), port);
+		server.start();
+		AsyncObject asyncObject = new AsyncObject();
+		server.register(asyncObject);
+		ObjectName objectName = ObjectNameUtil.makeObjectName(JMX_DOMAIN, AsyncObject.class.getSimpleName());
+		ExecutorService executor = JmxAsyncClient.newExecutor(2);
+		JmxClient client = new JmxClient("localhost", port);
+		try {
+			JmxAsyncClient asyncClient = new JmxAsyncClient(client, executor);
+			assertEquals(1, asyncClient.getAttribute(objectName, "value").get());
+			assertNull(asyncClient.setAttribute(objectName, "value", 2).get());
+			List<Attribute> attributes = asyncClient.getAttributes(objectName, new String[] { "value" }).get();
+			assertEquals(2, attributes.get(0).getValue());
+			assertEquals(3, asyncClient.invokeOperation(objectName, "add", 1).get());
+			assertTrue(asyncClient.getBeanNames().get().contains(objectName));
+
+			try {
+				asyncClient.getAttribute(objectName, "unknown").get();
+				fail("should have thrown");
+			} catch (ExecutionException ee) {
+				assertTrue(ee.getCause() instanceof AttributeNotFoundException);
+			}
+		} finally {
+			client.close();
+			executor.shutdown();
+			server.unregister(asyncObject);
+			server.stop();
+		}
+	}
+
+	@Test(timeout = 20000)
+	public void testTimeoutAndCancel() throws Exception {
+		int port = getServerPort();
+		JmxServer server = new JmxServer(InetAddress.getByName("localhost"), port);
+		server.start();
+		AsyncObject asyncObject = new AsyncObject();
+		server.register(asyncObject);
+		ObjectName objectName = ObjectNameUtil.makeObjectName(JMX_DOMAIN, AsyncObject.class.getSimpleName());
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		JmxClient client = new JmxClient("localhost", port);
+		try {
+			JmxAsyncClient asyncClient = new JmxAsyncClient(client, executor);
+			CompletableFuture<Object> future = asyncClient.withTimeout(100).invokeOperation(objectName, "block");
+			try {
+				future.get();
+				fail("should have thrown");
+			} catch (ExecutionException ee) {
+				assertTrue(ee.getCause() instanceof TimeoutException);
+			}
+
+			// still blocked so this waits in the queue of the single thread
+			CompletableFuture<Object> waiting = asyncClient.invokeOperation(objectName, "add", 1);
+			CompletableFuture<Object> cancelled = asyncClient.invokeOperation(objectName, "add", 10);
+			cancelled.cancel(true);
+			try {
+				cancelled.get();
+				fail("should have thrown");
+			} catch (CancellationException ce) {
+				// expected
+			}
+			asyncObject.latch.countDown();
+			assertEquals(2, waiting.get());
+			// the cancelled call is never made
+			assertEquals(2, asyncClient.withTimeout(10000).getAttribute(objectName, "value").get());
+
+			executor.shutdown();
+			executor.awaitTermination(1, TimeUnit.SECONDS);
+			try {
+				asyncClient.getBeanNames().get();
+				fail("should have thrown");
+			} catch (ExecutionException ee) {
+				assertTrue(ee.getCause() instanceof RejectedExecutionException);
+			}
+		} finally {
+			asyncObject.latch.countDown();
+			client.close();
+			executor.shutdown();
+			server.unregister(asyncObject);
+			server.stop();
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNullClient() throws Exception {
+		new JmxAsyncClient(null, null);
+	}
+
+	private static int getServerPort() throws IOException {
+		try (ServerSocket socket = new ServerSocket(0)) {
+			socket.setReuseAddress(true);
+			return socket.getLocalPort();
+		}
+	}
+
+	@JmxResource(domainName = JMX_DOMAIN)
+	protected static class AsyncObject {
+		@JmxAttributeField(isWritable = true)
+		volatile int value = 1;
+		final CountDownLatch latch = new CountDownLatch(1);
+
+		@JmxOperation
+		public int add(int amount) {
+			value += amount;
+			return value;
+		}
+
+		@JmxOperation
+		public void block() throws InterruptedException {
+			latch.await();
+		}
+	}
+}
@@ -0,0 +1,282 @@
+package com.j256.simplejmx.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+
+import javax.management.Attribute;
+import javax.management.AttributeNotFoundException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+import com.j256.simplejmx.common.JmxAttributeField;
+import com.j256.simplejmx.common.JmxFolderName;
+import com.j256.simplejmx.common.JmxOperation;
+import com.j256.simplejmx.common.JmxResource;
+import com.j256.simplejmx.common.JmxSelfNaming;
+import com.j256.simplejmx.common.ObjectNameUtil;
+import com.j256.simplejmx.server.JmxServer;
+
+public class JmxClientPoolTest {
+
+	private static final String JMX_DOMAIN = "pool.com";
+
+	@Test(timeout = 20000)
+	public void testPool() throws Exception {
+		int port = getServerPort();
+		JmxServer server = startServer(port);
+		PooledObject pooled = new PooledObject();
+		server.register(pooled);
+		ObjectName objectName = ObjectNameUtil.makeObjectName(JMX_DOMAIN, PooledObject.class.getSimpleName());
+
+		JmxClientPool pool = new JmxClientPool("localhost", port, 2);
+		try {
+			assertEquals(0, pool.getNumConnected());
+			assertEquals(1, pool.getAttribute(objectName, "value"));
+			assertEquals(1, pool.getNumConnected());
+			// the second call goes to the other connection
+			pool.setAttribute(objectName, "value", 2);
+			assertEquals(2, pool.getNumConnected());
+			List<Attribute> attributes = pool.getAttributes(objectName, new String[] { "value" });
+			assertEquals(2, attributes.get(0).getValue());
+			assertEquals(3, pool.invokeOperation(objectName, "increment"));
+			assertTrue(pool.getBeanNames().contains(objectName));
+
+			// not a connection problem so the connections stay
+			try {
+				pool.getAttribute(objectName, "unknown");
+				fail("should have thrown");
+			} catch (AttributeNotFoundException anfe) {
+				// expected
+			}
+			assertEquals(2, pool.getNumConnected());
+		} finally {
+			pool.close();
+			server.unregister(pooled);
+			server.stop();
+		}
+	}
+
+	@Test(timeout = 20000)
+	public void testConcurrentFirstCalls() throws Exception {
+		int port = getServerPort();
+		JmxServer server = startServer(port);
+		PooledObject pooled = new PooledObject();
+		server.register(pooled);
+		final ObjectName objectName = ObjectNameUtil.makeObjectName(JMX_DOMAIN, PooledObject.class.getSimpleName());
+		final JmxClientPool pool = new JmxClientPool("localhost", port, 1);
+		int numThreads = 4;
+		ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+		final CountDownLatch startLatch = new CountDownLatch(1);
+		try {
+			List<Future<Object>> futures = new ArrayList<Future<Object>>();
+			for (int i = 0; i < numThreads; i++) {
+				futures.add(executor.submit(new Callable<Object>() {
+					@Override
+					public Object call() throws Exception {
+						startLatch.await();
+						return pool.getAttribute(objectName, "value");
+					}
+				}));
+			}
+			startLatch.countDown();
+			// the callers that find the connection being made wait for it instead of failing
+			for (Future<Object> future : futures) {
+				assertEquals(1, future.get());
+			}
+			assertEquals(1, pool.getNumConnected());
+		} finally {
+			executor.shutdown();
+			pool.close();
+			server.unregister(pooled);
+			server.stop();
+		}
+	}
+
+	@Test(timeout = 20000)
+	public void testReconnect() throws Exception {
+		int port = getServerPort();
+		JmxServer server = startServer(port);
+		PooledObject pooled = new PooledObject();
+		server.register(pooled);
+		ObjectName objectName = ObjectNameUtil.makeObjectName(JMX_DOMAIN, PooledObject.class.getSimpleName());
+
+		JmxClientPool pool = new JmxClientPool("localhost", port, 2);
+		pool.setMinBackoffMillis(10);
+		pool.setMaxBackoffMillis(100);
+		try {
+			assertEquals(1, pool.getAttribute(objectName, "value"));
+			server.unregister(pooled);
+			server.stop();
+
+			try {
+				pool.getAttribute(objectName, "value");
+				fail("should have thrown");
+			} catch (JMException e) {
+				// expected
+			}
+			assertEquals(0, pool.getNumConnected());
+			try {
+				// right away so all of the connections are waiting to reconnect
+				pool.getAttribute(objectName, "value");
+				fail("should have thrown");
+			} catch (JMException e) {
+				// expected
+			}
+
+			server = startServer(port);
+			server.register(pooled);
+			while (true) {
+				try {
+					assertEquals(1, pool.getAttribute(objectName, "value"));
+					break;
+				} catch (JMException e) {
+					// still waiting to reconnect
+					Thread.sleep(10);
+				}
+			}
+			assertTrue(pool.getNumConnected() > 0);
+		} finally {
+			pool.close();
+			server.unregister(pooled);
+			server.stop();
+		}
+	}
+
+	@Test(timeout = 20000)
+	public void testHealthChecks() throws Exception {
+		int port = getServerPort();
+		JmxServer server = startServer(port);
+		ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+		JmxClientPool pool = new JmxClientPool(JmxClient.generalJmxUrlForHostNamePort("localhost", port), 3);
+		try {
+			pool.startHealthChecks(executor, 10);
+			// the health checks make the connections
+			while (pool.getNumConnected() < 3) {
+				Thread.sleep(10);
+			}
+			server.stop();
+			while (pool.getNumConnected() > 0) {
+				Thread.sleep(10);
+			}
+		} finally {
+			pool.close();
+			executor.shutdown();
+			server.stop();
+		}
+		try {
+			pool.getBeanNames();
+			fail("should have thrown");
+		} catch (IllegalStateException ise) {
+			// expected
+		}
+	}
+
+	@Test(timeout = 20000)
+	public void testGetBeansAttributes() throws Exception {
+		int port = getServerPort();
+		JmxServer server = startServer(port);
+		List<NamedObject> namedObjects = new ArrayList<NamedObject>();
+		for (int i = 0; i < 10; i++) {
+			NamedObject namedObject = new NamedObject(i);
+			server.register(namedObject);
+			namedObjects.add(namedObject);
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		JmxClientPool pool = new JmxClientPool("localhost", port, 3);
+		try {
+			ObjectName pattern = ObjectName.getInstance(JMX_DOMAIN + ":type=named,*");
+			Map<ObjectName, List<Attribute>> results =
+					pool.getBeansAttributes(pattern, new String[] { "number" }, executor);
+			assertEquals(namedObjects.size(), results.size());
+			for (Map.Entry<ObjectName, List<Attribute>> entry : results.entrySet()) {
+				assertEquals(entry.getKey().getKeyProperty("name"),
+						entry.getValue().get(0).getValue().toString());
+			}
+			assertEquals(3, pool.getNumConnected());
+
+			// the order of the argument is kept
+			List<ObjectName> names = new ArrayList<ObjectName>(results.keySet());
+			Collections.reverse(names);
+			results = pool.getBeansAttributes(names, null, executor);
+			assertEquals(names, new ArrayList<ObjectName>(results.keySet()));
+		} finally {
+			pool.close();
+			executor.shutdown();
+			for (NamedObject namedObject : namedObjects) {
+				server.unregister(namedObject);
+			}
+			server.stop();
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNoConnections() {
+		new JmxClientPool("localhost", 1000, 0).close();
+	}
+
+	private JmxServer startServer(int port) throws JMException, IOException {
+		JmxServer server = new JmxServer(InetAddress.getByName("localhost"), port);
+		server.start();
+		return server;
+	}
+
+	private static int getServerPort() throws IOException {
+		try (ServerSocket socket = new ServerSocket(0)) {
+			socket.setReuseAddress(true);
+			return socket.getLocalPort();
+		}
+	}
+
+	@JmxResource(domainName = JMX_DOMAIN)
+	protected static class PooledObject {
+		@JmxAttributeField(isWritable = true)
+		int value = 1;
+
+		@JmxOperation
+		public int increment() {
+			return ++value;
+		}
+	}
+
+	@JmxResource(domainName = JMX_DOMAIN)
+	protected static class NamedObject implements JmxSelfNaming {
+		@JmxAttributeField
+		int number;
+
+		public NamedObject(int number) {
+			this.number = number;
+		}
+
+		@Override
+		public String getJmxDomainName() {
+			return null;
+		}
+
+		@Override
+		public String getJmxBeanName() {
+			return Integer.toString(number);
+		}
+
+		@Override
+		public JmxFolderName[] getJmxFolderNames() {
+			return new JmxFolderName[] { new JmxFolderName("type", "named") };
+		}
+	}
+}
@@ -9,11 +9,13 @@ import static org.junit.Assert.fail;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.ServerSocket;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import javax.management.Attribute;
@@ -29,6 +31,7 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 
 import com.j256.simplejmx.common.IoUtils;
+import com.j256.simplejmx.common.JmxAttributeField;
 import com.j256.simplejmx.common.JmxAttributeMethod;
 import com.j256.simplejmx.common.JmxOperation;
 import com.j256.simplejmx.common.JmxResource;
@@ -564,6 +567,64 @@ public class JmxClientTest {
 				Collections.<String, Object> emptyMap()).close();
 	}
 
+	@Test
+	public void testGetBeansAttributes() throws Exception {
+		testObject.x = 11;
+		ObjectName pattern = ObjectName.getInstance(JMX_DOMAIN + ":name=JmxClientTest*");
+		Map<ObjectName, List<Attribute>> results = client.getBeansAttributes(pattern, new String[] { "x" });
+		assertEquals(2, results.size());
+		assertEquals(11, results.get(objectName).get(0).getValue());
+		assertTrue(results.containsKey(anotherObjectName));
+
+		ObjectName unknownName = ObjectNameUtil.makeObjectName(JMX_DOMAIN, "unknown");
+		results = client.getBeansAttributes(Arrays.asList(anotherObjectName, unknownName, objectName), null);
+		assertEquals(Arrays.asList(anotherObjectName, objectName), new ArrayList<ObjectName>(results.keySet()));
+		assertEquals(2, results.get(objectName).size());
+		assertEquals(1, results.get(anotherObjectName).size());
+		assertEquals("y", results.get(anotherObjectName).get(0).getName());
+	}
+
+	@Test(timeout = 10000)
+	public void testMbeanInfoCache() throws Exception {
+		@SuppressWarnings("resource")
+		JmxClient client = new JmxClient("localhost", server.getServerPort());
+		CachedIntObject intObj = new CachedIntObject();
+		CachedStringObject stringObj = new CachedStringObject();
+		ObjectName name = ObjectNameUtil.makeObjectName(JMX_DOMAIN, "cached");
+		try {
+			client.setMbeanInfoCacheMillis(-1);
+			server.register(intObj);
+			assertEquals("int 1", client.invokeOperation(name, "describe", "1"));
+			assertEquals("int 2", client.invokeOperation(name, "describe", 2));
+			client.setAttribute(name, "value", "10");
+			assertEquals(10, client.getAttribute(name, "value"));
+			assertEquals(1, client.getOperationsInfo(name).length);
+
+			// replace it with a bean with a different signature which should be seen once unregistration is noticed
+			server.unregister(intObj);
+			server.register(stringObj);
+			while (true) {
+				try {
+					if ("string 1".equals(client.invokeOperation(name, "describe", "1"))) {
+						break;
+					}
+				} catch (Exception e) {
+					// still using the old signature
+				}
+				Thread.sleep(10);
+			}
+			client.setAttribute(name, "value", "foo");
+			assertEquals("foo", client.getAttribute(name, "value"));
+
+			client.setMbeanInfoCacheMillis(0);
+			assertEquals("string 2", client.invokeOperation(name, "describe", "2"));
+		} finally {
+			server.unregister(intObj);
+			server.unregister(stringObj);
+			client.closeThrow();
+		}
+	}
+
 	/* ======================================================================= */
 
 	private static int getServerPort() throws IOException {
@@ -686,4 +747,26 @@ public class JmxClientTest {
 			return y1 * y2;
 		}
 	}
+
+	@JmxResource(domainName = JMX_DOMAIN, beanName = "cached")
+	protected static class CachedIntObject {
+		@JmxAttributeField(isWritable = true)
+		int value;
+
+		@JmxOperation
+		public String describe(int x) {
+			return "int " + x;
+		}
+	}
+
+	@JmxResource(domainName = JMX_DOMAIN, beanName = "cached")
+	protected static class CachedStringObject {
+		@JmxAttributeField(isWritable = true)
+		String value;
+
+		@JmxOperation
+		public String describe(String x) {
+			return "string " + x;
+		}
+	}
 }
@@ -34,5 +34,12 @@ public class JmxAttributeFieldInfoTest {
 		String desc = "fjewpofjewf";
 		info.setDescription(desc);
 		assertEquals(desc, info.getDescription());
+		assertEquals(0, info.getCacheMillis());
+		long cacheMillis = 1234;
+		info.setCacheMillis(cacheMillis);
+		assertEquals(cacheMillis, info.getCacheMillis());
+		assertFalse(info.isNotifyOnChange());
+		info.setNotifyOnChange(true);
+		assertTrue(info.isNotifyOnChange());
 	}
 }
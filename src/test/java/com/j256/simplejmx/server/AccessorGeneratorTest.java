@@ -0,0 +1,278 @@
+package com.j256.simplejmx.server;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.util.List;
+
+import javax.management.Attribute;
+import javax.management.ReflectionException;
+
+import org.junit.Test;
+
+import com.j256.simplejmx.common.JmxAttributeField;
+import com.j256.simplejmx.common.JmxAttributeMethod;
+import com.j256.simplejmx.common.JmxOperation;
+import com.j256.simplejmx.common.JmxResource;
+
+public class AccessorGeneratorTest {
+
+	@Test
+	public void testGenerated() throws Exception {
+		Method getLong = PublicObject.class.getMethod("getLong");
+		Method setLong = PublicObject.class.getMethod("setLong", long.class);
+		Field field = PublicObject.class.getField("field");
+		Method add = PublicObject.class.getMethod("add", int.class, double.class, String.class);
+		Method reset = PublicObject.class.getMethod("reset");
+		MbeanAccessor accessor = AccessorGenerator.generateAccessor(PublicObject.class,
+				new ReflectionAccessor(new Member[] { getLong, field }, new Member[] { setLong, field },
+						new Method[] { add, reset }));
+		assertFalse(accessor instanceof ReflectionAccessor);
+
+		PublicObject obj = new PublicObject();
+		obj.longValue = 1234567890123L;
+		obj.field = "hello";
+		assertEquals(obj.longValue, accessor.getAttribute(obj, 0));
+		assertEquals(obj.field, accessor.getAttribute(obj, 1));
+		accessor.setAttribute(obj, 0, 42L);
+		assertEquals(42L, obj.longValue);
+		accessor.setAttribute(obj, 1, "there");
+		assertEquals("there", obj.field);
+		assertEquals("3:2.5:x", accessor.invokeOperation(obj, 0, new Object[] { 3, 2.5D, "x" }));
+		assertNull(accessor.invokeOperation(obj, 1, null));
+		assertEquals(0, obj.longValue);
+	}
+
+	@Test
+	public void testNonPublicClassFallsBack() throws Exception {
+		Method getFoo = NonPublicObject.class.getMethod("getFoo");
+		ReflectionAccessor fallback =
+				new ReflectionAccessor(new Member[] { getFoo }, new Member[0], new Method[0]);
+		assertSame(fallback, AccessorGenerator.generateAccessor(NonPublicObject.class, fallback));
+	}
+
+	@Test
+	public void testPrivateMembersUseFallback() throws Exception {
+		Field privateField = MixedObject.class.getDeclaredField("privateField");
+		privateField.setAccessible(true);
+		Method getValue = MixedObject.class.getMethod("getValue");
+		MbeanAccessor accessor = AccessorGenerator.generateAccessor(MixedObject.class,
+				new ReflectionAccessor(new Member[] { privateField, getValue }, new Member[] { privateField },
+						new Method[0]));
+		assertFalse(accessor instanceof ReflectionAccessor);
+		MixedObject obj = new MixedObject();
+		assertEquals(MixedObject.PRIVATE_VALUE, accessor.getAttribute(obj, 0));
+		assertEquals(MixedObject.VALUE, accessor.getAttribute(obj, 1));
+		accessor.setAttribute(obj, 0, 2);
+		assertEquals(2, accessor.getAttribute(obj, 0));
+	}
+
+	@Test
+	public void testAllPrimitives() throws Exception {
+		PrimitiveObject obj = new PrimitiveObject();
+		ReflectionMbean mbean = new ReflectionMbean(obj, null);
+		mbean.setAttribute(new Attribute("bool", true));
+		mbean.setAttribute(new Attribute("b", (byte) 1));
+		mbean.setAttribute(new Attribute("c", 'c'));
+		mbean.setAttribute(new Attribute("s", (short) 2));
+		mbean.setAttribute(new Attribute("i", 3));
+		mbean.setAttribute(new Attribute("l", 4L));
+		mbean.setAttribute(new Attribute("f", 5.0F));
+		mbean.setAttribute(new Attribute("d", 6.0D));
+		mbean.setAttribute(new Attribute("array", new int[] { 7 }));
+		assertEquals(true, mbean.getAttribute("bool"));
+		assertEquals((byte) 1, mbean.getAttribute("b"));
+		assertEquals('c', mbean.getAttribute("c"));
+		assertEquals((short) 2, mbean.getAttribute("s"));
+		assertEquals(3, mbean.getAttribute("i"));
+		assertEquals(4L, mbean.getAttribute("l"));
+		assertEquals(5.0F, mbean.getAttribute("f"));
+		assertEquals(6.0D, mbean.getAttribute("d"));
+		assertArrayEquals(new int[] { 7 }, (int[]) mbean.getAttribute("array"));
+		assertEquals(28.0D, mbean.invoke("sum", new Object[] { (byte) 1, (short) 2, 3, 4L, 5.0F, 6.0D, 7 },
+				new String[] { "byte", "short", "int", "long", "float", "double", "int" }));
+	}
+
+	@Test
+	public void testThrows() throws Exception {
+		PrimitiveObject obj = new PrimitiveObject();
+		ReflectionMbean mbean = new ReflectionMbean(obj, null);
+		try {
+			mbean.setAttribute(new Attribute("i", "wrong type"));
+			fail("should have thrown");
+		} catch (ReflectionException re) {
+			assertTrue(re.getCause() instanceof InvocationTargetException);
+			assertTrue(re.getCause().getCause() instanceof ClassCastException);
+		}
+		try {
+			mbean.invoke("explode", null, new String[0]);
+			fail("should have thrown");
+		} catch (ReflectionException re) {
+			assertTrue(re.getCause() instanceof InvocationTargetException);
+			assertTrue(re.getCause().getCause() instanceof IllegalStateException);
+		}
+	}
+
+	@Test
+	public void testGetterThrowsError() throws Exception {
+		Method getBroken = ErrorObject.class.getMethod("getBroken");
+		Method getFine = ErrorObject.class.getMethod("getFine");
+		MbeanAccessor accessor = AccessorGenerator.generateAccessor(ErrorObject.class,
+				new ReflectionAccessor(new Member[] { getBroken, getFine }, new Member[0], new Method[0]));
+		assertFalse(accessor instanceof ReflectionAccessor);
+		try {
+			accessor.getAttribute(new ErrorObject(), 0);
+			fail("should have thrown");
+		} catch (InvocationTargetException ite) {
+			assertTrue(ite.getCause() instanceof AssertionError);
+		}
+
+		// the error should not stop the other attributes from being read
+		ReflectionMbean mbean = new ReflectionMbean(new ErrorObject(), null);
+		List<Attribute> attributes = mbean.getAttributes(new String[] { "broken", "fine" }).asList();
+		assertEquals(2, attributes.size());
+		assertEquals("Getting attribute threw: broken", attributes.get(0).getValue());
+		assertEquals(ErrorObject.FINE_VALUE, attributes.get(1).getValue());
+	}
+
+	@Test
+	public void testAccessorShared() throws Exception {
+		Method getFoo = PublicObject.class.getMethod("getLong");
+		MbeanAccessor accessor1 = AccessorGenerator.createAccessor(PublicObject.class, new Member[] { getFoo },
+				new Member[0], new Method[0]);
+		MbeanAccessor accessor2 = AccessorGenerator.createAccessor(PublicObject.class, new Member[] { getFoo },
+				new Member[0], new Method[0]);
+		assertSame(accessor1, accessor2);
+	}
+
+	/* ======================================================================= */
+
+	public static class PublicObject {
+		long longValue;
+		public String field;
+
+		public long getLong() {
+			return longValue;
+		}
+
+		public void setLong(long longValue) {
+			this.longValue = longValue;
+		}
+
+		public String add(int x, double y, String z) {
+			return x + ":" + y + ":" + z;
+		}
+
+		public void reset() {
+			longValue = 0;
+		}
+	}
+
+	static class NonPublicObject {
+		public int getFoo() {
+			return 1;
+		}
+	}
+
+	public static class MixedObject {
+		static final int PRIVATE_VALUE = 12312;
+		static final int VALUE = 6456;
+		private int privateField = PRIVATE_VALUE;
+
+		public int getValue() {
+			return VALUE;
+		}
+	}
+
+	@JmxResource(domainName = "j256", beanName = "AccessorGeneratorTest")
+	public static class PrimitiveObject {
+		@JmxAttributeField(isWritable = true)
+		public boolean bool;
+		@JmxAttributeField(isWritable = true)
+		public byte b;
+		@JmxAttributeField(isWritable = true)
+		public char c;
+		@JmxAttributeField(isWritable = true)
+		public short s;
+		@JmxAttributeField(isWritable = true)
+		public int[] array;
+		private int i;
+		private long l;
+		private float f;
+		private double d;
+
+		@JmxAttributeMethod
+		public int getI() {
+			return i;
+		}
+
+		@JmxAttributeMethod
+		public void setI(int i) {
+			this.i = i;
+		}
+
+		@JmxAttributeMethod
+		public long getL() {
+			return l;
+		}
+
+		@JmxAttributeMethod
+		public void setL(long l) {
+			this.l = l;
+		}
+
+		@JmxAttributeMethod
+		public float getF() {
+			return f;
+		}
+
+		@JmxAttributeMethod
+		public void setF(float f) {
+			this.f = f;
+		}
+
+		@JmxAttributeMethod
+		public double getD() {
+			return d;
+		}
+
+		@JmxAttributeMethod
+		public void setD(double d) {
+			this.d = d;
+		}
+
+		@JmxOperation
+		public double sum(byte p1, short p2, int p3, long p4, float p5, double p6, int p7) {
+			return p1 + p2 + p3 + p4 + p5 + p6 + p7;
+		}
+
+		@JmxOperation
+		public void explode() {
+			throw new IllegalStateException("boom");
+		}
+	}
+
+	@JmxResource(domainName = "j256", beanName = "ErrorObject")
+	public static class ErrorObject {
+		static final int FINE_VALUE = 4231;
+
+		@JmxAttributeMethod
+		public int getBroken() {
+			throw new AssertionError("broken");
+		}
+
+		@JmxAttributeMethod
+		public int getFine() {
+			return FINE_VALUE;
+		}
+	}
+}
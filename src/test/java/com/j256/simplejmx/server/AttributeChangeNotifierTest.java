@@ -0,0 +1,47 @@
+package com.j256.simplejmx.server;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.management.Notification;
+import javax.management.NotificationListener;
+
+import org.junit.Test;
+
+public class AttributeChangeNotifierTest {
+
+	@Test
+	public void testRejectedDelivery() {
+		AttributeChangeNotifier notifier = new AttributeChangeNotifier();
+		final List<Notification> notifications = new ArrayList<Notification>();
+		notifier.addNotificationListener(new NotificationListener() {
+			@Override
+			public void handleNotification(Notification notification, Object handback) {
+				notifications.add(notification);
+			}
+		}, null, null, 10);
+		Notification first = new Notification("type", this, 1);
+		notifier.sendNotification(first, new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				throw new RejectedExecutionException("shutdown");
+			}
+		});
+		assertEquals(0, notifications.size());
+		// the listener can still be scheduled and gets the notification that was queued before
+		Notification second = new Notification("type", this, 2);
+		notifier.sendNotification(second, new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				command.run();
+			}
+		});
+		assertEquals(2, notifications.size());
+		assertEquals(first, notifications.get(0));
+		assertEquals(second, notifications.get(1));
+	}
+}
@@ -0,0 +1,52 @@
+package com.j256.simplejmx.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class CallStatsTest {
+
+	@Test
+	public void testRecord() {
+		CallStats stats = new CallStats("foo");
+		assertEquals(0, stats.getPercentileMicros(0.5));
+		for (int i = 0; i < 99; i++) {
+			stats.record(1500, false);
+		}
+		stats.record(1000000, true);
+		assertEquals(100, stats.getCount());
+		assertEquals(1, stats.getErrorCount());
+		assertEquals(99 * 1500 + 1000000, stats.getTotalNanos());
+		assertEquals(1000000, stats.getMaxNanos());
+		assertEquals(2, stats.getPercentileMicros(0.5));
+		assertEquals(2, stats.getPercentileMicros(0.99));
+		assertEquals(1024, stats.getPercentileMicros(1.0));
+		assertTrue(stats.toString().startsWith("foo: count=100 errors=1 "));
+	}
+
+	@Test
+	public void testReset() {
+		CallStats stats = new CallStats("foo");
+		stats.record(1000, true);
+		stats.reset();
+		assertEquals(0, stats.getCount());
+		assertEquals(0, stats.getErrorCount());
+		assertEquals(0, stats.getTotalNanos());
+		assertEquals(0, stats.getMaxNanos());
+		assertEquals(0, stats.getPercentileMicros(0.99));
+	}
+
+	@Test
+	public void testSnapshot() {
+		CallStats stats = new CallStats("foo");
+		stats.record(1000, false);
+		CallStats.Snapshot snapshot = stats.snapshot();
+		String text = snapshot.toString();
+		stats.record(5000, true);
+		assertEquals("foo", snapshot.getDescription());
+		assertEquals(1000, snapshot.getTotalNanos());
+		assertEquals(text, snapshot.toString());
+		assertEquals(stats.toString(), stats.snapshot().toString());
+	}
+}
@@ -1,7 +1,11 @@
 package com.j256.simplejmx.server;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -10,11 +14,28 @@ import java.lang.reflect.Field;
 import java.net.InetAddress;
 import java.rmi.registry.Registry;
 import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.management.Attribute;
+import javax.management.AttributeChangeNotification;
 import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.Notification;
+import javax.management.NotificationListener;
 import javax.management.ObjectName;
 import javax.management.ReflectionException;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
 
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
@@ -74,6 +95,40 @@ public class JmxServerTest {
 		}
 	}
 
+	@Test
+	public void testStopAfterStatsBeanRemoved() throws Exception {
+		int port = serverPortCounter.incrementAndGet();
+		JmxServer server = new JmxServer(serverAddress, port);
+		server.setStatsEnabled(true);
+		server.start();
+		// someone removes our stats bean directly
+		ManagementFactory.getPlatformMBeanServer().unregisterMBean(
+				ObjectNameUtil.makeObjectName(JmxServerStats.OBJECT_NAME));
+		try {
+			server.stopThrow();
+			fail("should have thrown");
+		} catch (JMException jme) {
+			// expected
+		}
+		// the registry and connector were still closed so the port can be used again once RMI lets go of it
+		JmxServer other = new JmxServer(serverAddress, port);
+		try {
+			for (int i = 0;; i++) {
+				try {
+					other.start();
+					break;
+				} catch (JMException jme) {
+					if (i >= 50) {
+						throw jme;
+					}
+					Thread.sleep(100);
+				}
+			}
+		} finally {
+			IoUtils.closeQuietly(other);
+		}
+	}
+
 	@Test
 	public void testJmxServerAddressTwoPorts() {
 		int port = serverPortCounter.incrementAndGet();
@@ -294,6 +349,419 @@ public class JmxServerTest {
 		}
 	}
 
+	@Test
+	public void testRegisterAccessorTypes() throws Exception {
+		JmxClient client = new JmxClient(serverAddress, DEFAULT_PORT);
+		try {
+			for (MbeanAccessorType accessorType : MbeanAccessorType.values()) {
+				server.setAccessorType(accessorType);
+				TestObject obj = new TestObject();
+				try {
+					server.register(obj);
+					assertEquals(FOO_VALUE, client.getAttribute(DOMAIN_NAME, OBJECT_NAME, "foo"));
+					int newValue = FOO_VALUE + 3;
+					client.setAttribute(DOMAIN_NAME, OBJECT_NAME, "foo", newValue);
+					assertEquals(newValue, client.getAttribute(DOMAIN_NAME, OBJECT_NAME, "foo"));
+					client.invokeOperation(DOMAIN_NAME, OBJECT_NAME, "resetFoo");
+					assertEquals(0, client.getAttribute(DOMAIN_NAME, OBJECT_NAME, "foo"));
+				} finally {
+					server.unregister(obj);
+				}
+			}
+		} finally {
+			server.setAccessorType(MbeanAccessorType.GENERATED);
+			IoUtils.closeQuietly(client);
+		}
+	}
+
+	@Test
+	public void testAttributeReadTimeout() throws Exception {
+		JmxClient client = new JmxClient(serverAddress, DEFAULT_PORT);
+		HungObject obj = new HungObject();
+		server.setAttributeReadTimeoutMillis(100);
+		try {
+			server.register(obj);
+			assertEquals(FOO_VALUE, client.getAttribute(DOMAIN_NAME, OBJECT_NAME, "foo"));
+			long start = System.currentTimeMillis();
+			try {
+				client.getAttribute(DOMAIN_NAME, OBJECT_NAME, "hung");
+				fail("Should have thrown");
+			} catch (Exception e) {
+				// expected
+			}
+			assertTrue(System.currentTimeMillis() - start < 5000);
+		} finally {
+			obj.latch.countDown();
+			server.setAttributeReadTimeoutMillis(0);
+			server.unregister(obj);
+			IoUtils.closeQuietly(client);
+		}
+	}
+
+	@Test
+	public void testStats() throws Exception {
+		JmxClient client = new JmxClient(serverAddress, DEFAULT_PORT);
+		TestObject obj = new TestObject();
+		server.setStatsEnabled(true);
+		ObjectName statsName = ObjectNameUtil.makeObjectName(JmxServerStats.OBJECT_NAME);
+		try {
+			int registeredCount = server.getRegisteredCount();
+			server.register(obj);
+			// the stats bean is not counted
+			assertEquals(registeredCount + 1, server.getRegisteredCount());
+			assertEquals(1, client.getAttribute(statsName, "instrumentedBeanCount"));
+			assertEquals(0, ((String[]) client.getAttribute(statsName, "callStats")).length);
+
+			assertEquals(FOO_VALUE, client.getAttribute(DOMAIN_NAME, OBJECT_NAME, "foo"));
+			assertEquals(FOO_VALUE, client.getAttribute(DOMAIN_NAME, OBJECT_NAME, "foo"));
+			client.invokeOperation(DOMAIN_NAME, OBJECT_NAME, "resetFoo", 10);
+
+			String[] stats = (String[]) client.getAttribute(statsName, "callStats");
+			assertEquals(2, stats.length);
+			String objectName = ObjectNameUtil.makeObjectName(obj).toString();
+			String[] beanStats =
+					(String[]) client.invokeOperation(statsName, "beanCallStats", new Object[] { objectName });
+			assertEquals(2, beanStats.length);
+			boolean foundGet = false;
+			boolean foundInvoke = false;
+			for (String stat : beanStats) {
+				if (stat.startsWith(objectName + " get foo: count=2 errors=0")) {
+					foundGet = true;
+				} else if (stat.startsWith(objectName + " invoke resetFoo(int): count=1 errors=0")) {
+					foundInvoke = true;
+				}
+			}
+			assertTrue(foundGet);
+			assertTrue(foundInvoke);
+
+			client.invokeOperation(statsName, "resetCallStats");
+			assertEquals(0, ((String[]) client.getAttribute(statsName, "callStats")).length);
+
+			server.unregister(obj);
+			assertEquals(0, client.getAttribute(statsName, "instrumentedBeanCount"));
+		} finally {
+			server.unregister(obj);
+			server.setStatsEnabled(false);
+			IoUtils.closeQuietly(client);
+		}
+		assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(statsName));
+	}
+
+	@Test
+	public void testQuery() throws Exception {
+		JmxClient client = new JmxClient(serverAddress, DEFAULT_PORT);
+		TestObject obj = new TestObject();
+		server.setQueryEnabled(true);
+		ObjectName queryName = ObjectNameUtil.makeObjectName(ObjectNameUtil.QUERY_OBJECT_NAME);
+		try {
+			ObjectName objectName = server.register(obj);
+			Map<ObjectName, List<Attribute>> results =
+					client.queryBeansAttributes(objectName, new String[] { "foo", "unknown" }, null);
+			assertEquals(1, results.size());
+			List<Attribute> attributes = results.get(objectName);
+			assertEquals("foo", attributes.get(0).getName());
+			assertEquals(FOO_VALUE, attributes.get(0).getValue());
+
+			// all of the attributes from all of the memory pools that pass the filter
+			ObjectName pattern = ObjectName.getInstance("java.lang:type=MemoryPool,*");
+			results = client.queryBeansAttributes(pattern, null, "name=.*");
+			assertEquals(client.getBeanNames(pattern).size(), results.size());
+			for (List<Attribute> poolAttributes : results.values()) {
+				assertTrue(poolAttributes.size() > 1);
+			}
+			results = client.queryBeansAttributes(pattern, new String[] { "Name" }, "no-match");
+			assertTrue(results.isEmpty());
+
+			TabularData table = (TabularData) client.invokeOperation(queryName, "queryAttributes",
+					objectName.toString(), new String[] { "foo" }, "");
+			assertEquals(1, table.size());
+			CompositeData row = table.get(new Object[] { objectName.toString(), "foo" });
+			assertEquals(Integer.toString(FOO_VALUE), row.get("value"));
+			// a duplicate name is only one row
+			table = (TabularData) client.invokeOperation(queryName, "queryAttributes", objectName.toString(),
+					new String[] { "foo", "foo" }, "");
+			assertEquals(1, table.size());
+		} finally {
+			server.unregister(obj);
+			server.setQueryEnabled(false);
+			IoUtils.closeQuietly(client);
+		}
+		assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(queryName));
+	}
+
+	@Test
+	public void testQueryNonSerializableValues() throws Exception {
+		JmxClient client = new JmxClient(serverAddress, DEFAULT_PORT);
+		QueryValues obj = new QueryValues();
+		server.setQueryEnabled(true);
+		try {
+			ObjectName objectName = server.register(obj);
+			Map<ObjectName, List<Attribute>> results = client.queryBeansAttributes(objectName, null, null);
+			Map<String, Object> values = new HashMap<String, Object>();
+			for (Attribute attribute : results.get(objectName)) {
+				values.put(attribute.getName(), attribute.getValue());
+			}
+			// the custom class can't be serialized so it comes back as a string
+			assertEquals(CustomValue.STRING_VALUE, values.get("custom"));
+			assertEquals(FOO_VALUE, values.get("foo"));
+			assertArrayEquals(new int[] { 1, 2 }, (int[]) values.get("ints"));
+			assertEquals(obj.list, values.get("list"));
+		} finally {
+			server.unregister(obj);
+			server.setQueryEnabled(false);
+			IoUtils.closeQuietly(client);
+		}
+	}
+
+	@Test
+	public void testAttributeChangeNotification() throws Exception {
+		NotifyObject obj = new NotifyObject();
+		server.setAttributeChangeSampleMillis(10);
+		final BlockingQueue<Notification> notifications = new LinkedBlockingQueue<Notification>();
+		NotificationListener listener = new NotificationListener() {
+			@Override
+			public void handleNotification(Notification notification, Object handback) {
+				notifications.add(notification);
+			}
+		};
+		MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+		try {
+			ObjectName objectName = server.register(obj);
+			mbeanServer.addNotificationListener(objectName, listener, null, null);
+			// wait for the first sample to record the value
+			while (obj.readCount.get() == 0) {
+				Thread.sleep(10);
+			}
+			obj.value = 100;
+			AttributeChangeNotification notification =
+					(AttributeChangeNotification) notifications.poll(5, TimeUnit.SECONDS);
+			assertNotNull(notification);
+			assertEquals(objectName, notification.getSource());
+			assertEquals("value", notification.getAttributeName());
+			assertEquals(FOO_VALUE, notification.getOldValue());
+			assertEquals(100, notification.getNewValue());
+			mbeanServer.removeNotificationListener(objectName, listener);
+		} finally {
+			server.unregister(obj);
+			server.setAttributeChangeSampleMillis(1000);
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void testAttributeChangeNotificationAfterRestart() throws Exception {
+		MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+		JmxServer server = new JmxServer(mbeanServer);
+		server.setAttributeChangeSampleMillis(10);
+		server.start();
+		NotifyObject obj = new NotifyObject();
+		final BlockingQueue<Notification> notifications = new LinkedBlockingQueue<Notification>();
+		NotificationListener listener = new NotificationListener() {
+			@Override
+			public void handleNotification(Notification notification, Object handback) {
+				notifications.add(notification);
+			}
+		};
+		try {
+			ObjectName objectName = server.register(obj);
+			mbeanServer.addNotificationListener(objectName, listener, null, null);
+			server.stop();
+			server.start();
+			// wait for a sample after the restart to record the value
+			int readCount = obj.readCount.get();
+			while (obj.readCount.get() == readCount) {
+				Thread.sleep(10);
+			}
+			obj.value = 100;
+			AttributeChangeNotification notification =
+					(AttributeChangeNotification) notifications.poll(5, TimeUnit.SECONDS);
+			assertNotNull(notification);
+			assertEquals(100, notification.getNewValue());
+			mbeanServer.removeNotificationListener(objectName, listener);
+		} finally {
+			server.unregister(obj);
+			server.stop();
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void testAttributeChangeSamplingStopsAfterDirectUnregister() throws Exception {
+		MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+		JmxServer server = new JmxServer(mbeanServer);
+		server.setAttributeChangeSampleMillis(10);
+		server.start();
+		NotifyObject obj = new NotifyObject();
+		NotificationListener listener = new NotificationListener() {
+			@Override
+			public void handleNotification(Notification notification, Object handback) {
+				// ignored
+			}
+		};
+		try {
+			ObjectName objectName = server.register(obj);
+			mbeanServer.addNotificationListener(objectName, listener, null, null);
+			int readCount = obj.readCount.get();
+			while (obj.readCount.get() == readCount) {
+				Thread.sleep(10);
+			}
+			// someone removes our bean behind our back
+			mbeanServer.unregisterMBean(objectName);
+			// let a sample pass that may have been running finish
+			Thread.sleep(50);
+			readCount = obj.readCount.get();
+			Thread.sleep(100);
+			assertEquals(readCount, obj.readCount.get());
+		} finally {
+			server.stop();
+		}
+	}
+
+	@Test
+	public void testRegistrationStats() throws Exception {
+		server.setStatsEnabled(true);
+		JmxServerStats stats = server.getStats();
+		TestObject obj = new TestObject();
+		JmxClient client = null;
+		try {
+			long registrationCount = stats.getRegistrationCount();
+			long unregistrationCount = stats.getUnregistrationCount();
+			server.register(obj);
+			assertEquals(registrationCount + 1, stats.getRegistrationCount());
+			assertTrue(stats.getRegistrationsPerSecond() > 0);
+			assertTrue(stats.getRegistrationLatency().startsWith("registration: count="));
+			assertTrue(Arrays.asList(stats.getDomainBeanCounts()).contains(DOMAIN_NAME + "=1"));
+
+			long failedCount = stats.getFailedRegistrationCount();
+			try {
+				server.register(obj);
+				fail("Should have thrown");
+			} catch (JMException e) {
+				// expected
+			}
+			assertEquals(failedCount + 1, stats.getFailedRegistrationCount());
+			// the failure should not have cleared the existing bean
+			assertEquals(1, stats.getInstrumentedBeanCount());
+
+			server.unregister(obj);
+			assertEquals(unregistrationCount + 1, stats.getUnregistrationCount());
+			assertFalse(Arrays.asList(stats.getDomainBeanCounts()).contains(DOMAIN_NAME + "=1"));
+
+			long openedCount = stats.getOpenedConnectionCount();
+			client = new JmxClient(serverAddress, DEFAULT_PORT);
+			assertEquals(openedCount + 1, stats.getOpenedConnectionCount());
+			assertTrue(stats.getConnectionCount() >= 1);
+			long closedCount = stats.getClosedConnectionCount();
+			client.close();
+			client = null;
+			assertEquals(closedCount + 1, stats.getClosedConnectionCount());
+		} finally {
+			server.unregister(obj);
+			server.setStatsEnabled(false);
+			IoUtils.closeQuietly(client);
+		}
+	}
+
+	@Test
+	public void testRegisterAll() throws Exception {
+		List<Object> objs = new ArrayList<Object>();
+		int numObjs = 20;
+		for (int i = 0; i < numObjs; i++) {
+			objs.add(new NamedObject("batch" + i));
+		}
+		// this one is missing the annotation
+		objs.add(new RandomObject());
+		// this one has the same name as the first one
+		objs.add(new NamedObject("batch0"));
+		JmxClient client = new JmxClient(serverAddress, DEFAULT_PORT);
+		int startCount = server.getRegisteredCount();
+		try {
+			List<RegistrationResult> results = server.registerAll(objs);
+			assertEquals(objs.size(), results.size());
+			for (int i = 0; i < numObjs; i++) {
+				RegistrationResult result = results.get(i);
+				assertTrue(result.toString(), result.isRegistered());
+				assertSame(objs.get(i), result.getObject());
+				assertEquals(ObjectNameUtil.makeObjectName(DOMAIN_NAME, "batch" + i), result.getObjectName());
+				assertEquals(FOO_VALUE, client.getAttribute(result.getObjectName(), "foo"));
+			}
+			RegistrationResult result = results.get(numObjs);
+			assertFalse(result.isRegistered());
+			assertNull(result.getObjectName());
+			assertNotNull(result.getException());
+			result = results.get(numObjs + 1);
+			assertFalse(result.isRegistered());
+			assertEquals(ObjectNameUtil.makeObjectName(DOMAIN_NAME, "batch0"), result.getObjectName());
+			assertNotNull(result.getException());
+			assertEquals(startCount + numObjs, server.getRegisteredCount());
+		} finally {
+			for (int i = 0; i < numObjs; i++) {
+				server.unregister(objs.get(i));
+			}
+			IoUtils.closeQuietly(client);
+		}
+	}
+
+	@Test
+	public void testRegisterAllMap() throws Exception {
+		Map<ObjectName, Object> objMap = new LinkedHashMap<ObjectName, Object>();
+		ObjectName name1 = ObjectNameUtil.makeObjectName(DOMAIN_NAME, "map1");
+		ObjectName name2 = ObjectNameUtil.makeObjectName(DOMAIN_NAME, "map2");
+		objMap.put(name1, new TestObject());
+		objMap.put(name2, new TestObject());
+		JmxClient client = new JmxClient(serverAddress, DEFAULT_PORT);
+		try {
+			List<RegistrationResult> results = server.registerAll(objMap);
+			assertEquals(2, results.size());
+			assertTrue(results.get(0).isRegistered());
+			assertEquals(name1, results.get(0).getObjectName());
+			assertTrue(results.get(1).isRegistered());
+			assertEquals(name2, results.get(1).getObjectName());
+			assertEquals(FOO_VALUE, client.getAttribute(name1, "foo"));
+			assertEquals(FOO_VALUE, client.getAttribute(name2, "foo"));
+		} finally {
+			server.unregister(name1);
+			server.unregister(name2);
+			IoUtils.closeQuietly(client);
+		}
+	}
+
+	@Test
+	public void testConcurrentRegister() throws Exception {
+		int numThreads = 8;
+		final int numPerThread = 50;
+		final int startCount = server.getRegisteredCount();
+		final AtomicInteger failures = new AtomicInteger();
+		Thread[] threads = new Thread[numThreads];
+		for (int i = 0; i < numThreads; i++) {
+			final String prefix = "concurrent" + i + "-";
+			threads[i] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						for (int j = 0; j < numPerThread; j++) {
+							NamedObject obj = new NamedObject(prefix + j);
+							server.register(obj);
+							server.unregisterThrow(obj);
+						}
+					} catch (Exception e) {
+						failures.incrementAndGet();
+					}
+				}
+			});
+			threads[i].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(0, failures.get());
+		assertEquals(startCount, server.getRegisteredCount());
+	}
+
+	@Test(expected = JMException.class)
+	public void testRegisterAllNoStart() throws Exception {
+		JmxServer server = new JmxServer();
+		server.registerAll(new ArrayList<Object>());
+	}
+
 	@Test(expected = JMException.class)
 	public void testDoubleRegister() throws Exception {
 		TestObject obj = new TestObject();
@@ -656,6 +1124,21 @@ public class JmxServerTest {
 		}
 	}
 
+	@JmxResource(domainName = DOMAIN_NAME, beanName = OBJECT_NAME)
+	protected static class NotifyObject {
+
+		final AtomicInteger readCount = new AtomicInteger();
+		volatile int value = FOO_VALUE;
+
+		@JmxAttributeMethod(notifyOnChange = true)
+		public int getValue() {
+			int result = value;
+			// counted after the read so the test knows the first sample has the old value
+			readCount.incrementAndGet();
+			return result;
+		}
+	}
+
 	@JmxResource(domainName = DOMAIN_NAME, beanName = OBJECT_NAME, folderNames = { FOLDER_NAME })
 	protected static class TestObjectFolders {
 
@@ -712,6 +1195,27 @@ public class JmxServerTest {
 		}
 	}
 
+	@JmxResource(domainName = DOMAIN_NAME, beanName = "QueryValues")
+	protected static class QueryValues {
+		@JmxAttributeField
+		private Object custom = new CustomValue();
+		@JmxAttributeField
+		private int foo = FOO_VALUE;
+		@JmxAttributeField
+		private int[] ints = new int[] { 1, 2 };
+		@JmxAttributeField
+		private List<String> list = new ArrayList<String>(Arrays.asList("a", "b"));
+	}
+
+	protected static class CustomValue {
+		static final String STRING_VALUE = "custom value";
+
+		@Override
+		public String toString() {
+			return STRING_VALUE;
+		}
+	}
+
 	@JmxResource(domainName = DOMAIN_NAME, beanName = OBJECT_NAME)
 	protected static class NoDescriptions {
 		@JmxAttributeMethod
@@ -780,6 +1284,49 @@ public class JmxServerTest {
 		}
 	}
 
+	@JmxResource(domainName = DOMAIN_NAME, beanName = OBJECT_NAME)
+	protected static class HungObject extends TestObject {
+		final CountDownLatch latch = new CountDownLatch(1);
+
+		@JmxAttributeMethod
+		public int getHung() {
+			// ignores interrupts like a getter that is really stuck
+			while (latch.getCount() > 0) {
+				try {
+					latch.await();
+				} catch (InterruptedException ie) {
+					// ignored
+				}
+			}
+			return 1;
+		}
+	}
+
+	@JmxResource(domainName = DOMAIN_NAME)
+	protected static class NamedObject extends TestObject implements JmxSelfNaming {
+
+		private final String name;
+
+		public NamedObject(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public String getJmxDomainName() {
+			return null;
+		}
+
+		@Override
+		public String getJmxBeanName() {
+			return name;
+		}
+
+		@Override
+		public JmxFolderName[] getJmxFolderNames() {
+			return null;
+		}
+	}
+
 	@JmxResource(domainName = DOMAIN_NAME, beanName = OBJECT_NAME, description = "")
 	protected static class SubClassTestObject extends TestObject {
 
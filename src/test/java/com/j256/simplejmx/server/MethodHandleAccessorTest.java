@@ -0,0 +1,134 @@
+package com.j256.simplejmx.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.util.List;
+
+import javax.management.Attribute;
+import javax.management.ReflectionException;
+
+import org.junit.Test;
+
+import com.j256.simplejmx.common.JmxAttributeField;
+import com.j256.simplejmx.common.JmxAttributeMethod;
+import com.j256.simplejmx.common.JmxOperation;
+import com.j256.simplejmx.common.JmxResource;
+
+public class MethodHandleAccessorTest {
+
+	@Test
+	public void testAccessor() throws Exception {
+		Field privateField = TestObject.class.getDeclaredField("privateField");
+		privateField.setAccessible(true);
+		Method getValue = TestObject.class.getMethod("getValue");
+		Method setValue = TestObject.class.getMethod("setValue", long.class);
+		Method concat = TestObject.class.getMethod("concat", String.class, int.class);
+		Method staticOp = TestObject.class.getMethod("staticOp");
+		Method reset = TestObject.class.getMethod("reset");
+		MbeanAccessor accessor = MethodHandleAccessor.createAccessor(new Member[] { privateField, getValue },
+				new Member[] { privateField, setValue }, new Method[] { concat, staticOp, reset });
+		assertTrue(accessor instanceof MethodHandleAccessor);
+
+		TestObject obj = new TestObject();
+		assertEquals(TestObject.PRIVATE_DEFAULT, accessor.getAttribute(obj, 0));
+		accessor.setAttribute(obj, 0, 10);
+		assertEquals(10, accessor.getAttribute(obj, 0));
+		accessor.setAttribute(obj, 1, 1234567890123L);
+		assertEquals(1234567890123L, accessor.getAttribute(obj, 1));
+		assertEquals("foo5", accessor.invokeOperation(obj, 0, new Object[] { "foo", 5 }));
+		assertEquals(TestObject.STATIC_VALUE, accessor.invokeOperation(obj, 1, null));
+		assertNull(accessor.invokeOperation(obj, 2, new Object[0]));
+		assertEquals(0L, accessor.getAttribute(obj, 1));
+	}
+
+	@Test
+	public void testThroughMbean() throws Exception {
+		TestObject obj = new TestObject();
+		ReflectionMbean mbean =
+				new ReflectionMbean(obj, null, null, null, null, false, MbeanAccessorType.METHOD_HANDLE);
+		mbean.setAttribute(new Attribute("value", 100L));
+		assertEquals(100L, mbean.getAttribute("value"));
+		assertEquals(TestObject.PRIVATE_DEFAULT, mbean.getAttribute("privateField"));
+		assertEquals("bar2", mbean.invoke("concat", new Object[] { "bar", 2 }, new String[] { "java.lang.String",
+				"int" }));
+		try {
+			mbean.invoke("explode", null, new String[0]);
+			fail("should have thrown");
+		} catch (ReflectionException re) {
+			assertTrue(re.getCause() instanceof InvocationTargetException);
+			assertTrue(re.getCause().getCause() instanceof IllegalStateException);
+		}
+	}
+
+	@Test
+	public void testGetterThrowsError() throws Exception {
+		Method getBroken = TestObject.class.getMethod("getBroken");
+		MbeanAccessor accessor =
+				MethodHandleAccessor.createAccessor(new Member[] { getBroken }, new Member[0], new Method[0]);
+		try {
+			accessor.getAttribute(new TestObject(), 0);
+			fail("should have thrown");
+		} catch (InvocationTargetException ite) {
+			assertTrue(ite.getCause() instanceof AssertionError);
+		}
+
+		// the error should not stop the other attributes from being read
+		ReflectionMbean mbean =
+				new ReflectionMbean(new TestObject(), null, null, null, null, false, MbeanAccessorType.METHOD_HANDLE);
+		List<Attribute> attributes = mbean.getAttributes(new String[] { "broken", "value" }).asList();
+		assertEquals(2, attributes.size());
+		assertEquals("Getting attribute threw: broken", attributes.get(0).getValue());
+		assertEquals(0L, attributes.get(1).getValue());
+	}
+
+	/* ======================================================================= */
+
+	@JmxResource(domainName = "j256", beanName = "MethodHandleAccessorTest")
+	protected static class TestObject {
+		static final int PRIVATE_DEFAULT = 5423;
+		static final String STATIC_VALUE = "static";
+		@JmxAttributeField(isWritable = true)
+		private int privateField = PRIVATE_DEFAULT;
+		private long value;
+
+		@JmxAttributeMethod
+		public long getValue() {
+			return value;
+		}
+
+		@JmxAttributeMethod
+		public void setValue(long value) {
+			this.value = value;
+		}
+
+		@JmxOperation
+		public String concat(String str, int num) {
+			return str + num;
+		}
+
+		public static String staticOp() {
+			return STATIC_VALUE;
+		}
+
+		public void reset() {
+			value = 0;
+		}
+
+		@JmxAttributeMethod
+		public int getBroken() {
+			throw new AssertionError("broken");
+		}
+
+		@JmxOperation
+		public void explode() {
+			throw new IllegalStateException("boom");
+		}
+	}
+}
@@ -0,0 +1,20 @@
+package com.j256.simplejmx.server;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class RateCounterTest {
+
+	@Test
+	public void testRate() {
+		RateCounter counter = new RateCounter();
+		assertEquals(0, counter.getTotal());
+		assertEquals(0.0, counter.getPerSecond(), 0.0);
+		for (int i = 0; i < 120; i++) {
+			counter.increment();
+		}
+		assertEquals(120, counter.getTotal());
+		assertEquals(2.0, counter.getPerSecond(), 0.0);
+	}
+}
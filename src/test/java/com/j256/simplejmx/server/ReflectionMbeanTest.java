@@ -2,16 +2,29 @@ package com.j256.simplejmx.server;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.net.InetAddress;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.management.Attribute;
+import javax.management.AttributeChangeNotification;
+import javax.management.AttributeList;
 import javax.management.AttributeNotFoundException;
 import javax.management.JMException;
+import javax.management.ListenerNotFoundException;
 import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanNotificationInfo;
+import javax.management.Notification;
+import javax.management.NotificationListener;
 import javax.management.ReflectionException;
 
 import org.junit.AfterClass;
@@ -21,7 +34,9 @@ import org.junit.Test;
 import com.j256.simplejmx.client.JmxClient;
 import com.j256.simplejmx.common.IoUtils;
 import com.j256.simplejmx.common.JmxAttributeField;
+import com.j256.simplejmx.common.JmxAttributeFieldInfo;
 import com.j256.simplejmx.common.JmxAttributeMethod;
+import com.j256.simplejmx.common.JmxAttributeMethodInfo;
 import com.j256.simplejmx.common.JmxOperation;
 import com.j256.simplejmx.common.JmxResource;
 import com.j256.simplejmx.common.ObjectNameUtil;
@@ -431,6 +446,296 @@ public class ReflectionMbeanTest {
 		}
 	}
 
+	@Test
+	public void testBulkGetAttributes() throws Exception {
+		ReflectionMbean mbean = new ReflectionMbean(new AttributeField(), null);
+		AttributeList list =
+				mbean.getAttributes(new String[] { "readOnly", "unknown", "writeOnly", "readWrite", "neither" });
+		assertEquals(5, list.size());
+		List<Attribute> attributes = list.asList();
+		assertEquals("readOnly", attributes.get(0).getName());
+		assertEquals(READ_ONLY_DEFAULT, attributes.get(0).getValue());
+		assertEquals("unknown", attributes.get(1).getName());
+		assertEquals("Getting attribute threw: Unknown attribute unknown", attributes.get(1).getValue());
+		assertEquals("writeOnly", attributes.get(2).getName());
+		assertEquals("Getting attribute threw: Unknown attribute writeOnly", attributes.get(2).getValue());
+		assertEquals(READ_WRITE_DEFAULT, attributes.get(3).getValue());
+		assertEquals("Getting attribute threw: Unknown attribute neither", attributes.get(4).getValue());
+
+		mbean = new ReflectionMbean(new AttributeThrows(), null);
+		attributes = mbean.getAttributes(new String[] { "throws" }).asList();
+		assertEquals(1, attributes.size());
+		assertEquals("Getting attribute threw: throw away!", attributes.get(0).getValue());
+	}
+
+	@Test
+	public void testCachedAttribute() throws Exception {
+		CachedAttributes obj = new CachedAttributes();
+		ReflectionMbean mbean = new ReflectionMbean(obj, null);
+		assertEquals(1, mbean.getAttribute("count"));
+		assertEquals(1, mbean.getAttribute("count"));
+		assertEquals(1, mbean.getAttributes(new String[] { "count" }).asList().get(0).getValue());
+		assertEquals(1, obj.getCount);
+		// not cached
+		assertEquals(1, mbean.getAttribute("uncached"));
+		assertEquals(2, mbean.getAttribute("uncached"));
+
+		// setting clears the cache
+		mbean.setAttribute(new Attribute("count", 100));
+		assertEquals(101, mbean.getAttribute("count"));
+		assertEquals(101, mbean.getAttribute("count"));
+		assertEquals(2, obj.getCount);
+
+		obj.field = 1;
+		assertEquals(1, mbean.getAttribute("field"));
+		obj.field = 2;
+		assertEquals(1, mbean.getAttribute("field"));
+		mbean.setAttribute(new Attribute("field", 3));
+		assertEquals(3, mbean.getAttribute("field"));
+
+		// each mbean has its own cached values
+		CachedAttributes obj2 = new CachedAttributes();
+		obj2.field = 10;
+		assertEquals(10, new ReflectionMbean(obj2, null).getAttribute("field"));
+	}
+
+	@Test
+	public void testCachedAttributeExpires() throws Exception {
+		CachedAttributes obj = new CachedAttributes();
+		ReflectionMbean mbean = new ReflectionMbean(obj, null);
+		assertEquals(1, mbean.getAttribute("shortCount"));
+		assertEquals(1, mbean.getAttribute("shortCount"));
+		Thread.sleep(CachedAttributes.SHORT_CACHE_MILLIS * 2);
+		assertEquals(2, mbean.getAttribute("shortCount"));
+	}
+
+	@Test
+	public void testCachedAttributeSingleFlight() throws Exception {
+		final CachedAttributes obj = new CachedAttributes();
+		obj.sleepMillis = 100;
+		final ReflectionMbean mbean = new ReflectionMbean(obj, null);
+		final AtomicInteger failures = new AtomicInteger();
+		Thread[] threads = new Thread[10];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						if (!Integer.valueOf(1).equals(mbean.getAttribute("count"))) {
+							failures.incrementAndGet();
+						}
+					} catch (Exception e) {
+						failures.incrementAndGet();
+					}
+				}
+			});
+			threads[i].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(0, failures.get());
+		assertEquals(1, obj.getCount);
+	}
+
+	@Test
+	public void testCachedAttributeInfo() throws Exception {
+		CachedAttributes obj = new CachedAttributes();
+		JmxAttributeMethodInfo[] methodInfos = new JmxAttributeMethodInfo[] { new JmxAttributeMethodInfo("getNotAnnotated") };
+		methodInfos[0].setCacheMillis(100000);
+		ReflectionMbean mbean = new ReflectionMbean(obj, null, null, methodInfos, null, false);
+		assertEquals(1, mbean.getAttribute("notAnnotated"));
+		assertEquals(1, mbean.getAttribute("notAnnotated"));
+	}
+
+	@Test
+	public void testReadTimeout() throws Exception {
+		HungAttributes obj = new HungAttributes();
+		ReflectionMbean mbean = new ReflectionMbean(obj, null);
+		mbean.setAttributeReader(new TimedAttributeReader(100, 1));
+		try {
+			assertEquals(HungAttributes.FAST_VALUE, mbean.getAttribute("fast"));
+			try {
+				mbean.getAttribute("hung");
+				fail("should have thrown");
+			} catch (ReflectionException re) {
+				assertTrue(re.getCause() instanceof TimeoutException);
+				assertTrue(re.getMessage(), re.getMessage().contains("timed out"));
+			}
+			// the one thread is still hung so the batch waits in the queue and times out
+			List<Attribute> attributes = mbean.getAttributes(new String[] { "fast", "fast", "unknown" }).asList();
+			assertEquals(3, attributes.size());
+			assertEquals("Getting attribute threw: Getting attribute fast timed out after 100 millis",
+					attributes.get(0).getValue());
+			assertTrue(((String) attributes.get(1).getValue()).contains("timed out"));
+			assertEquals("Getting attribute threw: Unknown attribute unknown", attributes.get(2).getValue());
+		} finally {
+			obj.latch.countDown();
+		}
+	}
+
+	@Test
+	public void testReadTimeoutGetAttributes() throws Exception {
+		HungAttributes obj = new HungAttributes();
+		ReflectionMbean mbean = new ReflectionMbean(obj, null);
+		mbean.setAttributeReader(new TimedAttributeReader(100, 10));
+		try {
+			// the attributes read before the hung one keep their values
+			List<Attribute> attributes = mbean.getAttributes(new String[] { "fast", "hung", "fast" }).asList();
+			assertEquals(3, attributes.size());
+			assertEquals(HungAttributes.FAST_VALUE, attributes.get(0).getValue());
+			assertEquals("Getting attribute threw: Getting attribute hung timed out after 100 millis",
+					attributes.get(1).getValue());
+			assertEquals("Getting attribute threw: Getting attribute fast timed out after 100 millis",
+					attributes.get(2).getValue());
+		} finally {
+			obj.latch.countDown();
+		}
+	}
+
+	@Test
+	public void testReadTimeoutWideBatch() throws Exception {
+		WideAttributes obj = new WideAttributes();
+		ReflectionMbean mbean = new ReflectionMbean(obj, null);
+		// more attributes than the threads and the queue combined
+		mbean.setAttributeReader(new TimedAttributeReader(1000, 2));
+		String[] names = new String[] { "a", "b", "c", "d", "e", "f", "g", "h" };
+		List<Attribute> attributes = mbean.getAttributes(names).asList();
+		assertEquals(names.length, attributes.size());
+		for (int i = 0; i < names.length; i++) {
+			assertEquals(names[i], attributes.get(i).getName());
+			assertEquals(i + 1, attributes.get(i).getValue());
+		}
+	}
+
+	@Test
+	public void testMetadataShared() throws Exception {
+		MultipleAttributes obj1 = new MultipleAttributes();
+		MultipleAttributes obj2 = new MultipleAttributes();
+		ReflectionMbean mbean1 = new ReflectionMbean(obj1, null);
+		ReflectionMbean mbean2 = new ReflectionMbean(obj2, null);
+		assertSame(mbean1.getMetadata(), mbean2.getMetadata());
+		assertSame(mbean1.getMBeanInfo(), mbean2.getMBeanInfo());
+		obj1.x = 1;
+		obj2.x = 2;
+		assertEquals(1, mbean1.getAttribute("x"));
+		assertEquals(2, mbean2.getAttribute("x"));
+
+		// the description is not part of the shared metadata
+		ReflectionMbean otherMbean = new ReflectionMbean(obj1, "other");
+		assertSame(mbean1.getMetadata(), otherMbean.getMetadata());
+		assertEquals("other", otherMbean.getMBeanInfo().getDescription());
+		assertEquals(mbean1.getMBeanInfo().getAttributes().length, otherMbean.getMBeanInfo().getAttributes().length);
+		assertFalse("other".equals(mbean1.getMBeanInfo().getDescription()));
+
+		// user provided configuration is part of the key
+		JmxAttributeFieldInfo[] fieldInfos = new JmxAttributeFieldInfo[] { new JmxAttributeFieldInfo("x") };
+		ReflectionMbean mbean3 = new ReflectionMbean(obj1, "desc", fieldInfos, null, null, false);
+		ReflectionMbean mbean4 = new ReflectionMbean(obj2, "desc", fieldInfos, null, null, false);
+		assertSame(mbean3.getMetadata(), mbean4.getMetadata());
+		fieldInfos[0].setWritable(false);
+		fieldInfos[0].setDescription("changed");
+		assertNotSame(mbean3.getMetadata(),
+				new ReflectionMbean(obj1, "desc", fieldInfos, null, null, false).getMetadata());
+	}
+
+	@Test
+	public void testMetadataCacheBounded() throws Exception {
+		BoundedAttributes obj = new BoundedAttributes();
+		for (int i = 0; i < ReflectionMbeanMetadata.MAX_CACHED_PER_CLASS; i++) {
+			JmxAttributeFieldInfo fieldInfo = new JmxAttributeFieldInfo("x");
+			fieldInfo.setDescription("x number " + i);
+			new ReflectionMbean(obj, null, new JmxAttributeFieldInfo[] { fieldInfo }, null, null, false);
+		}
+		// once the cache for the class is full, new configurations are built for each bean
+		JmxAttributeFieldInfo[] fieldInfos = new JmxAttributeFieldInfo[] { new JmxAttributeFieldInfo("x") };
+		ReflectionMbean mbean1 = new ReflectionMbean(obj, null, fieldInfos, null, null, false);
+		ReflectionMbean mbean2 = new ReflectionMbean(obj, null, fieldInfos, null, null, false);
+		assertNotSame(mbean1.getMetadata(), mbean2.getMetadata());
+		obj.x = 10;
+		assertEquals(10, mbean2.getAttribute("x"));
+	}
+
+	@Test
+	public void testNotifyOnChange() throws Exception {
+		NotifyAttributes obj = new NotifyAttributes();
+		ReflectionMbean mbean = new ReflectionMbean(obj, null);
+		assertTrue(mbean.hasNotifyAttributes());
+		MBeanNotificationInfo[] notificationInfos = mbean.getNotificationInfo();
+		assertEquals(1, notificationInfos.length);
+		assertEquals(AttributeChangeNotification.ATTRIBUTE_CHANGE, notificationInfos[0].getNotifTypes()[0]);
+		assertFalse(new ReflectionMbean(new MultipleAttributes(), null).hasNotifyAttributes());
+
+		Executor executor = new DirectExecutor();
+		CollectingListener listener = new CollectingListener();
+		// no listeners so no reads
+		mbean.sampleAttributeChanges(executor);
+		assertEquals(0, obj.readCount);
+
+		mbean.addNotificationListener(listener, null, null);
+		// the first sample just records the values
+		mbean.sampleAttributeChanges(executor);
+		assertEquals(0, listener.notifications.size());
+
+		// multiple changes between samples are coalesced
+		obj.value = 1;
+		obj.value = 2;
+		obj.notNotified = 3;
+		mbean.sampleAttributeChanges(executor);
+		assertEquals(1, listener.notifications.size());
+		AttributeChangeNotification notification = (AttributeChangeNotification) listener.notifications.get(0);
+		assertSame(mbean, notification.getSource());
+		assertEquals("value", notification.getAttributeName());
+		assertEquals(int.class.getName(), notification.getAttributeType());
+		assertEquals(0, notification.getOldValue());
+		assertEquals(2, notification.getNewValue());
+
+		// no change
+		mbean.sampleAttributeChanges(executor);
+		assertEquals(1, listener.notifications.size());
+
+		obj.setCount(10);
+		mbean.sampleAttributeChanges(executor);
+		assertEquals(2, listener.notifications.size());
+		notification = (AttributeChangeNotification) listener.notifications.get(1);
+		assertEquals("count", notification.getAttributeName());
+		assertTrue(notification.getSequenceNumber() > listener.notifications.get(0).getSequenceNumber());
+
+		mbean.removeNotificationListener(listener);
+		obj.value = 3;
+		mbean.sampleAttributeChanges(executor);
+		assertEquals(2, listener.notifications.size());
+		try {
+			mbean.removeNotificationListener(listener);
+			fail("Should have thrown");
+		} catch (ListenerNotFoundException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testNotifyBufferBounded() throws Exception {
+		NotifyAttributes obj = new NotifyAttributes();
+		ReflectionMbean mbean = new ReflectionMbean(obj, null);
+		mbean.setNotificationBufferSize(2);
+		CollectingListener listener = new CollectingListener();
+		mbean.addNotificationListener(listener, null, null);
+		// holds the delivery until we run it
+		HeldExecutor executor = new HeldExecutor();
+		mbean.sampleAttributeChanges(executor);
+		for (int i = 1; i <= 5; i++) {
+			obj.value = i;
+			mbean.sampleAttributeChanges(executor);
+		}
+		// only one delivery task is queued per listener
+		assertEquals(1, executor.tasks.size());
+		executor.tasks.get(0).run();
+		// the oldest were dropped
+		assertEquals(2, listener.notifications.size());
+		assertEquals(4, ((AttributeChangeNotification) listener.notifications.get(0)).getNewValue());
+		assertEquals(5, ((AttributeChangeNotification) listener.notifications.get(1)).getNewValue());
+	}
+
 	/* ======================================================================= */
 
 	@JmxResource(description = "Test object", domainName = DOMAIN_NAME, beanName = OBJECT_NAME)
@@ -594,6 +899,142 @@ public class ReflectionMbeanTest {
 		int y;
 	}
 
+	@JmxResource(domainName = DOMAIN_NAME, beanName = OBJECT_NAME)
+	protected static class CachedAttributes {
+		static final long SHORT_CACHE_MILLIS = 50;
+		int getCount;
+		int count;
+		int uncachedCount;
+		int shortCount;
+		long sleepMillis;
+		@JmxAttributeField(isWritable = true, cacheMillis = 100000)
+		int field;
+
+		@JmxAttributeMethod(cacheMillis = 100000)
+		public int getCount() throws InterruptedException {
+			getCount++;
+			if (sleepMillis > 0) {
+				Thread.sleep(sleepMillis);
+			}
+			return ++count;
+		}
+
+		@JmxAttributeMethod
+		public void setCount(int count) {
+			this.count = count;
+		}
+
+		@JmxAttributeMethod
+		public int getUncached() {
+			return ++uncachedCount;
+		}
+
+		@JmxAttributeMethod(cacheMillis = SHORT_CACHE_MILLIS)
+		public int getShortCount() {
+			return ++shortCount;
+		}
+
+		public int getNotAnnotated() {
+			return ++uncachedCount;
+		}
+	}
+
+	@JmxResource(domainName = DOMAIN_NAME, beanName = OBJECT_NAME)
+	protected static class HungAttributes {
+		static final int FAST_VALUE = 5324;
+		final CountDownLatch latch = new CountDownLatch(1);
+
+		@JmxAttributeMethod
+		public int getHung() {
+			// ignores interrupts like a getter that is really stuck
+			while (latch.getCount() > 0) {
+				try {
+					latch.await();
+				} catch (InterruptedException ie) {
+					// ignored
+				}
+			}
+			return 1;
+		}
+
+		@JmxAttributeMethod
+		public int getFast() {
+			return FAST_VALUE;
+		}
+	}
+
+	@JmxResource(domainName = DOMAIN_NAME, beanName = OBJECT_NAME)
+	protected static class BoundedAttributes {
+		@JmxAttributeField
+		int x;
+	}
+
+	@JmxResource(domainName = DOMAIN_NAME, beanName = OBJECT_NAME)
+	protected static class WideAttributes {
+		@JmxAttributeField
+		int a = 1;
+		@JmxAttributeField
+		int b = 2;
+		@JmxAttributeField
+		int c = 3;
+		@JmxAttributeField
+		int d = 4;
+		@JmxAttributeField
+		int e = 5;
+		@JmxAttributeField
+		int f = 6;
+		@JmxAttributeField
+		int g = 7;
+		@JmxAttributeField
+		int h = 8;
+	}
+
+	@JmxResource(domainName = DOMAIN_NAME, beanName = OBJECT_NAME)
+	protected static class NotifyAttributes {
+		@JmxAttributeField(notifyOnChange = true)
+		int value;
+		@JmxAttributeField
+		int notNotified;
+		int count;
+		int readCount;
+
+		@JmxAttributeMethod(notifyOnChange = true)
+		public int getCount() {
+			readCount++;
+			return count;
+		}
+
+		@JmxAttributeMethod
+		public void setCount(int count) {
+			this.count = count;
+		}
+	}
+
+	protected static class CollectingListener implements NotificationListener {
+		final List<Notification> notifications = new ArrayList<Notification>();
+
+		@Override
+		public void handleNotification(Notification notification, Object handback) {
+			notifications.add(notification);
+		}
+	}
+
+	protected static class DirectExecutor implements Executor {
+		@Override
+		public void execute(Runnable command) {
+			command.run();
+		}
+	}
+
+	protected static class HeldExecutor implements Executor {
+		final List<Runnable> tasks = new ArrayList<Runnable>();
+
+		@Override
+		public void execute(Runnable command) {
+			tasks.add(command);
+		}
+	}
+
 	@JmxResource(domainName = DOMAIN_NAME, beanName = OBJECT_NAME)
 	protected static class IsNotBoolean {
 		@JmxAttributeMethod
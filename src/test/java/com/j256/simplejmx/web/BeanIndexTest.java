@@ -0,0 +1,124 @@
+package com.j256.simplejmx.web;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+import com.j256.simplejmx.common.JmxAttributeField;
+import com.j256.simplejmx.common.JmxResource;
+import com.j256.simplejmx.server.ReflectionMbean;
+import com.j256.simplejmx.web.BeanIndex.IndexEntry;
+
+public class BeanIndexTest {
+
+	@Test
+	public void testIndex() throws Exception {
+		MBeanServer mbeanServer = MBeanServerFactory.newMBeanServer();
+		ObjectName beforeName = new ObjectName("index:name=before");
+		mbeanServer.registerMBean(new ReflectionMbean(new IndexedObject(), "before bean"), beforeName);
+
+		BeanIndex index = new BeanIndex(mbeanServer);
+		index.start();
+		try {
+			assertEquals(1, names(index, "index").size());
+			assertEquals(0, index.getGeneration());
+
+			// registered after the index was loaded
+			mbeanServer.registerMBean(new ReflectionMbean(new IndexedObject(), null), new ObjectName("index:name=after"));
+			mbeanServer.registerMBean(new ReflectionMbean(new IndexedObject(), null),
+					new ObjectName("indexed:name=other"));
+			List<String> names = names(index, "index");
+			assertEquals(2, names.size());
+			// sorted by name
+			assertEquals("index:name=after", names.get(0));
+			assertEquals("index:name=before", names.get(1));
+			assertEquals(1, names(index, "indexed").size());
+			assertEquals(2, index.getGeneration());
+			assertTrue(names(index, null).containsAll(names));
+
+			IndexEntry entry = index.getEntryMap("index").get(beforeName.toString());
+			assertEquals("before bean", entry.getDescription());
+
+			mbeanServer.unregisterMBean(beforeName);
+			names = names(index, "index");
+			assertEquals(1, names.size());
+			assertEquals("index:name=after", names.get(0));
+		} finally {
+			index.stop();
+		}
+		assertEquals(0, index.size());
+	}
+
+	@Test
+	public void testUnregisterDifferentKeyOrder() throws Exception {
+		MBeanServer mbeanServer = MBeanServerFactory.newMBeanServer();
+		BeanIndex index = new BeanIndex(mbeanServer);
+		index.start();
+		try {
+			mbeanServer.registerMBean(new ReflectionMbean(new IndexedObject(), null),
+					new ObjectName("index:type=b,name=a"));
+			assertEquals(1, names(index, "index").size());
+			mbeanServer.unregisterMBean(new ObjectName("index:name=a,type=b"));
+			assertEquals(0, names(index, "index").size());
+		} finally {
+			index.stop();
+		}
+	}
+
+	@Test
+	public void testUnregisteredWhileLoading() throws Exception {
+		final MBeanServer mbeanServer = MBeanServerFactory.newMBeanServer();
+		final ObjectName objectName = new ObjectName("index:name=removed");
+		mbeanServer.registerMBean(new ReflectionMbean(new IndexedObject(), null), objectName);
+		// the bean is unregistered after the index has listed it but before it has been loaded
+		MBeanServer listingServer = (MBeanServer) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { MBeanServer.class }, new InvocationHandler() {
+					@Override
+					public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+						Object result;
+						try {
+							result = method.invoke(mbeanServer, args);
+						} catch (InvocationTargetException ite) {
+							throw ite.getCause();
+						}
+						if (method.getName().equals("queryNames")) {
+							mbeanServer.unregisterMBean(objectName);
+						}
+						return result;
+					}
+				});
+		BeanIndex index = new BeanIndex(listingServer);
+		index.start();
+		try {
+			assertEquals(0, names(index, "index").size());
+		} finally {
+			index.stop();
+		}
+	}
+
+	private List<String> names(BeanIndex index, String domainName) {
+		List<String> names = new ArrayList<String>();
+		for (IndexEntry entry : index.getEntries(domainName)) {
+			names.add(entry.getObjectName().toString());
+		}
+		return names;
+	}
+
+	@JmxResource(domainName = "index")
+	protected static class IndexedObject {
+		@JmxAttributeField
+		int value;
+	}
+}
@@ -0,0 +1,115 @@
+package com.j256.simplejmx.web;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.URL;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.eclipse.jetty.server.handler.HandlerList;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.htmlunit.WebClient;
+import org.htmlunit.html.HtmlPage;
+import org.junit.Test;
+
+public class Jetty9VirtualThreadHandlerTest {
+
+	private static final int WEB_SERVER_PORT = 8181;
+
+	@Test(timeout = 10000)
+	public void testSlowRequestsDontBlock() throws Exception {
+		final CountDownLatch slowLatch = new CountDownLatch(1);
+		HandlerList handlers = new HandlerList();
+		handlers.addHandler(new AbstractHandler() {
+			@Override
+			public void handle(String target, Request baseRequest, HttpServletRequest request,
+					HttpServletResponse response) throws IOException {
+				if (!"/slow".equals(request.getPathInfo())) {
+					return;
+				}
+				try {
+					slowLatch.await();
+				} catch (InterruptedException ie) {
+					Thread.currentThread().interrupt();
+				}
+				response.getWriter().write("slow");
+				baseRequest.setHandled(true);
+			}
+		});
+		handlers.addHandler(new Jetty9JmxWebHandler(new JmxWebHandler(), null));
+
+		ExecutorService executor = Executors.newCachedThreadPool();
+		Jetty9VirtualThreadHandler virtualThreadHandler = new Jetty9VirtualThreadHandler(executor);
+		virtualThreadHandler.setHandler(handlers);
+		// a pool that is too small to handle the slow requests itself
+		Server server = new Server(new QueuedThreadPool(4, 2));
+		ServerConnector connector = new ServerConnector(server, 1, 1);
+		connector.setHost("localhost");
+		connector.setPort(WEB_SERVER_PORT);
+		server.addConnector(connector);
+		server.setHandler(virtualThreadHandler);
+		server.start();
+		ExecutorService clientExecutor = Executors.newCachedThreadPool();
+		try {
+			for (int i = 0; i < 10; i++) {
+				clientExecutor.submit(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							HttpURLConnection conn = (HttpURLConnection) new URL(
+									"http://localhost:" + WEB_SERVER_PORT + "/slow").openConnection();
+							conn.getResponseCode();
+							conn.disconnect();
+						} catch (IOException ioe) {
+							// ignored
+						}
+					}
+				});
+			}
+
+			WebClient webClient = new WebClient();
+			HtmlPage page = webClient.getPage("http://localhost:" + WEB_SERVER_PORT);
+			assertTrue(page.asNormalizedText().contains("JMX Domains"));
+			webClient.close();
+
+			HttpURLConnection conn =
+					(HttpURLConnection) new URL("http://localhost:" + WEB_SERVER_PORT + "/unknown/").openConnection();
+			assertEquals(404, conn.getResponseCode());
+			conn.disconnect();
+		} finally {
+			slowLatch.countDown();
+			clientExecutor.shutdown();
+			clientExecutor.awaitTermination(5, TimeUnit.SECONDS);
+			server.stop();
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void testServerVirtualThreads() throws Exception {
+		// uses the thread pool if the JVM doesn't support virtual threads
+		JmxJetty9WebServer webServer = new JmxJetty9WebServer(InetAddress.getByName("localhost"), WEB_SERVER_PORT + 1);
+		webServer.setUseVirtualThreads(true);
+		webServer.start();
+		try {
+			WebClient webClient = new WebClient();
+			HtmlPage page = webClient.getPage("http://localhost:" + (WEB_SERVER_PORT + 1));
+			assertTrue(page.asNormalizedText().contains("JMX Domains"));
+			webClient.close();
+		} finally {
+			webServer.close();
+		}
+	}
+}
@@ -1,14 +1,37 @@
 package com.j256.simplejmx.web;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.net.HttpURLConnection;
 import java.net.InetAddress;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 import org.htmlunit.WebClient;
 import org.htmlunit.html.HtmlPage;
 import org.junit.Test;
 
+import com.j256.simplejmx.common.JmxAttributeField;
+import com.j256.simplejmx.common.JmxAttributeMethod;
+import com.j256.simplejmx.common.JmxResource;
+import com.j256.simplejmx.server.ReflectionMbean;
+
 public class JmxJetty9WebServerTest {
 
 	private static final int WEB_SERVER_PORT = 8081;
@@ -54,10 +77,357 @@ public class JmxJetty9WebServerTest {
 		}
 	}
 
+	@Test(timeout = 10000)
+	public void testStream() throws Exception {
+		int port = portCounter.getAndIncrement();
+		JmxJetty9WebServer webServer = new JmxJetty9WebServer(InetAddress.getByName("localhost"), port);
+		webServer.start();
+		MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+		StreamedObject obj = new StreamedObject();
+		ObjectName objectName = new ObjectName("j256:name=StreamedObject");
+		mbeanServer.registerMBean(new ReflectionMbean(obj, null), objectName);
+		HttpURLConnection conn = null;
+		try {
+			URL url = new URL("http://localhost:" + port + "/stream?b="
+					+ URLEncoder.encode(objectName.toString(), "UTF-8") + "&a=value&ms=100");
+			conn = (HttpURLConnection) url.openConnection();
+			assertEquals(200, conn.getResponseCode());
+			assertTrue(conn.getContentType().startsWith("text/event-stream"));
+			BufferedReader reader =
+					new BufferedReader(new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8));
+			assertEquals("data: {\"bean\":\"j256:name=StreamedObject\",\"attribute\":\"value\",\"value\":\"1\"}",
+					readData(reader));
+			// the same value is not sent again so the next event is the change
+			obj.value = 2;
+			assertEquals("data: {\"bean\":\"j256:name=StreamedObject\",\"attribute\":\"value\",\"value\":\"2\"}",
+					readData(reader));
+		} finally {
+			if (conn != null) {
+				conn.disconnect();
+			}
+			mbeanServer.unregisterMBean(objectName);
+			webServer.close();
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void testStreamNotHeldUpBySlowBean() throws Exception {
+		int port = portCounter.getAndIncrement();
+		JmxJetty9WebServer webServer = new JmxJetty9WebServer(InetAddress.getByName("localhost"), port);
+		webServer.start();
+		MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+		BlockedObject blocked = new BlockedObject();
+		ObjectName blockedName = new ObjectName("j256:name=BlockedObject");
+		mbeanServer.registerMBean(new ReflectionMbean(blocked, null), blockedName);
+		StreamedObject obj = new StreamedObject();
+		ObjectName objectName = new ObjectName("j256:name=StreamedObject");
+		mbeanServer.registerMBean(new ReflectionMbean(obj, null), objectName);
+		HttpURLConnection blockedConn = null;
+		HttpURLConnection conn = null;
+		try {
+			blockedConn = (HttpURLConnection) new URL("http://localhost:" + port + "/stream?b="
+					+ URLEncoder.encode(blockedName.toString(), "UTF-8") + "&ms=100").openConnection();
+			assertEquals(200, blockedConn.getResponseCode());
+			blocked.entered.await();
+			// the other stream still gets its changes while the blocked bean's getter is stuck
+			conn = (HttpURLConnection) new URL("http://localhost:" + port + "/stream?b="
+					+ URLEncoder.encode(objectName.toString(), "UTF-8") + "&a=value&ms=100").openConnection();
+			assertEquals(200, conn.getResponseCode());
+			BufferedReader reader =
+					new BufferedReader(new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8));
+			assertEquals("data: {\"bean\":\"j256:name=StreamedObject\",\"attribute\":\"value\",\"value\":\"1\"}",
+					readData(reader));
+			obj.value = 2;
+			assertEquals("data: {\"bean\":\"j256:name=StreamedObject\",\"attribute\":\"value\",\"value\":\"2\"}",
+					readData(reader));
+		} finally {
+			blocked.release.countDown();
+			if (conn != null) {
+				conn.disconnect();
+			}
+			if (blockedConn != null) {
+				blockedConn.disconnect();
+			}
+			mbeanServer.unregisterMBean(objectName);
+			mbeanServer.unregisterMBean(blockedName);
+			webServer.close();
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void testStreamEndsOnStop() throws Exception {
+		int port = portCounter.getAndIncrement();
+		JmxJetty9WebServer webServer = new JmxJetty9WebServer(InetAddress.getByName("localhost"), port);
+		webServer.start();
+		MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+		ObjectName objectName = new ObjectName("j256:name=StreamedObject");
+		mbeanServer.registerMBean(new ReflectionMbean(new StreamedObject(), null), objectName);
+		HttpURLConnection conn = null;
+		try {
+			// the interval is longer than the test timeout
+			URL url = new URL("http://localhost:" + port + "/stream?b="
+					+ URLEncoder.encode(objectName.toString(), "UTF-8") + "&a=value&ms=" + Long.MAX_VALUE);
+			conn = (HttpURLConnection) url.openConnection();
+			assertEquals(200, conn.getResponseCode());
+			BufferedReader reader =
+					new BufferedReader(new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8));
+			assertEquals("data: {\"bean\":\"j256:name=StreamedObject\",\"attribute\":\"value\",\"value\":\"1\"}",
+					readData(reader));
+			webServer.stop();
+			// the stream ends instead of waiting for the next interval
+			try {
+				while (reader.readLine() != null) {
+					// skip to the end
+				}
+			} catch (IOException ioe) {
+				// the connection may be closed before the end of the response
+			}
+		} finally {
+			if (conn != null) {
+				conn.disconnect();
+			}
+			mbeanServer.unregisterMBean(objectName);
+			webServer.close();
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void testStreamNoBeans() throws Exception {
+		int port = portCounter.getAndIncrement();
+		JmxJetty9WebServer webServer = new JmxJetty9WebServer(InetAddress.getByName("localhost"), port);
+		webServer.start();
+		try {
+			HttpURLConnection conn =
+					(HttpURLConnection) new URL("http://localhost:" + port + "/stream").openConnection();
+			assertEquals(400, conn.getResponseCode());
+			conn.disconnect();
+		} finally {
+			webServer.close();
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void testMetrics() throws Exception {
+		int port = portCounter.getAndIncrement();
+		JmxJetty9WebServer webServer = new JmxJetty9WebServer(InetAddress.getByName("localhost"), port);
+		webServer.start();
+		MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+		MetricsObject obj = new MetricsObject();
+		ObjectName objectName = new ObjectName("j256.metrics:type=Cache,name=\"us\\\\ers\"");
+		mbeanServer.registerMBean(new ReflectionMbean(obj, null), objectName);
+		try {
+			String content = readMetrics(port);
+			assertTrue(content, content.endsWith("# EOF\n"));
+			assertTrue(content, content.contains("# TYPE j256_metrics_hitCount gauge\n"));
+			assertTrue(content, content.contains("j256_metrics_hitCount{type=\"Cache\",name=\"us\\\\ers\"} 10\n"));
+			assertTrue(content, content.contains("j256_metrics_enabled{type=\"Cache\",name=\"us\\\\ers\"} 1\n"));
+			assertTrue(content, content.contains("j256_metrics_ratio{type=\"Cache\",name=\"us\\\\ers\"} NaN\n"));
+			assertFalse(content, content.contains("j256_metrics_label"));
+			// platform beans are not simplejmx beans
+			assertFalse(content, content.contains("java_lang_"));
+
+			// cached names are used but the values are read each time
+			obj.hitCount = 11;
+			content = readMetrics(port);
+			assertTrue(content, content.contains("j256_metrics_hitCount{type=\"Cache\",name=\"us\\\\ers\"} 11\n"));
+
+			mbeanServer.unregisterMBean(objectName);
+			content = readMetrics(port);
+			assertFalse(content, content.contains("j256_metrics_hitCount"));
+		} finally {
+			if (mbeanServer.isRegistered(objectName)) {
+				mbeanServer.unregisterMBean(objectName);
+			}
+			webServer.close();
+		}
+	}
+
+	@Test
+	public void testMetricsAllBeans() throws Exception {
+		Jetty9JmxMetricsHandler handler = new Jetty9JmxMetricsHandler();
+		handler.setMbeanServer(ManagementFactory.getPlatformMBeanServer());
+		handler.setSimplejmxBeansOnly(false);
+		handler.start();
+		try {
+			StringWriter writer = new StringWriter();
+			handler.writeMetrics(writer);
+			String content = writer.toString();
+			assertTrue(content, content.contains("java_lang_ThreadCount{type=\"Threading\"} "));
+		} finally {
+			handler.stop();
+		}
+	}
+
+	@Test
+	public void testMetricsLabelNames() throws Exception {
+		MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+		Jetty9JmxMetricsHandler handler = new Jetty9JmxMetricsHandler();
+		handler.setMbeanServer(mbeanServer);
+		handler.start();
+		ObjectName objectName = new ObjectName("j256.labels:a-b=1,a_b=2,__name=3");
+		mbeanServer.registerMBean(new ReflectionMbean(new LabelsObject(), null), objectName);
+		try {
+			StringWriter writer = new StringWriter();
+			handler.writeMetrics(writer);
+			String content = writer.toString();
+			// none of the key properties are dropped
+			assertTrue(content, content.contains("j256_labels_count{a_b=\"1\",a_b_2=\"2\",_name=\"3\"} 1\n"));
+			assertTrue(content, content.contains("# HELP j256_labels_count number of \\\"things\\\"\n"));
+		} finally {
+			mbeanServer.unregisterMBean(objectName);
+			handler.stop();
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void testConditionalRequests() throws Exception {
+		int port = portCounter.getAndIncrement();
+		JmxJetty9WebServer webServer = new JmxJetty9WebServer(InetAddress.getByName("localhost"), port);
+		webServer.start();
+		MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+		ObjectName objectName = new ObjectName("j256:name=ConditionalObject");
+		try {
+			HttpURLConnection conn = openConnection(port, "/");
+			assertEquals(200, conn.getResponseCode());
+			String etag = conn.getHeaderField("ETag");
+			long lastModified = conn.getLastModified();
+			assertNotNull(etag);
+			assertTrue(lastModified > 0);
+			conn.disconnect();
+
+			conn = openConnection(port, "/");
+			conn.setRequestProperty("If-None-Match", etag);
+			assertEquals(304, conn.getResponseCode());
+			conn.disconnect();
+
+			conn = openConnection(port, "/d/java.lang");
+			conn.setIfModifiedSince(lastModified);
+			assertEquals(304, conn.getResponseCode());
+			conn.disconnect();
+
+			// bean pages have values so aren't cached
+			conn = openConnection(port, "/b/java.lang:type=Memory");
+			assertEquals(200, conn.getResponseCode());
+			assertNull(conn.getHeaderField("ETag"));
+			conn.disconnect();
+
+			mbeanServer.registerMBean(new ReflectionMbean(new StreamedObject(), null), objectName);
+			conn = openConnection(port, "/");
+			conn.setRequestProperty("If-None-Match", etag);
+			assertEquals(200, conn.getResponseCode());
+			assertFalse(etag.equals(conn.getHeaderField("ETag")));
+			conn.disconnect();
+		} finally {
+			if (mbeanServer.isRegistered(objectName)) {
+				mbeanServer.unregisterMBean(objectName);
+			}
+			webServer.close();
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void testGzip() throws Exception {
+		int port = portCounter.getAndIncrement();
+		JmxJetty9WebServer webServer = new JmxJetty9WebServer(InetAddress.getByName("localhost"), port);
+		webServer.setGzipResponses(true);
+		webServer.start();
+		try {
+			HttpURLConnection conn = openConnection(port, "/s");
+			conn.setRequestProperty("Accept-Encoding", "gzip");
+			assertEquals(200, conn.getResponseCode());
+			assertEquals("gzip", conn.getContentEncoding());
+			BufferedReader reader = new BufferedReader(
+					new InputStreamReader(new GZIPInputStream(conn.getInputStream()), StandardCharsets.UTF_8));
+			StringBuilder sb = new StringBuilder();
+			String line;
+			while ((line = reader.readLine()) != null) {
+				sb.append(line).append('\n');
+			}
+			assertTrue(sb.toString(), sb.toString().contains("All Beans"));
+			conn.disconnect();
+
+			// not compressed when the client doesn't ask for it
+			conn = openConnection(port, "/s");
+			assertEquals(200, conn.getResponseCode());
+			assertNull(conn.getContentEncoding());
+			conn.disconnect();
+		} finally {
+			webServer.close();
+		}
+	}
+
+	private HttpURLConnection openConnection(int port, String path) throws Exception {
+		return (HttpURLConnection) new URL("http://localhost:" + port + path).openConnection();
+	}
+
+	private String readMetrics(int port) throws Exception {
+		HttpURLConnection conn = (HttpURLConnection) new URL("http://localhost:" + port + "/metrics").openConnection();
+		try {
+			assertEquals(200, conn.getResponseCode());
+			assertTrue(conn.getContentType().startsWith("application/openmetrics-text"));
+			BufferedReader reader =
+					new BufferedReader(new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8));
+			StringBuilder sb = new StringBuilder();
+			String line;
+			while ((line = reader.readLine()) != null) {
+				sb.append(line).append('\n');
+			}
+			return sb.toString();
+		} finally {
+			conn.disconnect();
+		}
+	}
+
+	private String readData(BufferedReader reader) throws Exception {
+		while (true) {
+			String line = reader.readLine();
+			if (line.startsWith("data: ")) {
+				return line;
+			}
+		}
+	}
+
 	private void testServer(int port) throws Exception {
 		WebClient webClient = new WebClient();
 		HtmlPage page = webClient.getPage("http://localhost:" + port);
 		assertTrue(page.asNormalizedText().contains("JMX Domains"));
 		webClient.close();
 	}
+
+	@JmxResource(domainName = "j256.metrics")
+	protected static class MetricsObject {
+		@JmxAttributeField
+		volatile long hitCount = 10;
+		@JmxAttributeField
+		boolean enabled = true;
+		@JmxAttributeField
+		double ratio = Double.NaN;
+		@JmxAttributeField
+		String label = "hello";
+	}
+
+	@JmxResource(domainName = "j256.labels")
+	protected static class LabelsObject {
+		@JmxAttributeField(description = "number of \"things\"")
+		int count = 1;
+	}
+
+	@JmxResource(domainName = "j256")
+	protected static class StreamedObject {
+		@JmxAttributeField
+		volatile int value = 1;
+	}
+
+	@JmxResource(domainName = "j256")
+	protected static class BlockedObject {
+		final CountDownLatch entered = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+
+		@JmxAttributeMethod
+		public int getValue() throws InterruptedException {
+			entered.countDown();
+			release.await();
+			return 1;
+		}
+	}
 }
@@ -11,11 +11,14 @@ import static org.junit.Assert.fail;
 import java.io.IOException;
 import java.io.StringWriter;
 import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.easymock.EasyMock;
 import org.htmlunit.FailingHttpStatusCodeException;
 import org.htmlunit.TextPage;
 import org.htmlunit.WebClient;
+import org.htmlunit.WebResponse;
 import org.htmlunit.html.HtmlAnchor;
 import org.htmlunit.html.HtmlElement;
 import org.htmlunit.html.HtmlForm;
@@ -253,12 +256,124 @@ public class JmxWebHandlerTest {
 		webClient.close();
 	}
 
+	@Test(timeout = 10000)
+	public void testJson() throws Exception {
+		WebClient webClient = new WebClient();
+		webClient.getOptions().setThrowExceptionOnFailingStatusCode(false);
+		String prefix = "http://" + WEB_SERVER_NAME + ":" + WEB_SERVER_PORT + "/jmx";
+
+		WebResponse response = webClient.getPage(prefix + "/?j=1").getWebResponse();
+		assertEquals("application/json", response.getContentType());
+		String content = response.getContentAsString();
+		assertTrue(content, content.startsWith("{\"domains\":["));
+		assertTrue(content, content.contains("\"" + DOMAIN_NAME + "\""));
+
+		response = webClient.getPage(prefix + "/d/" + DOMAIN_NAME + "?j=1").getWebResponse();
+		content = response.getContentAsString();
+		assertTrue(content, content.startsWith("{\"domain\":\"" + DOMAIN_NAME + "\",\"beans\":["));
+		String beanName = DOMAIN_NAME + ":name=" + OBJECT_NAME;
+		assertTrue(content, content.contains("\"name\":\"" + beanName + "\""));
+
+		testBean.value = 10;
+		response = webClient.getPage(prefix + "/b/" + beanName + "?j=1").getWebResponse();
+		content = response.getContentAsString();
+		// numbers are not quoted
+		assertTrue(content, content.contains("\"name\":\"value\",\"type\":\"int\""));
+		assertTrue(content, content.contains("\"value\":10}"));
+		assertTrue(content, content.contains("\"readable\":false"));
+		assertTrue(content, content.contains("\"value\":\"Getting attribute threw: "));
+		assertTrue(content, content.contains("\"name\":\"assignValue\""));
+
+		response = webClient.getPage(prefix + "/a/java.lang:type=Memory/Verbose?val=false&j=1").getWebResponse();
+		assertEquals(200, response.getStatusCode());
+		assertTrue(response.getContentAsString(), response.getContentAsString().contains("\"value\":false}"));
+
+		response = webClient.getPage(prefix + "/a/" + beanName + "/value?val=12&j=1").getWebResponse();
+		// not writable
+		assertEquals(500, response.getStatusCode());
+
+		response = webClient.getPage(prefix + "/o/" + beanName + "/assignValue?p0=13&j=1").getWebResponse();
+		content = response.getContentAsString();
+		assertTrue(content, content.contains("\"result\":\"13\""));
+		assertEquals(13, testBean.value);
+
+		response = webClient.getPage(prefix + "/b/:::::?j=1").getWebResponse();
+		assertEquals(400, response.getStatusCode());
+		assertTrue(response.getContentAsString().startsWith("{\"error\":"));
+
+		response = webClient.getPage(prefix + "/b/hello:name=there?j=1").getWebResponse();
+		assertEquals(404, response.getStatusCode());
+
+		response = webClient.getPage(prefix + "/unknown/?j=1").getWebResponse();
+		assertEquals(404, response.getStatusCode());
+
+		webClient.close();
+	}
+
+	@Test(timeout = 10000)
+	public void testPaging() throws Exception {
+		WebClient webClient = new WebClient();
+		webClient.getOptions().setThrowExceptionOnFailingStatusCode(false);
+		String prefix = "http://" + WEB_SERVER_NAME + ":" + WEB_SERVER_PORT + "/jmx";
+
+		// walk the pages using the text cursor line
+		List<String> names = new ArrayList<String>();
+		String url = prefix + "/d/java.lang?n=2&t=1";
+		int pageCount = 0;
+		while (url != null) {
+			TextPage textPage = webClient.getPage(url);
+			url = null;
+			for (String line : textPage.getContent().split("\n")) {
+				if (line.startsWith("next=")) {
+					url = "http://" + WEB_SERVER_NAME + ":" + WEB_SERVER_PORT + line.substring("next=".length());
+				} else if (!line.isEmpty()) {
+					names.add(line);
+				}
+			}
+			pageCount++;
+		}
+		assertTrue(pageCount > 1);
+		List<String> allNames = new ArrayList<String>();
+		for (String line : ((TextPage) webClient.getPage(prefix + "/d/java.lang?n=0&t=1")).getContent().split("\n")) {
+			allNames.add(line);
+		}
+		assertEquals(allNames, names);
+
+		// html next link
+		HtmlPage page = webClient.getPage(prefix + "/d/java.lang?n=1");
+		HtmlAnchor anchor = page.getAnchorByName("next");
+		page = anchor.click();
+		assertTrue(page.asNormalizedText(), page.asNormalizedText().contains(allNames.get(1).substring(10)));
+
+		// json cursor
+		String content = webClient.getPage(prefix + "/d/java.lang?n=1&j=1").getWebResponse().getContentAsString();
+		assertTrue(content, content.endsWith(",\"next\":\"" + allNames.get(0) + "\"}"));
+
+		// filters
+		content = ((TextPage) webClient.getPage(prefix + "/s?k=type%3DMemoryPool&t=1")).getContent();
+		for (String line : content.split("\n")) {
+			assertTrue(content, line.contains("type=MemoryPool"));
+		}
+		content = ((TextPage) webClient.getPage(prefix + "/s?r=Test.*n&t=1")).getContent();
+		assertEquals(DOMAIN_NAME + ":name=" + OBJECT_NAME + "\n", content);
+
+		WebResponse response = webClient.getPage(prefix + "/d/java.lang?n=wow&j=1").getWebResponse();
+		assertEquals(400, response.getStatusCode());
+		response = webClient.getPage(prefix + "/d/java.lang?r=%28&j=1").getWebResponse();
+		assertEquals(400, response.getStatusCode());
+		page = webClient.getPage(prefix + "/d/java.lang?k=%3D");
+		assertTrue(page.asNormalizedText().contains("Invalid key properties"));
+
+		webClient.close();
+	}
+
 	@Test
 	public void coverage() throws IOException {
 		JmxWebHandler handler = new JmxWebHandler();
 		JmxWebPublisher webPublisher = EasyMock.createMock(JmxWebPublisher.class);
 
 		expect(webPublisher.getRequestPathInfo()).andReturn(null);
+		expect(webPublisher.getRequestQueryParameter("j")).andReturn(null);
 		expect(webPublisher.getRequestQueryParameter("t")).andReturn(null);
 		webPublisher.setResponseContentType("text/html");
 
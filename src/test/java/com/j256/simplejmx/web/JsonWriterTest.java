@@ -0,0 +1,87 @@
+package com.j256.simplejmx.web;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.management.openmbean.CompositeDataSupport;
+import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.OpenDataException;
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.SimpleType;
+import javax.management.openmbean.TabularDataSupport;
+import javax.management.openmbean.TabularType;
+
+import org.junit.Test;
+
+public class JsonWriterTest {
+
+	@Test
+	public void testSimpleValues() throws IOException {
+		assertEquals("null", toJson(null));
+		assertEquals("\"hello\"", toJson("hello"));
+		assertEquals("true", toJson(true));
+		assertEquals("12", toJson(12));
+		assertEquals("-1.5", toJson(-1.5));
+		assertEquals("\"NaN\"", toJson(Double.NaN));
+		assertEquals("\"Infinity\"", toJson(Float.POSITIVE_INFINITY));
+		assertEquals("\"" + Thread.State.RUNNABLE + "\"", toJson(Thread.State.RUNNABLE));
+	}
+
+	@Test
+	public void testEscaping() throws IOException {
+		assertEquals("\"a\\\"b\\\\c\\nd\\re\\tf\\u0001g\\u2028\"", toJson("a\"b\\c\nd\re\tf\u0001g "));
+	}
+
+	@Test
+	public void testArrays() throws IOException {
+		assertEquals("[1,2,3]", toJson(new int[] { 1, 2, 3 }));
+		assertEquals("[\"a\",null]", toJson(new String[] { "a", null }));
+		assertEquals("[[1],[]]", toJson(new long[][] { { 1 }, {} }));
+		assertEquals("[true,\"x\"]", toJson(Arrays.asList(true, "x")));
+		Map<String, Object> map = new LinkedHashMap<String, Object>();
+		map.put("a", 1);
+		map.put("b", new int[] { 2 });
+		assertEquals("{\"a\":1,\"b\":[2]}", toJson(map));
+	}
+
+	@Test
+	public void testOpenData() throws Exception {
+		CompositeType compositeType = new CompositeType("row", "row", new String[] { "name", "count" },
+				new String[] { "name", "count" }, new OpenType<?>[] { SimpleType.STRING, SimpleType.INTEGER });
+		// keys are written sorted
+		assertEquals("{\"count\":1,\"name\":\"foo\"}", toJson(makeRow(compositeType, "foo", 1)));
+
+		TabularDataSupport tabularData =
+				new TabularDataSupport(new TabularType("table", "table", compositeType, new String[] { "name" }));
+		tabularData.put(makeRow(compositeType, "bar", 2));
+		assertEquals("[{\"count\":2,\"name\":\"bar\"}]", toJson(tabularData));
+	}
+
+	@Test
+	public void testObject() throws IOException {
+		StringWriter writer = new StringWriter();
+		JsonWriter json = new JsonWriter(writer);
+		json.beginObject();
+		json.field("name", "foo");
+		json.name("list").beginArray().value(1).beginObject().endObject().endArray();
+		json.name("empty").beginArray().endArray();
+		json.endObject();
+		assertEquals("{\"name\":\"foo\",\"list\":[1,{}],\"empty\":[]}", writer.toString());
+	}
+
+	private CompositeDataSupport makeRow(CompositeType compositeType, String name, int count)
+			throws OpenDataException {
+		return new CompositeDataSupport(compositeType, new String[] { "name", "count" }, new Object[] { name, count });
+	}
+
+	private String toJson(Object value) throws IOException {
+		StringWriter writer = new StringWriter();
+		new JsonWriter(writer).value(value);
+		return writer.toString();
+	}
+}